@@ -0,0 +1,34 @@
+package com.smartdelivery.dispatcher.client;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limite le nombre d'appels simultanés vers un service distant.
+ * Un appel refusé échoue immédiatement au lieu d'attendre une place.
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+
+    public Bulkhead(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+}
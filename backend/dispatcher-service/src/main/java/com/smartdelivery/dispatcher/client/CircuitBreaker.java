@@ -0,0 +1,113 @@
+package com.smartdelivery.dispatcher.client;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur simple basé sur une fenêtre glissante des N derniers appels.
+ * CLOSED : les appels passent ; OPEN : ils sont refusés pendant openDurationMs ;
+ * HALF_OPEN : un seul appel d'essai décide de la fermeture ou d'une nouvelle ouverture.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int failureRateThreshold;
+    private final long openDurationMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int failureRateThreshold, long openDurationMs) {
+        this(windowSize, failureRateThreshold, openDurationMs, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int windowSize, int failureRateThreshold, long openDurationMs, LongSupplier clock) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("La taille de la fenêtre doit être positive");
+        }
+        this.window = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Demande l'autorisation d'effectuer un appel
+     * @return false si le circuit est ouvert
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openDurationMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded == window.length && failures * 100 >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length && window[position]) {
+            failures--;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+        recorded = Math.min(recorded + 1, window.length);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        trialInFlight = false;
+        Arrays.fill(window, false);
+    }
+}
@@ -0,0 +1,32 @@
+package com.smartdelivery.dispatcher.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "dispatcher.offer.enabled", havingValue = "true")
+public class OfferConfig {
+
+    // Les offres sont tenues par le nœud qui les a émises : chaque nœud reçoit toutes les réponses
+    // et ne traite que celles des offres qu'il détient
+    @Bean
+    public Queue offerResponseQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding offerResponseBinding(TopicExchange deliveryExchange,
+                                        @Value("${rabbitmq.routingkey.offer-response:courier.offer.response}") String routingKey) {
+        return BindingBuilder
+                .bind(offerResponseQueue())
+                .to(deliveryExchange)
+                .with(routingKey);
+    }
+}
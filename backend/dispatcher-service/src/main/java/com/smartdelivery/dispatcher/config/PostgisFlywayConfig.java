@@ -0,0 +1,28 @@
+package com.smartdelivery.dispatcher.config;
+
+import org.flywaydb.core.api.Location;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+
+@Configuration
+@ConditionalOnProperty(name = "dispatcher.geo.mode", havingValue = "postgis")
+public class PostgisFlywayConfig {
+
+    public static final String POSTGIS_LOCATION = "classpath:db/postgis";
+
+    // Migrations PostGIS (colonne geography des livreurs) appliquées en plus de spring.flyway.locations,
+    // uniquement en mode postgis : sans l'extension sur le serveur, le démarrage échoue à la migration
+    @Bean
+    public FlywayConfigurationCustomizer postgisFlywayLocation() {
+        return configuration -> {
+            Location[] locations = configuration.getLocations();
+            Location[] withPostgis = Arrays.copyOf(locations, locations.length + 1);
+            withPostgis[locations.length] = new Location(POSTGIS_LOCATION);
+            configuration.locations(withPostgis);
+        };
+    }
+}
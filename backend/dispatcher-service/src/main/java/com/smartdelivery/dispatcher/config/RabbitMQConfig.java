@@ -9,6 +9,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -18,6 +21,27 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.queue.created.name}")
     private String createdQueueName;
 
+    @Value("${rabbitmq.routingkey.redispatch:delivery.redispatch}")
+    private String redispatchRoutingKey;
+
+    @Value("${rabbitmq.routingkey.courier-status:courier.status.updated}")
+    private String courierStatusRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-cancelled:assignments.cancelled}")
+    private String assignmentsCancelledRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-completed:assignments.completed}")
+    private String assignmentsCompletedRoutingKey;
+
+    @Value("${rabbitmq.queue.location.name}")
+    private String locationQueueName;
+
+    @Value("${rabbitmq.queue.created.dlq.name}")
+    private String createdDeadLetterQueueName;
+
+    @Value("${dispatcher.listener.retry-delays-ms:5000,30000,120000}")
+    private List<Long> retryDelays;
+
     // Création de l'exchange
     @Bean
     public TopicExchange deliveryExchange() {
@@ -30,6 +54,35 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(createdQueueName).build();
     }
 
+    // Queue de rejet définitif des événements delivery.created en échec
+    @Bean
+    public Queue createdDeadLetterQueue() {
+        return QueueBuilder.durable(createdDeadLetterQueueName).build();
+    }
+
+    // Queues de retry : chaque message y attend son délai puis revient directement dans la queue principale
+    @Bean
+    public Declarables createdRetryQueues() {
+        List<Declarable> queues = new ArrayList<>();
+        for (Long delay : retryDelays) {
+            queues.add(QueueBuilder.durable(retryQueueName(createdQueueName, delay))
+                    .ttl(delay.intValue())
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(createdQueueName)
+                    .build());
+        }
+        return new Declarables(queues);
+    }
+
+    public static String retryQueueName(String queueName, long delayMs) {
+        return queueName + ".retry." + delayMs;
+    }
+
+    @Bean
+    public Queue locationQueue() {
+        return QueueBuilder.durable(locationQueueName).build();
+    }
+
     // Binding entre l'exchange et les queues
     @Bean
     public Binding createdBinding() {
@@ -39,6 +92,39 @@ public class RabbitMQConfig {
                 .with("delivery.created");
     }
 
+    // Les livraisons dont l'assignment a expiré reviennent dans la même queue d'attribution
+    @Bean
+    public Binding redispatchBinding() {
+        return BindingBuilder
+                .bind(createdQueue())
+                .to(deliveryExchange())
+                .with(redispatchRoutingKey);
+    }
+
+    @Bean
+    public Binding locationBinding() {
+        return BindingBuilder
+                .bind(locationQueue())
+                .to(deliveryExchange())
+                .with("location.updated");
+    }
+
+    // Queue propre à chaque instance pour la carte de chaleur : chaque nœud voit tous les événements
+    @Bean
+    public Queue heatmapQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Declarables heatmapBindings() {
+        return new Declarables(
+                BindingBuilder.bind(heatmapQueue()).to(deliveryExchange()).with("delivery.created"),
+                BindingBuilder.bind(heatmapQueue()).to(deliveryExchange()).with("delivery.dispatched"),
+                BindingBuilder.bind(heatmapQueue()).to(deliveryExchange()).with(courierStatusRoutingKey),
+                BindingBuilder.bind(heatmapQueue()).to(deliveryExchange()).with(assignmentsCancelledRoutingKey),
+                BindingBuilder.bind(heatmapQueue()).to(deliveryExchange()).with(assignmentsCompletedRoutingKey));
+    }
+
     // Configuration du convertisseur de messages JSON
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -53,4 +139,26 @@ public class RabbitMQConfig {
         factory.setMessageConverter(jsonMessageConverter());
         return factory;
     }
+
+    // Conteneur en mode batch : acquittement manuel et prefetch configurable.
+    // Un seul consommateur par queue : l'ordre par livraison n'est garanti qu'au sein d'un consommateur,
+    // le parallélisme vient des workers partitionnés par ID de livraison
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${dispatcher.listener.batch.size:50}") int batchSize,
+            @Value("${dispatcher.listener.batch.receive-timeout-ms:200}") long receiveTimeout,
+            @Value("${dispatcher.listener.prefetch:250}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
 }
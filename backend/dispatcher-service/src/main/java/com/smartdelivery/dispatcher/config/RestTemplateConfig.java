@@ -1,14 +1,47 @@
 package com.smartdelivery.dispatcher.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${route.optimizer.client.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${route.optimizer.client.request-timeout-ms:3000}")
+    private long requestTimeoutMs;
+
+    @Value("${route.optimizer.client.io-threads:4}")
+    private int ioThreads;
+
+    // Client HTTP partagé : les connexions keep-alive sont mutualisées entre les appels
+    @Bean
+    public HttpClient httpClient() {
+        ExecutorService executor = Executors.newFixedThreadPool(ioThreads, runnable -> {
+            Thread thread = new Thread(runnable, "http-client-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClient httpClient) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(requestTimeoutMs));
+        return new RestTemplate(requestFactory);
     }
 }
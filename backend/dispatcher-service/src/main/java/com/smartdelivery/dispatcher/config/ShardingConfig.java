@@ -0,0 +1,31 @@
+package com.smartdelivery.dispatcher.config;
+
+import com.smartdelivery.dispatcher.shard.ShardCoordinator;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "dispatcher.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Value("${rabbitmq.queue.created.name}")
+    private String createdQueueName;
+
+    // Queue propre au nœud, liée dynamiquement aux clés de routage des shards qu'il détient.
+    // Un message non consommé à temps (nœud arrêté) retourne dans la queue d'entrée pour être re-routé.
+    @Bean
+    public Queue shardQueue(ShardCoordinator shardCoordinator,
+                            @Value("${dispatcher.sharding.queue-message-ttl-ms:60000}") int messageTtl,
+                            @Value("${dispatcher.sharding.queue-expires-ms:300000}") int expires) {
+        return QueueBuilder.durable("dispatcher.shard." + shardCoordinator.getNodeId())
+                .ttl(messageTtl)
+                .expires(expires)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(createdQueueName)
+                .build();
+    }
+}
@@ -1,12 +1,17 @@
 package com.smartdelivery.dispatcher.controller;
 
+import com.smartdelivery.dispatcher.model.AssignmentHistoryEntry;
+import com.smartdelivery.dispatcher.model.BulkAssignmentResult;
 import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.service.AssignmentArchiveService;
 import com.smartdelivery.dispatcher.service.DispatcherService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,6 +22,7 @@ import java.util.UUID;
 public class DispatcherController {
 
     private final DispatcherService dispatcherService;
+    private final AssignmentArchiveService archiveService;
 
     @PostMapping("/assign")
     public ResponseEntity<DeliveryAssignment> assignDelivery(
@@ -39,12 +45,32 @@ public class DispatcherController {
     }
 
     @GetMapping("/couriers/{courierId}/assignments")
-    public ResponseEntity<List<DeliveryAssignment>> getAssignmentsByCourierId(@PathVariable UUID courierId) {
+    public ResponseEntity<List<DeliveryAssignment>> getAssignmentsByCourierId(
+            @PathVariable UUID courierId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         log.info("Getting assignments for courier ID: {}", courierId);
-        List<DeliveryAssignment> assignments = dispatcherService.getAssignmentsByCourierId(courierId);
+        // Sans période explicite, seuls les 30 derniers jours sont lus
+        LocalDateTime end = to != null ? to : LocalDateTime.now().plusMinutes(1);
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        List<DeliveryAssignment> assignments = dispatcherService.getAssignmentsByCourierId(courierId, start, end);
         return ResponseEntity.ok(assignments);
     }
 
+    @GetMapping("/couriers/{courierId}/assignments/history")
+    public ResponseEntity<List<AssignmentHistoryEntry>> getAssignmentHistory(
+            @PathVariable UUID courierId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "500") int limit) {
+        log.info("Getting assignment history for courier ID: {} from {} to {}", courierId, from, to);
+        try {
+            return ResponseEntity.ok(archiveService.getHistory(courierId, from, to, Math.max(1, Math.min(limit, 5000))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/couriers/{courierId}/assignments/active")
     public ResponseEntity<List<DeliveryAssignment>> getActiveAssignmentsByCourierId(@PathVariable UUID courierId) {
         log.info("Getting active assignments for courier ID: {}", courierId);
@@ -58,4 +84,46 @@ public class DispatcherController {
         List<DeliveryAssignment> assignments = dispatcherService.cancelAllActiveAssignmentsByCourierId(courierId);
         return ResponseEntity.ok(assignments);
     }
+
+    @PostMapping("/couriers/{courierId}/assignments/complete")
+    public ResponseEntity<BulkAssignmentResult> completeAssignmentsByCourierId(@PathVariable UUID courierId) {
+        log.info("Completing in-progress assignments for courier ID: {}", courierId);
+        return ResponseEntity.ok(dispatcherService.completeAssignmentsByCourier(courierId));
+    }
+
+    @PostMapping("/assignments/bulk/cancel")
+    public ResponseEntity<BulkAssignmentResult> cancelAssignmentsByDeliveries(@RequestBody List<UUID> deliveryIds) {
+        log.info("Cancelling active assignments for {} deliveries", deliveryIds.size());
+        return ResponseEntity.ok(dispatcherService.cancelAssignmentsByDeliveries(deliveryIds));
+    }
+
+    @PostMapping("/assignments/bulk/complete")
+    public ResponseEntity<BulkAssignmentResult> completeAssignmentsByDeliveries(@RequestBody List<UUID> deliveryIds) {
+        log.info("Completing in-progress assignments for {} deliveries", deliveryIds.size());
+        return ResponseEntity.ok(dispatcherService.completeAssignmentsByDeliveries(deliveryIds));
+    }
+
+    @PostMapping("/assignments/zone/cancel")
+    public ResponseEntity<BulkAssignmentResult> cancelAssignmentsByZone(
+            @RequestParam double minLatitude,
+            @RequestParam double maxLatitude,
+            @RequestParam double minLongitude,
+            @RequestParam double maxLongitude) {
+        log.info("Cancelling active assignments with pickup in zone [{}, {}] x [{}, {}]",
+                minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return ResponseEntity.ok(dispatcherService.cancelAssignmentsByZone(
+                minLatitude, maxLatitude, minLongitude, maxLongitude));
+    }
+
+    @PostMapping("/assignments/zone/complete")
+    public ResponseEntity<BulkAssignmentResult> completeAssignmentsByZone(
+            @RequestParam double minLatitude,
+            @RequestParam double maxLatitude,
+            @RequestParam double minLongitude,
+            @RequestParam double maxLongitude) {
+        log.info("Completing in-progress assignments with pickup in zone [{}, {}] x [{}, {}]",
+                minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return ResponseEntity.ok(dispatcherService.completeAssignmentsByZone(
+                minLatitude, maxLatitude, minLongitude, maxLongitude));
+    }
 }
@@ -0,0 +1,41 @@
+package com.smartdelivery.dispatcher.controller;
+
+import com.smartdelivery.dispatcher.fleet.FleetCounters;
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.model.Courier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dispatcher/fleet")
+@RequiredArgsConstructor
+public class FleetController {
+
+    private final FleetState fleetState;
+
+    @GetMapping("/counters")
+    public ResponseEntity<Map<String, Object>> getCounters(
+            @RequestParam(required = false) Courier.CourierStatus zoneStatus) {
+        FleetCounters counters = fleetState.getCounters();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", counters.total());
+        response.put("byStatus", counters.statusBreakdown());
+        response.put("byVehicleType", counters.vehicleBreakdown());
+        if (zoneStatus != null) {
+            response.put("byZone", counters.zoneBreakdown(zoneStatus));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/counters/available")
+    public ResponseEntity<Long> countAvailableCouriers() {
+        return ResponseEntity.ok(fleetState.getCounters().count(Courier.CourierStatus.AVAILABLE));
+    }
+}
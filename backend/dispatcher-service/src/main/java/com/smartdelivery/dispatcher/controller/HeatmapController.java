@@ -0,0 +1,37 @@
+package com.smartdelivery.dispatcher.controller;
+
+import com.smartdelivery.dispatcher.heatmap.DemandHeatmap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dispatcher/heatmap")
+@RequiredArgsConstructor
+public class HeatmapController {
+
+    private final DemandHeatmap heatmap;
+
+    @GetMapping
+    public ResponseEntity<List<DemandHeatmap.HeatmapCell>> getHeatmap(
+            @RequestParam(defaultValue = "false") boolean surgingOnly,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(heatmap.snapshot(surgingOnly, Math.max(1, limit)));
+    }
+
+    @GetMapping("/surge")
+    public ResponseEntity<Map<String, Object>> getSurge(
+            @RequestParam double latitude,
+            @RequestParam double longitude) {
+        return ResponseEntity.ok(Map.of(
+                "pressure", heatmap.pressure(latitude, longitude),
+                "surging", heatmap.isSurging(latitude, longitude),
+                "windowMinutes", heatmap.getWindowMinutes()));
+    }
+}
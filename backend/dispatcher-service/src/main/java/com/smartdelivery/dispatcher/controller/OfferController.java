@@ -0,0 +1,50 @@
+package com.smartdelivery.dispatcher.controller;
+
+import com.smartdelivery.dispatcher.offer.OfferBroker;
+import com.smartdelivery.dispatcher.offer.OfferResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/dispatcher/offers")
+@ConditionalOnProperty(name = "dispatcher.offer.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OfferController {
+
+    private final OfferBroker offerBroker;
+
+    @PostMapping("/{offerId}/accept")
+    public ResponseEntity<Map<String, Object>> acceptOffer(
+            @PathVariable UUID offerId,
+            @RequestParam UUID courierId) {
+        log.info("Courier {} accepting offer {}", courierId, offerId);
+        return toResponse(offerId, offerBroker.respondOrForward(offerId, courierId, true));
+    }
+
+    @PostMapping("/{offerId}/decline")
+    public ResponseEntity<Map<String, Object>> declineOffer(
+            @PathVariable UUID offerId,
+            @RequestParam UUID courierId) {
+        log.info("Courier {} declining offer {}", courierId, offerId);
+        return toResponse(offerId, offerBroker.respondOrForward(offerId, courierId, false));
+    }
+
+    private ResponseEntity<Map<String, Object>> toResponse(UUID offerId, OfferResponse response) {
+        HttpStatus status = switch (response) {
+            case ACCEPTED, DECLINED -> HttpStatus.OK;
+            case FORWARDED -> HttpStatus.ACCEPTED;
+            case NOT_OFFERED -> HttpStatus.FORBIDDEN;
+            case TAKEN, EXPIRED, REJECTED -> HttpStatus.CONFLICT;
+            case CLOSED -> HttpStatus.GONE;
+        };
+        return ResponseEntity.status(status).body(Map.of("offerId", offerId, "result", response));
+    }
+}
@@ -0,0 +1,246 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * État en mémoire d'un livreur : position, statut et capacité restante.
+ * Les méthodes de réservation sont synchronisées sur l'instance pour que deux
+ * attributions concurrentes ne dépassent jamais la capacité du livreur.
+ */
+public class CourierState {
+
+    static final long NO_ZONE = Long.MIN_VALUE;
+
+    private final UUID courierId;
+
+    private volatile double latitude;
+    private volatile double longitude;
+    private volatile boolean located;
+    private volatile Courier.CourierStatus status;
+    private volatile Courier.VehicleType vehicleType;
+    private volatile long cell;
+
+    private double maxWeight;
+    private double maxVolume;
+    private double usedWeight;
+    private double usedVolume;
+
+    // Statut, véhicule et zone sous lesquels le livreur est compté dans FleetCounters (protégés par le verrou de l'instance)
+    private boolean counted;
+    private Courier.CourierStatus countedStatus;
+    private Courier.VehicleType countedVehicle;
+    private long countedZone = NO_ZONE;
+
+    // Charges en cours, dans l'ordre d'attribution, indexées par ID de livraison
+    private final Map<UUID, Load> loads = new LinkedHashMap<>();
+
+    public CourierState(UUID courierId) {
+        this.courierId = courierId;
+    }
+
+    public UUID getCourierId() {
+        return courierId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean isLocated() {
+        return located;
+    }
+
+    public Courier.CourierStatus getStatus() {
+        return status;
+    }
+
+    public Courier.VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public long getCell() {
+        return cell;
+    }
+
+    void setPosition(double latitude, double longitude, long cell) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.cell = cell;
+        this.located = true;
+    }
+
+    void setStatus(Courier.CourierStatus status) {
+        this.status = status;
+    }
+
+    boolean isCounted() {
+        return counted;
+    }
+
+    Courier.CourierStatus getCountedStatus() {
+        return countedStatus;
+    }
+
+    Courier.VehicleType getCountedVehicle() {
+        return countedVehicle;
+    }
+
+    long getCountedZone() {
+        return countedZone;
+    }
+
+    void setCounted(Courier.CourierStatus status, Courier.VehicleType vehicle, long zone) {
+        this.counted = true;
+        this.countedStatus = status;
+        this.countedVehicle = vehicle;
+        this.countedZone = zone;
+    }
+
+    void clearCounted() {
+        this.counted = false;
+        this.countedStatus = null;
+        this.countedVehicle = null;
+        this.countedZone = NO_ZONE;
+    }
+
+    synchronized void setVehicle(Courier.VehicleType vehicleType, double maxWeight, double maxVolume) {
+        this.vehicleType = vehicleType;
+        this.maxWeight = maxWeight;
+        this.maxVolume = maxVolume;
+    }
+
+    synchronized double getMaxWeight() {
+        return maxWeight;
+    }
+
+    synchronized double getMaxVolume() {
+        return maxVolume;
+    }
+
+    /**
+     * Copie des charges en cours, dans l'ordre d'attribution
+     */
+    synchronized Map<UUID, Load> copyLoads() {
+        return new LinkedHashMap<>(loads);
+    }
+
+    public synchronized double getRemainingWeight() {
+        return maxWeight - usedWeight;
+    }
+
+    public synchronized double getRemainingVolume() {
+        return maxVolume - usedVolume;
+    }
+
+    public synchronized int getActiveLoadCount() {
+        return loads.size();
+    }
+
+    /**
+     * Indique si le livreur peut prendre en charge un colis supplémentaire
+     * @param weight Poids du colis en kg
+     * @param volume Volume du colis en m³
+     * @param maxConcurrent Nombre maximal de livraisons simultanées
+     */
+    public synchronized boolean canCarry(double weight, double volume, int maxConcurrent) {
+        return loads.size() < maxConcurrent
+                && usedWeight + weight <= maxWeight
+                && usedVolume + volume <= maxVolume;
+    }
+
+    /**
+     * Indique si le livreur pourrait prendre le colis une fois les livraisons données libérées,
+     * sans modifier ses charges
+     */
+    public synchronized boolean canCarryAfterRelease(Collection<UUID> deliveryIds, double weight, double volume,
+                                                     int maxConcurrent) {
+        int count = loads.size();
+        double weightAfter = usedWeight;
+        double volumeAfter = usedVolume;
+        for (UUID deliveryId : new HashSet<>(deliveryIds)) {
+            Load load = loads.get(deliveryId);
+            if (load != null) {
+                count--;
+                weightAfter -= load.weight;
+                volumeAfter -= load.volume;
+            }
+        }
+        return count < maxConcurrent
+                && weightAfter + weight <= maxWeight
+                && volumeAfter + volume <= maxVolume;
+    }
+
+    /**
+     * Réserve la capacité nécessaire pour une livraison
+     * @return true si la réservation a réussi
+     */
+    public synchronized boolean tryReserve(UUID deliveryId, double weight, double volume,
+                                           Double dropoffLatitude, Double dropoffLongitude, int maxConcurrent) {
+        if (loads.containsKey(deliveryId) || !canCarry(weight, volume, maxConcurrent)) {
+            return false;
+        }
+        restore(deliveryId, weight, volume, dropoffLatitude, dropoffLongitude);
+        return true;
+    }
+
+    /**
+     * Enregistre une charge sans contrôle de capacité (reconstruction depuis la base)
+     */
+    synchronized void restore(UUID deliveryId, double weight, double volume,
+                              Double dropoffLatitude, Double dropoffLongitude) {
+        Load previous = loads.put(deliveryId, new Load(weight, volume, dropoffLatitude, dropoffLongitude));
+        if (previous != null) {
+            usedWeight -= previous.weight;
+            usedVolume -= previous.volume;
+        }
+        usedWeight += weight;
+        usedVolume += volume;
+    }
+
+    /**
+     * Libère la capacité réservée pour une livraison
+     * @return true si une charge a été libérée
+     */
+    public synchronized boolean release(UUID deliveryId) {
+        Load load = loads.remove(deliveryId);
+        if (load == null) {
+            return false;
+        }
+        usedWeight = loads.isEmpty() ? 0.0 : usedWeight - load.weight;
+        usedVolume = loads.isEmpty() ? 0.0 : usedVolume - load.volume;
+        return true;
+    }
+
+    synchronized void releaseAll() {
+        loads.clear();
+        usedWeight = 0.0;
+        usedVolume = 0.0;
+    }
+
+    /**
+     * Dernier point de dépôt prévu pour ce livreur, ou null s'il n'a aucune charge localisée
+     * @return {latitude, longitude} ou null
+     */
+    public synchronized double[] getTail() {
+        double[] tail = null;
+        for (Load load : loads.values()) {
+            if (load.dropoffLatitude != null && load.dropoffLongitude != null) {
+                tail = new double[]{load.dropoffLatitude, load.dropoffLongitude};
+            }
+        }
+        return tail;
+    }
+
+    record Load(double weight, double volume, Double dropoffLatitude, Double dropoffLongitude) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Expose les compteurs de la flotte sous forme de jauges Micrometer.
+ * Les zones ne sont pas exportées afin de borner la cardinalité des séries.
+ */
+@Component
+public class FleetCounterMetrics {
+
+    public FleetCounterMetrics(FleetState fleetState, MeterRegistry meterRegistry) {
+        FleetCounters counters = fleetState.getCounters();
+        for (Courier.CourierStatus status : Courier.CourierStatus.values()) {
+            Gauge.builder("dispatcher.fleet.couriers", counters, c -> c.count(status))
+                    .tag("status", status.name())
+                    .description("Livreurs par statut")
+                    .register(meterRegistry);
+            for (Courier.VehicleType vehicle : Courier.VehicleType.values()) {
+                Gauge.builder("dispatcher.fleet.couriers.by_vehicle", counters, c -> c.count(vehicle, status))
+                        .tag("status", status.name())
+                        .tag("vehicle_type", vehicle.name())
+                        .description("Livreurs par statut et type de véhicule")
+                        .register(meterRegistry);
+            }
+        }
+    }
+}
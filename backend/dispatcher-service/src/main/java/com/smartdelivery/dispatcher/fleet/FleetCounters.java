@@ -0,0 +1,184 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs de la flotte par statut, par type de véhicule et par zone (cellule de l'index spatial).
+ * Chaque livreur est compté une seule fois : l'instantané compté est conservé sur son CourierState
+ * et {@link #sync(CourierState)} n'applique que la différence. La lecture est une simple somme de LongAdder,
+ * sans requête en base.
+ */
+public class FleetCounters {
+
+    private static final Courier.CourierStatus[] STATUSES = Courier.CourierStatus.values();
+    private static final Courier.VehicleType[] VEHICLES = Courier.VehicleType.values();
+    private static final int NO_VEHICLE = VEHICLES.length;
+
+    private final LongAdder[] byStatus = newAdders(STATUSES.length);
+    private final LongAdder[][] byVehicle = new LongAdder[VEHICLES.length + 1][];
+    private final Map<Long, LongAdder[]> byZone = new ConcurrentHashMap<>();
+
+    public FleetCounters() {
+        for (int i = 0; i < byVehicle.length; i++) {
+            byVehicle[i] = newAdders(STATUSES.length);
+        }
+    }
+
+    /**
+     * Aligne les compteurs sur l'état courant du livreur.
+     * Doit être appelé sous le verrou du CourierState, après chaque changement de statut, de véhicule ou de cellule.
+     */
+    void sync(CourierState state) {
+        Courier.CourierStatus status = state.getStatus();
+        Courier.VehicleType vehicle = state.getVehicleType();
+        long zone = state.isLocated() ? state.getCell() : CourierState.NO_ZONE;
+        if (state.isCounted() && state.getCountedStatus() == status
+                && state.getCountedVehicle() == vehicle && state.getCountedZone() == zone) {
+            return;
+        }
+        if (state.isCounted()) {
+            add(state.getCountedStatus(), state.getCountedVehicle(), state.getCountedZone(), -1);
+        }
+        if (status != null) {
+            add(status, vehicle, zone, 1);
+            state.setCounted(status, vehicle, zone);
+        } else {
+            state.clearCounted();
+        }
+    }
+
+    /**
+     * Recompte entièrement la flotte et corrige les compteurs par différence.
+     * Une transition concurrente au recomptage peut laisser un écart, corrigé au rapprochement suivant.
+     */
+    void rebuild(Collection<CourierState> couriers) {
+        long[] statusCounts = new long[STATUSES.length];
+        long[][] vehicleCounts = new long[VEHICLES.length + 1][STATUSES.length];
+        Map<Long, long[]> zoneCounts = new HashMap<>();
+        for (CourierState state : couriers) {
+            synchronized (state) {
+                state.clearCounted();
+                Courier.CourierStatus status = state.getStatus();
+                if (status == null) {
+                    continue;
+                }
+                long zone = state.isLocated() ? state.getCell() : CourierState.NO_ZONE;
+                statusCounts[status.ordinal()]++;
+                vehicleCounts[vehicleIndex(state.getVehicleType())][status.ordinal()]++;
+                if (zone != CourierState.NO_ZONE) {
+                    zoneCounts.computeIfAbsent(zone, key -> new long[STATUSES.length])[status.ordinal()]++;
+                }
+                state.setCounted(status, state.getVehicleType(), zone);
+            }
+        }
+
+        correct(byStatus, statusCounts);
+        for (int i = 0; i < byVehicle.length; i++) {
+            correct(byVehicle[i], vehicleCounts[i]);
+        }
+        byZone.keySet().removeIf(zone -> !zoneCounts.containsKey(zone));
+        zoneCounts.forEach((zone, counts) -> correct(byZone.computeIfAbsent(zone, key -> newAdders(STATUSES.length)), counts));
+    }
+
+    void clear() {
+        correct(byStatus, new long[STATUSES.length]);
+        for (LongAdder[] adders : byVehicle) {
+            correct(adders, new long[STATUSES.length]);
+        }
+        byZone.clear();
+    }
+
+    public long count(Courier.CourierStatus status) {
+        return byStatus[status.ordinal()].sum();
+    }
+
+    public long count(Courier.VehicleType vehicle, Courier.CourierStatus status) {
+        return byVehicle[vehicleIndex(vehicle)][status.ordinal()].sum();
+    }
+
+    public long countInZone(long zone, Courier.CourierStatus status) {
+        LongAdder[] adders = byZone.get(zone);
+        return adders != null ? adders[status.ordinal()].sum() : 0;
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder adder : byStatus) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public Map<Courier.CourierStatus, Long> statusBreakdown() {
+        Map<Courier.CourierStatus, Long> breakdown = new EnumMap<>(Courier.CourierStatus.class);
+        for (Courier.CourierStatus status : STATUSES) {
+            breakdown.put(status, count(status));
+        }
+        return breakdown;
+    }
+
+    /**
+     * Répartition par type de véhicule ; les livreurs sans véhicule renseigné sont sous la clé "UNKNOWN"
+     */
+    public Map<String, Map<Courier.CourierStatus, Long>> vehicleBreakdown() {
+        Map<String, Map<Courier.CourierStatus, Long>> breakdown = new HashMap<>();
+        for (int i = 0; i < byVehicle.length; i++) {
+            Map<Courier.CourierStatus, Long> counts = new EnumMap<>(Courier.CourierStatus.class);
+            for (Courier.CourierStatus status : STATUSES) {
+                counts.put(status, byVehicle[i][status.ordinal()].sum());
+            }
+            breakdown.put(i == NO_VEHICLE ? "UNKNOWN" : VEHICLES[i].name(), counts);
+        }
+        return breakdown;
+    }
+
+    /**
+     * Nombre de livreurs dans un statut donné par zone, zones vides exclues
+     */
+    public Map<Long, Long> zoneBreakdown(Courier.CourierStatus status) {
+        Map<Long, Long> breakdown = new HashMap<>();
+        byZone.forEach((zone, adders) -> {
+            long count = adders[status.ordinal()].sum();
+            if (count > 0) {
+                breakdown.put(zone, count);
+            }
+        });
+        return breakdown;
+    }
+
+    private void add(Courier.CourierStatus status, Courier.VehicleType vehicle, long zone, int delta) {
+        byStatus[status.ordinal()].add(delta);
+        byVehicle[vehicleIndex(vehicle)][status.ordinal()].add(delta);
+        if (zone != CourierState.NO_ZONE) {
+            byZone.computeIfAbsent(zone, key -> newAdders(STATUSES.length))[status.ordinal()].add(delta);
+        }
+    }
+
+    private static void correct(LongAdder[] adders, long[] expected) {
+        for (int i = 0; i < adders.length; i++) {
+            long drift = expected[i] - adders[i].sum();
+            if (drift != 0) {
+                adders[i].add(drift);
+            }
+        }
+    }
+
+    private static int vehicleIndex(Courier.VehicleType vehicle) {
+        return vehicle != null ? vehicle.ordinal() : NO_VEHICLE;
+    }
+
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
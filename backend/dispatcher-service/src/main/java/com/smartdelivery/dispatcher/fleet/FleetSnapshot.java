@@ -0,0 +1,213 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Instantané binaire de l'état de la flotte (statut, véhicule, capacité, position et charges en cours).
+ * Format (little-endian) : en-tête magique, version, empreinte des énumérations, date de prise et
+ * nombre de livreurs, puis un
+ * enregistrement par livreur suivi de ses charges, et enfin un CRC32 de tout ce qui précède.
+ * Le fichier est écrit dans un fichier temporaire puis renommé atomiquement ; il est relu par mmap.
+ * Une version inconnue, des énumérations modifiées ou un contenu corrompu rendent l'instantané
+ * inutilisable, sans erreur.
+ */
+public final class FleetSnapshot {
+
+    static final int MAGIC = 0x464C5453; // "FLTS"
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+    private static final int COURIER_BYTES = 16 + 3 + 4 * 8 + 4;
+    private static final int LOAD_BYTES = 16 + 4 * 8;
+    private static final int TRAILER_BYTES = 4;
+    private static final byte NONE = -1;
+
+    private static final Courier.CourierStatus[] STATUSES = Courier.CourierStatus.values();
+    private static final Courier.VehicleType[] VEHICLES = Courier.VehicleType.values();
+    // Les statuts et véhicules sont écrits par ordinal : l'empreinte invalide l'instantané si les énumérations changent
+    private static final int ENUM_FINGERPRINT = (List.of(STATUSES) + "/" + List.of(VEHICLES)).hashCode();
+
+    private final long takenAtMillis;
+    private final List<Entry> couriers;
+
+    FleetSnapshot(long takenAtMillis, List<Entry> couriers) {
+        this.takenAtMillis = takenAtMillis;
+        this.couriers = couriers;
+    }
+
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    public List<Entry> getCouriers() {
+        return couriers;
+    }
+
+    /**
+     * Photographie les livreurs, chacun sous son propre verrou
+     */
+    static FleetSnapshot capture(Collection<CourierState> states, long takenAtMillis) {
+        List<Entry> entries = new ArrayList<>(states.size());
+        for (CourierState state : states) {
+            synchronized (state) {
+                List<LoadEntry> loads = new ArrayList<>();
+                for (Map.Entry<UUID, CourierState.Load> load : state.copyLoads().entrySet()) {
+                    CourierState.Load value = load.getValue();
+                    loads.add(new LoadEntry(load.getKey(), value.weight(), value.volume(),
+                            value.dropoffLatitude(), value.dropoffLongitude()));
+                }
+                entries.add(new Entry(state.getCourierId(), state.getStatus(), state.getVehicleType(),
+                        state.getMaxWeight(), state.getMaxVolume(), state.isLocated(),
+                        state.getLatitude(), state.getLongitude(), loads));
+            }
+        }
+        return new FleetSnapshot(takenAtMillis, entries);
+    }
+
+    /**
+     * Écrit l'instantané de façon atomique
+     * @return La taille du fichier en octets
+     */
+    public long writeTo(Path path) throws IOException {
+        int size = HEADER_BYTES + TRAILER_BYTES;
+        for (Entry entry : couriers) {
+            size += COURIER_BYTES + entry.loads().size() * LOAD_BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(ENUM_FINGERPRINT).putLong(takenAtMillis).putInt(couriers.size());
+        for (Entry entry : couriers) {
+            putUuid(buffer, entry.courierId());
+            buffer.put(entry.status() != null ? (byte) entry.status().ordinal() : NONE);
+            buffer.put(entry.vehicleType() != null ? (byte) entry.vehicleType().ordinal() : NONE);
+            buffer.put((byte) (entry.located() ? 1 : 0));
+            buffer.putDouble(entry.latitude()).putDouble(entry.longitude())
+                    .putDouble(entry.maxWeight()).putDouble(entry.maxVolume())
+                    .putInt(entry.loads().size());
+            for (LoadEntry load : entry.loads()) {
+                putUuid(buffer, load.deliveryId());
+                buffer.putDouble(load.weight()).putDouble(load.volume())
+                        .putDouble(orNaN(load.dropoffLatitude())).putDouble(orNaN(load.dropoffLongitude()));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().flip());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Relit un instantané par mmap
+     * @return null si le fichier est absent, d'une autre version ou corrompu
+     */
+    public static FleetSnapshot readFrom(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + TRAILER_BYTES || fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != ENUM_FINGERPRINT) {
+                return null;
+            }
+
+            int bodyEnd = (int) fileSize - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(bodyEnd));
+            if ((int) crc.getValue() != buffer.getInt(bodyEnd)) {
+                return null;
+            }
+
+            long takenAt = buffer.getLong();
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID courierId = getUuid(buffer);
+                byte status = buffer.get();
+                byte vehicle = buffer.get();
+                boolean located = buffer.get() == 1;
+                double latitude = buffer.getDouble();
+                double longitude = buffer.getDouble();
+                double maxWeight = buffer.getDouble();
+                double maxVolume = buffer.getDouble();
+                int loadCount = buffer.getInt();
+                List<LoadEntry> loads = new ArrayList<>(loadCount);
+                for (int j = 0; j < loadCount; j++) {
+                    loads.add(new LoadEntry(getUuid(buffer), buffer.getDouble(), buffer.getDouble(),
+                            fromNaN(buffer.getDouble()), fromNaN(buffer.getDouble())));
+                }
+                entries.add(new Entry(courierId,
+                        status != NONE ? STATUSES[status] : null,
+                        vehicle != NONE ? VEHICLES[vehicle] : null,
+                        maxWeight, maxVolume, located, latitude, longitude, loads));
+            }
+            return buffer.position() == bodyEnd ? new FleetSnapshot(takenAt, entries) : null;
+        }
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double fromNaN(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * État d'un livreur dans l'instantané
+     */
+    public record Entry(UUID courierId, Courier.CourierStatus status, Courier.VehicleType vehicleType,
+                        double maxWeight, double maxVolume, boolean located, double latitude, double longitude,
+                        List<LoadEntry> loads) {
+    }
+
+    /**
+     * Charge en cours d'un livreur dans l'instantané
+     */
+    public record LoadEntry(UUID deliveryId, double weight, double volume,
+                            Double dropoffLatitude, Double dropoffLongitude) {
+    }
+}
@@ -0,0 +1,539 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Vue en mémoire de la flotte de livreurs : index spatial par cellule et capacité restante.
+ * Elle est restaurée au démarrage depuis un instantané binaire complété par les changements en base
+ * (ou rechargée entièrement depuis la base), puis maintenue par le DispatcherService.
+ */
+@Component
+@Slf4j
+public class FleetState {
+
+    private static final Set<DeliveryAssignment.AssignmentStatus> ACTIVE_ASSIGNMENT_STATUSES = EnumSet.of(
+            DeliveryAssignment.AssignmentStatus.ASSIGNED, DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+
+    private final CourierRepository courierRepository;
+    private final DeliveryAssignmentRepository assignmentRepository;
+    private final GeoGrid grid;
+
+    private final Map<UUID, CourierState> couriers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+    private final FleetCounters counters = new FleetCounters();
+    private volatile boolean countersDrifted;
+
+    @Value("${dispatcher.capacity.max-concurrent-assignments:5}")
+    private int maxConcurrentAssignments;
+
+    @Value("${dispatcher.capacity.default-package-weight:1.0}")
+    private double defaultPackageWeight;
+
+    @Value("${dispatcher.capacity.default-package-volume:0.01}")
+    private double defaultPackageVolume;
+
+    @Value("${dispatcher.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${dispatcher.snapshot.path:data/fleet-state.snapshot}")
+    private String snapshotPath;
+
+    @Value("${dispatcher.snapshot.max-age-minutes:60}")
+    private long snapshotMaxAgeMinutes;
+
+    @Value("${dispatcher.snapshot.catch-up-margin-ms:10000}")
+    private long snapshotCatchUpMarginMs;
+
+    private volatile boolean ready;
+
+    public FleetState(CourierRepository courierRepository,
+                      DeliveryAssignmentRepository assignmentRepository,
+                      @Value("${dispatcher.fleet.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        this.courierRepository = courierRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.grid = new GeoGrid(cellSizeDegrees);
+    }
+
+    /**
+     * Initialise l'état de la flotte au démarrage : depuis le dernier instantané et les changements
+     * survenus depuis en base lorsque c'est possible, sinon par un chargement complet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!snapshotEnabled || !restoreFromSnapshot()) {
+            loadFromDatabase();
+        }
+        ready = true;
+    }
+
+    /**
+     * Reconstruit l'état de la flotte à partir des livreurs et des attributions actives
+     */
+    public void loadFromDatabase() {
+        long start = System.currentTimeMillis();
+        couriers.clear();
+        cells.clear();
+        counters.clear();
+
+        for (Courier courier : courierRepository.findAll()) {
+            upsertCourier(courier);
+        }
+
+        List<DeliveryAssignment> activeAssignments = assignmentRepository.findByStatusIn(ACTIVE_ASSIGNMENT_STATUSES);
+        for (DeliveryAssignment assignment : activeAssignments) {
+            restoreAssignment(assignment);
+        }
+
+        log.info("Loaded fleet state: {} couriers, {} active assignments in {} ms",
+                couriers.size(), activeAssignments.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Crée ou met à jour l'état en mémoire d'un livreur à partir de l'entité
+     * @param courier Le livreur
+     * @return L'état en mémoire
+     */
+    public CourierState upsertCourier(Courier courier) {
+        CourierState state = couriers.computeIfAbsent(courier.getId(), CourierState::new);
+        state.setStatus(courier.getStatus());
+        state.setVehicle(courier.getVehicleType(),
+                courier.getMaxCapacity() != null ? courier.getMaxCapacity() : defaultMaxWeight(courier.getVehicleType()),
+                courier.getMaxVolume() != null ? courier.getMaxVolume() : defaultMaxVolume(courier.getVehicleType()));
+        if (courier.getCurrentLocation() != null
+                && courier.getCurrentLocation().getLatitude() != null
+                && courier.getCurrentLocation().getLongitude() != null) {
+            updatePosition(state, courier.getCurrentLocation().getLatitude(), courier.getCurrentLocation().getLongitude());
+        }
+        synchronized (state) {
+            counters.sync(state);
+        }
+        return state;
+    }
+
+    /**
+     * Écrit périodiquement l'instantané de la flotte, une fois l'état initial chargé
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.snapshot.interval-ms:60000}",
+            initialDelayString = "${dispatcher.snapshot.interval-ms:60000}")
+    public void writeSnapshot() {
+        if (!snapshotEnabled || !ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long bytes = FleetSnapshot.capture(couriers.values(), start).writeTo(Path.of(snapshotPath));
+            log.debug("Wrote fleet snapshot: {} couriers, {} bytes in {} ms",
+                    couriers.size(), bytes, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("Error writing fleet snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshotOnShutdown() {
+        writeSnapshot();
+    }
+
+    public CourierState get(UUID courierId) {
+        return couriers.get(courierId);
+    }
+
+    public Collection<CourierState> all() {
+        return Collections.unmodifiableCollection(couriers.values());
+    }
+
+    public int size() {
+        return couriers.size();
+    }
+
+    public FleetCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Rapproche les compteurs en mémoire des comptages par statut et véhicule en base.
+     * Un écart constaté deux fois de suite (et non dû à une transaction en cours) déclenche
+     * le rechargement des statuts depuis la base puis le recomptage de la flotte.
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.counters.reconcile-interval-ms:300000}",
+            initialDelayString = "${dispatcher.counters.reconcile-interval-ms:300000}")
+    public void reconcileCounters() {
+        long drift = 0;
+        Map<String, Long> expected = new HashMap<>();
+        for (CourierRepository.StatusCountView view : courierRepository.countByStatusAndVehicleType()) {
+            expected.put(view.getStatus() + "/" + view.getVehicleType(), view.getCount());
+        }
+        for (Courier.CourierStatus status : Courier.CourierStatus.values()) {
+            for (Courier.VehicleType vehicle : vehicleTypesWithUnknown()) {
+                long database = expected.getOrDefault(status + "/" + vehicle, 0L);
+                drift += Math.abs(database - counters.count(vehicle, status));
+            }
+        }
+
+        if (drift == 0) {
+            countersDrifted = false;
+            return;
+        }
+        if (!countersDrifted) {
+            countersDrifted = true;
+            log.debug("Fleet counters differ from database by {}, checking again at next reconciliation", drift);
+            return;
+        }
+
+        log.warn("Fleet counters drifted from database by {}, reloading courier statuses", drift);
+        for (Courier courier : courierRepository.findAll()) {
+            upsertCourier(courier);
+        }
+        counters.rebuild(couriers.values());
+        countersDrifted = false;
+    }
+
+    private static List<Courier.VehicleType> vehicleTypesWithUnknown() {
+        List<Courier.VehicleType> vehicles = new ArrayList<>(List.of(Courier.VehicleType.values()));
+        vehicles.add(null);
+        return vehicles;
+    }
+
+    public GeoGrid getGrid() {
+        return grid;
+    }
+
+    public int getMaxConcurrentAssignments() {
+        return maxConcurrentAssignments;
+    }
+
+    /**
+     * Met à jour la position d'un livreur et son rattachement à une cellule de l'index
+     * @return false si le livreur est inconnu
+     */
+    public boolean updatePosition(UUID courierId, double latitude, double longitude) {
+        CourierState state = couriers.get(courierId);
+        if (state == null) {
+            return false;
+        }
+        updatePosition(state, latitude, longitude);
+        return true;
+    }
+
+    public void updateStatus(UUID courierId, Courier.CourierStatus status) {
+        CourierState state = couriers.get(courierId);
+        if (state != null) {
+            synchronized (state) {
+                state.setStatus(status);
+                counters.sync(state);
+            }
+        }
+    }
+
+    /**
+     * Recherche les livreurs disponibles dans un rayon donné, capables de transporter le colis
+     * @param latitude Latitude du point de ramassage
+     * @param longitude Longitude du point de ramassage
+     * @param radiusKm Rayon de recherche en kilomètres
+     * @param weight Poids du colis en kg
+     * @param volume Volume du colis en m³
+     * @return Les livreurs candidats
+     */
+    public List<CourierState> findCandidates(double latitude, double longitude, double radiusKm,
+                                             double weight, double volume) {
+        List<CourierState> candidates = new ArrayList<>();
+        for (long cell : grid.cellsWithin(latitude, longitude, radiusKm)) {
+            Set<UUID> members = cells.get(cell);
+            if (members == null) {
+                continue;
+            }
+            for (UUID courierId : members) {
+                CourierState state = couriers.get(courierId);
+                if (state != null
+                        && state.getStatus() == Courier.CourierStatus.AVAILABLE
+                        && state.canCarry(weight, volume, maxConcurrentAssignments)
+                        && GeoGrid.distanceKm(latitude, longitude, state.getLatitude(), state.getLongitude()) <= radiusKm) {
+                    candidates.add(state);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Filtre une liste de livreurs (déjà sélectionnés géographiquement) sur leur disponibilité
+     * et leur capacité restante, en conservant l'ordre fourni
+     */
+    public List<CourierState> filterCandidates(List<UUID> courierIds, double weight, double volume) {
+        List<CourierState> candidates = new ArrayList<>(courierIds.size());
+        for (UUID courierId : courierIds) {
+            CourierState state = couriers.get(courierId);
+            if (state != null
+                    && state.getStatus() == Courier.CourierStatus.AVAILABLE
+                    && state.canCarry(weight, volume, maxConcurrentAssignments)) {
+                candidates.add(state);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Compte les livreurs disponibles dans un rayon donné, quelle que soit leur capacité restante
+     */
+    public int countAvailableWithin(double latitude, double longitude, double radiusKm) {
+        return countAvailableWithin(latitude, longitude, radiusKm, state -> true);
+    }
+
+    /**
+     * Compte les livreurs disponibles dans un rayon donné qui satisfont en plus un filtre
+     * (par exemple l'appartenance à une cellule d'une autre grille)
+     */
+    public int countAvailableWithin(double latitude, double longitude, double radiusKm, Predicate<CourierState> filter) {
+        int count = 0;
+        for (long cell : grid.cellsWithin(latitude, longitude, radiusKm)) {
+            Set<UUID> members = cells.get(cell);
+            if (members == null) {
+                continue;
+            }
+            for (UUID courierId : members) {
+                CourierState state = couriers.get(courierId);
+                if (state != null
+                        && state.getStatus() == Courier.CourierStatus.AVAILABLE
+                        && GeoGrid.distanceKm(latitude, longitude, state.getLatitude(), state.getLongitude()) <= radiusKm
+                        && filter.test(state)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Réserve la capacité d'un livreur pour une livraison
+     * @return true si le livreur avait encore la capacité nécessaire
+     */
+    public boolean reserve(UUID courierId, UUID deliveryId, double weight, double volume,
+                           Double dropoffLatitude, Double dropoffLongitude) {
+        CourierState state = couriers.get(courierId);
+        return state != null
+                && state.tryReserve(deliveryId, weight, volume, dropoffLatitude, dropoffLongitude, maxConcurrentAssignments);
+    }
+
+    /**
+     * Libère la capacité réservée pour une livraison
+     */
+    public void release(UUID courierId, UUID deliveryId) {
+        CourierState state = couriers.get(courierId);
+        if (state != null) {
+            state.release(deliveryId);
+        }
+    }
+
+    public void releaseAll(UUID courierId) {
+        CourierState state = couriers.get(courierId);
+        if (state != null) {
+            state.releaseAll();
+        }
+    }
+
+    /**
+     * Remplace les charges en mémoire d'un livreur par ses attributions actives en base,
+     * qui peuvent avoir été créées par un autre nœud dispatcher
+     * @param courierId ID du livreur
+     * @param activeAssignments Attributions actives du livreur
+     */
+    public void resyncLoads(UUID courierId, List<DeliveryAssignment> activeAssignments) {
+        CourierState state = couriers.get(courierId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.releaseAll();
+            for (DeliveryAssignment assignment : activeAssignments) {
+                restoreAssignment(assignment);
+            }
+        }
+    }
+
+    /**
+     * Indique si un livreur peut encore accepter un colis de taille standard
+     */
+    public boolean hasSpareCapacity(UUID courierId) {
+        CourierState state = couriers.get(courierId);
+        return state != null && state.canCarry(defaultPackageWeight, defaultPackageVolume, maxConcurrentAssignments);
+    }
+
+    /**
+     * Indique si un livreur pourra accepter un colis de taille standard une fois les livraisons données libérées
+     */
+    public boolean hasSpareCapacityAfterRelease(UUID courierId, Collection<UUID> deliveryIds) {
+        CourierState state = couriers.get(courierId);
+        return state != null
+                && state.canCarryAfterRelease(deliveryIds, defaultPackageWeight, defaultPackageVolume, maxConcurrentAssignments);
+    }
+
+    public double packageWeightOrDefault(Double weight) {
+        return weight != null && weight > 0 ? weight : defaultPackageWeight;
+    }
+
+    public double packageVolumeOrDefault(Double volume) {
+        return volume != null && volume > 0 ? volume : defaultPackageVolume;
+    }
+
+    /**
+     * Restaure la flotte depuis l'instantané puis rattrape les livreurs et attributions modifiés en base
+     * depuis sa prise (moins une marge pour les transactions en vol et les écarts d'horloge).
+     * @return false si l'instantané est absent, trop ancien ou incohérent avec la base
+     */
+    private boolean restoreFromSnapshot() {
+        long start = System.currentTimeMillis();
+        FleetSnapshot snapshot;
+        try {
+            snapshot = FleetSnapshot.readFrom(Path.of(snapshotPath));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read fleet snapshot {}, loading fleet from database", snapshotPath, e);
+            return false;
+        }
+        if (snapshot == null) {
+            log.info("No usable fleet snapshot at {}, loading fleet from database", snapshotPath);
+            return false;
+        }
+        long ageMs = start - snapshot.getTakenAtMillis();
+        if (ageMs > TimeUnit.MINUTES.toMillis(snapshotMaxAgeMinutes)) {
+            log.info("Fleet snapshot is {} s old, loading fleet from database", ageMs / 1000);
+            return false;
+        }
+
+        couriers.clear();
+        cells.clear();
+        counters.clear();
+        for (FleetSnapshot.Entry entry : snapshot.getCouriers()) {
+            CourierState state = couriers.computeIfAbsent(entry.courierId(), CourierState::new);
+            state.setStatus(entry.status());
+            state.setVehicle(entry.vehicleType(), entry.maxWeight(), entry.maxVolume());
+            for (FleetSnapshot.LoadEntry load : entry.loads()) {
+                state.restore(load.deliveryId(), load.weight(), load.volume(),
+                        load.dropoffLatitude(), load.dropoffLongitude());
+            }
+            if (entry.located()) {
+                updatePosition(state, entry.latitude(), entry.longitude());
+            }
+            synchronized (state) {
+                counters.sync(state);
+            }
+        }
+
+        LocalDateTime since = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(snapshot.getTakenAtMillis() - snapshotCatchUpMarginMs), ZoneId.systemDefault());
+        List<Courier> changedCouriers = courierRepository.findByUpdatedAtAfter(since);
+        for (Courier courier : changedCouriers) {
+            upsertCourier(courier);
+        }
+        List<UUID> changedLoads = assignmentRepository.findCourierIdsUpdatedAfter(since);
+        if (!changedLoads.isEmpty()) {
+            Map<UUID, List<DeliveryAssignment>> activeByCourier = new HashMap<>();
+            for (DeliveryAssignment assignment : assignmentRepository.findByCourierIdInAndStatusIn(
+                    changedLoads, ACTIVE_ASSIGNMENT_STATUSES)) {
+                activeByCourier.computeIfAbsent(assignment.getCourier().getId(), id -> new ArrayList<>()).add(assignment);
+            }
+            for (UUID courierId : changedLoads) {
+                resyncLoads(courierId, activeByCourier.getOrDefault(courierId, List.of()));
+            }
+        }
+
+        // Un livreur supprimé depuis l'instantané n'apparaît pas dans le rattrapage
+        long databaseCouriers = courierRepository.count();
+        if (databaseCouriers != couriers.size()) {
+            log.warn("Fleet snapshot has {} couriers but database has {}, loading fleet from database",
+                    couriers.size(), databaseCouriers);
+            return false;
+        }
+
+        log.info("Restored fleet state from snapshot ({} s old): {} couriers, caught up {} couriers and {} loads in {} ms",
+                ageMs / 1000, couriers.size(), changedCouriers.size(), changedLoads.size(),
+                System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private void restoreAssignment(DeliveryAssignment assignment) {
+        if (assignment.getCourier() == null) {
+            return;
+        }
+        CourierState state = couriers.get(assignment.getCourier().getId());
+        if (state != null) {
+            state.restore(assignment.getDeliveryId(),
+                    packageWeightOrDefault(assignment.getPackageWeight()),
+                    packageVolumeOrDefault(assignment.getPackageVolume()),
+                    assignment.getDropoffLatitude(), assignment.getDropoffLongitude());
+        }
+    }
+
+    private void updatePosition(CourierState state, double latitude, double longitude) {
+        long newCell = grid.cellOf(latitude, longitude);
+        UUID courierId = state.getCourierId();
+        synchronized (state) {
+            if (state.isLocated() && state.getCell() != newCell) {
+                cells.computeIfPresent(state.getCell(), (cell, members) -> {
+                    members.remove(courierId);
+                    return members.isEmpty() ? null : members;
+                });
+            }
+            state.setPosition(latitude, longitude, newCell);
+            counters.sync(state);
+            cells.compute(newCell, (cell, members) -> {
+                Set<UUID> result = members != null ? members : ConcurrentHashMap.newKeySet();
+                result.add(courierId);
+                return result;
+            });
+        }
+    }
+
+    private static double defaultMaxWeight(Courier.VehicleType vehicleType) {
+        if (vehicleType == null) {
+            return 30.0;
+        }
+        return switch (vehicleType) {
+            case BICYCLE -> 15.0;
+            case MOTORCYCLE -> 30.0;
+            case CAR -> 200.0;
+            case VAN -> 800.0;
+            case TRUCK -> 3000.0;
+        };
+    }
+
+    private static double defaultMaxVolume(Courier.VehicleType vehicleType) {
+        if (vehicleType == null) {
+            return 0.15;
+        }
+        return switch (vehicleType) {
+            case BICYCLE -> 0.08;
+            case MOTORCYCLE -> 0.15;
+            case CAR -> 1.0;
+            case VAN -> 6.0;
+            case TRUCK -> 20.0;
+        };
+    }
+}
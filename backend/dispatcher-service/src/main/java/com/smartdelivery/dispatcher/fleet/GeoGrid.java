@@ -0,0 +1,119 @@
+package com.smartdelivery.dispatcher.fleet;
+
+/**
+ * Découpage de la surface terrestre en cellules régulières (en degrés).
+ * Chaque cellule est identifiée par un long combinant ses indices de latitude et de longitude.
+ */
+public class GeoGrid {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    private final double cellSizeDegrees;
+
+    public GeoGrid(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0) {
+            throw new IllegalArgumentException("La taille des cellules doit être positive");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+
+    public double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    /**
+     * Retourne l'identifiant de la cellule contenant un point
+     * @param latitude Latitude du point
+     * @param longitude Longitude du point
+     * @return Identifiant de la cellule
+     */
+    public long cellOf(double latitude, double longitude) {
+        return cellKey(latIndex(latitude), lngIndex(longitude));
+    }
+
+    /**
+     * Retourne les cellules qui intersectent le cercle de rayon donné autour d'un point.
+     * L'écart en longitude est corrigé par le cosinus de la latitude.
+     * @param latitude Latitude du centre
+     * @param longitude Longitude du centre
+     * @param radiusKm Rayon en kilomètres
+     * @return Identifiants des cellules concernées
+     */
+    public long[] cellsWithin(double latitude, double longitude, double radiusKm) {
+        double deltaLat = radiusKm / KM_PER_DEGREE_LATITUDE;
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double deltaLng = Math.min(radiusKm / (KM_PER_DEGREE_LATITUDE * cosLat), 180.0);
+
+        int minLat = latIndex(Math.max(latitude - deltaLat, -90.0));
+        int maxLat = latIndex(Math.min(latitude + deltaLat, 90.0));
+        int minLng = lngIndex(longitude - deltaLng);
+        int maxLng = lngIndex(longitude + deltaLng);
+
+        long[] cells = new long[(maxLat - minLat + 1) * (maxLng - minLng + 1)];
+        int i = 0;
+        for (int lat = minLat; lat <= maxLat; lat++) {
+            for (int lng = minLng; lng <= maxLng; lng++) {
+                cells[i++] = cellKey(lat, lng);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Latitude du centre d'une cellule
+     */
+    public double centerLatitude(long cell) {
+        return (latIndexOf(cell) + 0.5) * cellSizeDegrees;
+    }
+
+    /**
+     * Longitude du centre d'une cellule
+     */
+    public double centerLongitude(long cell) {
+        return (lngIndexOf(cell) + 0.5) * cellSizeDegrees;
+    }
+
+    /**
+     * Bornes d'une cellule sous la forme {minLat, minLng, maxLat, maxLng}
+     */
+    public double[] bounds(long cell) {
+        double minLat = latIndexOf(cell) * cellSizeDegrees;
+        double minLng = lngIndexOf(cell) * cellSizeDegrees;
+        return new double[]{minLat, minLng, minLat + cellSizeDegrees, minLng + cellSizeDegrees};
+    }
+
+    /**
+     * Calcule la distance entre deux points géographiques (formule de Haversine)
+     * @return Distance en kilomètres
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    public static int latIndexOf(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    public static int lngIndexOf(long cell) {
+        return (int) cell;
+    }
+
+    private int latIndex(double latitude) {
+        return (int) Math.floor(latitude / cellSizeDegrees);
+    }
+
+    private int lngIndex(double longitude) {
+        return (int) Math.floor(longitude / cellSizeDegrees);
+    }
+
+    private static long cellKey(int latIndex, int lngIndex) {
+        return ((long) latIndex << 32) | (lngIndex & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,83 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recherche des livreurs proches par une requête KNN PostGIS sur la colonne geography des livreurs.
+ * Les distances sont géodésiques, quelle que soit la latitude, et la recherche n'a pas besoin
+ * d'être relancée avec un rayon élargi : les plus proches sont retournés en une seule requête.
+ * La capacité restante n'étant connue qu'en mémoire, la requête est relancée avec une limite plus
+ * large lorsque tous les livreurs retournés sont pleins.
+ * Les positions en base suivent celles en mémoire avec le délai de dispatcher.location.flush-interval-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatcher.geo.mode", havingValue = "postgis")
+@Slf4j
+public class PostgisCourierLocator {
+
+    private final CourierRepository courierRepository;
+    private final FleetState fleetState;
+    private final int knnLimit;
+    private final int maxKnnLimit;
+
+    public PostgisCourierLocator(CourierRepository courierRepository,
+                                 FleetState fleetState,
+                                 @Value("${dispatcher.geo.knn-limit:50}") int knnLimit,
+                                 @Value("${dispatcher.geo.knn-max-limit:2000}") int maxKnnLimit) {
+        this.courierRepository = courierRepository;
+        this.fleetState = fleetState;
+        this.knnLimit = knnLimit;
+        this.maxKnnLimit = Math.max(knnLimit, maxKnnLimit);
+    }
+
+    /**
+     * Refuse de démarrer si la colonne geography est absente (migration db/postgis non appliquée)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifySchema() {
+        if (courierRepository.countPositionColumns() == 0) {
+            throw new IllegalStateException(
+                    "dispatcher.geo.mode=postgis requires the couriers.position column (PostGIS extension)");
+        }
+    }
+
+    /**
+     * Livreurs disponibles capables de transporter le colis, du plus proche au plus éloigné
+     * @param latitude Latitude du point de ramassage
+     * @param longitude Longitude du point de ramassage
+     * @param radiusKm Rayon maximal de recherche en kilomètres
+     * @param weight Poids du colis en kg
+     * @param volume Volume du colis en m³
+     */
+    public List<CourierState> findCandidates(double latitude, double longitude, double radiusKm,
+                                             double weight, double volume) {
+        int limit = knnLimit;
+        while (true) {
+            List<CourierRepository.NearbyCourierView> nearest =
+                    courierRepository.findNearestAvailableCouriers(latitude, longitude, radiusKm * 1000, limit);
+
+            List<UUID> courierIds = new ArrayList<>(nearest.size());
+            for (CourierRepository.NearbyCourierView courier : nearest) {
+                courierIds.add(courier.getId());
+            }
+            List<CourierState> candidates = fleetState.filterCandidates(courierIds, weight, volume);
+            log.debug("KNN query returned {} couriers, {} with remaining capacity", nearest.size(), candidates.size());
+
+            // Moins de lignes que la limite : tous les livreurs disponibles du rayon ont été examinés
+            if (!candidates.isEmpty() || nearest.size() < limit || limit >= maxKnnLimit) {
+                return candidates;
+            }
+            limit = Math.min(limit * 4, maxKnnLimit);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import com.smartdelivery.dispatcher.model.Courier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carte de chaleur offre/demande par cellule sur une fenêtre glissante.
+ * Trois flux sont comptés par cellule : les livraisons créées (demande), les attributions
+ * et les livreurs redevenus disponibles (offre). La pression d'une cellule rapporte la demande
+ * de la fenêtre à l'offre (livreurs disponibles maintenant et livreurs libérés) ; au-delà du seuil,
+ * la cellule est en surcharge et les politiques d'attribution peuvent en tenir compte.
+ */
+@Component
+@Slf4j
+public class DemandHeatmap {
+
+    public static final int DEMAND = 0;
+    public static final int DISPATCHED = 1;
+    public static final int SUPPLY = 2;
+
+    private final FleetState fleetState;
+    private final GeoGrid grid;
+    private final SlidingWindowCounters counters;
+    private final double surgeThreshold;
+    private final long surgeMinDemand;
+
+    public DemandHeatmap(
+            FleetState fleetState,
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.heatmap.cell-size-degrees:0.01}") double cellSizeDegrees,
+            @Value("${dispatcher.heatmap.max-cells:40000}") int maxCells,
+            @Value("${dispatcher.heatmap.window-minutes:15}") int windowMinutes,
+            @Value("${dispatcher.heatmap.bucket-seconds:60}") int bucketSeconds,
+            @Value("${dispatcher.heatmap.surge-threshold:1.5}") double surgeThreshold,
+            @Value("${dispatcher.heatmap.surge-min-demand:5}") long surgeMinDemand) {
+        this.fleetState = fleetState;
+        this.grid = new GeoGrid(cellSizeDegrees);
+        int buckets = Math.max(1, windowMinutes * 60 / bucketSeconds);
+        this.counters = new SlidingWindowCounters(maxCells, 3, buckets, bucketSeconds * 1000L);
+        this.surgeThreshold = surgeThreshold;
+        this.surgeMinDemand = surgeMinDemand;
+
+        Gauge.builder("dispatcher.heatmap.cells", counters, SlidingWindowCounters::size)
+                .description("Cellules suivies par la carte de chaleur")
+                .register(meterRegistry);
+        Gauge.builder("dispatcher.heatmap.dropped_events", counters, SlidingWindowCounters::getDroppedEvents)
+                .description("Événements ignorés faute de place dans la table des cellules")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre un événement à la position donnée
+     * @param metric DEMAND, DISPATCHED ou SUPPLY
+     */
+    public void record(int metric, double latitude, double longitude) {
+        counters.increment(grid.cellOf(latitude, longitude), metric, System.currentTimeMillis());
+    }
+
+    /**
+     * Pression de la demande sur la cellule du point donné (demande / offre sur la fenêtre)
+     */
+    public double pressure(double latitude, double longitude) {
+        long cell = grid.cellOf(latitude, longitude);
+        long now = System.currentTimeMillis();
+        return pressure(counters.sum(cell, DEMAND, now), counters.sum(cell, SUPPLY, now), availableCouriers(cell));
+    }
+
+    /**
+     * Indique si la zone du point donné est en surcharge
+     */
+    public boolean isSurging(double latitude, double longitude) {
+        long cell = grid.cellOf(latitude, longitude);
+        long now = System.currentTimeMillis();
+        long demand = counters.sum(cell, DEMAND, now);
+        return demand >= surgeMinDemand
+                && pressure(demand, counters.sum(cell, SUPPLY, now), availableCouriers(cell)) >= surgeThreshold;
+    }
+
+    /**
+     * Photographie des cellules actives, triées par pression décroissante
+     * @param surgingOnly Ne retourner que les cellules en surcharge
+     * @param limit Nombre maximal de cellules
+     */
+    public List<HeatmapCell> snapshot(boolean surgingOnly, int limit) {
+        Map<Long, Integer> available = availableCouriersByCell();
+        List<HeatmapCell> cells = new ArrayList<>();
+        counters.forEach(System.currentTimeMillis(), (cell, sums) -> {
+            int couriers = available.getOrDefault(cell, 0);
+            double pressure = pressure(sums[DEMAND], sums[SUPPLY], couriers);
+            boolean surging = sums[DEMAND] >= surgeMinDemand && pressure >= surgeThreshold;
+            if (!surgingOnly || surging) {
+                cells.add(new HeatmapCell(cell, grid.centerLatitude(cell), grid.centerLongitude(cell),
+                        sums[DEMAND], sums[DISPATCHED], sums[SUPPLY], couriers, pressure, surging));
+            }
+        });
+        cells.sort(Comparator.comparingDouble(HeatmapCell::pressure).reversed());
+        return cells.size() > limit ? new ArrayList<>(cells.subList(0, limit)) : cells;
+    }
+
+    public long getWindowMinutes() {
+        return counters.getWindowMillis() / 60_000;
+    }
+
+    /**
+     * Libère régulièrement les cellules sans activité dans la fenêtre
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.heatmap.eviction-interval-ms:300000}")
+    public void evictIdleCells() {
+        int evicted = counters.evictStale(System.currentTimeMillis());
+        if (evicted > 0) {
+            log.debug("Evicted {} idle heatmap cells", evicted);
+        }
+    }
+
+    private static double pressure(long demand, long supply, int availableCouriers) {
+        return demand / (double) (availableCouriers + supply + 1);
+    }
+
+    // Livreurs disponibles situés dans la cellule, via l'index spatial de la flotte : le cercle
+    // circonscrit couvre toute la cellule, l'appartenance est ensuite vérifiée comme dans snapshot()
+    private int availableCouriers(long cell) {
+        double radiusKm = grid.getCellSizeDegrees() / 2 * Math.sqrt(2) * Math.PI * GeoGrid.EARTH_RADIUS_KM / 180.0;
+        return fleetState.countAvailableWithin(grid.centerLatitude(cell), grid.centerLongitude(cell), radiusKm,
+                courier -> grid.cellOf(courier.getLatitude(), courier.getLongitude()) == cell);
+    }
+
+    // Même définition que availableCouriers(cell) : livreur disponible localisé dans la cellule
+    private Map<Long, Integer> availableCouriersByCell() {
+        Map<Long, Integer> available = new HashMap<>();
+        for (CourierState courier : fleetState.all()) {
+            if (courier.isLocated() && courier.getStatus() == Courier.CourierStatus.AVAILABLE) {
+                available.merge(grid.cellOf(courier.getLatitude(), courier.getLongitude()), 1, Integer::sum);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Valeurs d'une cellule de la carte de chaleur sur la fenêtre glissante
+     */
+    public record HeatmapCell(long cellId, double latitude, double longitude,
+                              long demand, long dispatched, long supply, int availableCouriers,
+                              double pressure, boolean surging) {
+    }
+}
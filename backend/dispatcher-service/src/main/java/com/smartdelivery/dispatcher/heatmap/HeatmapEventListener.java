@@ -0,0 +1,66 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.Courier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Alimente la carte de chaleur à partir des événements du bus.
+ * Les messages sont lus comme arbres JSON : seules les coordonnées sont extraites,
+ * sans désérialiser les payloads complets.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HeatmapEventListener {
+
+    private final DemandHeatmap heatmap;
+    private final ObjectMapper objectMapper;
+
+    @Value("${rabbitmq.routingkey.courier-status:courier.status.updated}")
+    private String courierStatusRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-cancelled:assignments.cancelled}")
+    private String assignmentsCancelledRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-completed:assignments.completed}")
+    private String assignmentsCompletedRoutingKey;
+
+    @RabbitListener(queues = "#{heatmapQueue.name}")
+    public void handleEvent(Message message) {
+        String routingKey = message.getMessageProperties().getReceivedRoutingKey();
+        try {
+            JsonNode event = objectMapper.readTree(message.getBody());
+            if ("delivery.created".equals(routingKey)) {
+                record(DemandHeatmap.DEMAND, event.path("pickupAddress").path("coordinates"), "latitude", "longitude");
+            } else if ("delivery.dispatched".equals(routingKey)) {
+                record(DemandHeatmap.DISPATCHED, event, "pickupLatitude", "pickupLongitude");
+            } else if (courierStatusRoutingKey.equals(routingKey)
+                    && Courier.CourierStatus.AVAILABLE.name().equals(event.path("status").asText())) {
+                record(DemandHeatmap.SUPPLY, event, "latitude", "longitude");
+            } else if (assignmentsCancelledRoutingKey.equals(routingKey)
+                    || assignmentsCompletedRoutingKey.equals(routingKey)) {
+                // Les opérations groupées publient un seul événement pour tous les livreurs libérés
+                for (JsonNode courier : event.path("releasedCouriers")) {
+                    record(DemandHeatmap.SUPPLY, courier, "latitude", "longitude");
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable {} event for heatmap: {}", routingKey, e.getMessage());
+        }
+    }
+
+    private void record(int metric, JsonNode node, String latitudeField, String longitudeField) {
+        JsonNode latitude = node.path(latitudeField);
+        JsonNode longitude = node.path(longitudeField);
+        if (latitude.isNumber() && longitude.isNumber()) {
+            heatmap.record(metric, latitude.asDouble(), longitude.asDouble());
+        }
+    }
+}
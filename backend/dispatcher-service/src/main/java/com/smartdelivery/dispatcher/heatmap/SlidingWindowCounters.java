@@ -0,0 +1,244 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import java.util.Arrays;
+
+/**
+ * Compteurs à fenêtre glissante par clé (cellule), stockés dans des tableaux de longs préalloués.
+ * Chaque clé possède, pour chaque métrique, un anneau de buckets de durée fixe ; les buckets
+ * sortis de la fenêtre sont remis à zéro paresseusement lors de l'accès suivant.
+ * La table est à adressage ouvert et de capacité bornée : lorsqu'elle est pleine, l'événement
+ * d'une nouvelle clé est ignoré et compté. Les clés inactives depuis une fenêtre complète ne sont
+ * évincées que par {@link #evictStale(long)}, sur place, appelée par la purge planifiée.
+ * Aucune allocation n'a lieu à l'enregistrement d'un événement. Les méthodes sont synchronisées.
+ */
+public class SlidingWindowCounters {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int maxKeys;
+    private final int metrics;
+    private final int buckets;
+    private final long bucketMillis;
+
+    private long[] keys;
+    private long[] lastEpochs;
+    private long[] counts;
+    private int mask;
+    private int size;
+    private long droppedEvents;
+
+    public SlidingWindowCounters(int maxKeys, int metrics, int buckets, long bucketMillis) {
+        if (maxKeys <= 0 || metrics <= 0 || buckets <= 0 || bucketMillis <= 0) {
+            throw new IllegalArgumentException("Paramètres de fenêtre glissante invalides");
+        }
+        this.maxKeys = maxKeys;
+        this.metrics = metrics;
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        // Facteur de charge maximal de 0,75
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(maxKeys / 0.75)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public long getWindowMillis() {
+        return buckets * bucketMillis;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Incrémente la métrique d'une clé dans le bucket courant
+     * @return false si la table est pleine et que l'événement a été ignoré
+     */
+    public synchronized boolean increment(long key, int metric, long nowMillis) {
+        int slot = findOrInsert(key, nowMillis);
+        if (slot < 0) {
+            droppedEvents++;
+            return false;
+        }
+        long epoch = nowMillis / bucketMillis;
+        advance(slot, epoch);
+        counts[offset(slot, metric) + (int) Math.floorMod(epoch, (long) buckets)]++;
+        return true;
+    }
+
+    /**
+     * Somme d'une métrique sur la fenêtre, 0 si la clé est inconnue
+     */
+    public synchronized long sum(long key, int metric, long nowMillis) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        advance(slot, nowMillis / bucketMillis);
+        return sumSlot(slot, metric);
+    }
+
+    /**
+     * Parcourt les clés actives avec leurs sommes sur la fenêtre
+     * @param visitor Reçoit la clé et un tableau des sommes par métrique (réutilisé entre les appels)
+     */
+    public synchronized void forEach(long nowMillis, Visitor visitor) {
+        long epoch = nowMillis / bucketMillis;
+        long[] sums = new long[metrics];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) {
+                continue;
+            }
+            advance(slot, epoch);
+            boolean active = false;
+            for (int metric = 0; metric < metrics; metric++) {
+                sums[metric] = sumSlot(slot, metric);
+                active |= sums[metric] != 0;
+            }
+            if (active) {
+                visitor.visit(keys[slot], sums);
+            }
+        }
+    }
+
+    /**
+     * Évince les clés sans aucun événement dans la fenêtre courante, sans réallouer la table
+     * @return Le nombre de clés évincées
+     */
+    public synchronized int evictStale(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        // Partir d'une case vide : aucune séquence de sondage ne chevauche le début du parcours,
+        // les décalages ne déplacent donc les clés que vers des cases pas encore revues
+        int start = 0;
+        while (keys[start] != EMPTY) {
+            start++;
+        }
+        int evicted = 0;
+        for (int step = 1; step < keys.length; step++) {
+            int slot = (start + step) & mask;
+            while (keys[slot] != EMPTY && isIdle(slot, epoch)) {
+                remove(slot);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        this.lastEpochs = new long[capacity];
+        this.counts = new long[capacity * metrics * buckets];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    private int find(long key) {
+        int slot = probe(key);
+        return keys[slot] == key ? slot : -1;
+    }
+
+    private int findOrInsert(long key, long nowMillis) {
+        int slot = probe(key);
+        if (keys[slot] == key) {
+            return slot;
+        }
+        if (size >= maxKeys) {
+            return -1;
+        }
+        keys[slot] = key;
+        lastEpochs[slot] = nowMillis / bucketMillis;
+        size++;
+        return slot;
+    }
+
+    // Suppression par décalage arrière : les clés suivantes de la séquence qui peuvent combler le trou
+    // y sont ramenées, ce qui évite les pierres tombales
+    private void remove(int slot) {
+        int stride = metrics * buckets;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = (int) (mix(keys[next]) & mask);
+            // La clé peut occuper le trou si celui-ci se trouve entre sa case d'origine et sa case actuelle
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                lastEpochs[hole] = lastEpochs[next];
+                System.arraycopy(counts, next * stride, counts, hole * stride, stride);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        Arrays.fill(counts, hole * stride, (hole + 1) * stride, 0);
+        size--;
+    }
+
+    // Position de la clé, ou de la première case vide de sa séquence de sondage
+    private int probe(long key) {
+        int slot = (int) (mix(key) & mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Remet à zéro les buckets sortis de la fenêtre depuis le dernier accès à la case
+    private void advance(int slot, long epoch) {
+        long last = lastEpochs[slot];
+        if (epoch <= last) {
+            return;
+        }
+        long steps = Math.min(epoch - last, buckets);
+        for (long step = 1; step <= steps; step++) {
+            int bucket = (int) Math.floorMod(last + step, (long) buckets);
+            for (int metric = 0; metric < metrics; metric++) {
+                counts[offset(slot, metric) + bucket] = 0;
+            }
+        }
+        lastEpochs[slot] = epoch;
+    }
+
+    // Une case est inactive lorsque tous ses buckets encore dans la fenêtre sont nuls
+    private boolean isIdle(int slot, long epoch) {
+        advance(slot, epoch);
+        int stride = metrics * buckets;
+        return isIdle(counts, slot * stride, stride);
+    }
+
+    private static boolean isIdle(long[] values, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (values[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long sumSlot(int slot, int metric) {
+        int base = offset(slot, metric);
+        long sum = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            sum += counts[base + bucket];
+        }
+        return sum;
+    }
+
+    private int offset(int slot, int metric) {
+        return (slot * metrics + metric) * buckets;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, long[] sums);
+    }
+}
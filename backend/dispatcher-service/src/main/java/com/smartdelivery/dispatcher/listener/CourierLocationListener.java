@@ -0,0 +1,40 @@
+package com.smartdelivery.dispatcher.listener;
+
+import com.smartdelivery.dispatcher.service.CourierLocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CourierLocationListener {
+
+    private final CourierLocationService courierLocationService;
+
+    @RabbitListener(queues = "${rabbitmq.queue.location.name}")
+    public void handleLocationUpdated(Map<String, Object> message) {
+        try {
+            // Le tracking-service publie le DeliveryTracking complet ; seule la position courante nous intéresse
+            Object courierId = message.get("courierId");
+            Map<String, Object> currentLocation = (Map<String, Object>) message.get("currentLocation");
+            if (courierId == null || currentLocation == null
+                    || currentLocation.get("latitude") == null || currentLocation.get("longitude") == null) {
+                log.debug("Ignoring location.updated event without courier position");
+                return;
+            }
+
+            courierLocationService.updateLocation(
+                    UUID.fromString(courierId.toString()),
+                    Double.parseDouble(currentLocation.get("latitude").toString()),
+                    Double.parseDouble(currentLocation.get("longitude").toString()));
+
+        } catch (Exception e) {
+            log.error("Error processing location.updated event", e);
+        }
+    }
+}
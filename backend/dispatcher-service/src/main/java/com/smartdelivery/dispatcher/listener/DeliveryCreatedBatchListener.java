@@ -0,0 +1,117 @@
+package com.smartdelivery.dispatcher.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.offer.OfferBroker;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import com.smartdelivery.dispatcher.shard.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Consommation par lots des événements delivery.created.
+ * Les messages d'un lot sont désérialisés en DTO puis répartis sur des workers partitionnés
+ * par ID de livraison, ce qui conserve l'ordre des messages d'une même livraison.
+ * Cet ordre est celui d'un consommateur : le conteneur n'en ouvre qu'un par queue.
+ * Les échecs sont republiés dans des queues de retry à délai croissant, puis dans la DLQ ;
+ * un message rejoué peut alors passer après des messages plus récents de la même livraison.
+ * En mode shardé, chaque demande passe par le ShardRouter qui la traite ou la transmet au nœud propriétaire.
+ * Le bean existe aussi lorsque dispatcher.listener.batch.enabled=false : seule la consommation de la queue
+ * d'entrée est alors désactivée, la queue du nœud shardé reste traitée par lots.
+ */
+@Component
+@Slf4j
+public class DeliveryCreatedBatchListener {
+
+    private final DispatcherService dispatcherService;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final ObjectProvider<OfferBroker> offerBroker;
+    private final ObjectMapper objectMapper;
+    private final DeliveryRetryRouter retryRouter;
+    private final PartitionedWorkerPool workers;
+
+    public DeliveryCreatedBatchListener(
+            DispatcherService dispatcherService,
+            ObjectProvider<ShardRouter> shardRouter,
+            ObjectProvider<OfferBroker> offerBroker,
+            ObjectMapper objectMapper,
+            DeliveryRetryRouter retryRouter,
+            @Value("${dispatcher.listener.partitions:8}") int partitions) {
+        this.dispatcherService = dispatcherService;
+        this.shardRouter = shardRouter;
+        this.offerBroker = offerBroker;
+        this.objectMapper = objectMapper;
+        this.retryRouter = retryRouter;
+        this.workers = new PartitionedWorkerPool("delivery-dispatch", partitions);
+    }
+
+    @RabbitListener(queues = "${rabbitmq.queue.created.name}", containerFactory = "batchRabbitListenerContainerFactory",
+            autoStartup = "${dispatcher.listener.batch.enabled:true}")
+    public void handleDeliveryCreatedBatch(List<Message> messages, Channel channel) throws IOException {
+        log.info("Received batch of {} delivery.created events", messages.size());
+
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            DeliveryCreatedEvent event;
+            try {
+                event = objectMapper.readValue(message.getBody(), DeliveryCreatedEvent.class);
+            } catch (IOException e) {
+                results.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            results.add(workers.submit(event.getId(), () -> dispatch(message, event)));
+        }
+
+        // Attendre la fin du lot pour acquitter sur le thread du conteneur (le Channel n'est pas thread-safe)
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            try {
+                results.get(i).join();
+                channel.basicAck(deliveryTag, false);
+            } catch (CompletionException e) {
+                handleFailure(message, e.getCause(), channel, deliveryTag);
+            }
+        }
+    }
+
+    private void dispatch(Message message, DeliveryCreatedEvent event) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        OfferBroker broker = offerBroker.getIfAvailable();
+        if (router != null) {
+            router.dispatch(message, event.toDispatchRequest());
+        } else if (broker != null) {
+            broker.offer(event.toDispatchRequest());
+        } else {
+            dispatcherService.assignDelivery(event.toDispatchRequest());
+        }
+    }
+
+    private void handleFailure(Message message, Throwable cause, Channel channel, long deliveryTag) throws IOException {
+        try {
+            retryRouter.reroute(message, cause);
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            // Impossible de republier : le message est remis dans la queue plutôt que perdu
+            log.error("Unable to reroute failed delivery.created event, requeueing", e);
+            channel.basicNack(deliveryTag, false, true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.close();
+    }
+}
@@ -1,41 +1,62 @@
 package com.smartdelivery.dispatcher.listener;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.offer.OfferBroker;
 import com.smartdelivery.dispatcher.service.DispatcherService;
+import com.smartdelivery.dispatcher.shard.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.UUID;
+import java.io.IOException;
 
+/**
+ * Consommation unitaire des événements delivery.created (mode historique,
+ * actif lorsque dispatcher.listener.batch.enabled=false).
+ * Le message est désérialisé comme en mode par lots, y compris les livreurs à écarter d'une réattribution.
+ * Les échecs passent par les mêmes queues de retry et la même DLQ ; si la republication échoue,
+ * l'exception remonte au conteneur qui remet le message dans la queue.
+ * En mode shardé, chaque demande passe par le ShardRouter comme en mode par lots.
+ */
 @Component
+@ConditionalOnProperty(name = "dispatcher.listener.batch.enabled", havingValue = "false")
 @RequiredArgsConstructor
 @Slf4j
 public class DeliveryEventListener {
 
     private final DispatcherService dispatcherService;
+    private final ObjectProvider<OfferBroker> offerBroker;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final ObjectMapper objectMapper;
+    private final DeliveryRetryRouter retryRouter;
 
     @RabbitListener(queues = "${rabbitmq.queue.created.name}")
-    public void handleDeliveryCreated(Map<String, Object> message) {
+    public void handleDeliveryCreated(Message message) {
+        log.info("Received delivery.created event");
         try {
-            log.info("Received delivery.created event");
-
-            // Extraire les informations du message
-            UUID deliveryId = UUID.fromString(message.get("id").toString());
-
-            // Obtenir les coordonnées de l'adresse de ramassage
-            Map<String, Object> pickupAddress = (Map<String, Object>) message.get("pickupAddress");
-            Map<String, Object> coordinates = (Map<String, Object>) pickupAddress.get("coordinates");
-
-            Double pickupLatitude = Double.parseDouble(coordinates.get("latitude").toString());
-            Double pickupLongitude = Double.parseDouble(coordinates.get("longitude").toString());
-
-            // Attribuer automatiquement la livraison au livreur le plus proche
-            dispatcherService.assignDelivery(deliveryId, pickupLatitude, pickupLongitude);
+            DeliveryCreatedEvent event = objectMapper.readValue(message.getBody(), DeliveryCreatedEvent.class);
+            dispatch(message, event.toDispatchRequest());
+        } catch (IOException | RuntimeException e) {
+            retryRouter.reroute(message, e);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing delivery.created event", e);
+    // Attribuer automatiquement la livraison au livreur le plus adapté (ou la proposer en mode offre)
+    private void dispatch(Message message, DispatchRequest request) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        OfferBroker broker = offerBroker.getIfAvailable();
+        if (router != null) {
+            router.dispatch(message, request);
+        } else if (broker != null) {
+            broker.offer(request);
+        } else {
+            dispatcherService.assignDelivery(request);
         }
     }
 }
@@ -0,0 +1,70 @@
+package com.smartdelivery.dispatcher.listener;
+
+import com.smartdelivery.dispatcher.config.RabbitMQConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Republication des événements delivery.created en échec, commune aux listeners unitaire et par lots :
+ * queues de retry à délai croissant, puis DLQ. Un message illisible ou invalide part directement en DLQ.
+ */
+@Component
+@Slf4j
+public class DeliveryRetryRouter {
+
+    static final String ATTEMPT_HEADER = "x-dispatch-attempt";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String createdQueueName;
+    private final String deadLetterQueueName;
+    private final List<Long> retryDelays;
+
+    public DeliveryRetryRouter(
+            RabbitTemplate rabbitTemplate,
+            @Value("${rabbitmq.queue.created.name}") String createdQueueName,
+            @Value("${rabbitmq.queue.created.dlq.name}") String deadLetterQueueName,
+            @Value("${dispatcher.listener.retry-delays-ms:5000,30000,120000}") List<Long> retryDelays) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.createdQueueName = createdQueueName;
+        this.deadLetterQueueName = deadLetterQueueName;
+        this.retryDelays = retryDelays;
+    }
+
+    /**
+     * Republie un message en échec dans la queue de retry suivante ou dans la DLQ
+     * @param message Message d'origine
+     * @param cause Cause de l'échec
+     * @throws org.springframework.amqp.AmqpException si la republication échoue : le message ne doit pas être acquitté
+     */
+    public void reroute(Message message, Throwable cause) {
+        Integer previousAttempts = message.getMessageProperties().getHeader(ATTEMPT_HEADER);
+        int attempt = previousAttempts != null ? previousAttempts : 0;
+        // Un message illisible ne sera jamais traité : il part directement en DLQ
+        boolean retryable = !(cause instanceof IOException) && !(cause instanceof IllegalArgumentException);
+
+        if (retryable && attempt < retryDelays.size()) {
+            String retryQueue = RabbitMQConfig.retryQueueName(createdQueueName, retryDelays.get(attempt));
+            log.warn("delivery.created event failed (attempt {}), retrying through {}: {}",
+                    attempt + 1, retryQueue, cause.getMessage());
+            rabbitTemplate.send("", retryQueue, withAttempt(message, attempt + 1, cause));
+        } else {
+            log.error("delivery.created event failed after {} attempts, sending to {}",
+                    attempt + 1, deadLetterQueueName, cause);
+            rabbitTemplate.send("", deadLetterQueueName, withAttempt(message, attempt + 1, cause));
+        }
+    }
+
+    private static Message withAttempt(Message message, int attempt, Throwable cause) {
+        return MessageBuilder.fromMessage(message)
+                .setHeader(ATTEMPT_HEADER, attempt)
+                .setHeader("x-exception-message", String.valueOf(cause.getMessage()))
+                .build();
+    }
+}
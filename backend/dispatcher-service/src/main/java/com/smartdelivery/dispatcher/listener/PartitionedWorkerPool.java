@@ -0,0 +1,67 @@
+package com.smartdelivery.dispatcher.listener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de workers mono-thread partitionnés par clé : les tâches ayant la même clé
+ * sont toujours exécutées sur le même worker, donc dans leur ordre de soumission.
+ * L'ordre n'est garanti que pour les tâches soumises par un même thread appelant.
+ */
+public class PartitionedWorkerPool implements AutoCloseable {
+
+    private final ExecutorService[] workers;
+
+    public PartitionedWorkerPool(String name, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Le nombre de partitions doit être positif");
+        }
+        this.workers = new ExecutorService[partitions];
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < partitions; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getPartitions() {
+        return workers.length;
+    }
+
+    /**
+     * Soumet une tâche sur la partition associée à la clé
+     * @param key Clé de partitionnement (ex: ID de livraison)
+     * @param task Tâche à exécuter
+     * @return Future complétée à la fin de la tâche
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        return CompletableFuture.runAsync(task, workers[partitionOf(key)]);
+    }
+
+    int partitionOf(Object key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), workers.length);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            try {
+                if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                    worker.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                worker.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.smartdelivery.dispatcher.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ligne d'historique d'un livreur, issue de la table des assignments ou de l'archive
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssignmentHistoryEntry {
+
+    private UUID id;
+
+    private UUID deliveryId;
+
+    private UUID courierId;
+
+    private DeliveryAssignment.AssignmentStatus status;
+
+    private LocalDateTime assignedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+
+    private Double pickupLatitude;
+
+    private Double pickupLongitude;
+
+    private Double dropoffLatitude;
+
+    private Double dropoffLongitude;
+
+    private boolean archived;
+
+    public static AssignmentHistoryEntry from(DeliveryAssignment assignment, UUID courierId) {
+        return AssignmentHistoryEntry.builder()
+                .id(assignment.getId())
+                .deliveryId(assignment.getDeliveryId())
+                .courierId(courierId)
+                .status(assignment.getStatus())
+                .assignedAt(assignment.getAssignedAt())
+                .updatedAt(assignment.getUpdatedAt())
+                .completedAt(assignment.getCompletedAt())
+                .pickupLatitude(assignment.getPickupLatitude())
+                .pickupLongitude(assignment.getPickupLongitude())
+                .dropoffLatitude(assignment.getDropoffLatitude())
+                .dropoffLongitude(assignment.getDropoffLongitude())
+                .archived(false)
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.smartdelivery.dispatcher.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Résultat d'une opération groupée sur les assignments (annulation ou clôture),
+ * publié tel quel comme événement unique de l'opération
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAssignmentResult {
+
+    private DeliveryAssignment.AssignmentStatus status;
+
+    private String scope; // COURIER, DELIVERIES ou ZONE
+
+    private List<UUID> assignmentIds;
+
+    private List<UUID> deliveryIds;
+
+    private List<ReleasedCourier> releasedCouriers; // livreurs repassés de BUSY à AVAILABLE
+
+    private LocalDateTime timestamp;
+
+    public int getCount() {
+        return assignmentIds == null ? 0 : assignmentIds.size();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReleasedCourier {
+        private UUID courierId;
+        private Double latitude;
+        private Double longitude;
+    }
+}
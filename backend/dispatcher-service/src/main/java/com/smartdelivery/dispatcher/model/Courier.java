@@ -9,7 +9,6 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -43,8 +42,15 @@ public class Courier {
     @Column(nullable = false)
     private CourierStatus status;
 
-    @OneToMany(mappedBy = "courier", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private List<DeliveryAssignment> assignments;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "vehicle_type")
+    private VehicleType vehicleType;
+
+    @Column(name = "max_capacity")
+    private Double maxCapacity; // charge maximale en kg
+
+    @Column(name = "max_volume")
+    private Double maxVolume; // volume maximal en m³
 
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -57,4 +63,8 @@ public class Courier {
     public enum CourierStatus {
         AVAILABLE, BUSY, OFFLINE, ON_BREAK
     }
+
+    public enum VehicleType {
+        BICYCLE, MOTORCYCLE, CAR, VAN, TRUCK
+    }
 }
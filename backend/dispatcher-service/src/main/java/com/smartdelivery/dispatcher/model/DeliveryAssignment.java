@@ -34,6 +34,24 @@ public class DeliveryAssignment {
     @Column(nullable = false)
     private AssignmentStatus status;
 
+    @Column(name = "pickup_latitude")
+    private Double pickupLatitude;
+
+    @Column(name = "pickup_longitude")
+    private Double pickupLongitude;
+
+    @Column(name = "dropoff_latitude")
+    private Double dropoffLatitude;
+
+    @Column(name = "dropoff_longitude")
+    private Double dropoffLongitude;
+
+    @Column(name = "package_weight")
+    private Double packageWeight; // en kg
+
+    @Column(name = "package_volume")
+    private Double packageVolume; // en m³
+
     @CreationTimestamp
     @Column(name = "assigned_at", nullable = false, updatable = false)
     private LocalDateTime assignedAt;
@@ -45,6 +63,9 @@ public class DeliveryAssignment {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    @Column(name = "escalated_at")
+    private LocalDateTime escalatedAt; // signalement assignment.overdue, au plus une fois
+
     public enum AssignmentStatus {
         ASSIGNED, IN_PROGRESS, COMPLETED, CANCELLED
     }
@@ -0,0 +1,150 @@
+package com.smartdelivery.dispatcher.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Contenu de l'événement delivery.created publié par le delivery-service.
+ * Seuls les champs utiles à l'attribution sont désérialisés.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DeliveryCreatedEvent {
+
+    private UUID id;
+
+    private Address pickupAddress;
+
+    private Address deliveryAddress;
+
+    private PackageDetails packageDetails;
+
+    private String priority;
+
+    private List<UUID> excludedCourierIds; // livreurs à éviter lors d'une réattribution
+
+    /**
+     * Convertit l'événement en demande d'attribution
+     * @return La demande d'attribution
+     * @throws IllegalArgumentException si l'ID ou les coordonnées de ramassage sont absents
+     */
+    public DispatchRequest toDispatchRequest() {
+        if (id == null || pickupAddress == null || !pickupAddress.hasCoordinates()) {
+            throw new IllegalArgumentException("Événement delivery.created incomplet: " + id);
+        }
+
+        DispatchRequest.DispatchRequestBuilder request = DispatchRequest.builder()
+                .deliveryId(id)
+                .pickupLatitude(pickupAddress.getCoordinates().getLatitude())
+                .pickupLongitude(pickupAddress.getCoordinates().getLongitude())
+                .priority(priority)
+                .excludedCourierIds(excludedCourierIds);
+
+        if (deliveryAddress != null && deliveryAddress.hasCoordinates()) {
+            request.dropoffLatitude(deliveryAddress.getCoordinates().getLatitude())
+                    .dropoffLongitude(deliveryAddress.getCoordinates().getLongitude());
+        }
+
+        if (packageDetails != null) {
+            request.packageWeight(packageDetails.getWeight())
+                    .packageVolume(packageDetails.resolveVolume());
+        }
+
+        return request.build();
+    }
+
+    /**
+     * Reconstruit un événement à partir d'une demande d'attribution, pour la remettre en file
+     * @param request La demande d'attribution
+     * @return L'événement équivalent
+     */
+    public static DeliveryCreatedEvent fromDispatchRequest(DispatchRequest request) {
+        Address pickup = new Address();
+        pickup.setCoordinates(new Coordinates(request.getPickupLatitude(), request.getPickupLongitude()));
+
+        Address dropoff = null;
+        if (request.hasDropoff()) {
+            dropoff = new Address();
+            dropoff.setCoordinates(new Coordinates(request.getDropoffLatitude(), request.getDropoffLongitude()));
+        }
+
+        PackageDetails packageDetails = new PackageDetails();
+        packageDetails.setWeight(request.getPackageWeight());
+        packageDetails.setVolume(request.getPackageVolume());
+
+        return DeliveryCreatedEvent.builder()
+                .id(request.getDeliveryId())
+                .pickupAddress(pickup)
+                .deliveryAddress(dropoff)
+                .packageDetails(packageDetails)
+                .priority(request.getPriority())
+                .excludedCourierIds(request.getExcludedCourierIds())
+                .build();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Address {
+        private String street;
+        private String city;
+        private Coordinates coordinates;
+
+        public boolean hasCoordinates() {
+            return coordinates != null && coordinates.getLatitude() != null && coordinates.getLongitude() != null;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Coordinates {
+        private Double latitude;
+        private Double longitude;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class PackageDetails {
+        private Double weight; // en kg
+        private Double volume; // en m³, renseigné lors d'une réattribution
+        private Dimensions dimensions;
+
+        /**
+         * Volume du colis en m³, explicite ou calculé à partir des dimensions (exprimées en cm)
+         */
+        public Double resolveVolume() {
+            if (volume != null) {
+                return volume;
+            }
+            if (dimensions == null || dimensions.getLength() == null
+                    || dimensions.getWidth() == null || dimensions.getHeight() == null) {
+                return null;
+            }
+            return dimensions.getLength() * dimensions.getWidth() * dimensions.getHeight() / 1_000_000.0;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Dimensions {
+        private Double length;
+        private Double width;
+        private Double height;
+    }
+}
@@ -0,0 +1,45 @@
+package com.smartdelivery.dispatcher.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Demande d'attribution d'une livraison, construite à partir de l'événement delivery.created
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchRequest {
+
+    private UUID deliveryId;
+
+    private Double pickupLatitude;
+
+    private Double pickupLongitude;
+
+    private Double dropoffLatitude;
+
+    private Double dropoffLongitude;
+
+    private Double packageWeight; // en kg
+
+    private Double packageVolume; // en m³
+
+    private String priority;
+
+    private List<UUID> excludedCourierIds; // livreurs à éviter (ex: délai d'acceptation dépassé)
+
+    public boolean hasDropoff() {
+        return dropoffLatitude != null && dropoffLongitude != null;
+    }
+
+    public boolean isExcluded(UUID courierId) {
+        return excludedCourierIds != null && excludedCourierIds.contains(courierId);
+    }
+}
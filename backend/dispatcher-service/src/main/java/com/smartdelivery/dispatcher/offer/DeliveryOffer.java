@@ -0,0 +1,135 @@
+package com.smartdelivery.dispatcher.offer;
+
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.timer.HashedTimingWheel;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Offre d'une livraison diffusée simultanément à plusieurs livreurs.
+ * L'état évolue uniquement par compare-and-set : une seule acceptation peut passer en ACCEPTING,
+ * et l'expiration ne peut l'emporter que sur une offre encore OPEN.
+ */
+public class DeliveryOffer {
+
+    public enum State {
+        OPEN, ACCEPTING, ACCEPTED, EXPIRED
+    }
+
+    private final UUID id;
+    private final DispatchRequest request;
+    private final List<UUID> courierIds;
+    private final int round;
+    private final long firstOfferedAtNanos;
+    private final long deadlineNanos;
+    private final Instant expiresAt;
+    private final AtomicReference<State> state = new AtomicReference<>(State.OPEN);
+    private final Set<UUID> declinedCourierIds = ConcurrentHashMap.newKeySet();
+
+    private volatile UUID winnerCourierId;
+    private volatile HashedTimingWheel.Timeout timeout;
+
+    public DeliveryOffer(UUID id, DispatchRequest request, List<UUID> courierIds, int round,
+                         long firstOfferedAtNanos, long ttlMillis) {
+        this.id = id;
+        this.request = request;
+        this.courierIds = List.copyOf(courierIds);
+        this.round = round;
+        this.firstOfferedAtNanos = firstOfferedAtNanos;
+        this.deadlineNanos = System.nanoTime() + ttlMillis * 1_000_000;
+        this.expiresAt = Instant.now().plusMillis(ttlMillis);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public DispatchRequest getRequest() {
+        return request;
+    }
+
+    public List<UUID> getCourierIds() {
+        return courierIds;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public long getFirstOfferedAtNanos() {
+        return firstOfferedAtNanos;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public UUID getWinnerCourierId() {
+        return winnerCourierId;
+    }
+
+    public boolean isOfferedTo(UUID courierId) {
+        return courierIds.contains(courierId);
+    }
+
+    public boolean isPastDeadline() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    void setTimeout(HashedTimingWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    void cancelTimeout() {
+        HashedTimingWheel.Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * Réserve l'offre pour une acceptation ; échoue si un autre livreur est déjà en train de l'accepter
+     */
+    boolean tryBeginAccept() {
+        return state.compareAndSet(State.OPEN, State.ACCEPTING);
+    }
+
+    void completeAccept(UUID courierId) {
+        this.winnerCourierId = courierId;
+        state.set(State.ACCEPTED);
+    }
+
+    /**
+     * Rouvre l'offre après l'échec de l'attribution au livreur qui l'avait acceptée
+     */
+    void abortAccept(UUID courierId) {
+        declinedCourierIds.add(courierId);
+        state.compareAndSet(State.ACCEPTING, State.OPEN);
+    }
+
+    boolean tryExpire() {
+        return state.compareAndSet(State.OPEN, State.EXPIRED);
+    }
+
+    /**
+     * Enregistre un refus
+     * @return true si tous les livreurs sollicités ont refusé
+     */
+    boolean decline(UUID courierId) {
+        declinedCourierIds.add(courierId);
+        return declinedCourierIds.containsAll(courierIds);
+    }
+
+    boolean allDeclined() {
+        return declinedCourierIds.containsAll(courierIds);
+    }
+}
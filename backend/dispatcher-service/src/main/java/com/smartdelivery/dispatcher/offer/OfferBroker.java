@@ -0,0 +1,390 @@
+package com.smartdelivery.dispatcher.offer;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.repository.PendingOfferRepository;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import com.smartdelivery.dispatcher.timer.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Attribution par offre : une livraison est proposée en même temps aux meilleurs candidats,
+ * le premier qui accepte l'emporte et les autres offres sont retirées.
+ * Les offres sont tenues en mémoire sur le nœud qui les a émises ; la course entre acceptations
+ * est arbitrée par compare-and-set sur l'état de l'offre, sans verrou en base. Seul le gagnant
+ * déclenche l'écriture de l'assignment. Les offres sans réponse expirent dans une roue temporelle :
+ * un nouveau tour est lancé sans les livreurs sollicités, puis la livraison est attribuée directement.
+ * La livraison est aussi enregistrée en base avant la diffusion et jusqu'à son attribution :
+ * si le nœud s'arrête avec des offres ouvertes, un autre nœud les remet en file après l'échéance.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatcher.offer.enabled", havingValue = "true")
+@Slf4j
+public class OfferBroker {
+
+    private final DispatcherService dispatcherService;
+    private final RabbitTemplate rabbitTemplate;
+    private final PendingOfferRepository pendingOffers;
+    private final HashedTimingWheel wheel;
+    private final ExecutorService expiryExecutor;
+    private final Map<UUID, DeliveryOffer> offers = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> offersByDelivery = new ConcurrentHashMap<>();
+
+    private final Timer acceptLatency;
+    private final Counter offeredCounter;
+    private final Counter acceptedCounter;
+    private final Counter expiredCounter;
+    private final Counter fallbackCounter;
+    private final Counter recoveredCounter;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routingkey.redispatch:delivery.redispatch}")
+    private String redispatchRoutingKey;
+
+    @Value("${rabbitmq.routingkey.offer-created:courier.offer.created}")
+    private String offerCreatedRoutingKey;
+
+    @Value("${rabbitmq.routingkey.offer-retracted:courier.offer.retracted}")
+    private String offerRetractedRoutingKey;
+
+    @Value("${rabbitmq.routingkey.offer-response:courier.offer.response}")
+    private String offerResponseRoutingKey;
+
+    private final int maxCandidates;
+    private final long ttlMs;
+    private final int maxRounds;
+    private final long recoveryGraceMs;
+
+    public OfferBroker(
+            DispatcherService dispatcherService,
+            RabbitTemplate rabbitTemplate,
+            PendingOfferRepository pendingOffers,
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.offer.max-candidates:3}") int maxCandidates,
+            @Value("${dispatcher.offer.ttl-ms:15000}") long ttlMs,
+            @Value("${dispatcher.offer.max-rounds:2}") int maxRounds,
+            @Value("${dispatcher.offer.tick-ms:50}") long tickMs,
+            @Value("${dispatcher.offer.wheel-size:512}") int wheelSize,
+            @Value("${dispatcher.offer.worker-threads:2}") int workerThreads,
+            @Value("${dispatcher.offer.recovery-grace-ms:15000}") long recoveryGraceMs) {
+        this.dispatcherService = dispatcherService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.pendingOffers = pendingOffers;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.ttlMs = ttlMs;
+        this.maxRounds = Math.max(1, maxRounds);
+        this.recoveryGraceMs = recoveryGraceMs;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.expiryExecutor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "offer-expiry-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel(tickMs, TimeUnit.MILLISECONDS, wheelSize, expiryExecutor, runnable -> {
+            Thread thread = new Thread(runnable, "offer-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.acceptLatency = Timer.builder("dispatcher.offer.accept.latency")
+                .description("Délai entre la première offre et l'acceptation gagnante")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.offeredCounter = Counter.builder("dispatcher.offer.created")
+                .description("Offres diffusées (un tour de diffusion par offre)")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("dispatcher.offer.accepted")
+                .description("Offres acceptées")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("dispatcher.offer.expired")
+                .description("Offres expirées ou refusées par tous les livreurs")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("dispatcher.offer.fallback")
+                .description("Livraisons attribuées directement (tours d'offre épuisés ou aucun candidat)")
+                .register(meterRegistry);
+        this.recoveredCounter = Counter.builder("dispatcher.offer.recovered")
+                .description("Offres d'un nœud arrêté remises en file")
+                .register(meterRegistry);
+        Gauge.builder("dispatcher.offer.open", offers, Map::size)
+                .description("Offres en attente de réponse")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Diffuse une livraison aux meilleurs candidats, ou l'attribue directement s'il n'y en a aucun.
+     * Une livraison déjà en cours d'offre sur ce nœud (message rejoué) est ignorée.
+     * L'offre est enregistrée en base avant de rendre la main : le message d'origine peut alors être acquitté.
+     * @param request Demande d'attribution
+     */
+    public void offer(DispatchRequest request) {
+        offer(request, 1, System.nanoTime());
+    }
+
+    /**
+     * Traite la réponse d'un livreur à une offre
+     * @param offerId ID de l'offre
+     * @param courierId ID du livreur
+     * @param accepted true pour une acceptation, false pour un refus
+     * @return L'issue de la réponse
+     */
+    public OfferResponse respond(UUID offerId, UUID courierId, boolean accepted) {
+        DeliveryOffer offer = offers.get(offerId);
+        if (offer == null) {
+            return null;
+        }
+        if (!offer.isOfferedTo(courierId)) {
+            return OfferResponse.NOT_OFFERED;
+        }
+        return accepted ? accept(offer, courierId) : decline(offer, courierId);
+    }
+
+    /**
+     * Traite la réponse localement si l'offre est détenue par ce nœud, sinon la transmet aux autres nœuds
+     * lorsque l'offre est encore ouverte sur l'un d'eux
+     */
+    public OfferResponse respondOrForward(UUID offerId, UUID courierId, boolean accepted) {
+        OfferResponse response = respond(offerId, courierId, accepted);
+        if (response != null) {
+            return response;
+        }
+        if (!pendingOffers.exists(offerId)) {
+            return OfferResponse.CLOSED;
+        }
+        Map<String, Object> message = new HashMap<>();
+        message.put("offerId", offerId);
+        message.put("courierId", courierId);
+        message.put("accepted", accepted);
+        rabbitTemplate.convertAndSend(exchangeName, offerResponseRoutingKey, message);
+        return OfferResponse.FORWARDED;
+    }
+
+    public DeliveryOffer getOffer(UUID offerId) {
+        return offers.get(offerId);
+    }
+
+    private void offer(DispatchRequest request, int round, long firstOfferedAtNanos) {
+        UUID deliveryId = request.getDeliveryId();
+        List<CourierState> candidates = dispatcherService.rankCandidates(request);
+        List<UUID> courierIds = new ArrayList<>(Math.min(maxCandidates, candidates.size()));
+        for (CourierState candidate : candidates.subList(0, Math.min(maxCandidates, candidates.size()))) {
+            courierIds.add(candidate.getCourierId());
+        }
+        if (courierIds.isEmpty()) {
+            // Une offre sans destinataire ne ferait qu'attendre son échéance
+            log.info("No courier to offer delivery {} to (round {}), assigning directly", deliveryId, round);
+            assignDirectly(request);
+            return;
+        }
+
+        DeliveryOffer offer = new DeliveryOffer(UUID.randomUUID(), request, courierIds, round, firstOfferedAtNanos, ttlMs);
+        if (offersByDelivery.putIfAbsent(deliveryId, offer.getId()) != null) {
+            log.info("Delivery {} already has an open offer, skipping", deliveryId);
+            return;
+        }
+        try {
+            pendingOffers.save(offer.getId(), DeliveryCreatedEvent.fromDispatchRequest(request), ttlMs);
+        } catch (RuntimeException e) {
+            offersByDelivery.remove(deliveryId, offer.getId());
+            throw e;
+        }
+        offers.put(offer.getId(), offer);
+        offer.setTimeout(wheel.schedule(() -> expire(offer), ttlMs, TimeUnit.MILLISECONDS));
+        offeredCounter.increment();
+
+        for (UUID courierId : courierIds) {
+            rabbitTemplate.convertAndSend(exchangeName, offerCreatedRoutingKey, offerMessage(offer, courierId));
+        }
+        log.info("Offered delivery {} to {} couriers (offer {}, round {})", deliveryId, courierIds.size(), offer.getId(), round);
+    }
+
+    private OfferResponse accept(DeliveryOffer offer, UUID courierId) {
+        if (!offer.tryBeginAccept()) {
+            return offer.getState() == DeliveryOffer.State.EXPIRED ? OfferResponse.EXPIRED : OfferResponse.TAKEN;
+        }
+
+        try {
+            dispatcherService.assignDeliveryTo(offer.getRequest(), courierId);
+        } catch (RuntimeException e) {
+            log.info("Courier {} accepted offer {} but could not be assigned: {}", courierId, offer.getId(), e.getMessage());
+            offer.abortAccept(courierId);
+            // L'échéance a pu passer pendant la tentative : l'expiration n'a alors pas pu l'emporter
+            if (offer.allDeclined() || offer.isPastDeadline()) {
+                offer.cancelTimeout();
+                expire(offer);
+            }
+            return OfferResponse.REJECTED;
+        }
+
+        offer.completeAccept(courierId);
+        offer.cancelTimeout();
+        remove(offer);
+        forgetPendingOffer(offer.getRequest().getDeliveryId());
+        acceptLatency.record(System.nanoTime() - offer.getFirstOfferedAtNanos(), TimeUnit.NANOSECONDS);
+        acceptedCounter.increment();
+        retract(offer, "TAKEN", courierId);
+        log.info("Courier {} won offer {} for delivery {}", courierId, offer.getId(), offer.getRequest().getDeliveryId());
+        return OfferResponse.ACCEPTED;
+    }
+
+    private OfferResponse decline(DeliveryOffer offer, UUID courierId) {
+        if (offer.decline(courierId)) {
+            offer.cancelTimeout();
+            expire(offer);
+        }
+        return OfferResponse.DECLINED;
+    }
+
+    // Expiration (échéance ou refus de tous) : retrait des offres puis nouveau tour ou attribution directe
+    private void expire(DeliveryOffer offer) {
+        if (!offer.tryExpire()) {
+            return;
+        }
+        remove(offer);
+        expiredCounter.increment();
+        retract(offer, "EXPIRED", null);
+
+        // Les livreurs sollicités sans succès sont écartés des tours suivants, tant qu'il reste une alternative
+        DispatchRequest request = offer.getRequest();
+        Set<UUID> excluded = new HashSet<>(offer.getCourierIds());
+        if (request.getExcludedCourierIds() != null) {
+            excluded.addAll(request.getExcludedCourierIds());
+        }
+        request.setExcludedCourierIds(new ArrayList<>(excluded));
+
+        try {
+            if (offer.getRound() < maxRounds) {
+                log.info("Offer {} for delivery {} expired, starting round {}",
+                        offer.getId(), request.getDeliveryId(), offer.getRound() + 1);
+                offer(request, offer.getRound() + 1, offer.getFirstOfferedAtNanos());
+            } else {
+                log.info("Offer {} for delivery {} expired after {} rounds, assigning directly",
+                        offer.getId(), request.getDeliveryId(), offer.getRound());
+                assignDirectly(request);
+            }
+        } catch (Exception e) {
+            // Remettre la livraison en file : elle bénéficie alors des retries du listener
+            log.warn("Could not dispatch delivery {} after offer {} expired, re-queueing: {}",
+                    request.getDeliveryId(), offer.getId(), e.getMessage());
+            requeue(DeliveryCreatedEvent.fromDispatchRequest(request));
+        }
+    }
+
+    /**
+     * Remet en file les livraisons laissées en cours d'offre par un nœud arrêté
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.offer.recovery-interval-ms:10000}")
+    public void recoverOrphanedOffers() {
+        List<DeliveryCreatedEvent> orphans;
+        try {
+            orphans = pendingOffers.claimExpired(recoveryGraceMs, ttlMs, 100);
+        } catch (Exception e) {
+            log.error("Unable to look up orphaned offers", e);
+            return;
+        }
+        for (DeliveryCreatedEvent event : orphans) {
+            if (offersByDelivery.containsKey(event.getId())) {
+                // Offre encore ouverte sur ce nœud : son expiration s'en charge
+                continue;
+            }
+            log.info("Re-queueing delivery {} left in offer by a stopped node", event.getId());
+            if (requeue(event)) {
+                recoveredCounter.increment();
+            }
+        }
+    }
+
+    private void assignDirectly(DispatchRequest request) {
+        fallbackCounter.increment();
+        dispatcherService.assignDelivery(request);
+        forgetPendingOffer(request.getDeliveryId());
+    }
+
+    /**
+     * Republie la livraison puis l'oublie ; en cas d'échec, elle reste en base et sera reprise après l'échéance
+     */
+    private boolean requeue(DeliveryCreatedEvent event) {
+        try {
+            rabbitTemplate.convertAndSend(exchangeName, redispatchRoutingKey, event);
+        } catch (Exception e) {
+            log.error("Unable to re-queue delivery {}, keeping it for recovery", event.getId(), e);
+            return false;
+        }
+        forgetPendingOffer(event.getId());
+        return true;
+    }
+
+    private void forgetPendingOffer(UUID deliveryId) {
+        try {
+            pendingOffers.delete(deliveryId);
+        } catch (Exception e) {
+            // La livraison sera remise en file après l'échéance ; l'attribution existante sera alors conservée
+            log.warn("Unable to delete pending offer of delivery {}: {}", deliveryId, e.getMessage());
+        }
+    }
+
+    private void remove(DeliveryOffer offer) {
+        offers.remove(offer.getId());
+        offersByDelivery.remove(offer.getRequest().getDeliveryId(), offer.getId());
+    }
+
+    private void retract(DeliveryOffer offer, String reason, UUID winnerCourierId) {
+        for (UUID courierId : offer.getCourierIds()) {
+            if (courierId.equals(winnerCourierId)) {
+                continue;
+            }
+            Map<String, Object> message = new HashMap<>();
+            message.put("offerId", offer.getId());
+            message.put("deliveryId", offer.getRequest().getDeliveryId());
+            message.put("courierId", courierId);
+            message.put("reason", reason);
+            rabbitTemplate.convertAndSend(exchangeName, offerRetractedRoutingKey, message);
+        }
+    }
+
+    private Map<String, Object> offerMessage(DeliveryOffer offer, UUID courierId) {
+        DispatchRequest request = offer.getRequest();
+        Map<String, Object> message = new HashMap<>();
+        message.put("offerId", offer.getId());
+        message.put("deliveryId", request.getDeliveryId());
+        message.put("courierId", courierId);
+        message.put("pickupLatitude", request.getPickupLatitude());
+        message.put("pickupLongitude", request.getPickupLongitude());
+        message.put("dropoffLatitude", request.getDropoffLatitude());
+        message.put("dropoffLongitude", request.getDropoffLongitude());
+        message.put("expiresAt", offer.getExpiresAt().toString());
+        return message;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        expiryExecutor.shutdown();
+    }
+}
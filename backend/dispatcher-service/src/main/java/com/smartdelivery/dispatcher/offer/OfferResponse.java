@@ -0,0 +1,15 @@
+package com.smartdelivery.dispatcher.offer;
+
+/**
+ * Issue de la réponse d'un livreur à une offre
+ */
+public enum OfferResponse {
+    ACCEPTED,   // le livreur a remporté l'offre, l'assignment est créé
+    DECLINED,   // le refus est enregistré
+    TAKEN,      // un autre livreur a accepté en premier
+    EXPIRED,    // l'offre a expiré avant la réponse
+    REJECTED,   // l'attribution a échoué (capacité ou statut du livreur)
+    NOT_OFFERED, // l'offre n'a pas été proposée à ce livreur
+    FORWARDED,  // l'offre n'est pas détenue par ce nœud, la réponse a été transmise aux autres
+    CLOSED      // l'offre n'est plus ouverte sur aucun nœud (inconnue, expirée ou déjà attribuée)
+}
@@ -0,0 +1,45 @@
+package com.smartdelivery.dispatcher.offer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Réponses aux offres reçues par un autre nœud (ou publiées directement par les applications livreurs)
+ */
+@Component
+@ConditionalOnProperty(name = "dispatcher.offer.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OfferResponseListener {
+
+    private final OfferBroker offerBroker;
+
+    @RabbitListener(queues = "#{offerResponseQueue.name}")
+    public void handleOfferResponse(Map<String, Object> message) {
+        try {
+            Object offerId = message.get("offerId");
+            Object courierId = message.get("courierId");
+            if (offerId == null || courierId == null) {
+                log.debug("Ignoring offer response without offer or courier ID");
+                return;
+            }
+
+            OfferResponse response = offerBroker.respond(
+                    UUID.fromString(offerId.toString()),
+                    UUID.fromString(courierId.toString()),
+                    Boolean.parseBoolean(String.valueOf(message.get("accepted"))));
+            if (response != null) {
+                log.info("Offer {} response from courier {}: {}", offerId, courierId, response);
+            }
+
+        } catch (Exception e) {
+            log.error("Error processing offer response", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Données d'une attribution mises à disposition des politiques : la demande, la taille du colis
+ * et les moyens de recherche de livreurs configurés sur le nœud (index en mémoire ou PostGIS)
+ */
+public class DispatchContext {
+
+    private final DispatchRequest request;
+    private final double weight;
+    private final double volume;
+    private final int maxConcurrentAssignments;
+    private final Supplier<List<CourierState>> nearbySearch;
+    private final RadiusSearch radiusSearch;
+
+    public DispatchContext(DispatchRequest request, double weight, double volume, int maxConcurrentAssignments,
+                           Supplier<List<CourierState>> nearbySearch, RadiusSearch radiusSearch) {
+        this.request = request;
+        this.weight = weight;
+        this.volume = volume;
+        this.maxConcurrentAssignments = maxConcurrentAssignments;
+        this.nearbySearch = nearbySearch;
+        this.radiusSearch = radiusSearch;
+    }
+
+    public DispatchRequest getRequest() {
+        return request;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    public int getMaxConcurrentAssignments() {
+        return maxConcurrentAssignments;
+    }
+
+    /**
+     * Recherche standard du dispatcher (rayon de base puis rayon élargi si aucun livreur)
+     */
+    public List<CourierState> nearby() {
+        return nearbySearch.get();
+    }
+
+    /**
+     * Livreurs disponibles et capables de prendre le colis dans le rayon donné autour du ramassage
+     */
+    public List<CourierState> within(double radiusKm) {
+        return radiusSearch.find(radiusKm);
+    }
+
+    @FunctionalInterface
+    public interface RadiusSearch {
+        List<CourierState> find(double radiusKm);
+    }
+}
@@ -0,0 +1,38 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+
+import java.util.List;
+
+/**
+ * Politique d'attribution : génération des candidats, score de chaque candidat (le plus faible gagne)
+ * et départage des scores égaux. Chaque étape est chronométrée par le DispatchPolicyEngine.
+ * Les implémentations sont des beans Spring, sélectionnées par leur nom.
+ */
+public interface DispatchPolicy {
+
+    /**
+     * Nom de la politique, utilisé dans la configuration et comme tag des métriques
+     */
+    String getName();
+
+    /**
+     * Livreurs disponibles capables de prendre le colis ; par défaut la recherche standard du dispatcher
+     */
+    default List<CourierState> candidates(DispatchContext context) {
+        return context.nearby();
+    }
+
+    /**
+     * Coût d'attribution de la livraison au livreur, le plus faible étant le meilleur
+     */
+    double score(CourierState courier, DispatchContext context);
+
+    /**
+     * Départage deux livreurs de même score : le moins chargé, puis l'ordre des IDs pour rester déterministe
+     */
+    default int tieBreak(CourierState first, CourierState second, DispatchContext context) {
+        int byLoad = Integer.compare(first.getActiveLoadCount(), second.getActiveLoadCount());
+        return byLoad != 0 ? byLoad : first.getCourierId().compareTo(second.getCourierId());
+    }
+}
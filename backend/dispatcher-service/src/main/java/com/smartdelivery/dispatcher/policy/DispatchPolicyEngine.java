@@ -0,0 +1,228 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.heatmap.DemandHeatmap;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Choisit la politique d'attribution d'une livraison et exécute ses étapes en les chronométrant.
+ * Ordre de sélection : priorité de la livraison, zone de ramassage configurée, zone en surcharge
+ * selon la carte de chaleur, puis politique par défaut.
+ * Chaque étape est mesurée par le timer dispatcher.policy.stage (tags policy et stage).
+ */
+@Component
+@Slf4j
+public class DispatchPolicyEngine {
+
+    public static final String STAGE_CANDIDATES = "candidates";
+    public static final String STAGE_SCORING = "scoring";
+    public static final String STAGE_RANKING = "ranking";
+    public static final String STAGE_RESERVATION = "reservation";
+    private static final List<String> STAGES = List.of(STAGE_CANDIDATES, STAGE_SCORING, STAGE_RANKING, STAGE_RESERVATION);
+
+    private final Map<String, DispatchPolicy> policies = new HashMap<>();
+    private final Map<String, Map<String, Timer>> stageTimers = new HashMap<>();
+    private final ObjectProvider<DemandHeatmap> heatmap;
+    private final DispatchPolicy defaultPolicy;
+    private final Map<String, DispatchPolicy> byPriority = new HashMap<>();
+    private final List<ZoneRule> zoneRules = new ArrayList<>();
+    private final DispatchPolicy surgePolicy;
+
+    /**
+     * @param byPriority Règles "PRIORITE:politique" séparées par des virgules (ex: URGENT:eta,HIGH:eta)
+     * @param zones Règles "politique:latMin:lngMin:latMax:lngMax" séparées par des points-virgules
+     * @param surge Politique des zones en surcharge, vide pour ne pas en tenir compte
+     */
+    public DispatchPolicyEngine(List<DispatchPolicy> policies,
+                                MeterRegistry meterRegistry,
+                                ObjectProvider<DemandHeatmap> heatmap,
+                                @Value("${dispatcher.policy.default:nearest}") String defaultPolicy,
+                                @Value("${dispatcher.policy.by-priority:}") String byPriority,
+                                @Value("${dispatcher.policy.zones:}") String zones,
+                                @Value("${dispatcher.policy.surge:}") String surge) {
+        for (DispatchPolicy policy : policies) {
+            if (this.policies.putIfAbsent(policy.getName(), policy) != null) {
+                throw new IllegalStateException("Politique d'attribution en double : " + policy.getName());
+            }
+            Map<String, Timer> timers = new HashMap<>();
+            for (String stage : STAGES) {
+                timers.put(stage, Timer.builder("dispatcher.policy.stage")
+                        .description("Durée des étapes d'attribution par politique")
+                        .tag("policy", policy.getName())
+                        .tag("stage", stage)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            stageTimers.put(policy.getName(), timers);
+        }
+        this.heatmap = heatmap;
+        this.defaultPolicy = policy(defaultPolicy);
+
+        for (String rule : split(byPriority, ",")) {
+            String[] parts = rule.split(":");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Règle de priorité invalide : " + rule);
+            }
+            this.byPriority.put(parts[0].trim().toUpperCase(Locale.ROOT), policy(parts[1]));
+        }
+        for (String rule : split(zones, ";")) {
+            String[] parts = rule.split(":");
+            if (parts.length != 5) {
+                throw new IllegalStateException("Règle de zone invalide : " + rule);
+            }
+            zoneRules.add(new ZoneRule(policy(parts[0]),
+                    Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                    Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim())));
+        }
+        this.surgePolicy = surge.isBlank() ? null : policy(surge);
+        log.info("Dispatch policies {} (default: {})", this.policies.keySet(), this.defaultPolicy.getName());
+    }
+
+    /**
+     * Politique applicable à la demande
+     */
+    public DispatchPolicy select(DispatchRequest request) {
+        if (request.getPriority() != null) {
+            DispatchPolicy policy = byPriority.get(request.getPriority().toUpperCase(Locale.ROOT));
+            if (policy != null) {
+                return policy;
+            }
+        }
+        if (request.getPickupLatitude() == null || request.getPickupLongitude() == null) {
+            return defaultPolicy;
+        }
+        double latitude = request.getPickupLatitude();
+        double longitude = request.getPickupLongitude();
+        for (ZoneRule zone : zoneRules) {
+            if (zone.contains(latitude, longitude)) {
+                return zone.policy();
+            }
+        }
+        if (surgePolicy != null) {
+            DemandHeatmap demandHeatmap = heatmap.getIfAvailable();
+            if (demandHeatmap != null && demandHeatmap.isSurging(latitude, longitude)) {
+                return surgePolicy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    /**
+     * Génère, note et classe les candidats selon la politique applicable, sans réserver leur capacité.
+     * Les livreurs exclus par la demande sont écartés tant qu'il reste une alternative.
+     * @return La politique retenue et les candidats du meilleur au moins bon (éventuellement vide)
+     */
+    public Ranking rank(DispatchContext context) {
+        DispatchRequest request = context.getRequest();
+        DispatchPolicy policy = select(request);
+        Map<String, Timer> timers = stageTimers.get(policy.getName());
+
+        List<CourierState> candidates = time(timers.get(STAGE_CANDIDATES), () -> {
+            List<CourierState> found = policy.candidates(context);
+            if (request.getExcludedCourierIds() != null && !request.getExcludedCourierIds().isEmpty()) {
+                List<CourierState> preferred = new ArrayList<>(found);
+                preferred.removeIf(candidate -> request.isExcluded(candidate.getCourierId()));
+                if (!preferred.isEmpty()) {
+                    return preferred;
+                }
+            }
+            return found;
+        });
+        if (candidates.isEmpty()) {
+            return new Ranking(policy.getName(), candidates);
+        }
+
+        // Un score par candidat, calculé une seule fois avant le tri
+        Scored[] scored = time(timers.get(STAGE_SCORING), () -> {
+            Scored[] result = new Scored[candidates.size()];
+            for (int i = 0; i < result.length; i++) {
+                CourierState candidate = candidates.get(i);
+                result[i] = new Scored(candidate, policy.score(candidate, context));
+            }
+            return result;
+        });
+
+        List<CourierState> ranked = time(timers.get(STAGE_RANKING), () -> {
+            Arrays.sort(scored, Comparator.comparingDouble(Scored::score)
+                    .thenComparing((first, second) -> policy.tieBreak(first.courier(), second.courier(), context)));
+            List<CourierState> result = new ArrayList<>(scored.length);
+            for (Scored entry : scored) {
+                result.add(entry.courier());
+            }
+            return result;
+        });
+        return new Ranking(policy.getName(), ranked);
+    }
+
+    /**
+     * Enregistre la durée d'une étape exécutée hors du moteur (ex: réservation de capacité)
+     */
+    public void recordStage(String policy, String stage, long durationNanos) {
+        Map<String, Timer> timers = stageTimers.get(policy);
+        if (timers != null && timers.containsKey(stage)) {
+            timers.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private DispatchPolicy policy(String name) {
+        DispatchPolicy policy = policies.get(name.trim());
+        if (policy == null) {
+            throw new IllegalStateException("Politique d'attribution inconnue : " + name.trim()
+                    + " (disponibles : " + policies.keySet() + ")");
+        }
+        return policy;
+    }
+
+    private static <T> T time(Timer timer, Supplier<T> stage) {
+        long start = System.nanoTime();
+        try {
+            return stage.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static List<String> split(String value, String separator) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(separator)) {
+            if (!part.isBlank()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Résultat du classement : politique appliquée et candidats ordonnés
+     */
+    public record Ranking(String policy, List<CourierState> candidates) {
+    }
+
+    private record Scored(CourierState courier, double score) {
+    }
+
+    private record ZoneRule(DispatchPolicy policy, double minLatitude, double minLongitude,
+                            double maxLatitude, double maxLongitude) {
+
+        boolean contains(double latitude, double longitude) {
+            return latitude >= minLatitude && latitude <= maxLatitude
+                    && longitude >= minLongitude && longitude <= maxLongitude;
+        }
+    }
+}
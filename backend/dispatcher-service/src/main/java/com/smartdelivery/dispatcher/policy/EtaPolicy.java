@@ -0,0 +1,57 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.model.Courier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Livreur qui arrivera le plus tôt au ramassage : trajet à la vitesse moyenne de son véhicule
+ * et arrêts des livraisons qu'il a déjà en charge. Un livreur motorisé plus éloigné peut arriver
+ * avant un cycliste proche, les candidats sont donc cherchés directement dans le rayon élargi.
+ */
+@Component
+public class EtaPolicy implements DispatchPolicy {
+
+    public static final String NAME = "eta";
+
+    private static final double SEARCH_RADIUS_KM = 20.0;
+
+    private final double stopMinutes;
+
+    public EtaPolicy(@Value("${dispatcher.policy.eta.stop-minutes:4.0}") double stopMinutes) {
+        this.stopMinutes = stopMinutes;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<CourierState> candidates(DispatchContext context) {
+        return context.within(SEARCH_RADIUS_KM);
+    }
+
+    @Override
+    public double score(CourierState courier, DispatchContext context) {
+        double travelMinutes = RouteCosts.toPickupKm(courier, context.getRequest()) / speedKmh(courier.getVehicleType()) * 60;
+        return travelMinutes + courier.getActiveLoadCount() * stopMinutes;
+    }
+
+    // Vitesses moyennes en ville
+    private static double speedKmh(Courier.VehicleType vehicleType) {
+        if (vehicleType == null) {
+            return 18.0;
+        }
+        return switch (vehicleType) {
+            case BICYCLE -> 15.0;
+            case MOTORCYCLE -> 30.0;
+            case CAR -> 25.0;
+            case VAN -> 22.0;
+            case TRUCK -> 18.0;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Détour pénalisé par la charge du livreur : un livreur libre un peu plus loin est préféré
+ * à un livreur proche qui enchaîne déjà plusieurs colis, pour répartir le travail sur la flotte
+ */
+@Component
+public class LoadBalancedPolicy implements DispatchPolicy {
+
+    public static final String NAME = "load-balanced";
+
+    private final double loadPenaltyKm;
+
+    public LoadBalancedPolicy(@Value("${dispatcher.policy.load-balanced.load-penalty-km:2.0}") double loadPenaltyKm) {
+        this.loadPenaltyKm = loadPenaltyKm;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double score(CourierState courier, DispatchContext context) {
+        return RouteCosts.detourKm(courier, context.getRequest()) + courier.getActiveLoadCount() * loadPenaltyKm;
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import org.springframework.stereotype.Component;
+
+/**
+ * Livreur dont le détour est le plus court : distance jusqu'au ramassage pour un livreur libre,
+ * distance ajoutée à sa tournée pour un livreur qui a déjà des colis
+ */
+@Component
+public class NearestPolicy implements DispatchPolicy {
+
+    public static final String NAME = "nearest";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double score(CourierState courier, DispatchContext context) {
+        return RouteCosts.detourKm(courier, context.getRequest());
+    }
+}
@@ -0,0 +1,46 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+
+/**
+ * Distances à vol d'oiseau utilisées par les politiques d'attribution
+ */
+final class RouteCosts {
+
+    private RouteCosts() {
+    }
+
+    static double toPickupKm(CourierState courier, DispatchRequest request) {
+        return GeoGrid.distanceKm(courier.getLatitude(), courier.getLongitude(),
+                request.getPickupLatitude(), request.getPickupLongitude());
+    }
+
+    /**
+     * Calcule le coût de détour (en km) pour ajouter une livraison à la tournée d'un livreur.
+     * Pour un livreur sans charge, il s'agit de la distance jusqu'au ramassage puis jusqu'au dépôt ;
+     * sinon, du surcoût d'insertion du ramassage et du dépôt avant son dernier point de dépôt prévu.
+     * @param courier État du livreur
+     * @param request Demande d'attribution
+     * @return Coût de détour en kilomètres
+     */
+    static double detourKm(CourierState courier, DispatchRequest request) {
+        double toPickup = toPickupKm(courier, request);
+        if (!request.hasDropoff()) {
+            return toPickup;
+        }
+
+        double pickupToDropoff = GeoGrid.distanceKm(request.getPickupLatitude(), request.getPickupLongitude(),
+                request.getDropoffLatitude(), request.getDropoffLongitude());
+        double[] tail = courier.getTail();
+        if (tail == null) {
+            return toPickup + pickupToDropoff;
+        }
+
+        double dropoffToTail = GeoGrid.distanceKm(request.getDropoffLatitude(), request.getDropoffLongitude(),
+                tail[0], tail[1]);
+        double currentToTail = GeoGrid.distanceKm(courier.getLatitude(), courier.getLongitude(), tail[0], tail[1]);
+        return toPickup + pickupToDropoff + dropoffToTail - currentToTail;
+    }
+}
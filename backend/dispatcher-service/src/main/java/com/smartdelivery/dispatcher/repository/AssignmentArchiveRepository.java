@@ -0,0 +1,162 @@
+package com.smartdelivery.dispatcher.repository;
+
+import com.smartdelivery.dispatcher.model.AssignmentHistoryEntry;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maintenance des partitions mensuelles de delivery_assignments et archive compressée
+ * des assignments terminés
+ */
+@Repository
+@RequiredArgsConstructor
+public class AssignmentArchiveRepository {
+
+    private static final String PARTITION_PREFIX = "delivery_assignments_";
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+
+    private static final String CREATE_PARTITION_SQL = "SELECT create_delivery_assignments_partition(?)";
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "WHERE i.inhparent = 'delivery_assignments'::regclass";
+
+    private static final String DETACH_PENDING_SQL =
+            "SELECT i.inhdetachpending FROM pg_inherits i "
+                    + "WHERE i.inhparent = 'delivery_assignments'::regclass AND i.inhrelid = ?::regclass";
+
+    // Déplace un lot d'assignments terminés, regroupés par livreur et par mois, en une seule instruction
+    private static final String ARCHIVE_BATCH_SQL =
+            "WITH moved AS ("
+                    + " DELETE FROM delivery_assignments"
+                    + " WHERE (id, assigned_at) IN ("
+                    + "  SELECT id, assigned_at FROM delivery_assignments"
+                    + "  WHERE assigned_at < ? AND status IN ('COMPLETED', 'CANCELLED')"
+                    + "  LIMIT ?)"
+                    + " RETURNING *) "
+                    + "INSERT INTO delivery_assignment_archive "
+                    + "(courier_id, period_month, assignment_count, first_assigned_at, last_assigned_at, assignments) "
+                    + "SELECT courier_id, date_trunc('month', assigned_at)::date, count(*), min(assigned_at), max(assigned_at), "
+                    + "jsonb_agg(to_jsonb(moved) ORDER BY assigned_at) "
+                    + "FROM moved GROUP BY courier_id, date_trunc('month', assigned_at)::date "
+                    + "RETURNING assignment_count";
+
+    private static final String ARCHIVED_HISTORY_SQL =
+            "SELECT e.* FROM delivery_assignment_archive a "
+                    + "CROSS JOIN LATERAL jsonb_to_recordset(a.assignments) AS e("
+                    + "id uuid, delivery_id uuid, status varchar, assigned_at timestamp, updated_at timestamp, "
+                    + "completed_at timestamp, pickup_latitude double precision, pickup_longitude double precision, "
+                    + "dropoff_latitude double precision, dropoff_longitude double precision) "
+                    + "WHERE a.courier_id = ? AND a.period_month >= date_trunc('month', ?::timestamp)::date "
+                    + "AND a.period_month < ? AND e.assigned_at >= ? AND e.assigned_at < ? "
+                    + "ORDER BY e.assigned_at DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crée la partition du mois contenant la date donnée si elle n'existe pas
+     * @return Le nom de la partition
+     */
+    public String createPartition(LocalDate month) {
+        return jdbcTemplate.queryForObject(CREATE_PARTITION_SQL, String.class, month);
+    }
+
+    /**
+     * Noms des partitions mensuelles existantes (hors partition par défaut)
+     */
+    public List<String> listMonthlyPartitions() {
+        return jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class).stream()
+                .filter(name -> name.matches(PARTITION_PREFIX + "\\d{4}_\\d{2}"))
+                .toList();
+    }
+
+    /**
+     * Supprime une partition mensuelle si elle ne contient plus aucune ligne.
+     * La partition est d'abord détachée avec DETACH PARTITION ... CONCURRENTLY, qui ne prend qu'un verrou
+     * SHARE UPDATE EXCLUSIVE sur delivery_assignments : le dispatch continue pendant l'opération, et le DROP
+     * ne porte plus que sur une table indépendante. DETACH CONCURRENTLY ne peut pas s'exécuter dans une
+     * transaction : cette méthode doit être appelée hors transaction (JdbcTemplate en auto-commit).
+     * @return true si la partition a été supprimée
+     */
+    public boolean dropPartitionIfEmpty(String partition) {
+        if (!partition.matches(PARTITION_PREFIX + "\\d{4}_\\d{2}")) {
+            throw new IllegalArgumentException("Partition invalide: " + partition);
+        }
+        if (!isEmpty(partition)) {
+            return false;
+        }
+
+        // Aucune ligne : déjà détachée par un passage précédent interrompu avant le DROP ;
+        // un DETACH CONCURRENTLY interrompu ne peut, lui, qu'être terminé (FINALIZE)
+        List<Boolean> detachPending = jdbcTemplate.queryForList(DETACH_PENDING_SQL, Boolean.class, partition);
+        if (!detachPending.isEmpty()) {
+            String mode = Boolean.TRUE.equals(detachPending.get(0)) ? " FINALIZE" : " CONCURRENTLY";
+            jdbcTemplate.execute("ALTER TABLE delivery_assignments DETACH PARTITION " + partition + mode);
+        }
+
+        // Une ligne insérée entre la vérification et le détachement : la partition est rattachée
+        if (!isEmpty(partition)) {
+            LocalDate month = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()) + "_01", PARTITION_MONTH);
+            jdbcTemplate.execute("ALTER TABLE delivery_assignments ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM ('" + month + "') TO ('" + month.plusMonths(1) + "')");
+            return false;
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        return true;
+    }
+
+    /**
+     * Archive un lot d'assignments terminés ou annulés, assignés avant la date donnée
+     * @return Le nombre d'assignments archivés
+     */
+    public int archiveBatch(LocalDateTime assignedBefore, int batchSize) {
+        return jdbcTemplate.queryForList(ARCHIVE_BATCH_SQL, Integer.class, Timestamp.valueOf(assignedBefore), batchSize)
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /**
+     * Historique archivé d'un livreur sur une période ; seuls les lots des mois concernés sont décompressés
+     */
+    public List<AssignmentHistoryEntry> findArchivedHistory(UUID courierId, LocalDateTime from, LocalDateTime to, int limit) {
+        Timestamp fromTimestamp = Timestamp.valueOf(from);
+        Timestamp toTimestamp = Timestamp.valueOf(to);
+        RowMapper<AssignmentHistoryEntry> mapper = (rs, rowNum) -> AssignmentHistoryEntry.builder()
+                .id(rs.getObject("id", UUID.class))
+                .deliveryId(rs.getObject("delivery_id", UUID.class))
+                .courierId(courierId)
+                .status(DeliveryAssignment.AssignmentStatus.valueOf(rs.getString("status")))
+                .assignedAt(toLocalDateTime(rs.getTimestamp("assigned_at")))
+                .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .completedAt(toLocalDateTime(rs.getTimestamp("completed_at")))
+                .pickupLatitude(rs.getObject("pickup_latitude", Double.class))
+                .pickupLongitude(rs.getObject("pickup_longitude", Double.class))
+                .dropoffLatitude(rs.getObject("dropoff_latitude", Double.class))
+                .dropoffLongitude(rs.getObject("dropoff_longitude", Double.class))
+                .archived(true)
+                .build();
+        return jdbcTemplate.query(ARCHIVED_HISTORY_SQL, mapper,
+                courierId, fromTimestamp, toTimestamp, fromTimestamp, toTimestamp, limit);
+    }
+
+    private boolean isEmpty(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
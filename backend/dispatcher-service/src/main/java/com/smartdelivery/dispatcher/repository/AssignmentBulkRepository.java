@@ -0,0 +1,113 @@
+package com.smartdelivery.dispatcher.repository;
+
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mises à jour ensemblistes des assignments : une seule instruction UPDATE ... RETURNING
+ * par opération, quel que soit le nombre de lignes touchées.
+ * Ces requêtes contournent le contexte de persistance JPA ; les entités déjà chargées
+ * dans la même transaction ne reflètent pas les nouveaux statuts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AssignmentBulkRepository {
+
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE delivery_assignments SET status = ?, updated_at = now(), "
+                    + "completed_at = CASE WHEN ? THEN now() ELSE completed_at END "
+                    + "WHERE status = ANY (?) AND ";
+    private static final String RETURNING_SQL = " RETURNING id, delivery_id, courier_id";
+
+    private static final String RELEASE_COURIERS_SQL =
+            "UPDATE couriers SET status = 'AVAILABLE', updated_at = now() "
+                    + "WHERE status = 'BUSY' AND id = ANY (?) "
+                    + "RETURNING id, latitude, longitude";
+
+    private static final RowMapper<UpdatedAssignment> UPDATED_ASSIGNMENT_MAPPER = (rs, rowNum) -> new UpdatedAssignment(
+            rs.getObject("id", UUID.class),
+            rs.getObject("delivery_id", UUID.class),
+            rs.getObject("courier_id", UUID.class));
+
+    private static final RowMapper<ReleasedCourierRow> RELEASED_COURIER_MAPPER = (rs, rowNum) -> new ReleasedCourierRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("latitude", Double.class),
+            rs.getObject("longitude", Double.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<UpdatedAssignment> updateStatusByCourier(UUID courierId,
+                                                         Collection<DeliveryAssignment.AssignmentStatus> fromStatuses,
+                                                         DeliveryAssignment.AssignmentStatus status) {
+        return updateStatus("courier_id = ?", fromStatuses, status, courierId);
+    }
+
+    public List<UpdatedAssignment> updateStatusByDeliveries(Collection<UUID> deliveryIds,
+                                                            Collection<DeliveryAssignment.AssignmentStatus> fromStatuses,
+                                                            DeliveryAssignment.AssignmentStatus status) {
+        // Transtypé pour être lié comme un seul tableau et non étalé dans les paramètres variables
+        return updateStatus("delivery_id = ANY (?)", fromStatuses, status, (Object) deliveryIds.toArray(new UUID[0]));
+    }
+
+    /**
+     * Zone rectangulaire définie sur le point de ramassage des assignments
+     */
+    public List<UpdatedAssignment> updateStatusByPickupZone(double minLatitude, double maxLatitude,
+                                                            double minLongitude, double maxLongitude,
+                                                            Collection<DeliveryAssignment.AssignmentStatus> fromStatuses,
+                                                            DeliveryAssignment.AssignmentStatus status) {
+        return updateStatus("pickup_latitude BETWEEN ? AND ? AND pickup_longitude BETWEEN ? AND ?",
+                fromStatuses, status, minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+
+    /**
+     * Repasse AVAILABLE ceux des livreurs donnés qui sont BUSY
+     * @return Les livreurs effectivement libérés, avec leur dernière position connue en base
+     */
+    public List<ReleasedCourierRow> releaseBusyCouriers(Collection<UUID> courierIds) {
+        if (courierIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(RELEASE_COURIERS_SQL);
+            statement.setArray(1, connection.createArrayOf("uuid", courierIds.toArray()));
+            return statement;
+        }, RELEASED_COURIER_MAPPER);
+    }
+
+    private List<UpdatedAssignment> updateStatus(String condition,
+                                                 Collection<DeliveryAssignment.AssignmentStatus> fromStatuses,
+                                                 DeliveryAssignment.AssignmentStatus status,
+                                                 Object... conditionParams) {
+        String sql = UPDATE_STATUS_SQL + condition + RETURNING_SQL;
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql);
+            statement.setString(1, status.name());
+            statement.setBoolean(2, status == DeliveryAssignment.AssignmentStatus.COMPLETED);
+            statement.setArray(3, connection.createArrayOf("varchar",
+                    fromStatuses.stream().map(Enum::name).toArray()));
+            for (int i = 0; i < conditionParams.length; i++) {
+                Object param = conditionParams[i];
+                if (param instanceof UUID[] ids) {
+                    statement.setArray(4 + i, connection.createArrayOf("uuid", ids));
+                } else {
+                    statement.setObject(4 + i, param);
+                }
+            }
+            return statement;
+        }, UPDATED_ASSIGNMENT_MAPPER);
+    }
+
+    public record UpdatedAssignment(UUID id, UUID deliveryId, UUID courierId) {
+    }
+
+    public record ReleasedCourierRow(UUID courierId, Double latitude, Double longitude) {
+    }
+}
@@ -1,12 +1,16 @@
 package com.smartdelivery.dispatcher.repository;
 
 import com.smartdelivery.dispatcher.model.Courier;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -14,6 +18,10 @@ public interface CourierRepository extends JpaRepository<Courier, UUID> {
 
     List<Courier> findByStatus(Courier.CourierStatus status);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Courier c WHERE c.id = :id")
+    Optional<Courier> findByIdForUpdate(@Param("id") UUID id);
+
     @Query("SELECT c FROM Courier c WHERE c.status = 'AVAILABLE' AND c.currentLocation.latitude BETWEEN :minLat AND :maxLat AND c.currentLocation.longitude BETWEEN :minLng AND :maxLng")
     List<Courier> findAvailableCouriersInArea(
             @Param("minLat") Double minLatitude,
@@ -21,9 +29,52 @@ public interface CourierRepository extends JpaRepository<Courier, UUID> {
             @Param("minLng") Double minLongitude,
             @Param("maxLng") Double maxLongitude);
 
+    /**
+     * Livreurs disponibles dans un rayon donné, du plus proche au plus éloigné (distance géodésique).
+     * Requiert le mode PostGIS : le tri KNN (<->) et ST_DWithin utilisent l'index GiST partiel
+     * sur les livreurs disponibles.
+     * @param radiusMeters Rayon de recherche en mètres
+     * @param limit Nombre maximal de livreurs retournés
+     */
+    @Query(value = "SELECT c.id AS id, ST_Distance(c.position, p.point) AS distanceMeters "
+            + "FROM couriers c, (SELECT ST_SetSRID(ST_MakePoint(:lng, :lat), 4326)::geography AS point) p "
+            + "WHERE c.status = 'AVAILABLE' AND ST_DWithin(c.position, p.point, :radius) "
+            + "ORDER BY c.position <-> p.point "
+            + "LIMIT :limit", nativeQuery = true)
+    List<NearbyCourierView> findNearestAvailableCouriers(
+            @Param("lat") double latitude,
+            @Param("lng") double longitude,
+            @Param("radius") double radiusMeters,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM information_schema.columns "
+            + "WHERE table_schema = current_schema() AND table_name = 'couriers' AND column_name = 'position'",
+            nativeQuery = true)
+    int countPositionColumns();
+
     @Query("SELECT COUNT(c) FROM Courier c WHERE c.status = 'AVAILABLE'")
     int countAvailableCouriers();
 
+    List<Courier> findByUpdatedAtAfter(LocalDateTime since);
+
+    @Query("SELECT c.status AS status, c.vehicleType AS vehicleType, COUNT(c) AS count " +
+            "FROM Courier c GROUP BY c.status, c.vehicleType")
+    List<StatusCountView> countByStatusAndVehicleType();
+
     @Query("SELECT c FROM Courier c WHERE c.email = :email")
     Courier findByEmail(@Param("email") String email);
+
+    interface NearbyCourierView {
+        UUID getId();
+
+        double getDistanceMeters();
+    }
+
+    interface StatusCountView {
+        Courier.CourierStatus getStatus();
+
+        Courier.VehicleType getVehicleType();
+
+        long getCount();
+    }
 }
@@ -1,24 +1,64 @@
 package com.smartdelivery.dispatcher.repository;
 
 import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface DeliveryAssignmentRepository extends JpaRepository<DeliveryAssignment, UUID> {
 
-    List<DeliveryAssignment> findByCourierId(UUID courierId);
-
     List<DeliveryAssignment> findByDeliveryId(UUID deliveryId);
 
     List<DeliveryAssignment> findByStatus(DeliveryAssignment.AssignmentStatus status);
 
+    List<DeliveryAssignment> findByStatusIn(Collection<DeliveryAssignment.AssignmentStatus> statuses);
+
+    List<DeliveryAssignment> findByCourierIdAndStatusIn(
+            UUID courierId, Collection<DeliveryAssignment.AssignmentStatus> statuses);
+
+    List<DeliveryAssignment> findByCourierIdInAndStatusIn(
+            Collection<UUID> courierIds, Collection<DeliveryAssignment.AssignmentStatus> statuses);
+
+    /**
+     * Livreurs dont au moins une attribution a été créée ou modifiée depuis la date donnée
+     */
+    @Query("SELECT DISTINCT a.courier.id FROM DeliveryAssignment a WHERE a.updatedAt > :since")
+    List<UUID> findCourierIdsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    Optional<DeliveryAssignment> findFirstByDeliveryIdAndStatusIn(
+            UUID deliveryId, Collection<DeliveryAssignment.AssignmentStatus> statuses);
+
+    /**
+     * Sans borne sur assigned_at, la lecture sonde l'index de clé primaire (id, assigned_at) de chaque partition
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM DeliveryAssignment a WHERE a.id = :id")
+    Optional<DeliveryAssignment> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Marque l'assignment comme signalé sans modifier updated_at, qui porte l'échéance IN_PROGRESS
+     */
+    @Modifying
+    @Query("UPDATE DeliveryAssignment a SET a.escalatedAt = :escalatedAt WHERE a.id = :id")
+    int markEscalated(@Param("id") UUID id, @Param("escalatedAt") LocalDateTime escalatedAt);
+
+    @Query("SELECT a.id AS id, a.status AS status, a.assignedAt AS assignedAt, a.updatedAt AS updatedAt " +
+            "FROM DeliveryAssignment a WHERE a.status IN :statuses")
+    List<AssignmentDeadlineView> findDeadlineViewsByStatusIn(
+            @Param("statuses") Collection<DeliveryAssignment.AssignmentStatus> statuses);
+
     @Query("SELECT COUNT(a) FROM DeliveryAssignment a WHERE a.courier.id = :courierId AND a.status = 'IN_PROGRESS'")
     int countActiveAssignmentsByCourierId(@Param("courierId") UUID courierId);
 
@@ -29,4 +69,29 @@ public interface DeliveryAssignmentRepository extends JpaRepository<DeliveryAssi
     List<DeliveryAssignment> findByAssignedAtBetween(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Assignments d'un livreur sur une période, du plus récent au plus ancien.
+     * La borne sur assigned_at limite la lecture aux partitions mensuelles concernées.
+     */
+    @Query("SELECT a FROM DeliveryAssignment a WHERE a.courier.id = :courierId " +
+            "AND a.assignedAt >= :from AND a.assignedAt < :to ORDER BY a.assignedAt DESC")
+    List<DeliveryAssignment> findByCourierIdAndAssignedAtRange(
+            @Param("courierId") UUID courierId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            Pageable pageable);
+
+    /**
+     * Projection minimale utilisée pour reconstruire les échéances des assignments actifs
+     */
+    interface AssignmentDeadlineView {
+        UUID getId();
+
+        DeliveryAssignment.AssignmentStatus getStatus();
+
+        LocalDateTime getAssignedAt();
+
+        LocalDateTime getUpdatedAt();
+    }
 }
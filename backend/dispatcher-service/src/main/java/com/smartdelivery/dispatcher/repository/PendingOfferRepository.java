@@ -0,0 +1,88 @@
+package com.smartdelivery.dispatcher.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Livraisons en cours d'offre, conservées en base tant qu'elles ne sont pas attribuées.
+ * Les offres elles-mêmes restent en mémoire sur le nœud émetteur ; cette table ne sert qu'à
+ * savoir si une offre est encore ouverte et à remettre en file les livraisons d'un nœud arrêté.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PendingOfferRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO dispatcher_pending_offer (delivery_id, offer_id, payload, expires_at) " +
+            "VALUES (?, ?, ?, now() + ? * interval '1 millisecond') " +
+            "ON CONFLICT (delivery_id) DO UPDATE SET offer_id = EXCLUDED.offer_id, " +
+            "payload = EXCLUDED.payload, expires_at = EXCLUDED.expires_at";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM dispatcher_pending_offer WHERE delivery_id = ?";
+
+    private static final String EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM dispatcher_pending_offer WHERE offer_id = ?)";
+
+    // Le bail est prolongé à la réservation : un autre nœud ne reprend pas la même ligne en parallèle
+    private static final String CLAIM_EXPIRED_SQL =
+            "UPDATE dispatcher_pending_offer SET expires_at = now() + ? * interval '1 millisecond' " +
+            "WHERE delivery_id IN (SELECT delivery_id FROM dispatcher_pending_offer " +
+            "WHERE expires_at < now() - ? * interval '1 millisecond' LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING payload";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Enregistre (ou remplace, pour un nouveau tour) l'offre ouverte d'une livraison
+     * @param offerId ID de l'offre
+     * @param event Livraison offerte
+     * @param ttlMs Délai avant l'échéance de l'offre
+     */
+    public void save(UUID offerId, DeliveryCreatedEvent event, long ttlMs) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Impossible de sérialiser la livraison " + event.getId(), e);
+        }
+        jdbcTemplate.update(UPSERT_SQL, event.getId(), offerId, payload, ttlMs);
+    }
+
+    public void delete(UUID deliveryId) {
+        jdbcTemplate.update(DELETE_SQL, deliveryId);
+    }
+
+    /**
+     * Indique si l'offre est encore ouverte sur l'un des nœuds
+     */
+    public boolean exists(UUID offerId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, offerId));
+    }
+
+    /**
+     * Réserve les offres dont l'échéance est dépassée depuis plus du délai de grâce :
+     * le nœud qui les détenait ne les a ni attribuées ni relancées
+     * @param graceMs Délai de grâce après l'échéance
+     * @param leaseMs Durée de la réservation, le temps de remettre la livraison en file
+     * @param limit Nombre maximal d'offres réservées
+     * @return Les livraisons à remettre en file
+     */
+    public List<DeliveryCreatedEvent> claimExpired(long graceMs, long leaseMs, int limit) {
+        return jdbcTemplate.query(CLAIM_EXPIRED_SQL, (rs, rowNum) -> {
+            try {
+                return objectMapper.readValue(rs.getString("payload"), DeliveryCreatedEvent.class);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Offre en attente illisible", e);
+            }
+        }, leaseMs, graceMs, limit);
+    }
+}
@@ -0,0 +1,136 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.smartdelivery.dispatcher.model.AssignmentHistoryEntry;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.repository.AssignmentArchiveRepository;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cycle de vie du stockage des assignments : création anticipée des partitions mensuelles,
+ * archivage des assignments terminés au-delà de la rétention, suppression des partitions vidées,
+ * et lecture de l'historique d'un livreur sur la table et l'archive.
+ */
+@Service
+@Slf4j
+public class AssignmentArchiveService {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final AssignmentArchiveRepository archiveRepository;
+    private final DeliveryAssignmentRepository assignmentRepository;
+    private final Counter archivedCounter;
+    private final int retentionDays;
+    private final int batchSize;
+    private final int monthsAhead;
+    private final int maxHistoryDays;
+
+    public AssignmentArchiveService(
+            AssignmentArchiveRepository archiveRepository,
+            DeliveryAssignmentRepository assignmentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.archive.retention-days:90}") int retentionDays,
+            @Value("${dispatcher.archive.batch-size:5000}") int batchSize,
+            @Value("${dispatcher.archive.partition-months-ahead:3}") int monthsAhead,
+            @Value("${dispatcher.history.max-range-days:366}") int maxHistoryDays) {
+        this.archiveRepository = archiveRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.monthsAhead = monthsAhead;
+        this.maxHistoryDays = maxHistoryDays;
+        this.archivedCounter = Counter.builder("dispatcher.archive.assignments")
+                .description("Assignments déplacés vers l'archive compressée")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Crée les partitions du mois courant et des mois suivants, pour que la partition par défaut reste vide
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensurePartitions() {
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            try {
+                archiveRepository.createPartition(month.plusMonths(i).atDay(1));
+            } catch (Exception e) {
+                // Un autre nœud peut créer la même partition au même moment
+                log.warn("Could not create assignment partition for {}: {}", month.plusMonths(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Archive les assignments terminés au-delà de la rétention, par lots, puis supprime les partitions vidées
+     */
+    @Scheduled(cron = "${dispatcher.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        ensurePartitions();
+
+        LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int archived;
+        do {
+            // Chaque lot est une transaction courte : pas de verrou long sur les partitions actives
+            archived = archiveRepository.archiveBatch(cutoff, batchSize);
+            total += archived;
+            archivedCounter.increment(archived);
+        } while (archived >= batchSize);
+
+        int dropped = 0;
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        for (String partition : archiveRepository.listMonthlyPartitions()) {
+            YearMonth month = YearMonth.parse(partition.substring(partition.length() - 7), PARTITION_MONTH);
+            if (month.isBefore(cutoffMonth) && archiveRepository.dropPartitionIfEmpty(partition)) {
+                dropped++;
+            }
+        }
+        log.info("Archived {} assignments older than {} and dropped {} empty partitions in {} ms",
+                total, cutoff, dropped, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Historique d'un livreur sur une période bornée, table active et archive confondues
+     * @param courierId ID du livreur
+     * @param from Début de période (inclus)
+     * @param to Fin de période (exclue)
+     * @param limit Nombre maximal d'entrées, les plus récentes d'abord
+     */
+    public List<AssignmentHistoryEntry> getHistory(UUID courierId, LocalDateTime from, LocalDateTime to, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("La période d'historique est vide");
+        }
+        if (Duration.between(from, to).toDays() > maxHistoryDays) {
+            throw new IllegalArgumentException("La période d'historique dépasse " + maxHistoryDays + " jours");
+        }
+
+        List<AssignmentHistoryEntry> history = new ArrayList<>();
+        for (DeliveryAssignment assignment : assignmentRepository.findByCourierIdAndAssignedAtRange(
+                courierId, from, to, PageRequest.of(0, limit))) {
+            history.add(AssignmentHistoryEntry.from(assignment, courierId));
+        }
+        history.addAll(archiveRepository.findArchivedHistory(courierId, from, to, limit));
+
+        history.sort(Comparator.comparing(AssignmentHistoryEntry::getAssignedAt).reversed());
+        return history.size() > limit ? new ArrayList<>(history.subList(0, limit)) : history;
+    }
+}
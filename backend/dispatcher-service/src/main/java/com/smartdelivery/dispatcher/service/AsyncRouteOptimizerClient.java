@@ -0,0 +1,428 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.client.Bulkhead;
+import com.smartdelivery.dispatcher.client.CircuitBreaker;
+import com.smartdelivery.dispatcher.service.RouteOptimizerClient.RouteOptimizerException;
+import com.smartdelivery.dispatcher.service.RouteOptimizerClient.ValidationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Client non bloquant pour le service d'optimisation de routes (route.optimizer.client.mode=async).
+ * Les appels passent par un client HTTP mutualisé avec timeout par requête, un disjoncteur
+ * et un bulkhead. Les retries sont replanifiés sans bloquer de thread et les lectures
+ * peuvent être doublées (hedging) si la première réponse tarde, chaque requête occupant une place
+ * du bulkhead. La création de route n'est pas idempotente : elle n'est rejouée que si la connexion
+ * n'a pas pu être établie, jamais après un timeout qui a pu laisser la route créée.
+ */
+@Service
+@ConditionalOnProperty(name = "route.optimizer.client.mode", havingValue = "async")
+@Slf4j
+public class AsyncRouteOptimizerClient {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String routeOptimizerServiceUrl;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    @Value("${route.optimizer.client.request-timeout-ms:3000}")
+    private long requestTimeoutMs;
+
+    @Value("${route.optimizer.client.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${route.optimizer.client.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    // 0 désactive le hedging des requêtes GET
+    @Value("${route.optimizer.client.hedge-delay-ms:0}")
+    private long hedgeDelayMs;
+
+    public AsyncRouteOptimizerClient(
+            HttpClient httpClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${route.optimizer.service.url:http://route-optimizer-service:8085}") String routeOptimizerServiceUrl,
+            @Value("${route.optimizer.client.max-concurrent-calls:50}") int maxConcurrentCalls,
+            @Value("${route.optimizer.client.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${route.optimizer.client.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${route.optimizer.client.circuit-breaker.open-duration-ms:10000}") long openDurationMs) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.routeOptimizerServiceUrl = routeOptimizerServiceUrl;
+        this.circuitBreaker = new CircuitBreaker(windowSize, failureRateThreshold, openDurationMs);
+        this.bulkhead = new Bulkhead(maxConcurrentCalls);
+
+        meterRegistry.gauge("route_optimizer.client.circuit_breaker.open", circuitBreaker,
+                breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        meterRegistry.gauge("route_optimizer.client.bulkhead.available", bulkhead, Bulkhead::getAvailablePermits);
+    }
+
+    /**
+     * Crée une route optimisée pour une livraison
+     * @return Future contenant l'ID de la route créée
+     */
+    public CompletableFuture<UUID> createOptimizedRoute(
+            UUID deliveryId,
+            UUID courierId,
+            Double pickupLatitude,
+            Double pickupLongitude,
+            Double deliveryLatitude,
+            Double deliveryLongitude) {
+
+        RouteOptimizerClient.validateRouteParameters(
+                deliveryId, courierId, pickupLatitude, pickupLongitude, deliveryLatitude, deliveryLongitude);
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("deliveryId", deliveryId.toString());
+        requestBody.put("courierId", courierId.toString());
+        requestBody.put("createdAt", LocalDateTime.now().toString());
+        requestBody.put("pickupLocation", Map.of("latitude", pickupLatitude, "longitude", pickupLongitude));
+        requestBody.put("deliveryLocation", Map.of("latitude", deliveryLatitude, "longitude", deliveryLongitude));
+
+        return execute("createOptimizedRoute", () -> jsonRequest("/api/routes").POST(body(requestBody)).build(),
+                CallKind.NON_IDEMPOTENT)
+                .thenApply(response -> {
+                    Map<String, Object> body = parseBody(response);
+                    if (body == null || !body.containsKey("routeId")) {
+                        throw new RouteOptimizerException("Réponse invalide du service d'optimisation de routes");
+                    }
+                    return UUID.fromString(body.get("routeId").toString());
+                });
+    }
+
+    /**
+     * Récupère les détails d'une route optimisée
+     * @return Future contenant les détails de la route
+     */
+    public CompletableFuture<Map<String, Object>> getRouteDetails(UUID routeId) {
+        if (routeId == null) {
+            throw new ValidationException("L'ID de la route ne peut pas être nul");
+        }
+
+        return execute("getRouteDetails", () -> jsonRequest("/api/routes/" + routeId).GET().build(), CallKind.READ)
+                .thenApply(response -> {
+                    Map<String, Object> body = parseBody(response);
+                    if (body == null) {
+                        throw new RouteOptimizerException("Réponse invalide du service d'optimisation de routes");
+                    }
+                    return body;
+                });
+    }
+
+    /**
+     * Met à jour le statut d'une route
+     * @return Future indiquant si la mise à jour a réussi
+     */
+    public CompletableFuture<Boolean> updateRouteStatus(UUID routeId, String status) {
+        if (routeId == null) {
+            throw new ValidationException("L'ID de la route ne peut pas être nul");
+        }
+        if (status == null || status.trim().isEmpty()) {
+            throw new ValidationException("Le statut ne peut pas être nul ou vide");
+        }
+
+        Map<String, Object> requestBody = Map.of("status", status, "updatedAt", LocalDateTime.now().toString());
+        return execute("updateRouteStatus",
+                () -> jsonRequest("/api/routes/" + routeId + "/status").PUT(body(requestBody)).build(),
+                CallKind.IDEMPOTENT_WRITE)
+                .thenApply(response -> response.statusCode() == 200);
+    }
+
+    /**
+     * Supprime une route optimisée
+     * @return Future indiquant si la suppression a réussi
+     */
+    public CompletableFuture<Boolean> deleteRoute(UUID routeId) {
+        if (routeId == null) {
+            throw new ValidationException("L'ID de la route ne peut pas être nul");
+        }
+
+        return execute("deleteRoute", () -> jsonRequest("/api/routes/" + routeId).DELETE().build(),
+                CallKind.IDEMPOTENT_WRITE)
+                .thenApply(response -> response.statusCode() == 204);
+    }
+
+    /**
+     * Récupère toutes les routes d'un livreur
+     * @return Future contenant la liste des routes
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<Map<String, Object>>> getRoutesByCourier(UUID courierId, String status) {
+        if (courierId == null) {
+            throw new ValidationException("L'ID du livreur ne peut pas être nul");
+        }
+
+        UriComponentsBuilder builder = UriComponentsBuilder
+                .fromHttpUrl(routeOptimizerServiceUrl + "/api/routes")
+                .queryParam("courierId", courierId.toString());
+        if (status != null && !status.trim().isEmpty()) {
+            builder.queryParam("status", status);
+        }
+        URI uri = builder.build().toUri();
+
+        return execute("getRoutesByCourier",
+                () -> HttpRequest.newBuilder(uri).header("Accept", "application/json").GET()
+                        .timeout(Duration.ofMillis(requestTimeoutMs)).build(), CallKind.READ)
+                .thenApply(response -> {
+                    Map<String, Object> body = parseBody(response);
+                    if (body != null && body.get("routes") instanceof List<?> routes) {
+                        return (List<Map<String, Object>>) routes;
+                    }
+                    return Collections.emptyList();
+                });
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Exécute une requête avec disjoncteur, bulkhead, retries différés et hedging optionnel
+     * @param operation Nom de l'opération (tag des métriques)
+     * @param requestFactory Fabrique de la requête (une nouvelle requête par tentative)
+     * @param kind Nature de l'appel, qui décide des retries et du hedging
+     */
+    private CompletableFuture<HttpResponse<byte[]>> execute(
+            String operation, RequestFactory requestFactory, CallKind kind) {
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        attempt(operation, requestFactory, kind, 1, result);
+        return result;
+    }
+
+    private void attempt(String operation, RequestFactory requestFactory, CallKind kind,
+                         int attempt, CompletableFuture<HttpResponse<byte[]>> result) {
+        sendGuarded(operation, requestFactory, kind).whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (attempt >= maxAttempts
+                    || cause instanceof CallNotPermittedException
+                    || cause instanceof ValidationException
+                    || (kind == CallKind.NON_IDEMPOTENT && !isNotSent(cause))) {
+                result.completeExceptionally(new RouteOptimizerException(
+                        "Échec de l'opération " + operation + " après " + attempt + " tentative(s)", cause));
+                return;
+            }
+            long delay = retryBackoffMs * (1L << (attempt - 1));
+            log.warn("Attempt {} failed for operation {}, retrying in {} ms: {}", attempt, operation, delay, cause.getMessage());
+            Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            CompletableFuture.runAsync(() -> attempt(operation, requestFactory, kind, attempt + 1, result), delayed);
+        });
+    }
+
+    /**
+     * Un appel protégé : refusé si le circuit est ouvert ou le bulkhead saturé
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendGuarded(
+            String operation, RequestFactory requestFactory, CallKind kind) {
+        if (!bulkhead.tryAcquire()) {
+            countError(operation, "bulkhead_full");
+            return CompletableFuture.failedFuture(new CallNotPermittedException("Bulkhead saturé pour " + operation));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            countError(operation, "circuit_open");
+            return CompletableFuture.failedFuture(new CallNotPermittedException("Circuit ouvert pour " + operation));
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<HttpResponse<byte[]>> call = kind == CallKind.READ && hedgeDelayMs > 0
+                ? sendHedged(operation, requestFactory)
+                : send(requestFactory);
+
+        return call.whenComplete((response, error) -> {
+            bulkhead.release();
+            String outcome = error == null ? "success" : "error";
+            sample.stop(Timer.builder("route_optimizer.client.requests")
+                    .description("Latency of calls to route-optimizer-service")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            // Une requête refusée (4xx) ne traduit pas une indisponibilité du service
+            if (error == null || unwrap(error) instanceof ValidationException) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+            if (error != null) {
+                countError(operation, unwrap(error).getClass().getSimpleName());
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(RequestFactory requestFactory) {
+        return httpClient.sendAsync(requestFactory.create(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(AsyncRouteOptimizerClient::requireSuccess);
+    }
+
+    /**
+     * Envoie une seconde requête si la première n'a pas répondu après hedgeDelayMs et qu'une place
+     * du bulkhead est libre ; la première réponse réussie l'emporte
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendHedged(String operation, RequestFactory requestFactory) {
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<HttpResponse<byte[]>>> hedgeRef = new AtomicReference<>();
+
+        CompletableFuture<HttpResponse<byte[]>> primary = send(requestFactory);
+        primary.whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+            } else {
+                CompletableFuture<HttpResponse<byte[]>> hedge = hedgeRef.get();
+                if (hedge == null || hedge.isCompletedExceptionally()) {
+                    result.completeExceptionally(error);
+                }
+            }
+        });
+
+        CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            // La requête doublée occupe sa propre place : sans place libre, pas de hedging
+            if (!bulkhead.tryAcquire()) {
+                countError(operation, "hedge_bulkhead_full");
+                return;
+            }
+            meterRegistry.counter("route_optimizer.client.hedged", "operation", operation).increment();
+            CompletableFuture<HttpResponse<byte[]>> hedge = send(requestFactory);
+            hedgeRef.set(hedge);
+            hedge.whenComplete((response, error) -> {
+                bulkhead.release();
+                if (error == null) {
+                    result.complete(response);
+                } else if (primary.isCompletedExceptionally()) {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+
+        // La première réponse l'emporte : l'autre requête est abandonnée
+        result.whenComplete((response, error) -> {
+            primary.cancel(true);
+            CompletableFuture<HttpResponse<byte[]>> hedge = hedgeRef.get();
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // La connexion n'a pas pu être établie : la requête n'a pas atteint le service
+    private static boolean isNotSent(Throwable cause) {
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    private static HttpResponse<byte[]> requireSuccess(HttpResponse<byte[]> response) {
+        if (response.statusCode() >= 500) {
+            throw new RouteOptimizerException("Erreur du service d'optimisation de routes: HTTP " + response.statusCode());
+        }
+        if (response.statusCode() >= 400) {
+            throw new ValidationException(
+                    "Requête refusée par le service d'optimisation de routes: HTTP " + response.statusCode());
+        }
+        return response;
+    }
+
+    private HttpRequest.Builder jsonRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(routeOptimizerServiceUrl + path))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher body(Object requestBody) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(requestBody));
+        } catch (IOException e) {
+            throw new RouteOptimizerException("Impossible de sérialiser la requête", e);
+        }
+    }
+
+    private Map<String, Object> parseBody(HttpResponse<byte[]> response) {
+        if (response.body() == null || response.body().length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response.body(), MAP_TYPE);
+        } catch (IOException e) {
+            throw new RouteOptimizerException("Réponse illisible du service d'optimisation de routes", e);
+        }
+    }
+
+    private void countError(String operation, String type) {
+        Counter.builder("route_optimizer.client.errors")
+                .description("Errors calling route-optimizer-service")
+                .tag("operation", operation)
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Nature d'un appel : une lecture peut être rejouée et doublée, une écriture idempotente rejouée,
+     * une écriture non idempotente seulement si elle n'a pas été envoyée
+     */
+    private enum CallKind {
+        READ, IDEMPOTENT_WRITE, NON_IDEMPOTENT
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create();
+    }
+
+    /**
+     * Appel refusé localement (circuit ouvert ou bulkhead saturé)
+     */
+    public static class CallNotPermittedException extends RuntimeException {
+        public CallNotPermittedException(String message) {
+            super(message);
+        }
+    }
+}
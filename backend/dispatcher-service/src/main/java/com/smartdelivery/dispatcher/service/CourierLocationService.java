@@ -0,0 +1,96 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ingestion des positions des livreurs issues du flux de suivi.
+ * La position en mémoire est mise à jour immédiatement ; l'écriture en base est regroupée
+ * (dernière position par livreur) et effectuée périodiquement par un batch UPDATE.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourierLocationService {
+
+    private static final String UPDATE_LOCATION_SQL =
+            "UPDATE couriers SET latitude = ?, longitude = ?, updated_at = ? WHERE id = ?";
+
+    private final FleetState fleetState;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, PendingLocation> pendingLocations = new ConcurrentHashMap<>();
+
+    /**
+     * Enregistre une nouvelle position pour un livreur
+     * @param courierId ID du livreur
+     * @param latitude Latitude
+     * @param longitude Longitude
+     */
+    public void updateLocation(UUID courierId, double latitude, double longitude) {
+        if (!fleetState.updatePosition(courierId, latitude, longitude)) {
+            log.debug("Ignoring location update for unknown courier {}", courierId);
+            return;
+        }
+        // La dernière position reçue remplace celle en attente
+        pendingLocations.put(courierId, new PendingLocation(latitude, longitude, System.currentTimeMillis()));
+    }
+
+    public int getPendingCount() {
+        return pendingLocations.size();
+    }
+
+    /**
+     * Écrit en base les positions en attente, en un seul batch
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.location.flush-interval-ms:5000}")
+    public void flush() {
+        if (pendingLocations.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<UUID, PendingLocation>> batch = new ArrayList<>(pendingLocations.size());
+        for (UUID courierId : pendingLocations.keySet()) {
+            PendingLocation location = pendingLocations.remove(courierId);
+            if (location != null) {
+                batch.add(Map.entry(courierId, location));
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LOCATION_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setDouble(1, entry.getValue().latitude());
+                ps.setDouble(2, entry.getValue().longitude());
+                ps.setTimestamp(3, new Timestamp(entry.getValue().receivedAt()));
+                ps.setObject(4, entry.getKey());
+            });
+            log.debug("Flushed {} courier locations", batch.size());
+        } catch (Exception e) {
+            log.error("Error flushing {} courier locations, will retry", batch.size(), e);
+            // Remettre les positions en attente sans écraser celles reçues entre-temps
+            for (Map.Entry<UUID, PendingLocation> entry : batch) {
+                pendingLocations.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private record PendingLocation(double latitude, double longitude, long receivedAt) {
+    }
+}
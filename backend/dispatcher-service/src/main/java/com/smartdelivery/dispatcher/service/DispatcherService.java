@@ -1,18 +1,38 @@
 package com.smartdelivery.dispatcher.service;
 
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.PostgisCourierLocator;
 import com.smartdelivery.dispatcher.model.*;
+import com.smartdelivery.dispatcher.policy.DispatchContext;
+import com.smartdelivery.dispatcher.policy.DispatchPolicyEngine;
+import com.smartdelivery.dispatcher.repository.AssignmentBulkRepository;
 import com.smartdelivery.dispatcher.repository.CourierRepository;
 import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.shard.ShardCoordinator;
+import com.smartdelivery.dispatcher.shard.ShardHandoverException;
+import com.smartdelivery.dispatcher.timer.AssignmentTimeoutScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -20,14 +40,44 @@ import java.util.UUID;
 @Slf4j
 public class DispatcherService {
 
+    private static final double SEARCH_RADIUS_KM = 10.0; // environ 0.1°
+    private static final double EXTENDED_SEARCH_RADIUS_KM = 20.0;
+    private static final int MAX_ASSIGNMENTS_PER_PAGE = 1000;
+    private static final Set<DeliveryAssignment.AssignmentStatus> ACTIVE_STATUSES = EnumSet.of(
+            DeliveryAssignment.AssignmentStatus.ASSIGNED, DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+    private static final Set<DeliveryAssignment.AssignmentStatus> IN_PROGRESS_STATUS = EnumSet.of(
+            DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+
     private final CourierRepository courierRepository;
     private final DeliveryAssignmentRepository assignmentRepository;
     private final RouteOptimizerClient routeOptimizerClient;
+    private final ObjectProvider<AsyncRouteOptimizerClient> asyncRouteOptimizerClient;
     private final RabbitTemplate rabbitTemplate;
+    private final FleetState fleetState;
+    private final AssignmentTimeoutScheduler timeoutScheduler;
+    private final ObjectProvider<ShardCoordinator> shardCoordinator;
+    private final ObjectProvider<PostgisCourierLocator> postgisCourierLocator;
+    private final AssignmentBulkRepository assignmentBulkRepository;
+    private final DispatchPolicyEngine dispatchPolicyEngine;
 
     @Value("${rabbitmq.exchange.name}")
     private String exchangeName;
 
+    @Value("${rabbitmq.routingkey.redispatch:delivery.redispatch}")
+    private String redispatchRoutingKey;
+
+    @Value("${rabbitmq.routingkey.courier-status:courier.status.updated}")
+    private String courierStatusRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-cancelled:assignments.cancelled}")
+    private String assignmentsCancelledRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignments-completed:assignments.completed}")
+    private String assignmentsCompletedRoutingKey;
+
+    @Value("${rabbitmq.routingkey.assignment-overdue:assignment.overdue}")
+    private String assignmentOverdueRoutingKey;
+
     /**
      * Attribue automatiquement une livraison au livreur le plus proche et disponible
      * @param deliveryId ID de la livraison
@@ -37,67 +87,185 @@ public class DispatcherService {
      */
     @Transactional
     public DeliveryAssignment assignDelivery(UUID deliveryId, Double pickupLatitude, Double pickupLongitude) {
-        log.info("Assigning delivery {} to nearest available courier", deliveryId);
+        return assignDelivery(DispatchRequest.builder()
+                .deliveryId(deliveryId)
+                .pickupLatitude(pickupLatitude)
+                .pickupLongitude(pickupLongitude)
+                .build());
+    }
 
-        // Définir la zone de recherche (environ 10 km autour du point de ramassage)
-        Double searchRadius = 0.1; // environ 10 km
-        Double minLatitude = pickupLatitude - searchRadius;
-        Double maxLatitude = pickupLatitude + searchRadius;
-        Double minLongitude = pickupLongitude - searchRadius;
-        Double maxLongitude = pickupLongitude + searchRadius;
+    /**
+     * Attribue une livraison au meilleur livreur disponible selon la politique d'attribution applicable.
+     * Un livreur peut cumuler plusieurs livraisons tant que sa capacité (poids, volume) le permet.
+     * @param request Demande d'attribution
+     * @return L'assignment créé
+     */
+    @Transactional
+    public DeliveryAssignment assignDelivery(DispatchRequest request) {
+        UUID deliveryId = request.getDeliveryId();
+        log.info("Assigning delivery {} to best available courier", deliveryId);
+
+        // Une demande rejouée (retry, transfert entre shards) ne doit pas créer un second assignment
+        Optional<DeliveryAssignment> existing =
+                assignmentRepository.findFirstByDeliveryIdAndStatusIn(deliveryId, ACTIVE_STATUSES);
+        if (existing.isPresent()) {
+            log.info("Delivery {} is already assigned (assignment {}), skipping", deliveryId, existing.get().getId());
+            return existing.get();
+        }
 
-        // Trouver les livreurs disponibles dans la zone
-        List<Courier> availableCouriers = courierRepository.findAvailableCouriersInArea(
-                minLatitude, maxLatitude, minLongitude, maxLongitude);
+        double weight = fleetState.packageWeightOrDefault(request.getPackageWeight());
+        double volume = fleetState.packageVolumeOrDefault(request.getPackageVolume());
+        DispatchPolicyEngine.Ranking ranking = rank(request, weight, volume);
+
+        // Réserver la capacité du premier livreur qui l'a encore
+        long reservationStart = System.nanoTime();
+        boolean sharded = shardCoordinator.getIfAvailable() != null;
+        CourierState selected = null;
+        for (CourierState candidate : ranking.candidates()) {
+            if (sharded) {
+                syncCourierLoad(candidate.getCourierId());
+            }
+            if (fleetState.reserve(candidate.getCourierId(), deliveryId, weight, volume,
+                    request.getDropoffLatitude(), request.getDropoffLongitude())) {
+                selected = candidate;
+                break;
+            }
+        }
+        dispatchPolicyEngine.recordStage(ranking.policy(), DispatchPolicyEngine.STAGE_RESERVATION,
+                System.nanoTime() - reservationStart);
 
-        if (availableCouriers.isEmpty()) {
-            // Si aucun livreur n'est trouvé dans la zone, élargir la recherche
-            searchRadius = 0.2; // environ 20 km
-            minLatitude = pickupLatitude - searchRadius;
-            maxLatitude = pickupLatitude + searchRadius;
-            minLongitude = pickupLongitude - searchRadius;
-            maxLongitude = pickupLongitude + searchRadius;
+        if (selected == null) {
+            throw new RuntimeException("Aucun livreur disponible pour cette livraison");
+        }
 
-            availableCouriers = courierRepository.findAvailableCouriersInArea(
-                    minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return createAssignment(request, selected, weight, volume);
+    }
+
+    /**
+     * Attribue une livraison à un livreur désigné (ex: premier livreur ayant accepté une offre)
+     * @param request Demande d'attribution
+     * @param courierId ID du livreur retenu
+     * @return L'assignment créé, ou l'assignment actif existant si la livraison est déjà attribuée
+     */
+    @Transactional
+    public DeliveryAssignment assignDeliveryTo(DispatchRequest request, UUID courierId) {
+        UUID deliveryId = request.getDeliveryId();
+        Optional<DeliveryAssignment> existing =
+                assignmentRepository.findFirstByDeliveryIdAndStatusIn(deliveryId, ACTIVE_STATUSES);
+        if (existing.isPresent()) {
+            log.info("Delivery {} is already assigned (assignment {}), skipping", deliveryId, existing.get().getId());
+            return existing.get();
+        }
+
+        double weight = fleetState.packageWeightOrDefault(request.getPackageWeight());
+        double volume = fleetState.packageVolumeOrDefault(request.getPackageVolume());
+        if (shardCoordinator.getIfAvailable() != null) {
+            syncCourierLoad(courierId);
+        }
+        CourierState selected = fleetState.get(courierId);
+        if (selected == null || selected.getStatus() != Courier.CourierStatus.AVAILABLE
+                || !fleetState.reserve(courierId, deliveryId, weight, volume,
+                        request.getDropoffLatitude(), request.getDropoffLongitude())) {
+            throw new RuntimeException("Le livreur " + courierId + " ne peut plus prendre cette livraison");
+        }
+
+        return createAssignment(request, selected, weight, volume);
+    }
+
+    /**
+     * Classe les livreurs capables de prendre la livraison selon la politique d'attribution applicable,
+     * du meilleur au moins bon, sans réserver leur capacité
+     * @param request Demande d'attribution
+     * @return Les candidats classés (jamais vide)
+     */
+    public List<CourierState> rankCandidates(DispatchRequest request) {
+        return rank(request,
+                fleetState.packageWeightOrDefault(request.getPackageWeight()),
+                fleetState.packageVolumeOrDefault(request.getPackageVolume())).candidates();
+    }
+
+    private DispatchPolicyEngine.Ranking rank(DispatchRequest request, double weight, double volume) {
+        DispatchContext context = new DispatchContext(request, weight, volume,
+                fleetState.getMaxConcurrentAssignments(),
+                () -> findCandidates(request, weight, volume),
+                radiusKm -> findCandidatesWithin(request, radiusKm, weight, volume));
+        DispatchPolicyEngine.Ranking ranking = dispatchPolicyEngine.rank(context);
+        List<CourierState> candidates = ranking.candidates();
+
+        // En mode shardé, ne retenir que les livreurs situés dans les shards détenus par ce nœud
+        ShardCoordinator shards = shardCoordinator.getIfAvailable();
+        if (shards != null && !candidates.isEmpty()) {
+            candidates = ownedCandidates(shards, candidates);
         }
 
-        if (availableCouriers.isEmpty()) {
+        if (candidates.isEmpty()) {
             throw new RuntimeException("Aucun livreur disponible pour cette livraison");
         }
+        return new DispatchPolicyEngine.Ranking(ranking.policy(), candidates);
+    }
 
-        // Sélectionner le livreur le plus proche
-        Courier nearestCourier = findNearestCourier(availableCouriers, pickupLatitude, pickupLongitude);
+    // Crée l'assignment pour le livreur dont la capacité vient d'être réservée
+    private DeliveryAssignment createAssignment(DispatchRequest request, CourierState selected,
+                                                double weight, double volume) {
+        UUID deliveryId = request.getDeliveryId();
+        UUID courierId = selected.getCourierId();
+        releaseOnRollback(courierId, deliveryId);
+
+        Courier courier = courierRepository.findById(courierId)
+                .orElseThrow(() -> new RuntimeException("Livreur non trouvé avec l'ID: " + courierId));
 
         // Créer l'assignment
         DeliveryAssignment assignment = DeliveryAssignment.builder()
-                .courier(nearestCourier)
+                .courier(courier)
                 .deliveryId(deliveryId)
                 .status(DeliveryAssignment.AssignmentStatus.ASSIGNED)
                 .assignedAt(LocalDateTime.now())
+                .pickupLatitude(request.getPickupLatitude())
+                .pickupLongitude(request.getPickupLongitude())
+                .dropoffLatitude(request.getDropoffLatitude())
+                .dropoffLongitude(request.getDropoffLongitude())
+                .packageWeight(weight)
+                .packageVolume(volume)
                 .build();
 
-        // Mettre à jour le statut du livreur
-        nearestCourier.setStatus(Courier.CourierStatus.BUSY);
-        courierRepository.save(nearestCourier);
+        // Le livreur ne passe BUSY que lorsqu'il ne peut plus prendre de colis supplémentaire
+        if (!fleetState.hasSpareCapacity(courierId)) {
+            updateCourierStatus(courier, Courier.CourierStatus.BUSY);
+        }
 
-        // Sauvegarder l'assignment
+        // Sauvegarder l'assignment et armer son délai d'acceptation
         DeliveryAssignment savedAssignment = assignmentRepository.save(assignment);
+        afterCommit(() -> timeoutScheduler.schedule(savedAssignment));
 
         // Créer une route optimisée pour cette livraison
         try {
-            // Obtenir les détails de la livraison (dans une vraie implémentation, 
-            // nous appellerions le delivery-service)
-            Double deliveryLatitude = 48.8584; // Exemple: Tour Eiffel
-            Double deliveryLongitude = 2.2945;
-
-            // Créer la route optimisée
-            UUID routeId = routeOptimizerClient.createOptimizedRoute(
-                    deliveryId, nearestCourier.getId(),
-                    pickupLatitude, pickupLongitude,
-                    deliveryLatitude, deliveryLongitude);
-
-            log.info("Created optimized route {} for delivery {}", routeId, deliveryId);
+            // Sans adresse de livraison dans l'événement, nous utilisons un point par défaut
+            // (dans une vraie implémentation, nous appellerions le delivery-service)
+            Double deliveryLatitude = request.hasDropoff() ? request.getDropoffLatitude() : 48.8584; // Exemple: Tour Eiffel
+            Double deliveryLongitude = request.hasDropoff() ? request.getDropoffLongitude() : 2.2945;
+
+            // Créer la route optimisée (sans bloquer l'attribution en mode asynchrone)
+            AsyncRouteOptimizerClient asyncClient = asyncRouteOptimizerClient.getIfAvailable();
+            if (asyncClient != null) {
+                asyncClient.createOptimizedRoute(
+                                deliveryId, courierId,
+                                request.getPickupLatitude(), request.getPickupLongitude(),
+                                deliveryLatitude, deliveryLongitude)
+                        .whenComplete((routeId, error) -> {
+                            if (error != null) {
+                                log.error("Error creating optimized route for delivery {}", deliveryId, error);
+                            } else {
+                                log.info("Created optimized route {} for delivery {}", routeId, deliveryId);
+                            }
+                        });
+            } else {
+                UUID routeId = routeOptimizerClient.createOptimizedRoute(
+                        deliveryId, courierId,
+                        request.getPickupLatitude(), request.getPickupLongitude(),
+                        deliveryLatitude, deliveryLongitude);
+
+                log.info("Created optimized route {} for delivery {}", routeId, deliveryId);
+            }
         } catch (Exception e) {
             log.error("Error creating optimized route for delivery {}", deliveryId, e);
         }
@@ -105,7 +273,8 @@ public class DispatcherService {
         // Publier l'événement d'attribution
         publishDeliveryDispatchedEvent(savedAssignment);
 
-        log.info("Assigned delivery {} to courier {}", deliveryId, nearestCourier.getId());
+        log.info("Assigned delivery {} to courier {} ({} active deliveries)",
+                deliveryId, courierId, selected.getActiveLoadCount());
         return savedAssignment;
     }
 
@@ -125,24 +294,31 @@ public class DispatcherService {
 
         if (status == DeliveryAssignment.AssignmentStatus.COMPLETED) {
             assignment.setCompletedAt(LocalDateTime.now());
-            // Libérer le livreur
-            Courier courier = assignment.getCourier();
-            courier.setStatus(Courier.CourierStatus.AVAILABLE);
-            courierRepository.save(courier);
+        }
+
+        if (status == DeliveryAssignment.AssignmentStatus.COMPLETED
+                || status == DeliveryAssignment.AssignmentStatus.CANCELLED) {
+            // Libérer la capacité du livreur
+            releaseCourierAfterCommit(assignment.getCourier(), assignment.getDeliveryId());
         }
 
         DeliveryAssignment savedAssignment = assignmentRepository.save(assignment);
+        // Réarmer l'échéance pour le nouveau statut (ou l'annuler si l'assignment est terminé)
+        afterCommit(() -> timeoutScheduler.schedule(savedAssignment));
         log.info("Updated assignment status to {} for assignment ID: {}", status, assignmentId);
         return savedAssignment;
     }
 
     /**
-     * Récupère tous les assignments d'un livreur
+     * Récupère les assignments d'un livreur sur une période (la table est partitionnée par mois)
      * @param courierId ID du livreur
-     * @return La liste des assignments
+     * @param from Début de période (inclus)
+     * @param to Fin de période (exclue)
+     * @return La liste des assignments, du plus récent au plus ancien
      */
-    public List<DeliveryAssignment> getAssignmentsByCourierId(UUID courierId) {
-        return assignmentRepository.findByCourierId(courierId);
+    public List<DeliveryAssignment> getAssignmentsByCourierId(UUID courierId, LocalDateTime from, LocalDateTime to) {
+        return assignmentRepository.findByCourierIdAndAssignedAtRange(
+                courierId, from, to, PageRequest.of(0, MAX_ASSIGNMENTS_PER_PAGE));
     }
 
     /**
@@ -161,76 +337,373 @@ public class DispatcherService {
      */
     @Transactional
     public List<DeliveryAssignment> cancelAllActiveAssignmentsByCourierId(UUID courierId) {
-        List<DeliveryAssignment> activeAssignments = assignmentRepository.findActiveAssignmentsByCourierId(courierId);
+        if (!courierRepository.existsById(courierId)) {
+            throw new RuntimeException("Livreur non trouvé avec l'ID: " + courierId);
+        }
+        BulkAssignmentResult result = cancelAssignmentsByCourier(courierId);
+        return assignmentRepository.findAllById(result.getAssignmentIds());
+    }
+
+    /**
+     * Annule en une seule requête les assignments actifs d'un livreur (fin de service, incident)
+     * @param courierId ID du livreur
+     * @return Le résultat de l'opération, également publié sur assignments.cancelled
+     */
+    @Transactional
+    public BulkAssignmentResult cancelAssignmentsByCourier(UUID courierId) {
+        return completeBulkOperation("COURIER", DeliveryAssignment.AssignmentStatus.CANCELLED,
+                assignmentBulkRepository.updateStatusByCourier(
+                        courierId, ACTIVE_STATUSES, DeliveryAssignment.AssignmentStatus.CANCELLED));
+    }
+
+    /**
+     * Clôture en une seule requête les assignments en cours d'un livreur
+     * @param courierId ID du livreur
+     * @return Le résultat de l'opération, également publié sur assignments.completed
+     */
+    @Transactional
+    public BulkAssignmentResult completeAssignmentsByCourier(UUID courierId) {
+        return completeBulkOperation("COURIER", DeliveryAssignment.AssignmentStatus.COMPLETED,
+                assignmentBulkRepository.updateStatusByCourier(
+                        courierId, IN_PROGRESS_STATUS, DeliveryAssignment.AssignmentStatus.COMPLETED));
+    }
+
+    /**
+     * Annule en une seule requête les assignments actifs d'un ensemble de livraisons
+     * @param deliveryIds IDs des livraisons
+     */
+    @Transactional
+    public BulkAssignmentResult cancelAssignmentsByDeliveries(Collection<UUID> deliveryIds) {
+        return completeBulkOperation("DELIVERIES", DeliveryAssignment.AssignmentStatus.CANCELLED,
+                assignmentBulkRepository.updateStatusByDeliveries(
+                        deliveryIds, ACTIVE_STATUSES, DeliveryAssignment.AssignmentStatus.CANCELLED));
+    }
+
+    /**
+     * Clôture en une seule requête les assignments en cours d'un ensemble de livraisons
+     * @param deliveryIds IDs des livraisons
+     */
+    @Transactional
+    public BulkAssignmentResult completeAssignmentsByDeliveries(Collection<UUID> deliveryIds) {
+        return completeBulkOperation("DELIVERIES", DeliveryAssignment.AssignmentStatus.COMPLETED,
+                assignmentBulkRepository.updateStatusByDeliveries(
+                        deliveryIds, IN_PROGRESS_STATUS, DeliveryAssignment.AssignmentStatus.COMPLETED));
+    }
+
+    /**
+     * Annule en une seule requête les assignments actifs dont le ramassage est dans la zone
+     */
+    @Transactional
+    public BulkAssignmentResult cancelAssignmentsByZone(double minLatitude, double maxLatitude,
+                                                        double minLongitude, double maxLongitude) {
+        return completeBulkOperation("ZONE", DeliveryAssignment.AssignmentStatus.CANCELLED,
+                assignmentBulkRepository.updateStatusByPickupZone(minLatitude, maxLatitude, minLongitude, maxLongitude,
+                        ACTIVE_STATUSES, DeliveryAssignment.AssignmentStatus.CANCELLED));
+    }
 
-        for (DeliveryAssignment assignment : activeAssignments) {
-            assignment.setStatus(DeliveryAssignment.AssignmentStatus.CANCELLED);
-            assignment.setUpdatedAt(LocalDateTime.now());
-            assignmentRepository.save(assignment);
+    /**
+     * Clôture en une seule requête les assignments en cours dont le ramassage est dans la zone
+     */
+    @Transactional
+    public BulkAssignmentResult completeAssignmentsByZone(double minLatitude, double maxLatitude,
+                                                          double minLongitude, double maxLongitude) {
+        return completeBulkOperation("ZONE", DeliveryAssignment.AssignmentStatus.COMPLETED,
+                assignmentBulkRepository.updateStatusByPickupZone(minLatitude, maxLatitude, minLongitude, maxLongitude,
+                        IN_PROGRESS_STATUS, DeliveryAssignment.AssignmentStatus.COMPLETED));
+    }
+
+    /**
+     * Répercute une mise à jour groupée : livreurs libérés (une requête), puis après le commit
+     * capacité en mémoire, échéances annulées et un unique événement pour toute l'opération
+     */
+    private BulkAssignmentResult completeBulkOperation(String scope, DeliveryAssignment.AssignmentStatus status,
+                                                       List<AssignmentBulkRepository.UpdatedAssignment> updated) {
+        List<UUID> assignmentIds = new ArrayList<>(updated.size());
+        List<UUID> deliveryIds = new ArrayList<>(updated.size());
+        Map<UUID, List<UUID>> deliveriesByCourier = new HashMap<>();
+        for (AssignmentBulkRepository.UpdatedAssignment assignment : updated) {
+            assignmentIds.add(assignment.id());
+            deliveryIds.add(assignment.deliveryId());
+            deliveriesByCourier.computeIfAbsent(assignment.courierId(), courierId -> new ArrayList<>())
+                    .add(assignment.deliveryId());
         }
 
-        // Libérer le livreur
-        Courier courier = courierRepository.findById(courierId)
-                .orElseThrow(() -> new RuntimeException("Livreur non trouvé avec l'ID: " + courierId));
-        courier.setStatus(Courier.CourierStatus.AVAILABLE);
-        courierRepository.save(courier);
+        // Seuls les livreurs qui pourront de nouveau prendre un colis repassent AVAILABLE ;
+        // la flotte en mémoire n'est modifiée qu'après le commit, pour rester alignée sur la base
+        Set<UUID> courierIds = new HashSet<>();
+        deliveriesByCourier.forEach((courierId, courierDeliveryIds) -> {
+            if (fleetState.hasSpareCapacityAfterRelease(courierId, courierDeliveryIds)) {
+                courierIds.add(courierId);
+            }
+        });
+        List<BulkAssignmentResult.ReleasedCourier> releasedCouriers = new ArrayList<>();
+        for (AssignmentBulkRepository.ReleasedCourierRow courier : assignmentBulkRepository.releaseBusyCouriers(courierIds)) {
+            releasedCouriers.add(new BulkAssignmentResult.ReleasedCourier(
+                    courier.courierId(), courier.latitude(), courier.longitude()));
+        }
 
-        log.info("Cancelled {} active assignments for courier {}", activeAssignments.size(), courierId);
-        return activeAssignments;
+        BulkAssignmentResult result = BulkAssignmentResult.builder()
+                .status(status)
+                .scope(scope)
+                .assignmentIds(assignmentIds)
+                .deliveryIds(deliveryIds)
+                .releasedCouriers(releasedCouriers)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        if (!assignmentIds.isEmpty()) {
+            String routingKey = status == DeliveryAssignment.AssignmentStatus.COMPLETED
+                    ? assignmentsCompletedRoutingKey : assignmentsCancelledRoutingKey;
+            afterCommit(() -> {
+                deliveriesByCourier.forEach((courierId, courierDeliveryIds) ->
+                        courierDeliveryIds.forEach(deliveryId -> fleetState.release(courierId, deliveryId)));
+                releasedCouriers.forEach(courier ->
+                        fleetState.updateStatus(courier.getCourierId(), Courier.CourierStatus.AVAILABLE));
+                assignmentIds.forEach(timeoutScheduler::cancel);
+                rabbitTemplate.convertAndSend(exchangeName, routingKey, result);
+                log.info("Published {} event for {} assignments", routingKey, assignmentIds.size());
+            });
+        }
+        log.info("Bulk {} of {} assignments by {} released {} couriers",
+                status, assignmentIds.size(), scope, releasedCouriers.size());
+        return result;
     }
 
     /**
-     * Trouve le livreur le plus proche parmi une liste
-     * @param couriers Liste des livreurs
-     * @param latitude Latitude du point de référence
-     * @param longitude Longitude du point de référence
-     * @return Le livreur le plus proche
+     * Annule un assignment dont l'échéance est dépassée, libère le livreur
+     * et republie la livraison pour une nouvelle attribution.
+     * Seul un assignment encore ASSIGNED est concerné : une fois démarré, le colis est chez le livreur.
+     * @param assignmentId ID de l'assignment
+     * @param expectedStatus Statut de l'assignment au moment où l'échéance a été programmée
+     * @return true si la livraison a été remise en attribution
      */
-    private Courier findNearestCourier(List<Courier> couriers, Double latitude, Double longitude) {
-        if (couriers.isEmpty()) {
-            return null;
+    @Transactional
+    public boolean redispatchExpiredAssignment(UUID assignmentId, DeliveryAssignment.AssignmentStatus expectedStatus) {
+        if (expectedStatus != DeliveryAssignment.AssignmentStatus.ASSIGNED) {
+            return false;
+        }
+        // Verrouiller l'assignment : plusieurs nœuds peuvent détenir la même échéance
+        DeliveryAssignment assignment = assignmentRepository.findByIdForUpdate(assignmentId).orElse(null);
+        if (assignment == null || assignment.getStatus() != expectedStatus) {
+            // L'assignment a évolué entre-temps : l'échéance n'est plus pertinente
+            return false;
         }
 
-        Courier nearestCourier = null;
-        Double minDistance = Double.MAX_VALUE;
+        log.warn("Assignment {} for delivery {} stayed {} past its deadline, re-dispatching",
+                assignmentId, assignment.getDeliveryId(), expectedStatus);
 
-        for (Courier courier : couriers) {
-            if (courier.getCurrentLocation() != null) {
-                Double distance = calculateDistance(
-                        latitude, longitude,
-                        courier.getCurrentLocation().getLatitude(),
-                        courier.getCurrentLocation().getLongitude());
+        assignment.setStatus(DeliveryAssignment.AssignmentStatus.CANCELLED);
+        assignment.setUpdatedAt(LocalDateTime.now());
+        assignmentRepository.save(assignment);
+        releaseCourierAfterCommit(assignment.getCourier(), assignment.getDeliveryId());
+
+        DeliveryCreatedEvent event = toRedispatchEvent(assignment);
+        afterCommit(() -> {
+            rabbitTemplate.convertAndSend(exchangeName, redispatchRoutingKey, event);
+            log.info("Published {} event for delivery ID: {}", redispatchRoutingKey, assignment.getDeliveryId());
+        });
+        return true;
+    }
+
+    /**
+     * Signale un assignment IN_PROGRESS resté sans évolution au-delà de son échéance.
+     * Le colis est déjà chez le livreur : l'assignment n'est ni annulé ni réattribué,
+     * l'événement assignment.overdue permet aux opérateurs d'intervenir.
+     * Chaque nœud détient la même échéance : le signalement est revendiqué sous verrou
+     * et n'est publié qu'une fois, après le commit.
+     * @param assignmentId ID de l'assignment
+     * @return true si l'assignment était toujours en cours et a été signalé par cet appel
+     */
+    @Transactional
+    public boolean escalateOverdueAssignment(UUID assignmentId) {
+        DeliveryAssignment assignment = assignmentRepository.findByIdForUpdate(assignmentId).orElse(null);
+        if (assignment == null || assignment.getStatus() != DeliveryAssignment.AssignmentStatus.IN_PROGRESS
+                || assignment.getEscalatedAt() != null) {
+            return false;
+        }
+        LocalDateTime escalatedAt = LocalDateTime.now();
+        assignmentRepository.markEscalated(assignmentId, escalatedAt);
+
+        log.warn("Assignment {} for delivery {} stayed IN_PROGRESS past its deadline, escalating",
+                assignmentId, assignment.getDeliveryId());
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("assignmentId", assignment.getId());
+        event.put("deliveryId", assignment.getDeliveryId());
+        event.put("courierId", assignment.getCourier().getId());
+        event.put("status", assignment.getStatus().name());
+        event.put("lastUpdatedAt", String.valueOf(assignment.getUpdatedAt()));
+        event.put("timestamp", escalatedAt.toString());
+        afterCommit(() -> rabbitTemplate.convertAndSend(exchangeName, assignmentOverdueRoutingKey, event));
+        return true;
+    }
+
+    /**
+     * Reconstruit un événement d'attribution à partir d'un assignment expiré,
+     * en excluant le livreur qui ne l'a pas honoré
+     */
+    private DeliveryCreatedEvent toRedispatchEvent(DeliveryAssignment assignment) {
+        DeliveryCreatedEvent.Address pickup = new DeliveryCreatedEvent.Address();
+        pickup.setCoordinates(new DeliveryCreatedEvent.Coordinates(
+                assignment.getPickupLatitude(), assignment.getPickupLongitude()));
+
+        DeliveryCreatedEvent.Address dropoff = null;
+        if (assignment.getDropoffLatitude() != null && assignment.getDropoffLongitude() != null) {
+            dropoff = new DeliveryCreatedEvent.Address();
+            dropoff.setCoordinates(new DeliveryCreatedEvent.Coordinates(
+                    assignment.getDropoffLatitude(), assignment.getDropoffLongitude()));
+        }
 
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestCourier = courier;
+        DeliveryCreatedEvent.PackageDetails packageDetails = new DeliveryCreatedEvent.PackageDetails();
+        packageDetails.setWeight(assignment.getPackageWeight());
+        packageDetails.setVolume(assignment.getPackageVolume());
+
+        return DeliveryCreatedEvent.builder()
+                .id(assignment.getDeliveryId())
+                .pickupAddress(pickup)
+                .deliveryAddress(dropoff)
+                .packageDetails(packageDetails)
+                .excludedCourierIds(List.of(assignment.getCourier().getId()))
+                .build();
+    }
+
+    /**
+     * Filtre les candidats (triés par coût) sur les shards détenus par ce nœud
+     * @throws ShardHandoverException si seuls des livreurs d'autres shards conviennent
+     */
+    private List<CourierState> ownedCandidates(ShardCoordinator shards, List<CourierState> candidates) {
+        List<CourierState> owned = new ArrayList<>(candidates.size());
+        Integer foreignSlot = null;
+        for (CourierState candidate : candidates) {
+            int slot = shards.slotOf(candidate.getLatitude(), candidate.getLongitude());
+            if (shards.ownsSlot(slot)) {
+                owned.add(candidate);
+            } else if (foreignSlot == null) {
+                foreignSlot = slot;
+            }
+        }
+        if (owned.isEmpty() && foreignSlot != null) {
+            throw new ShardHandoverException(foreignSlot);
+        }
+        return owned;
+    }
+
+    /**
+     * Verrouille le livreur en base et recharge ses attributions actives, qui ont pu être
+     * créées par un autre nœud avant que le livreur n'entre dans un shard local
+     */
+    private void syncCourierLoad(UUID courierId) {
+        courierRepository.findByIdForUpdate(courierId).ifPresent(courier ->
+                fleetState.resyncLoads(courierId,
+                        assignmentRepository.findByCourierIdAndStatusIn(courierId, ACTIVE_STATUSES)));
+    }
+
+    /**
+     * Libère la capacité réservée en mémoire si la transaction d'attribution est annulée
+     */
+    private void releaseOnRollback(UUID courierId, UUID deliveryId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    fleetState.release(courierId, deliveryId);
                 }
             }
+        });
+    }
+
+    /**
+     * Recherche les livreurs capables de prendre le colis autour du point de ramassage.
+     * En mode PostGIS, une seule requête KNN retourne les plus proches dans le rayon maximal ;
+     * sinon l'index en mémoire est interrogé dans la zone, puis dans une zone élargie.
+     */
+    private List<CourierState> findCandidates(DispatchRequest request, double weight, double volume) {
+        PostgisCourierLocator locator = postgisCourierLocator.getIfAvailable();
+        if (locator != null) {
+            return locator.findCandidates(
+                    request.getPickupLatitude(), request.getPickupLongitude(), EXTENDED_SEARCH_RADIUS_KM, weight, volume);
+        }
+
+        List<CourierState> candidates = fleetState.findCandidates(
+                request.getPickupLatitude(), request.getPickupLongitude(), SEARCH_RADIUS_KM, weight, volume);
+        if (candidates.isEmpty()) {
+            candidates = fleetState.findCandidates(
+                    request.getPickupLatitude(), request.getPickupLongitude(), EXTENDED_SEARCH_RADIUS_KM, weight, volume);
         }
+        return candidates;
+    }
 
-        return nearestCourier;
+    private List<CourierState> findCandidatesWithin(DispatchRequest request, double radiusKm,
+                                                    double weight, double volume) {
+        PostgisCourierLocator locator = postgisCourierLocator.getIfAvailable();
+        if (locator != null) {
+            return locator.findCandidates(
+                    request.getPickupLatitude(), request.getPickupLongitude(), radiusKm, weight, volume);
+        }
+        return fleetState.findCandidates(
+                request.getPickupLatitude(), request.getPickupLongitude(), radiusKm, weight, volume);
     }
 
     /**
-     * Calcule la distance entre deux points géographiques (formule de Haversine)
-     * @param lat1 Latitude du premier point
-     * @param lon1 Longitude du premier point
-     * @param lat2 Latitude du deuxième point
-     * @param lon2 Longitude du deuxième point
-     * @return Distance en kilomètres
+     * Change le statut d'un livreur en base et en mémoire, puis publie l'événement courier.status.updated
      */
-    private Double calculateDistance(Double lat1, Double lon1, Double lat2, Double lon2) {
-        final int R = 6371; // Rayon de la Terre en kilomètres
+    private void updateCourierStatus(Courier courier, Courier.CourierStatus status) {
+        courier.setStatus(status);
+        courierRepository.save(courier);
+        fleetState.updateStatus(courier.getId(), status);
+        afterCommit(() -> publishCourierStatus(courier.getId(), status));
+    }
+
+    /**
+     * Libère la livraison du livreur : un livreur BUSY repasse AVAILABLE en base dans la transaction,
+     * la flotte en mémoire n'est modifiée qu'après le commit pour rester alignée sur la base
+     */
+    private void releaseCourierAfterCommit(Courier courier, UUID deliveryId) {
+        UUID courierId = courier.getId();
+        boolean wasBusy = courier.getStatus() == Courier.CourierStatus.BUSY;
+        if (wasBusy) {
+            courier.setStatus(Courier.CourierStatus.AVAILABLE);
+            courierRepository.save(courier);
+        }
+        afterCommit(() -> {
+            fleetState.release(courierId, deliveryId);
+            if (wasBusy) {
+                fleetState.updateStatus(courierId, Courier.CourierStatus.AVAILABLE);
+                publishCourierStatus(courierId, Courier.CourierStatus.AVAILABLE);
+            }
+        });
+    }
 
-        Double latDistance = Math.toRadians(lat2 - lat1);
-        Double lonDistance = Math.toRadians(lon2 - lon1);
-        Double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        Double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        Double distance = R * c;
+    private void publishCourierStatus(UUID courierId, Courier.CourierStatus status) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("courierId", courierId);
+        event.put("status", status.name());
+        event.put("timestamp", LocalDateTime.now().toString());
+        CourierState state = fleetState.get(courierId);
+        if (state != null && state.isLocated()) {
+            event.put("latitude", state.getLatitude());
+            event.put("longitude", state.getLongitude());
+        }
+        rabbitTemplate.convertAndSend(exchangeName, courierStatusRoutingKey, event);
+    }
 
-        return distance;
+    /**
+     * Exécute l'action après le commit de la transaction courante (immédiatement hors transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     /**
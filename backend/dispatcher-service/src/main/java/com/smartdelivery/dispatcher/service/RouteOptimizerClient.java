@@ -10,6 +10,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Client pour interagir avec le service d'optimisation de routes.
@@ -309,7 +310,7 @@ public class RouteOptimizerClient {
      * @param deliveryLongitude Longitude du point de livraison
      * @throws ValidationException si un paramètre est invalide
      */
-    private void validateRouteParameters(
+    static void validateRouteParameters(
             UUID deliveryId,
             UUID courierId,
             Double pickupLatitude,
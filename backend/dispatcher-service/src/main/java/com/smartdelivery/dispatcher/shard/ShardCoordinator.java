@@ -0,0 +1,236 @@
+package com.smartdelivery.dispatcher.shard;
+
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Répartition des zones géographiques entre les nœuds dispatcher.
+ * Le territoire est découpé en cellules regroupées en un nombre fixe de shards ;
+ * chaque shard est attribué à un nœud par hachage cohérent sur les nœuds vivants.
+ * Un nœud ne traite un shard que s'il en détient le bail dans Postgres, ce qui garantit
+ * qu'un seul nœud attribue les livreurs d'une zone, y compris pendant un transfert.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatcher.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardCoordinator {
+
+    private static final String UPSERT_NODE_SQL =
+            "INSERT INTO dispatcher_node (node_id, heartbeat_at, lease_expires_at) " +
+            "VALUES (?, now(), now() + ? * interval '1 millisecond') " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at, " +
+            "lease_expires_at = EXCLUDED.lease_expires_at";
+
+    private static final String SELECT_LIVE_NODES_SQL =
+            "SELECT node_id FROM dispatcher_node WHERE lease_expires_at > now()";
+
+    // Le bail n'est pris que s'il est déjà détenu par ce nœud ou si le précédent a expiré
+    private static final String ACQUIRE_SHARD_SQL =
+            "INSERT INTO dispatcher_shard_lease (slot, owner_node, lease_expires_at) " +
+            "VALUES (?, ?, now() + ? * interval '1 millisecond') " +
+            "ON CONFLICT (slot) DO UPDATE SET owner_node = EXCLUDED.owner_node, " +
+            "lease_expires_at = EXCLUDED.lease_expires_at " +
+            "WHERE dispatcher_shard_lease.owner_node = EXCLUDED.owner_node " +
+            "OR dispatcher_shard_lease.lease_expires_at < now()";
+
+    private static final String RELEASE_SHARD_SQL =
+            "DELETE FROM dispatcher_shard_lease WHERE slot = ? AND owner_node = ?";
+
+    private static final String DELETE_NODE_SQL =
+            "DELETE FROM dispatcher_node WHERE node_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GeoGrid grid;
+    private final String nodeId;
+    private final int slotCount;
+    private final int virtualNodes;
+    private final long leaseTtlMs;
+
+    private volatile ConsistentHashRing ring;
+    private volatile Set<Integer> ownedSlots = Collections.emptySet();
+    private volatile long lastRenewedAt;
+
+    public ShardCoordinator(
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.sharding.node-id}") String nodeId,
+            @Value("${dispatcher.sharding.slots:256}") int slotCount,
+            @Value("${dispatcher.sharding.virtual-nodes:64}") int virtualNodes,
+            @Value("${dispatcher.sharding.cell-size-degrees:0.5}") double cellSizeDegrees,
+            @Value("${dispatcher.sharding.lease-ttl-ms:15000}") long leaseTtlMs) {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Le nombre de shards doit être positif");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.grid = new GeoGrid(cellSizeDegrees);
+        this.nodeId = nodeId;
+        this.slotCount = slotCount;
+        this.virtualNodes = virtualNodes;
+        this.leaseTtlMs = leaseTtlMs;
+        this.ring = new ConsistentHashRing(List.of(nodeId), virtualNodes);
+
+        Gauge.builder("dispatcher.sharding.owned_slots", this, coordinator -> coordinator.ownedSlots.size())
+                .tag("node", nodeId)
+                .description("Shards géographiques détenus par ce nœud")
+                .register(meterRegistry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public Set<Integer> getOwnedSlots() {
+        return ownedSlots;
+    }
+
+    /**
+     * Shard auquel appartient un point géographique
+     */
+    public int slotOf(double latitude, double longitude) {
+        return slotOfCell(grid.cellOf(latitude, longitude));
+    }
+
+    public int slotOfCell(long cell) {
+        return (int) Math.floorMod(ConsistentHashRing.mix(cell), (long) slotCount);
+    }
+
+    /**
+     * Indique si ce nœud détient le bail du shard et peut donc y attribuer des livreurs
+     */
+    public boolean ownsSlot(int slot) {
+        return ownedSlots.contains(slot);
+    }
+
+    /**
+     * Indique si l'anneau désigne ce nœud comme propriétaire du shard (bail éventuellement pas encore obtenu)
+     */
+    public boolean isRingOwner(int slot) {
+        return nodeId.equals(ring.ownerOf(slot));
+    }
+
+    public String ownerOf(int slot) {
+        return ring.ownerOf(slot);
+    }
+
+    /**
+     * Renouvelle le bail du nœud, recalcule l'anneau puis prend ou libère les baux de shards
+     */
+    @Scheduled(fixedDelayString = "${dispatcher.sharding.heartbeat-ms:5000}")
+    public void heartbeat() {
+        try {
+            jdbcTemplate.update(UPSERT_NODE_SQL, nodeId, leaseTtlMs);
+
+            Set<String> liveNodes = new HashSet<>(jdbcTemplate.queryForList(SELECT_LIVE_NODES_SQL, String.class));
+            liveNodes.add(nodeId);
+            if (!liveNodes.equals(ring.getNodes())) {
+                log.info("Shard ring membership changed: {} -> {}", ring.getNodes(), liveNodes);
+                ring = new ConsistentHashRing(liveNodes, virtualNodes);
+            }
+
+            List<Integer> desired = new ArrayList<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isRingOwner(slot)) {
+                    desired.add(slot);
+                }
+            }
+
+            // Libérer d'abord les shards perdus pour que leur nouveau propriétaire les obtienne sans attendre l'expiration
+            Set<Integer> lost = new HashSet<>(ownedSlots);
+            lost.removeAll(desired);
+            if (!lost.isEmpty()) {
+                updateOwnership(without(ownedSlots, lost));
+                jdbcTemplate.batchUpdate(RELEASE_SHARD_SQL, lost, Math.max(lost.size(), 1),
+                        (ps, slot) -> {
+                            ps.setInt(1, slot);
+                            ps.setString(2, nodeId);
+                        });
+            }
+
+            int[][] counts = jdbcTemplate.batchUpdate(ACQUIRE_SHARD_SQL, desired, Math.max(desired.size(), 1),
+                    (ps, slot) -> {
+                        ps.setInt(1, slot);
+                        ps.setString(2, nodeId);
+                        ps.setLong(3, leaseTtlMs);
+                    });
+            Set<Integer> held = new HashSet<>();
+            int index = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    if (count > 0) {
+                        held.add(desired.get(index));
+                    }
+                    index++;
+                }
+            }
+
+            lastRenewedAt = System.currentTimeMillis();
+            updateOwnership(held);
+        } catch (Exception e) {
+            log.error("Shard heartbeat failed for node {}", nodeId, e);
+            // Sans renouvellement, nos baux expirent : cesser d'attribuer avant qu'un autre nœud ne les reprenne
+            if (System.currentTimeMillis() - lastRenewedAt >= leaseTtlMs / 2) {
+                updateOwnership(Collections.emptySet());
+            }
+        }
+    }
+
+    private void updateOwnership(Set<Integer> held) {
+        Set<Integer> previous = ownedSlots;
+        if (previous.equals(held)) {
+            return;
+        }
+        Set<Integer> acquired = without(held, previous);
+        Set<Integer> released = without(previous, held);
+        ownedSlots = Collections.unmodifiableSet(new HashSet<>(held));
+
+        log.info("Node {} now owns {} shards (+{} / -{})", nodeId, held.size(), acquired.size(), released.size());
+        eventPublisher.publishEvent(new ShardOwnershipChangedEvent(acquired, released));
+    }
+
+    private static Set<Integer> without(Set<Integer> source, Set<Integer> removed) {
+        Set<Integer> result = new HashSet<>(source);
+        result.removeAll(removed);
+        return result;
+    }
+
+    /**
+     * Libère les baux à l'arrêt pour que les autres nœuds reprennent les shards immédiatement
+     */
+    @PreDestroy
+    public void shutdown() {
+        Set<Integer> released = ownedSlots;
+        updateOwnership(Collections.emptySet());
+        try {
+            jdbcTemplate.batchUpdate(RELEASE_SHARD_SQL, released, Math.max(released.size(), 1),
+                    (ps, slot) -> {
+                        ps.setInt(1, slot);
+                        ps.setString(2, nodeId);
+                    });
+            jdbcTemplate.update(DELETE_NODE_SQL, nodeId);
+        } catch (Exception e) {
+            log.warn("Unable to release shard leases of node {}, they will expire", nodeId, e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.smartdelivery.dispatcher.shard;
+
+/**
+ * Levée lorsqu'aucun livreur des shards locaux ne convient alors que des livreurs
+ * d'un shard voisin le pourraient : la demande doit être transmise à ce shard.
+ */
+public class ShardHandoverException extends RuntimeException {
+
+    private final int targetSlot;
+
+    public ShardHandoverException(int targetSlot) {
+        super("Attribution à transférer au shard " + targetSlot);
+        this.targetSlot = targetSlot;
+    }
+
+    public int getTargetSlot() {
+        return targetSlot;
+    }
+}
@@ -0,0 +1,11 @@
+package com.smartdelivery.dispatcher.shard;
+
+import java.util.Set;
+
+/**
+ * Publié lorsque le nœud local obtient ou perd le bail de shards géographiques
+ * @param acquired Shards désormais détenus
+ * @param released Shards qui ne sont plus détenus
+ */
+public record ShardOwnershipChangedEvent(Set<Integer> acquired, Set<Integer> released) {
+}
@@ -0,0 +1,176 @@
+package com.smartdelivery.dispatcher.shard;
+
+import com.rabbitmq.client.Channel;
+import com.smartdelivery.dispatcher.config.RabbitMQConfig;
+import com.smartdelivery.dispatcher.listener.DeliveryCreatedBatchListener;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.offer.OfferBroker;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Routage des demandes d'attribution vers le nœud qui détient le shard du point de ramassage.
+ * Chaque nœud consomme la queue d'entrée delivery.created : une demande dont le shard est local
+ * est traitée directement, sinon elle est republiée sur l'exchange avec la clé dispatch.shard.{slot},
+ * à laquelle seule la queue du nœud propriétaire est liée. Lorsque seuls des livreurs d'un shard voisin
+ * conviennent (ramassage en bordure de zone), la demande est transférée à ce shard.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatcher.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardRouter {
+
+    static final String HOPS_HEADER = "x-shard-hops";
+    static final String SLOT_HEADER = "x-shard-slot";
+
+    private final ShardCoordinator coordinator;
+    private final DispatcherService dispatcherService;
+    private final ObjectProvider<OfferBroker> offerBroker;
+    private final ObjectProvider<DeliveryCreatedBatchListener> batchListener;
+    private final AmqpAdmin amqpAdmin;
+    private final Queue shardQueue;
+    private final TopicExchange deliveryExchange;
+    private final RabbitTemplate shardTemplate;
+    private final String createdQueueName;
+    private final String returnedMessageQueue;
+    private final int maxHops;
+
+    public ShardRouter(
+            ShardCoordinator coordinator,
+            DispatcherService dispatcherService,
+            ObjectProvider<OfferBroker> offerBroker,
+            ObjectProvider<DeliveryCreatedBatchListener> batchListener,
+            AmqpAdmin amqpAdmin,
+            ConnectionFactory connectionFactory,
+            @Qualifier("shardQueue") Queue shardQueue,
+            TopicExchange deliveryExchange,
+            @Value("${rabbitmq.queue.created.name}") String createdQueueName,
+            @Value("${dispatcher.listener.retry-delays-ms:5000,30000,120000}") List<Long> retryDelays,
+            @Value("${dispatcher.sharding.max-hops:3}") int maxHops) {
+        this.coordinator = coordinator;
+        this.dispatcherService = dispatcherService;
+        this.offerBroker = offerBroker;
+        this.batchListener = batchListener;
+        this.amqpAdmin = amqpAdmin;
+        this.shardQueue = shardQueue;
+        this.deliveryExchange = deliveryExchange;
+        this.createdQueueName = createdQueueName;
+        this.maxHops = maxHops;
+        // Un shard sans propriétaire lié (transfert en cours) renvoie le message dans la première queue de retry
+        this.returnedMessageQueue = retryDelays.isEmpty()
+                ? createdQueueName : RabbitMQConfig.retryQueueName(createdQueueName, retryDelays.get(0));
+
+        // Template dédié : les messages non routables sont retournés au lieu d'être perdus
+        this.shardTemplate = new RabbitTemplate(connectionFactory);
+        this.shardTemplate.setMandatory(true);
+        this.shardTemplate.setReturnsCallback(this::onReturned);
+    }
+
+    public static String routingKey(int slot) {
+        return "dispatch.shard." + slot;
+    }
+
+    /**
+     * Traite localement une demande d'attribution ou la transmet au shard concerné
+     * @param message Message d'origine (porteur des en-têtes de routage)
+     * @param request Demande d'attribution
+     */
+    public void dispatch(Message message, DispatchRequest request) {
+        boolean fromIngress = createdQueueName.equals(message.getMessageProperties().getConsumerQueue());
+        Integer hopsHeader = message.getMessageProperties().getHeader(HOPS_HEADER);
+        Integer slotHeader = message.getMessageProperties().getHeader(SLOT_HEADER);
+        int hops = fromIngress || hopsHeader == null ? 0 : hopsHeader;
+        int slot = fromIngress || slotHeader == null
+                ? coordinator.slotOf(request.getPickupLatitude(), request.getPickupLongitude())
+                : slotHeader;
+
+        if (!coordinator.ownsSlot(slot)) {
+            if (coordinator.isRingOwner(slot)) {
+                // Le bail est encore détenu par l'ancien propriétaire : réessayer plus tard
+                throw new RuntimeException("Shard " + slot + " en cours de transfert vers le nœud " + coordinator.getNodeId());
+            }
+            forward(message, slot, hops + 1);
+            return;
+        }
+
+        try {
+            OfferBroker broker = offerBroker.getIfAvailable();
+            if (broker != null) {
+                broker.offer(request);
+            } else {
+                dispatcherService.assignDelivery(request);
+            }
+        } catch (ShardHandoverException e) {
+            log.info("No local courier for delivery {}, handing over to shard {} (owner {})",
+                    request.getDeliveryId(), e.getTargetSlot(), coordinator.ownerOf(e.getTargetSlot()));
+            forward(message, e.getTargetSlot(), hops + 1);
+        }
+    }
+
+    /**
+     * Consomme la queue du nœud avec le même traitement par lots que la queue d'entrée,
+     * y compris lorsque celle-ci est consommée message par message (dispatcher.listener.batch.enabled=false)
+     */
+    @RabbitListener(queues = "#{@shardQueue.name}", containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleShardBatch(List<Message> messages, Channel channel) throws IOException {
+        batchListener.getObject().handleDeliveryCreatedBatch(messages, channel);
+    }
+
+    /**
+     * Lie ou délie la queue du nœud aux clés de routage des shards obtenus ou perdus
+     */
+    @EventListener
+    public void onOwnershipChanged(ShardOwnershipChangedEvent event) {
+        if (!event.acquired().isEmpty()) {
+            amqpAdmin.declareQueue(shardQueue);
+        }
+        for (Integer slot : event.acquired()) {
+            amqpAdmin.declareBinding(binding(slot));
+        }
+        for (Integer slot : event.released()) {
+            amqpAdmin.removeBinding(binding(slot));
+        }
+        log.debug("Updated shard bindings of {}: +{} -{}", shardQueue.getName(), event.acquired(), event.released());
+    }
+
+    private void forward(Message message, int slot, int hops) {
+        if (hops > maxHops) {
+            throw new RuntimeException("Demande transférée " + (hops - 1) + " fois entre shards sans attribution");
+        }
+        Message forwarded = MessageBuilder.fromMessage(message)
+                .setHeader(HOPS_HEADER, hops)
+                .setHeader(SLOT_HEADER, slot)
+                .build();
+        shardTemplate.send(deliveryExchange.getName(), routingKey(slot), forwarded);
+    }
+
+    private void onReturned(ReturnedMessage returned) {
+        log.warn("No dispatcher bound to {}, sending message back through {}",
+                returned.getRoutingKey(), returnedMessageQueue);
+        shardTemplate.send("", returnedMessageQueue, returned.getMessage());
+    }
+
+    private Binding binding(int slot) {
+        return BindingBuilder.bind(shardQueue).to(deliveryExchange).with(routingKey(slot));
+    }
+}
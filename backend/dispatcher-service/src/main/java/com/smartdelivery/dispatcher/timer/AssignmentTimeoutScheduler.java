@@ -0,0 +1,186 @@
+package com.smartdelivery.dispatcher.timer;
+
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Échéances des assignments actifs : un assignment ASSIGNED doit être démarré avant acceptTimeout,
+ * un assignment IN_PROGRESS doit évoluer avant inProgressTimeout. À l'expiration d'un assignment
+ * ASSIGNED, le livreur est libéré et la livraison est remise en attribution ; un assignment IN_PROGRESS
+ * (colis ramassé) est seulement signalé, jamais annulé. Les échéances sont tenues dans une roue
+ * temporelle en mémoire et reconstruites depuis la base au démarrage.
+ */
+@Component
+@Slf4j
+public class AssignmentTimeoutScheduler {
+
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    private final DeliveryAssignmentRepository assignmentRepository;
+    private final ObjectProvider<DispatcherService> dispatcherService;
+    private final HashedTimingWheel wheel;
+    private final ExecutorService expiryExecutor;
+    private final Map<UUID, HashedTimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Counter expiredCounter;
+    private final Counter escalatedCounter;
+    private final long acceptTimeoutMs;
+    private final long inProgressTimeoutMs;
+
+    public AssignmentTimeoutScheduler(
+            DeliveryAssignmentRepository assignmentRepository,
+            ObjectProvider<DispatcherService> dispatcherService,
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.timeout.accept-ms:300000}") long acceptTimeoutMs,
+            @Value("${dispatcher.timeout.in-progress-ms:7200000}") long inProgressTimeoutMs,
+            @Value("${dispatcher.timeout.tick-ms:100}") long tickMs,
+            @Value("${dispatcher.timeout.wheel-size:4096}") int wheelSize,
+            @Value("${dispatcher.timeout.worker-threads:2}") int workerThreads) {
+        this.assignmentRepository = assignmentRepository;
+        this.dispatcherService = dispatcherService;
+        this.acceptTimeoutMs = acceptTimeoutMs;
+        this.inProgressTimeoutMs = inProgressTimeoutMs;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.expiryExecutor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "assignment-timeout-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel(tickMs, TimeUnit.MILLISECONDS, wheelSize, expiryExecutor, runnable -> {
+            Thread thread = new Thread(runnable, "assignment-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.expiredCounter = Counter.builder("dispatcher.assignment.timeouts.expired")
+                .description("Assignments remis en attribution après dépassement de leur échéance")
+                .register(meterRegistry);
+        this.escalatedCounter = Counter.builder("dispatcher.assignment.timeouts.escalated")
+                .description("Assignments en cours signalés après dépassement de leur échéance")
+                .register(meterRegistry);
+        Gauge.builder("dispatcher.assignment.timeouts.pending", wheel, HashedTimingWheel::pendingTimeouts)
+                .description("Échéances d'assignments en attente")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconstruit les échéances des assignments actifs au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromDatabase() {
+        List<DeliveryAssignmentRepository.AssignmentDeadlineView> active = assignmentRepository.findDeadlineViewsByStatusIn(
+                EnumSet.of(DeliveryAssignment.AssignmentStatus.ASSIGNED, DeliveryAssignment.AssignmentStatus.IN_PROGRESS));
+
+        for (DeliveryAssignmentRepository.AssignmentDeadlineView view : active) {
+            schedule(view.getId(), view.getStatus(), view.getAssignedAt(), view.getUpdatedAt());
+        }
+        log.info("Rebuilt {} assignment deadlines from database", timeouts.size());
+    }
+
+    /**
+     * Programme (ou reprogramme) l'échéance d'un assignment selon son statut.
+     * Un assignment terminé ou annulé voit son échéance annulée.
+     * @param assignment L'assignment concerné
+     */
+    public void schedule(DeliveryAssignment assignment) {
+        schedule(assignment.getId(), assignment.getStatus(), assignment.getAssignedAt(), assignment.getUpdatedAt());
+    }
+
+    /**
+     * Annule l'échéance d'un assignment
+     * @param assignmentId ID de l'assignment
+     */
+    public void cancel(UUID assignmentId) {
+        HashedTimingWheel.Timeout timeout = timeouts.remove(assignmentId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public int getPendingCount() {
+        return timeouts.size();
+    }
+
+    private void schedule(UUID assignmentId, DeliveryAssignment.AssignmentStatus status,
+                          LocalDateTime assignedAt, LocalDateTime updatedAt) {
+        if (assignmentId == null) {
+            return;
+        }
+        long timeoutMs = timeoutFor(status);
+        if (timeoutMs <= 0) {
+            cancel(assignmentId);
+            return;
+        }
+
+        // L'échéance part du dernier changement d'état connu
+        LocalDateTime since = status == DeliveryAssignment.AssignmentStatus.IN_PROGRESS && updatedAt != null
+                ? updatedAt : assignedAt;
+        long elapsedMs = since != null ? Duration.between(since, LocalDateTime.now()).toMillis() : 0;
+        long delayMs = Math.max(timeoutMs - elapsedMs, 0);
+
+        timeouts.compute(assignmentId, (id, previous) -> {
+            if (previous != null) {
+                previous.cancel();
+            }
+            return wheel.schedule(() -> expire(id, status), delayMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private long timeoutFor(DeliveryAssignment.AssignmentStatus status) {
+        if (status == DeliveryAssignment.AssignmentStatus.ASSIGNED) {
+            return acceptTimeoutMs;
+        }
+        if (status == DeliveryAssignment.AssignmentStatus.IN_PROGRESS) {
+            return inProgressTimeoutMs;
+        }
+        return 0;
+    }
+
+    private void expire(UUID assignmentId, DeliveryAssignment.AssignmentStatus expectedStatus) {
+        // Retirer l'entrée uniquement si c'est bien cette échéance qui a expiré
+        timeouts.computeIfPresent(assignmentId, (id, timeout) -> timeout.isExpired() ? null : timeout);
+        try {
+            if (expectedStatus == DeliveryAssignment.AssignmentStatus.IN_PROGRESS) {
+                if (dispatcherService.getObject().escalateOverdueAssignment(assignmentId)) {
+                    escalatedCounter.increment();
+                }
+            } else if (dispatcherService.getObject().redispatchExpiredAssignment(assignmentId, expectedStatus)) {
+                expiredCounter.increment();
+            }
+        } catch (Exception e) {
+            log.error("Failed to handle expired assignment {}, retrying in {} ms",
+                    assignmentId, RETRY_DELAY_MS, e);
+            timeouts.computeIfAbsent(assignmentId, id -> wheel.schedule(
+                    () -> expire(id, expectedStatus), RETRY_DELAY_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        expiryExecutor.shutdown();
+    }
+}
@@ -0,0 +1,303 @@
+package com.smartdelivery.dispatcher.timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Roue temporelle hachée (hashed timing wheel) pour un très grand nombre d'échéances.
+ * L'insertion et l'annulation sont en O(1) : elles passent par des files sans verrou,
+ * vidées par l'unique thread de la roue à chaque tick. La précision est d'un tick.
+ * Les tâches expirées sont exécutées sur l'Executor fourni pour ne pas retarder la roue.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    // Nombre maximal d'échéances transférées dans les cases à chaque tick
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Thread workerThread;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private volatile long startTime;
+    private long tick;
+
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize,
+                             Executor taskExecutor, ThreadFactory threadFactory) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("La durée d'un tick doit être positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Taille de roue invalide: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize - 1 == 0 ? 1 : wheelSize - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        this.workerThread = threadFactory.newThread(this::run);
+    }
+
+    /**
+     * Programme une tâche après le délai donné
+     * @param task Tâche à exécuter à l'échéance
+     * @param delay Délai avant exécution
+     * @param unit Unité du délai
+     * @return Le handle permettant d'annuler l'échéance
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (state.get() == STATE_STOPPED) {
+            throw new IllegalStateException("La roue temporelle est arrêtée");
+        }
+        start();
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Nombre d'échéances en attente (programmées et non expirées ni annulées)
+     */
+    public long pendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    public void start() {
+        if (state.get() == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            startTime = System.nanoTime();
+            if (startTime == 0) {
+                startTime = 1;
+            }
+            workerThread.start();
+        }
+        while (startTime == 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10 + 100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (state.get() == STATE_STARTED) {
+            long now = waitForNextTick();
+            if (now < 0) {
+                break;
+            }
+            Bucket bucket = wheel[(int) (tick & mask)];
+            processCancelledTimeouts();
+            transferPendingTimeouts();
+            bucket.expire(now);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            long sleepMs = (deadline - now + 999_999) / 1_000_000;
+            if (sleepMs <= 0) {
+                return now;
+            }
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                if (state.get() == STATE_STOPPED) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state() == Timeout.CANCELLED) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // Une échéance déjà passée est placée dans la case courante
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void runTask(Timeout timeout) {
+        try {
+            taskExecutor.execute(timeout.task);
+        } catch (RuntimeException e) {
+            // L'exécuteur a refusé la tâche : elle est exécutée sur le thread de la roue
+            timeout.task.run();
+        }
+    }
+
+    /**
+     * Handle d'une échéance programmée
+     */
+    public static final class Timeout {
+
+        static final int INIT = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedTimingWheel timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = INIT;
+
+        // Accédés uniquement par le thread de la roue
+        long remainingRounds;
+        Timeout next;
+        Timeout prev;
+        Bucket bucket;
+
+        private Timeout(HashedTimingWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Annule l'échéance si elle n'a pas encore expiré
+         * @return true si l'annulation a réussi
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, INIT, CANCELLED)) {
+                return false;
+            }
+            timer.pendingCount.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        int state() {
+            return state;
+        }
+
+        void expire() {
+            if (STATE_UPDATER.compareAndSet(this, INIT, EXPIRED)) {
+                timer.pendingCount.decrementAndGet();
+                timer.runTask(this);
+            }
+        }
+    }
+
+    /**
+     * Case de la roue : liste doublement chaînée d'échéances
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= now) {
+                        timeout.expire();
+                    } else {
+                        // Ne devrait pas arriver : l'échéance a été placée dans une mauvaise case
+                        throw new IllegalStateException("Échéance placée dans une mauvaise case");
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+-- Suppression de la partition par défaut de delivery_assignments.
+-- PostgreSQL refuse DETACH PARTITION ... CONCURRENTLY sur une table qui a une partition par défaut :
+-- sans elle, l'archivage détache les partitions vidées sans bloquer le dispatch (voir AssignmentArchiveRepository).
+-- Les mois à venir sont créés à l'avance par le job de maintenance (dispatcher.archive.partition-months-ahead).
+-- Les lignes éventuellement reçues par la partition par défaut sont déplacées dans leur partition mensuelle.
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    IF to_regclass('delivery_assignments_default') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE delivery_assignments DETACH PARTITION delivery_assignments_default;
+
+    FOR month IN SELECT DISTINCT date_trunc('month', assigned_at)::DATE FROM delivery_assignments_default LOOP
+        PERFORM create_delivery_assignments_partition(month);
+    END LOOP;
+
+    INSERT INTO delivery_assignments SELECT * FROM delivery_assignments_default;
+    DROP TABLE delivery_assignments_default;
+END
+$$;
@@ -0,0 +1,46 @@
+-- Alignement du schéma initial sur les entités JPA (ddl-auto=validate) : les tables prennent les noms
+-- mappés par @Table (couriers, delivery_assignments), que toutes les migrations suivantes utilisent.
+-- Les index, contraintes, clés étrangères et triggers suivent la table renommée.
+ALTER TABLE courier RENAME TO couriers;
+ALTER TABLE delivery_assignment RENAME TO delivery_assignments;
+
+-- Nom et prénom séparés, comme dans l'entité Courier
+ALTER TABLE couriers
+ADD COLUMN first_name VARCHAR(100),
+ADD COLUMN last_name VARCHAR(100);
+
+UPDATE couriers
+SET first_name = split_part(name, ' ', 1),
+    last_name = CASE WHEN position(' ' IN name) > 0 THEN substring(name FROM position(' ' IN name) + 1) ELSE '' END;
+
+ALTER TABLE couriers
+ALTER COLUMN first_name SET NOT NULL,
+ALTER COLUMN last_name SET NOT NULL,
+DROP COLUMN name;
+
+-- Position courante en colonnes (Location embarquée), reprise du point GeoJSON [longitude, latitude]
+-- de current_location : les écritures de positions et la colonne PostGIS (V5) lisent ces colonnes
+ALTER TABLE couriers
+ADD COLUMN latitude DOUBLE PRECISION,
+ADD COLUMN longitude DOUBLE PRECISION,
+ADD COLUMN address VARCHAR(255);
+
+UPDATE couriers
+SET latitude = (current_location->'coordinates'->>1)::DOUBLE PRECISION,
+    longitude = (current_location->'coordinates'->>0)::DOUBLE PRECISION,
+    address = current_location->>'address'
+WHERE jsonb_typeof(current_location->'coordinates') = 'array';
+
+ALTER TABLE couriers DROP COLUMN current_location;
+
+ALTER TABLE couriers
+ALTER COLUMN max_capacity TYPE DOUBLE PRECISION;
+
+-- Colonnes de suivi des attributions mappées par DeliveryAssignment
+ALTER TABLE delivery_assignments
+ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+ADD COLUMN completed_at TIMESTAMP;
+
+UPDATE delivery_assignments
+SET updated_at = COALESCE(actual_delivery_time, assigned_at, CURRENT_TIMESTAMP),
+    completed_at = actual_delivery_time;
@@ -0,0 +1,22 @@
+-- Capacité volumique des livreurs (la charge maximale existe déjà dans max_capacity)
+ALTER TABLE couriers
+ADD COLUMN IF NOT EXISTS max_volume DOUBLE PRECISION;
+
+ALTER TABLE couriers
+ADD CONSTRAINT chk_max_volume
+CHECK (max_volume IS NULL OR max_volume > 0);
+
+-- Informations de chargement et d'itinéraire conservées sur chaque attribution,
+-- afin de reconstruire la capacité restante des livreurs au démarrage
+ALTER TABLE delivery_assignments
+ADD COLUMN IF NOT EXISTS pickup_latitude DOUBLE PRECISION,
+ADD COLUMN IF NOT EXISTS pickup_longitude DOUBLE PRECISION,
+ADD COLUMN IF NOT EXISTS dropoff_latitude DOUBLE PRECISION,
+ADD COLUMN IF NOT EXISTS dropoff_longitude DOUBLE PRECISION,
+ADD COLUMN IF NOT EXISTS package_weight DOUBLE PRECISION,
+ADD COLUMN IF NOT EXISTS package_volume DOUBLE PRECISION;
+
+-- Index pour le chargement des attributions actives par livreur
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_courier_active
+ON delivery_assignments(courier_id)
+WHERE status IN ('ASSIGNED', 'IN_PROGRESS');
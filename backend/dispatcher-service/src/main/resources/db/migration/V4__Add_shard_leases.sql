@@ -0,0 +1,18 @@
+-- Nœuds dispatcher actifs : chaque nœud renouvelle son bail à chaque heartbeat.
+-- Un nœud dont le bail est expiré est retiré de l'anneau de hachage cohérent.
+CREATE TABLE IF NOT EXISTS dispatcher_node (
+    node_id VARCHAR(100) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    lease_expires_at TIMESTAMP NOT NULL
+);
+
+-- Baux des shards géographiques : un shard n'est détenu que par un nœud à la fois.
+-- Le nouveau propriétaire ne l'obtient qu'après libération ou expiration du bail précédent.
+CREATE TABLE IF NOT EXISTS dispatcher_shard_lease (
+    slot INTEGER PRIMARY KEY,
+    owner_node VARCHAR(100) NOT NULL,
+    lease_expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_dispatcher_node_lease_expires_at ON dispatcher_node(lease_expires_at);
+CREATE INDEX IF NOT EXISTS idx_dispatcher_shard_lease_owner ON dispatcher_shard_lease(owner_node);
@@ -0,0 +1,13 @@
+-- Position des livreurs en géographie PostGIS (mode dispatcher.geo.mode=postgis).
+-- La colonne, son trigger et ses index dépendent de l'extension PostGIS : ils sont créés par la
+-- migration répétable db/postgis/R__Courier_geography.sql, dont l'emplacement n'est ajouté à Flyway
+-- qu'en mode postgis. Cette migration vérifie seulement que la position peut en être dérivée.
+DO $$
+BEGIN
+    IF (SELECT COUNT(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'couriers'
+          AND column_name IN ('latitude', 'longitude')) <> 2 THEN
+        RAISE EXCEPTION 'couriers.latitude/longitude are missing, cannot derive courier geography';
+    END IF;
+END
+$$;
@@ -0,0 +1,102 @@
+-- Partitionnement mensuel des assignments sur assigned_at.
+-- Les requêtes d'historique bornées dans le temps n'examinent que les partitions concernées,
+-- et l'archivage vide puis supprime les partitions anciennes au lieu de purger une table unique.
+-- La clé primaire doit inclure la clé de partitionnement : (id, assigned_at). Les lectures par id seul
+-- (findById, findByIdForUpdate, save) ne peuvent pas élaguer de partition : elles sondent l'index de clé
+-- primaire de chaque partition, qui commence par id. La rétention (dispatcher.archive.retention-days)
+-- borne ce nombre de partitions à quelques mois plus ceux créés à l'avance.
+
+-- La clé de partitionnement ne peut pas être nulle
+UPDATE delivery_assignments SET assigned_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE assigned_at IS NULL;
+ALTER TABLE delivery_assignments ALTER COLUMN assigned_at SET NOT NULL;
+
+ALTER TABLE delivery_assignments RENAME TO delivery_assignments_unpartitioned;
+
+CREATE TABLE delivery_assignments (
+    LIKE delivery_assignments_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, assigned_at)
+) PARTITION BY RANGE (assigned_at);
+
+-- LIKE ne copie pas les clés étrangères
+ALTER TABLE delivery_assignments
+ADD CONSTRAINT fk_delivery_assignments_courier FOREIGN KEY (courier_id) REFERENCES couriers(id);
+
+-- Crée la partition du mois contenant la date donnée, si elle n'existe pas encore
+CREATE OR REPLACE FUNCTION create_delivery_assignments_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    to_date DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'delivery_assignments_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF delivery_assignments FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, from_date, to_date);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions couvrant les données existantes et les mois à venir ; la partition par défaut
+-- ne reçoit que des dates hors plage et doit rester vide (le job de maintenance crée les mois suivants)
+DO $$
+DECLARE
+    first_month DATE;
+    month DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(assigned_at))::DATE, date_trunc('month', CURRENT_DATE)::DATE)
+    INTO first_month
+    FROM delivery_assignments_unpartitioned;
+
+    month := first_month;
+    WHILE month <= (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::DATE LOOP
+        PERFORM create_delivery_assignments_partition(month);
+        month := (month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS delivery_assignments_default PARTITION OF delivery_assignments DEFAULT;
+
+INSERT INTO delivery_assignments SELECT * FROM delivery_assignments_unpartitioned;
+DROP TABLE delivery_assignments_unpartitioned;
+
+-- Index partitionnés, ajustés aux requêtes sur les assignments actifs (partiels) et à l'historique
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_active_courier
+ON delivery_assignments(courier_id)
+WHERE status IN ('ASSIGNED', 'IN_PROGRESS');
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_active_delivery
+ON delivery_assignments(delivery_id)
+WHERE status IN ('ASSIGNED', 'IN_PROGRESS');
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_active_status
+ON delivery_assignments(status)
+WHERE status IN ('ASSIGNED', 'IN_PROGRESS');
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_courier_assigned_at
+ON delivery_assignments(courier_id, assigned_at DESC);
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_delivery_id
+ON delivery_assignments(delivery_id);
+
+-- Archive compressée : les assignments terminés au-delà de la rétention y sont regroupés par livreur
+-- et par mois dans un tableau JSONB, dont la taille déclenche la compression TOAST
+CREATE TABLE IF NOT EXISTS delivery_assignment_archive (
+    id BIGSERIAL PRIMARY KEY,
+    courier_id UUID NOT NULL,
+    period_month DATE NOT NULL,
+    assignment_count INTEGER NOT NULL,
+    first_assigned_at TIMESTAMP NOT NULL,
+    last_assigned_at TIMESTAMP NOT NULL,
+    assignments JSONB NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE delivery_assignment_archive ALTER COLUMN assignments SET STORAGE EXTENDED;
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignment_archive_courier_period
+ON delivery_assignment_archive(courier_id, period_month);
+
+CREATE INDEX IF NOT EXISTS idx_delivery_assignment_archive_period
+ON delivery_assignment_archive(period_month);
@@ -0,0 +1,9 @@
+-- Index sur updated_at pour le rattrapage après restauration de l'instantané de la flotte :
+-- seuls les livreurs et attributions modifiés depuis l'instantané sont relus au démarrage.
+-- Les tables mappées et leur colonne updated_at proviennent de V2_1.
+CREATE INDEX IF NOT EXISTS idx_couriers_updated_at
+ON couriers(updated_at);
+
+-- Sur la table partitionnée, l'index est créé sur chaque partition, y compris les futures
+CREATE INDEX IF NOT EXISTS idx_delivery_assignments_updated_at
+ON delivery_assignments(updated_at);
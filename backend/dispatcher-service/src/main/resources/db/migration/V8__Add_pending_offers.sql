@@ -0,0 +1,12 @@
+-- Offres en attente de réponse : la livraison y reste jusqu'à son attribution (acceptation,
+-- attribution directe ou remise en file). Un nœud qui s'arrête avec des offres ouvertes les laisse
+-- ici ; passé l'échéance, un autre nœud les remet en file.
+CREATE TABLE IF NOT EXISTS dispatcher_pending_offer (
+    delivery_id UUID PRIMARY KEY,
+    offer_id UUID NOT NULL,
+    payload TEXT NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_dispatcher_pending_offer_offer_id ON dispatcher_pending_offer(offer_id);
+CREATE INDEX IF NOT EXISTS idx_dispatcher_pending_offer_expires_at ON dispatcher_pending_offer(expires_at);
@@ -0,0 +1,4 @@
+-- Date du signalement assignment.overdue d'un assignment IN_PROGRESS en retard :
+-- un seul nœud le revendique (ligne verrouillée), les autres et les retries ne republient pas.
+-- Sur la table partitionnée, la colonne est ajoutée à chaque partition.
+ALTER TABLE delivery_assignments ADD COLUMN IF NOT EXISTS escalated_at TIMESTAMP;
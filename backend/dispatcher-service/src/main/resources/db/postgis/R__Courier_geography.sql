@@ -0,0 +1,39 @@
+-- Position des livreurs en géographie PostGIS, appliquée uniquement en mode dispatcher.geo.mode=postgis
+-- (emplacement Flyway classpath:db/postgis, ajouté par PostgisFlywayConfig).
+-- Migration répétable : elle est appliquée dès que le mode postgis est activé, y compris sur une base
+-- déjà migrée, et réappliquée si ce script change ; chaque instruction est idempotente.
+-- Sans l'extension PostGIS sur le serveur, CREATE EXTENSION échoue et le démarrage avec lui.
+-- La colonne est dérivée de latitude/longitude (V2_1) par un trigger : le code applicatif et les
+-- écritures batch de positions restent inchangés.
+CREATE EXTENSION IF NOT EXISTS postgis;
+
+ALTER TABLE couriers
+ADD COLUMN IF NOT EXISTS position geography(Point, 4326);
+
+UPDATE couriers
+SET position = ST_SetSRID(ST_MakePoint(longitude, latitude), 4326)::geography
+WHERE latitude IS NOT NULL AND longitude IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION sync_courier_position()
+RETURNS TRIGGER AS $body$
+BEGIN
+    IF NEW.latitude IS NULL OR NEW.longitude IS NULL THEN
+        NEW.position := NULL;
+    ELSE
+        NEW.position := ST_SetSRID(ST_MakePoint(NEW.longitude, NEW.latitude), 4326)::geography;
+    END IF;
+    RETURN NEW;
+END;
+$body$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_couriers_sync_position ON couriers;
+CREATE TRIGGER trg_couriers_sync_position
+BEFORE INSERT OR UPDATE OF latitude, longitude ON couriers
+FOR EACH ROW
+EXECUTE FUNCTION sync_courier_position();
+
+-- Index GiST pour ST_DWithin et les recherches KNN (<->), et index partiel sur les seuls
+-- livreurs disponibles, qui sont les seuls interrogés lors d'une attribution
+CREATE INDEX IF NOT EXISTS idx_couriers_position ON couriers USING GIST (position);
+CREATE INDEX IF NOT EXISTS idx_couriers_available_position ON couriers USING GIST (position)
+WHERE status = 'AVAILABLE';
@@ -0,0 +1,114 @@
+package com.smartdelivery.dispatcher.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 50, 1_000, now::get);
+
+    @Test
+    void onFailure_ShouldOpenOnceTheWindowIsFullAndTheRateReached() {
+        // Arrange : fenêtre incomplète, déjà au-dessus du seuil
+        succeedCalls(1);
+        failCalls(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Act : 4e appel, 3 échecs sur 4
+        failCalls(1);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onSuccess_ShouldSlideTheWindowAndForgetOldFailures() {
+        // Arrange : 1 échec sur 4, sous le seuil
+        failCalls(1);
+        succeedCalls(3);
+
+        // Act : l'échec sort de la fenêtre, puis un nouvel échec
+        succeedCalls(1);
+        failCalls(1);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failCalls(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void tryAcquirePermission_ShouldAllowASingleTrialAfterTheOpenDuration() {
+        // Arrange
+        failCalls(4);
+        now.addAndGet(999);
+        assertFalse(breaker.tryAcquirePermission());
+
+        // Act
+        now.addAndGet(1);
+        boolean trial = breaker.tryAcquirePermission();
+
+        // Assert
+        assertTrue(trial);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onSuccess_ShouldCloseAfterASuccessfulTrial() {
+        // Arrange
+        failCalls(4);
+        now.addAndGet(1_000);
+        breaker.tryAcquirePermission();
+
+        // Act
+        breaker.onSuccess();
+
+        // Assert : fenêtre remise à zéro, 3 échecs ne suffisent plus à rouvrir
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failCalls(3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void onFailure_ShouldReopenAfterAFailedTrial() {
+        // Arrange
+        failCalls(4);
+        now.addAndGet(1_000);
+        breaker.tryAcquirePermission();
+
+        // Act
+        breaker.onFailure();
+
+        // Assert : nouvelle période d'ouverture à partir de l'échec
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(999);
+        assertFalse(breaker.tryAcquirePermission());
+        now.addAndGet(1);
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void constructor_ShouldRejectEmptyWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 50, 1_000));
+    }
+
+    private void failCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            breaker.tryAcquirePermission();
+            breaker.onFailure();
+        }
+    }
+
+    private void succeedCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            breaker.tryAcquirePermission();
+            breaker.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.smartdelivery.dispatcher.config;
+
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Les migrations PostGIS ne sont appliquées qu'en mode postgis
+ */
+class PostgisFlywayConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(PostgisFlywayConfig.class);
+
+    @Test
+    void postgisMode_ShouldAddThePostgisLocation() {
+        contextRunner.withPropertyValues("dispatcher.geo.mode=postgis").run(context -> {
+            // Arrange
+            FluentConfiguration configuration = new FluentConfiguration().locations("classpath:db/migration");
+
+            // Act
+            context.getBean(FlywayConfigurationCustomizer.class).customize(configuration);
+
+            // Assert
+            List<String> locations = Arrays.stream(configuration.getLocations()).map(Location::getDescriptor).toList();
+            assertEquals(List.of("classpath:db/migration", "classpath:db/postgis"), locations);
+        });
+    }
+
+    @Test
+    void memoryMode_ShouldNotTouchFlywayLocations() {
+        contextRunner.withPropertyValues("dispatcher.geo.mode=memory")
+                .run(context -> assertTrue(context.getBeansOfType(FlywayConfigurationCustomizer.class).isEmpty()));
+    }
+}
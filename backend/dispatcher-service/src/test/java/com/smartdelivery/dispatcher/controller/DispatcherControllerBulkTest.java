@@ -0,0 +1,109 @@
+package com.smartdelivery.dispatcher.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.BulkAssignmentResult;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.service.AssignmentArchiveService;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DispatcherController.class)
+class DispatcherControllerBulkTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private DispatcherService dispatcherService;
+
+    @MockBean
+    private AssignmentArchiveService archiveService;
+
+    @Test
+    void cancelAssignmentsByDeliveries_ShouldReturnTheBulkResult() throws Exception {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        UUID courierId = UUID.randomUUID();
+        BulkAssignmentResult result = result(DeliveryAssignment.AssignmentStatus.CANCELLED, "DELIVERIES", deliveryId,
+                List.of(new BulkAssignmentResult.ReleasedCourier(courierId, 48.85, 2.35)));
+        when(dispatcherService.cancelAssignmentsByDeliveries(List.of(deliveryId))).thenReturn(result);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/dispatcher/assignments/bulk/cancel")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(deliveryId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.deliveryIds[0]").value(deliveryId.toString()))
+                .andExpect(jsonPath("$.releasedCouriers[0].courierId").value(courierId.toString()));
+    }
+
+    @Test
+    void completeAssignmentsByCourierId_ShouldDelegateToTheService() throws Exception {
+        // Arrange
+        UUID courierId = UUID.randomUUID();
+        when(dispatcherService.completeAssignmentsByCourier(courierId)).thenReturn(
+                result(DeliveryAssignment.AssignmentStatus.COMPLETED, "COURIER", UUID.randomUUID(), List.of()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/dispatcher/couriers/{courierId}/assignments/complete", courierId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scope").value("COURIER"))
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    void cancelAssignmentsByZone_ShouldPassTheBoundsToTheService() throws Exception {
+        // Arrange
+        when(dispatcherService.cancelAssignmentsByZone(48.0, 49.0, 2.0, 3.0)).thenReturn(
+                result(DeliveryAssignment.AssignmentStatus.CANCELLED, "ZONE", UUID.randomUUID(), List.of()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/dispatcher/assignments/zone/cancel")
+                        .param("minLatitude", "48.0")
+                        .param("maxLatitude", "49.0")
+                        .param("minLongitude", "2.0")
+                        .param("maxLongitude", "3.0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scope").value("ZONE"));
+        verify(dispatcherService).cancelAssignmentsByZone(48.0, 49.0, 2.0, 3.0);
+    }
+
+    @Test
+    void completeAssignmentsByZone_ShouldRejectMissingBounds() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/dispatcher/assignments/zone/complete")
+                        .param("minLatitude", "48.0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static BulkAssignmentResult result(DeliveryAssignment.AssignmentStatus status, String scope, UUID deliveryId,
+                                               List<BulkAssignmentResult.ReleasedCourier> releasedCouriers) {
+        return BulkAssignmentResult.builder()
+                .status(status)
+                .scope(scope)
+                .assignmentIds(List.of(UUID.randomUUID()))
+                .deliveryIds(List.of(deliveryId))
+                .releasedCouriers(releasedCouriers)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetCountersTest {
+
+    @Test
+    void sync_ShouldMoveCourierBetweenStatusesAndZones() {
+        // Arrange
+        FleetCounters counters = new FleetCounters();
+        CourierState state = courier(Courier.CourierStatus.AVAILABLE, Courier.VehicleType.BICYCLE, 10L);
+        counters.sync(state);
+
+        // Act
+        state.setStatus(Courier.CourierStatus.BUSY);
+        state.setPosition(0, 0, 11L);
+        counters.sync(state);
+        counters.sync(state);
+
+        // Assert
+        assertEquals(1, counters.total());
+        assertEquals(0, counters.count(Courier.CourierStatus.AVAILABLE));
+        assertEquals(1, counters.count(Courier.CourierStatus.BUSY));
+        assertEquals(1, counters.count(Courier.VehicleType.BICYCLE, Courier.CourierStatus.BUSY));
+        assertEquals(0, counters.countInZone(10L, Courier.CourierStatus.AVAILABLE));
+        assertEquals(1, counters.countInZone(11L, Courier.CourierStatus.BUSY));
+    }
+
+    @Test
+    void rebuild_ShouldCorrectDriftedCounters() {
+        // Arrange
+        FleetCounters counters = new FleetCounters();
+        CourierState first = courier(Courier.CourierStatus.AVAILABLE, null, 5L);
+        CourierState second = courier(Courier.CourierStatus.OFFLINE, Courier.VehicleType.CAR, 6L);
+        counters.sync(first);
+        counters.sync(second);
+        // Transition non répercutée sur les compteurs
+        first.setStatus(Courier.CourierStatus.ON_BREAK);
+
+        // Act
+        counters.rebuild(List.of(first, second));
+
+        // Assert
+        assertEquals(2, counters.total());
+        assertEquals(0, counters.count(Courier.CourierStatus.AVAILABLE));
+        assertEquals(1, counters.count(null, Courier.CourierStatus.ON_BREAK));
+        assertEquals(1, counters.zoneBreakdown(Courier.CourierStatus.ON_BREAK).get(5L));
+        assertEquals(1L, counters.vehicleBreakdown().get("CAR").get(Courier.CourierStatus.OFFLINE));
+    }
+
+    private static CourierState courier(Courier.CourierStatus status, Courier.VehicleType vehicle, long cell) {
+        CourierState state = new CourierState(UUID.randomUUID());
+        state.setStatus(status);
+        state.setVehicle(vehicle, 10, 0.1);
+        state.setPosition(0, 0, cell);
+        return state;
+    }
+}
@@ -0,0 +1,70 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeTo_ShouldRoundTripCourierStates() throws IOException {
+        // Arrange
+        CourierState located = new CourierState(UUID.randomUUID());
+        located.setStatus(Courier.CourierStatus.BUSY);
+        located.setVehicle(Courier.VehicleType.VAN, 800, 6);
+        located.setPosition(48.8566, 2.3522, 1L);
+        UUID deliveryId = UUID.randomUUID();
+        located.restore(deliveryId, 12.5, 0.3, 48.86, null);
+        CourierState unlocated = new CourierState(UUID.randomUUID());
+        Path path = tempDir.resolve("fleet.snapshot");
+
+        // Act
+        FleetSnapshot.capture(List.of(located, unlocated), 1_700_000_000_000L).writeTo(path);
+        FleetSnapshot snapshot = FleetSnapshot.readFrom(path);
+
+        // Assert
+        assertNotNull(snapshot);
+        assertEquals(1_700_000_000_000L, snapshot.getTakenAtMillis());
+        assertEquals(2, snapshot.getCouriers().size());
+        FleetSnapshot.Entry first = snapshot.getCouriers().get(0);
+        assertEquals(located.getCourierId(), first.courierId());
+        assertEquals(Courier.CourierStatus.BUSY, first.status());
+        assertEquals(Courier.VehicleType.VAN, first.vehicleType());
+        assertTrue(first.located());
+        assertEquals(48.8566, first.latitude());
+        assertEquals(800, first.maxWeight());
+        assertEquals(List.of(new FleetSnapshot.LoadEntry(deliveryId, 12.5, 0.3, 48.86, null)), first.loads());
+        FleetSnapshot.Entry second = snapshot.getCouriers().get(1);
+        assertNull(second.status());
+        assertNull(second.vehicleType());
+        assertFalse(second.located());
+        assertTrue(second.loads().isEmpty());
+    }
+
+    @Test
+    void readFrom_ShouldIgnoreMissingOrCorruptedFile() throws IOException {
+        // Arrange
+        CourierState state = new CourierState(UUID.randomUUID());
+        state.setStatus(Courier.CourierStatus.AVAILABLE);
+        Path path = tempDir.resolve("fleet.snapshot");
+        FleetSnapshot.capture(List.of(state), 1L).writeTo(path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[30] ^= 0x01;
+        Files.write(path, bytes);
+
+        // Act & Assert
+        assertNull(FleetSnapshot.readFrom(tempDir.resolve("missing.snapshot")));
+        assertNull(FleetSnapshot.readFrom(path));
+    }
+}
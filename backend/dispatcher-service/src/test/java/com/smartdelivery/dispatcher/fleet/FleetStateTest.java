@@ -0,0 +1,155 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetStateTest {
+
+    private static final double LATITUDE = 48.8566;
+    private static final double LONGITUDE = 2.3522;
+
+    private FleetState fleetState;
+
+    @BeforeEach
+    void setUp() {
+        // Les dépôts ne servent qu'au chargement initial, non testé ici
+        fleetState = new FleetState(null, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 2);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageWeight", 1.0);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageVolume", 0.01);
+    }
+
+    @Test
+    void reserve_ShouldRefuseLoadsBeyondRemainingCapacity() {
+        // Arrange
+        UUID courierId = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0).getCourierId();
+        UUID first = UUID.randomUUID();
+
+        // Act & Assert
+        assertTrue(fleetState.reserve(courierId, first, 6.0, 0.2, null, null));
+        assertFalse(fleetState.reserve(courierId, UUID.randomUUID(), 6.0, 0.2, null, null));
+        assertFalse(fleetState.reserve(courierId, UUID.randomUUID(), 1.0, 0.9, null, null));
+        assertEquals(4.0, fleetState.get(courierId).getRemainingWeight(), 1e-9);
+        assertEquals(0.8, fleetState.get(courierId).getRemainingVolume(), 1e-9);
+    }
+
+    @Test
+    void reserve_ShouldLimitConcurrentAssignmentsAndRejectDuplicates() {
+        // Arrange
+        UUID courierId = addCourier(LATITUDE, LONGITUDE, 100.0, 10.0).getCourierId();
+        UUID first = UUID.randomUUID();
+
+        // Act & Assert
+        assertTrue(fleetState.reserve(courierId, first, 1.0, 0.01, null, null));
+        assertFalse(fleetState.reserve(courierId, first, 1.0, 0.01, null, null));
+        assertTrue(fleetState.reserve(courierId, UUID.randomUUID(), 1.0, 0.01, null, null));
+        assertFalse(fleetState.reserve(courierId, UUID.randomUUID(), 1.0, 0.01, null, null));
+        assertFalse(fleetState.hasSpareCapacity(courierId));
+        assertFalse(fleetState.reserve(UUID.randomUUID(), UUID.randomUUID(), 1.0, 0.01, null, null));
+    }
+
+    @Test
+    void release_ShouldRestoreCapacityOfTheReleasedDeliveryOnly() {
+        // Arrange
+        UUID courierId = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0).getCourierId();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        fleetState.reserve(courierId, first, 4.0, 0.5, null, null);
+        fleetState.reserve(courierId, second, 5.0, 0.3, null, null);
+
+        // Act
+        fleetState.release(courierId, first);
+        fleetState.release(courierId, first);
+        fleetState.release(UUID.randomUUID(), second);
+
+        // Assert
+        CourierState state = fleetState.get(courierId);
+        assertEquals(1, state.getActiveLoadCount());
+        assertEquals(5.0, state.getRemainingWeight(), 1e-9);
+        assertEquals(0.7, state.getRemainingVolume(), 1e-9);
+        assertTrue(fleetState.reserve(courierId, UUID.randomUUID(), 5.0, 0.5, null, null));
+    }
+
+    @Test
+    void releaseAll_ShouldFreeEveryLoad() {
+        // Arrange
+        UUID courierId = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0).getCourierId();
+        fleetState.reserve(courierId, UUID.randomUUID(), 4.0, 0.5, LATITUDE, LONGITUDE);
+        fleetState.reserve(courierId, UUID.randomUUID(), 5.0, 0.3, LATITUDE, LONGITUDE);
+
+        // Act
+        fleetState.releaseAll(courierId);
+
+        // Assert
+        CourierState state = fleetState.get(courierId);
+        assertEquals(0, state.getActiveLoadCount());
+        assertEquals(10.0, state.getRemainingWeight(), 1e-9);
+        assertNull(state.getTail());
+    }
+
+    @Test
+    void findCandidates_ShouldKeepAvailableCouriersWithCapacityInsideTheRadius() {
+        // Arrange
+        CourierState near = addCourier(LATITUDE + 0.01, LONGITUDE, 10.0, 1.0);
+        CourierState full = addCourier(LATITUDE, LONGITUDE + 0.01, 10.0, 1.0);
+        fleetState.reserve(full.getCourierId(), UUID.randomUUID(), 9.5, 0.1, null, null);
+        CourierState busy = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0);
+        fleetState.updateStatus(busy.getCourierId(), Courier.CourierStatus.BUSY);
+        addCourier(LATITUDE + 0.5, LONGITUDE, 10.0, 1.0);
+
+        // Act
+        List<CourierState> candidates = fleetState.findCandidates(LATITUDE, LONGITUDE, 5.0, 1.0, 0.01);
+
+        // Assert
+        assertEquals(List.of(near), candidates);
+        assertEquals(3, fleetState.countAvailableWithin(LATITUDE, LONGITUDE, 100.0));
+    }
+
+    @Test
+    void updatePosition_ShouldMoveCourierToItsNewCell() {
+        // Arrange
+        CourierState state = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0);
+
+        // Act
+        assertTrue(fleetState.updatePosition(state.getCourierId(), 45.764, 4.8357));
+
+        // Assert
+        assertTrue(fleetState.findCandidates(LATITUDE, LONGITUDE, 5.0, 1.0, 0.01).isEmpty());
+        assertEquals(List.of(state), fleetState.findCandidates(45.764, 4.8357, 5.0, 1.0, 0.01));
+        assertFalse(fleetState.updatePosition(UUID.randomUUID(), LATITUDE, LONGITUDE));
+    }
+
+    @Test
+    void filterCandidates_ShouldKeepTheGivenOrder() {
+        // Arrange
+        CourierState first = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0);
+        CourierState full = addCourier(LATITUDE, LONGITUDE, 1.0, 1.0);
+        CourierState last = addCourier(LATITUDE, LONGITUDE, 10.0, 1.0);
+
+        // Act
+        List<CourierState> candidates = fleetState.filterCandidates(
+                List.of(last.getCourierId(), full.getCourierId(), UUID.randomUUID(), first.getCourierId()), 2.0, 0.01);
+
+        // Assert
+        assertEquals(List.of(last, first), candidates);
+    }
+
+    private CourierState addCourier(double latitude, double longitude, double maxWeight, double maxVolume) {
+        return fleetState.upsertCourier(Courier.builder()
+                .id(UUID.randomUUID())
+                .status(Courier.CourierStatus.AVAILABLE)
+                .vehicleType(Courier.VehicleType.CAR)
+                .maxCapacity(maxWeight)
+                .maxVolume(maxVolume)
+                .currentLocation(Location.builder().latitude(latitude).longitude(longitude).build())
+                .build());
+    }
+}
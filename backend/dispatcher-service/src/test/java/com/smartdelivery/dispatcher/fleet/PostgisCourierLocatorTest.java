@@ -0,0 +1,159 @@
+package com.smartdelivery.dispatcher.fleet;
+
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.Location;
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgisCourierLocatorTest {
+
+    private static final double LATITUDE = 48.8566;
+    private static final double LONGITUDE = 2.3522;
+
+    private final CourierRepository courierRepository = mock(CourierRepository.class);
+    // Livreurs disponibles en base, du plus proche au plus éloigné
+    private final List<UUID> nearestFirst = new ArrayList<>();
+    private FleetState fleetState;
+    private PostgisCourierLocator locator;
+
+    @BeforeEach
+    void setUp() {
+        fleetState = new FleetState(courierRepository, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 5);
+        locator = new PostgisCourierLocator(courierRepository, fleetState, 2, 20);
+        when(courierRepository.findNearestAvailableCouriers(anyDouble(), anyDouble(), anyDouble(), anyInt()))
+                .thenAnswer(invocation -> {
+                    int limit = invocation.getArgument(3);
+                    List<CourierRepository.NearbyCourierView> views = new ArrayList<>();
+                    for (UUID courierId : nearestFirst.subList(0, Math.min(limit, nearestFirst.size()))) {
+                        views.add(view(courierId));
+                    }
+                    return views;
+                });
+    }
+
+    @Test
+    void findCandidates_ShouldKeepKnnOrderAndSkipFullCouriers() {
+        // Arrange
+        UUID nearest = addCourier(10.0);
+        UUID full = addCourier(10.0);
+        fleetState.reserve(full, UUID.randomUUID(), 9.0, 0.01, null, null);
+        addCourier(10.0);
+
+        // Act
+        List<CourierState> candidates = locator.findCandidates(LATITUDE, LONGITUDE, 5.0, 2.0, 0.01);
+
+        // Assert : la première page contient un livreur capable, pas de nouvelle requête
+        assertEquals(List.of(nearest), ids(candidates));
+        verify(courierRepository).findNearestAvailableCouriers(LATITUDE, LONGITUDE, 5000.0, 2);
+        verify(courierRepository, never()).findNearestAvailableCouriers(anyDouble(), anyDouble(), anyDouble(), eq(8));
+    }
+
+    @Test
+    void findCandidates_ShouldWidenTheSearchWhenTheNearestCouriersAreFull() {
+        // Arrange : les 5 plus proches sont pleins, le 6e peut prendre le colis
+        for (int i = 0; i < 5; i++) {
+            UUID full = addCourier(10.0);
+            fleetState.reserve(full, UUID.randomUUID(), 9.0, 0.01, null, null);
+        }
+        UUID free = addCourier(10.0);
+
+        // Act
+        List<CourierState> candidates = locator.findCandidates(LATITUDE, LONGITUDE, 5.0, 2.0, 0.01);
+
+        // Assert : limites 2, 8
+        assertEquals(List.of(free), ids(candidates));
+        verify(courierRepository).findNearestAvailableCouriers(LATITUDE, LONGITUDE, 5000.0, 2);
+        verify(courierRepository).findNearestAvailableCouriers(LATITUDE, LONGITUDE, 5000.0, 8);
+    }
+
+    @Test
+    void findCandidates_ShouldStopWhenEveryCourierInRangeWasExamined() {
+        // Arrange : 3 livreurs pleins dans le rayon
+        for (int i = 0; i < 3; i++) {
+            UUID full = addCourier(10.0);
+            fleetState.reserve(full, UUID.randomUUID(), 9.0, 0.01, null, null);
+        }
+
+        // Act
+        List<CourierState> candidates = locator.findCandidates(LATITUDE, LONGITUDE, 5.0, 2.0, 0.01);
+
+        // Assert : la requête à 8 retourne moins de lignes que la limite, inutile d'aller jusqu'à 20
+        assertTrue(candidates.isEmpty());
+        verify(courierRepository).findNearestAvailableCouriers(LATITUDE, LONGITUDE, 5000.0, 8);
+        verify(courierRepository, never()).findNearestAvailableCouriers(anyDouble(), anyDouble(), anyDouble(), eq(20));
+    }
+
+    @Test
+    void findCandidates_ShouldStopAtTheMaximumLimit() {
+        // Arrange : 30 livreurs pleins, au-delà de la limite maximale de 20
+        for (int i = 0; i < 30; i++) {
+            UUID full = addCourier(10.0);
+            fleetState.reserve(full, UUID.randomUUID(), 9.0, 0.01, null, null);
+        }
+
+        // Act
+        List<CourierState> candidates = locator.findCandidates(LATITUDE, LONGITUDE, 5.0, 2.0, 0.01);
+
+        // Assert : limites 2, 8 puis 20
+        assertTrue(candidates.isEmpty());
+        verify(courierRepository).findNearestAvailableCouriers(LATITUDE, LONGITUDE, 5000.0, 20);
+        verify(courierRepository, never()).findNearestAvailableCouriers(anyDouble(), anyDouble(), anyDouble(), eq(80));
+    }
+
+    @Test
+    void verifySchema_ShouldFailWithoutGeographyColumn() {
+        // Arrange
+        when(courierRepository.countPositionColumns()).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> locator.verifySchema());
+    }
+
+    private UUID addCourier(double maxWeight) {
+        UUID courierId = UUID.randomUUID();
+        fleetState.upsertCourier(Courier.builder()
+                .id(courierId)
+                .status(Courier.CourierStatus.AVAILABLE)
+                .vehicleType(Courier.VehicleType.CAR)
+                .maxCapacity(maxWeight)
+                .maxVolume(1.0)
+                .currentLocation(Location.builder().latitude(LATITUDE).longitude(LONGITUDE).build())
+                .build());
+        nearestFirst.add(courierId);
+        return courierId;
+    }
+
+    private static CourierRepository.NearbyCourierView view(UUID courierId) {
+        return new CourierRepository.NearbyCourierView() {
+            @Override
+            public UUID getId() {
+                return courierId;
+            }
+
+            @Override
+            public double getDistanceMeters() {
+                return 0;
+            }
+        };
+    }
+
+    private static List<UUID> ids(List<CourierState> candidates) {
+        return candidates.stream().map(CourierState::getCourierId).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.Location;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DemandHeatmapTest {
+
+    private static final GeoGrid GRID = new GeoGrid(0.01);
+    // Centres de deux cellules distinctes
+    private static final long BUSY_CELL = GRID.cellOf(48.8566, 2.3522);
+    private static final long QUIET_CELL = GRID.cellOf(48.8766, 2.3522);
+
+    private FleetState fleetState;
+    private DemandHeatmap heatmap;
+
+    @BeforeEach
+    void setUp() {
+        fleetState = new FleetState(null, null, 0.05);
+        heatmap = new DemandHeatmap(fleetState, new SimpleMeterRegistry(), 0.01, 100, 15, 60, 1.5, 5);
+    }
+
+    @Test
+    void isSurging_ShouldCompareDemandWithAvailableAndReleasedCouriers() {
+        // Arrange : 6 livraisons, 2 livreurs disponibles et 1 libéré dans la cellule
+        recordAt(DemandHeatmap.DEMAND, BUSY_CELL, 6);
+        recordAt(DemandHeatmap.SUPPLY, BUSY_CELL, 1);
+        addCourier(BUSY_CELL, Courier.CourierStatus.AVAILABLE);
+        addCourier(BUSY_CELL, Courier.CourierStatus.AVAILABLE);
+        addCourier(BUSY_CELL, Courier.CourierStatus.BUSY);
+
+        // Act & Assert : 6 / (2 + 1 + 1)
+        assertEquals(1.5, heatmap.pressure(lat(BUSY_CELL), lng(BUSY_CELL)), 1e-9);
+        assertTrue(heatmap.isSurging(lat(BUSY_CELL), lng(BUSY_CELL)));
+
+        addCourier(BUSY_CELL, Courier.CourierStatus.AVAILABLE);
+        assertFalse(heatmap.isSurging(lat(BUSY_CELL), lng(BUSY_CELL)));
+    }
+
+    @Test
+    void isSurging_ShouldRequireMinimumDemand() {
+        // Arrange : pression élevée mais trop peu de livraisons
+        recordAt(DemandHeatmap.DEMAND, BUSY_CELL, 4);
+
+        // Act & Assert
+        assertEquals(4.0, heatmap.pressure(lat(BUSY_CELL), lng(BUSY_CELL)), 1e-9);
+        assertFalse(heatmap.isSurging(lat(BUSY_CELL), lng(BUSY_CELL)));
+    }
+
+    @Test
+    void snapshot_ShouldSortCellsByPressureAndFilterSurging() {
+        // Arrange
+        recordAt(DemandHeatmap.DEMAND, BUSY_CELL, 8);
+        recordAt(DemandHeatmap.DISPATCHED, BUSY_CELL, 2);
+        recordAt(DemandHeatmap.DEMAND, QUIET_CELL, 2);
+
+        // Act
+        List<DemandHeatmap.HeatmapCell> all = heatmap.snapshot(false, 10);
+        List<DemandHeatmap.HeatmapCell> surging = heatmap.snapshot(true, 10);
+
+        // Assert
+        assertEquals(List.of(BUSY_CELL, QUIET_CELL), all.stream().map(DemandHeatmap.HeatmapCell::cellId).toList());
+        assertEquals(2, all.get(0).dispatched());
+        assertEquals(List.of(BUSY_CELL), surging.stream().map(DemandHeatmap.HeatmapCell::cellId).toList());
+        assertEquals(1, heatmap.snapshot(false, 1).size());
+    }
+
+    @Test
+    void pressure_ShouldCountCouriersLikeTheSnapshot() {
+        // Arrange : un livreur dans le coin de la cellule (hors du cercle inscrit),
+        // un autre juste de l'autre côté de la bordure
+        recordAt(DemandHeatmap.DEMAND, BUSY_CELL, 6);
+        double[] bounds = GRID.bounds(BUSY_CELL);
+        addCourierAt(bounds[0] + 0.0002, bounds[1] + 0.0002);
+        addCourierAt(bounds[0] - 0.0002, bounds[1] + 0.0002);
+
+        // Act
+        double pressure = heatmap.pressure(lat(BUSY_CELL), lng(BUSY_CELL));
+        DemandHeatmap.HeatmapCell cell = heatmap.snapshot(false, 10).get(0);
+
+        // Assert : 6 / (1 + 0 + 1), même décision pour la surcharge
+        assertEquals(1, cell.availableCouriers());
+        assertEquals(3.0, pressure, 1e-9);
+        assertEquals(cell.pressure(), pressure, 1e-9);
+        assertEquals(cell.surging(), heatmap.isSurging(lat(BUSY_CELL), lng(BUSY_CELL)));
+    }
+
+    @Test
+    void evictIdleCells_ShouldKeepCellsActiveInTheWindow() {
+        // Arrange
+        recordAt(DemandHeatmap.DEMAND, BUSY_CELL, 1);
+
+        // Act
+        heatmap.evictIdleCells();
+
+        // Assert
+        assertEquals(1, heatmap.snapshot(false, 10).size());
+        assertEquals(15, heatmap.getWindowMinutes());
+    }
+
+    private void recordAt(int metric, long cell, int times) {
+        for (int i = 0; i < times; i++) {
+            heatmap.record(metric, lat(cell), lng(cell));
+        }
+    }
+
+    private void addCourier(long cell, Courier.CourierStatus status) {
+        addCourier(lat(cell), lng(cell), status);
+    }
+
+    private void addCourierAt(double latitude, double longitude) {
+        addCourier(latitude, longitude, Courier.CourierStatus.AVAILABLE);
+    }
+
+    private void addCourier(double latitude, double longitude, Courier.CourierStatus status) {
+        fleetState.upsertCourier(Courier.builder()
+                .id(UUID.randomUUID())
+                .status(status)
+                .vehicleType(Courier.VehicleType.CAR)
+                .currentLocation(Location.builder().latitude(latitude).longitude(longitude).build())
+                .build());
+    }
+
+    private static double lat(long cell) {
+        return GRID.centerLatitude(cell);
+    }
+
+    private static double lng(long cell) {
+        return GRID.centerLongitude(cell);
+    }
+}
@@ -0,0 +1,83 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class HeatmapEventListenerTest {
+
+    private final DemandHeatmap heatmap = mock(DemandHeatmap.class);
+    private HeatmapEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new HeatmapEventListener(heatmap, new ObjectMapper());
+        ReflectionTestUtils.setField(listener, "courierStatusRoutingKey", "courier.status.updated");
+        ReflectionTestUtils.setField(listener, "assignmentsCancelledRoutingKey", "assignments.cancelled");
+        ReflectionTestUtils.setField(listener, "assignmentsCompletedRoutingKey", "assignments.completed");
+    }
+
+    @Test
+    void handleEvent_ShouldRecordDemandAtPickupCoordinates() {
+        // Act
+        listener.handleEvent(message("delivery.created",
+                "{\"pickupAddress\":{\"coordinates\":{\"latitude\":48.85,\"longitude\":2.35}},\"weight\":2.0}"));
+
+        // Assert
+        verify(heatmap).record(DemandHeatmap.DEMAND, 48.85, 2.35);
+    }
+
+    @Test
+    void handleEvent_ShouldRecordDispatchAndAvailableCouriersOnly() {
+        // Act
+        listener.handleEvent(message("delivery.dispatched", "{\"pickupLatitude\":48.85,\"pickupLongitude\":2.35}"));
+        listener.handleEvent(message("courier.status.updated",
+                "{\"status\":\"AVAILABLE\",\"latitude\":48.86,\"longitude\":2.36}"));
+        listener.handleEvent(message("courier.status.updated",
+                "{\"status\":\"BUSY\",\"latitude\":48.87,\"longitude\":2.37}"));
+
+        // Assert
+        verify(heatmap).record(DemandHeatmap.DISPATCHED, 48.85, 2.35);
+        verify(heatmap).record(DemandHeatmap.SUPPLY, 48.86, 2.36);
+        verify(heatmap, never()).record(DemandHeatmap.SUPPLY, 48.87, 2.37);
+    }
+
+    @Test
+    void handleEvent_ShouldRecordEachCourierReleasedByABulkOperation() {
+        // Act
+        listener.handleEvent(message("assignments.completed",
+                "{\"releasedCouriers\":[{\"latitude\":48.85,\"longitude\":2.35},{\"latitude\":48.86,\"longitude\":2.36}]}"));
+
+        // Assert
+        verify(heatmap).record(DemandHeatmap.SUPPLY, 48.85, 2.35);
+        verify(heatmap).record(DemandHeatmap.SUPPLY, 48.86, 2.36);
+    }
+
+    @Test
+    void handleEvent_ShouldIgnoreUnreadableOrUnlocatedEvents() {
+        // Act
+        listener.handleEvent(message("delivery.created", "{not json"));
+        listener.handleEvent(message("delivery.dispatched", "{\"pickupLatitude\":\"48.85\"}"));
+        listener.handleEvent(message("delivery.unknown", "{\"latitude\":48.85,\"longitude\":2.35}"));
+
+        // Assert
+        verify(heatmap, never()).record(anyInt(), anyDouble(), anyDouble());
+    }
+
+    private static Message message(String routingKey, String body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedRoutingKey(routingKey);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,91 @@
+package com.smartdelivery.dispatcher.heatmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCountersTest {
+
+    private static final long BUCKET_MS = 1000;
+
+    @Test
+    void sum_ShouldOnlyCountEventsInsideWindow() {
+        // Arrange
+        SlidingWindowCounters counters = new SlidingWindowCounters(16, 2, 5, BUCKET_MS);
+        counters.increment(42L, 0, 0);
+        counters.increment(42L, 0, 1_500);
+        counters.increment(42L, 1, 3_200);
+
+        // Act & Assert
+        assertEquals(2, counters.sum(42L, 0, 4_999));
+        assertEquals(1, counters.sum(42L, 0, 5_000));
+        assertEquals(1, counters.sum(42L, 1, 5_000));
+        assertEquals(0, counters.sum(42L, 0, 6_000));
+        assertEquals(0, counters.sum(7L, 0, 6_000));
+    }
+
+    @Test
+    void forEach_ShouldVisitActiveKeysWithSums() {
+        // Arrange
+        SlidingWindowCounters counters = new SlidingWindowCounters(16, 2, 5, BUCKET_MS);
+        counters.increment(1L, 0, 0);
+        counters.increment(2L, 1, 4_000);
+        counters.increment(2L, 1, 4_500);
+
+        // Act
+        Map<Long, long[]> visited = new HashMap<>();
+        counters.forEach(5_000, (key, sums) -> visited.put(key, sums.clone()));
+
+        // Assert
+        assertEquals(1, visited.size());
+        assertArrayEquals(new long[]{0, 2}, visited.get(2L));
+    }
+
+    @Test
+    void increment_ShouldDropNewKeysWhenFullUntilTheSweepEvictsIdleOnes() {
+        // Arrange
+        SlidingWindowCounters counters = new SlidingWindowCounters(2, 1, 5, BUCKET_MS);
+        counters.increment(1L, 0, 0);
+        counters.increment(2L, 0, 4_000);
+
+        // Act : la clé 1 est sortie de la fenêtre, mais seule la purge l'évince
+        boolean droppedWhileFull = counters.increment(3L, 0, 6_000);
+        int evicted = counters.evictStale(6_000);
+        boolean acceptedAfterEviction = counters.increment(3L, 0, 6_000);
+
+        // Assert
+        assertFalse(droppedWhileFull);
+        assertEquals(1, counters.getDroppedEvents());
+        assertEquals(1, evicted);
+        assertTrue(acceptedAfterEviction);
+        assertEquals(2, counters.size());
+        assertEquals(1, counters.sum(2L, 0, 6_000));
+        assertEquals(1, counters.sum(3L, 0, 6_000));
+    }
+
+    @Test
+    void evictStale_ShouldKeepActiveKeysReachableAfterRemovingIdleOnes() {
+        // Arrange : table presque pleine, une clé sur deux devient inactive
+        SlidingWindowCounters counters = new SlidingWindowCounters(96, 1, 5, BUCKET_MS);
+        for (long key = 0; key < 96; key++) {
+            counters.increment(key, 0, key % 2 == 0 ? 0 : 4_000);
+        }
+
+        // Act
+        int evicted = counters.evictStale(6_000);
+
+        // Assert
+        assertEquals(48, evicted);
+        assertEquals(48, counters.size());
+        for (long key = 1; key < 96; key += 2) {
+            assertEquals(1, counters.sum(key, 0, 6_000), "clé " + key);
+        }
+        for (long key = 96; key < 144; key++) {
+            assertTrue(counters.increment(key, 0, 6_000));
+        }
+        assertEquals(0, counters.getDroppedEvents());
+    }
+}
@@ -0,0 +1,167 @@
+package com.smartdelivery.dispatcher.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.rabbitmq.client.Channel;
+import com.smartdelivery.dispatcher.offer.OfferBroker;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import com.smartdelivery.dispatcher.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Consommation unitaire de delivery.created (dispatcher.listener.batch.enabled=false)
+ */
+class DeliveryEventListenerTest {
+
+    private final DispatcherService dispatcherService = mock(DispatcherService.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeliveryRetryRouter retryRouter = new DeliveryRetryRouter(rabbitTemplate,
+            "delivery.created.queue", "delivery.created.dlq", List.of(5000L));
+    private final UUID deliveryId = UUID.randomUUID();
+
+    @Test
+    void handleDeliveryCreated_ShouldRouteThroughTheShardRouterWhenShardingIsEnabled() throws Exception {
+        // Arrange
+        DeliveryEventListener listener = listener(shardRouter);
+        Message message = message(event(null));
+
+        // Act
+        listener.handleDeliveryCreated(message);
+
+        // Assert : le routeur décide du nœud propriétaire du shard
+        verify(shardRouter).dispatch(eq(message), argThat(request -> deliveryId.equals(request.getDeliveryId())
+                && request.getPickupLatitude() == 48.8566 && request.getPickupLongitude() == 2.3522));
+        verify(dispatcherService, never()).assignDelivery(any());
+    }
+
+    @Test
+    void handleDeliveryCreated_ShouldKeepTheCouriersExcludedByARedispatch() throws Exception {
+        // Arrange : réattribution après l'échéance du livreur précédent
+        UUID lateCourierId = UUID.randomUUID();
+        DeliveryEventListener listener = listener(null);
+
+        // Act
+        listener.handleDeliveryCreated(message(event(List.of(lateCourierId))));
+
+        // Assert
+        verify(dispatcherService).assignDelivery(argThat((DispatchRequest request) -> deliveryId.equals(request.getDeliveryId())
+                && List.of(lateCourierId).equals(request.getExcludedCourierIds())));
+    }
+
+    @Test
+    void handleDeliveryCreated_ShouldSendFailedDispatchesThroughTheRetryQueue() throws Exception {
+        // Arrange
+        DeliveryEventListener listener = listener(null);
+        doThrow(new RuntimeException("Aucun livreur disponible")).when(dispatcherService).assignDelivery(any());
+
+        // Act
+        listener.handleDeliveryCreated(message(event(null)));
+
+        // Assert
+        verify(rabbitTemplate).send(eq(""), eq("delivery.created.queue.retry.5000"),
+                argThat((Message retried) -> Integer.valueOf(1).equals(retried.getMessageProperties().getHeader("x-dispatch-attempt"))));
+    }
+
+    @Test
+    void handleDeliveryCreated_ShouldSendUnreadableEventsToTheDeadLetterQueue() {
+        // Arrange
+        DeliveryEventListener listener = listener(null);
+
+        // Act
+        listener.handleDeliveryCreated(message("{not json".getBytes()));
+
+        // Assert
+        verify(rabbitTemplate).send(eq(""), eq("delivery.created.dlq"), any(Message.class));
+        verify(dispatcherService, never()).assignDelivery(any());
+    }
+
+    @Test
+    void handleDeliveryCreated_ShouldRethrowWhenTheFailureCannotBeRerouted() throws Exception {
+        // Arrange : sans republication possible, le conteneur doit remettre le message dans la queue
+        DeliveryEventListener listener = listener(null);
+        doThrow(new RuntimeException("Aucun livreur disponible")).when(dispatcherService).assignDelivery(any());
+        doThrow(new AmqpException("broker unavailable")).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class));
+
+        // Act & Assert
+        assertThrows(AmqpException.class, () -> listener.handleDeliveryCreated(message(event(null))));
+    }
+
+    @Test
+    void batchListener_ShouldStayAvailableForTheShardQueueWhenBatchIngressIsDisabled() throws Exception {
+        // Arrange
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                // Conversion des listes de propriétés comme dans l'application
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withUserConfiguration(DeliveryEventListener.class, DeliveryCreatedBatchListener.class, DeliveryRetryRouter.class)
+                .withBean(DispatcherService.class, () -> dispatcherService)
+                .withBean(ObjectMapper.class, ObjectMapper::new)
+                .withBean(RabbitTemplate.class, () -> rabbitTemplate)
+                .withPropertyValues(
+                        "dispatcher.listener.batch.enabled=false",
+                        "rabbitmq.queue.created.name=delivery.created.queue",
+                        "rabbitmq.queue.created.dlq.name=delivery.created.dlq");
+
+        // Act & Assert : les deux beans existent, le ShardRouter peut déléguer la queue du nœud
+        runner.run(context -> {
+            assertThat(context).hasSingleBean(DeliveryEventListener.class);
+            assertThat(context).hasSingleBean(DeliveryCreatedBatchListener.class);
+        });
+
+        // Assert : seul le conteneur de la queue d'entrée suit dispatcher.listener.batch.enabled
+        RabbitListener ingress = DeliveryCreatedBatchListener.class
+                .getMethod("handleDeliveryCreatedBatch", List.class, Channel.class)
+                .getAnnotation(RabbitListener.class);
+        assertEquals("${dispatcher.listener.batch.enabled:true}", ingress.autoStartup());
+    }
+
+    private DeliveryEventListener listener(ShardRouter router) {
+        return new DeliveryEventListener(dispatcherService, provider(null), provider(router), objectMapper, retryRouter);
+    }
+
+    private byte[] event(List<UUID> excludedCourierIds) throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of(
+                "id", deliveryId.toString(),
+                "pickupAddress", Map.of("coordinates", Map.of("latitude", 48.8566, "longitude", 2.3522)),
+                "excludedCourierIds", excludedCourierIds != null ? excludedCourierIds : List.of()));
+    }
+
+    private static Message message(byte[] body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue("delivery.created.queue");
+        return new Message(body, properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T bean) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(bean);
+        return provider;
+    }
+}
@@ -0,0 +1,125 @@
+package com.smartdelivery.dispatcher.listener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedWorkerPoolTest {
+
+    private final PartitionedWorkerPool pool = new PartitionedWorkerPool("test-worker", 4);
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void submit_ShouldRunTasksOfTheSameKeyInSubmissionOrderOnOneThread() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            int index = i;
+            futures.add(pool.submit(deliveryId, () -> {
+                threads.add(Thread.currentThread().getName());
+                executed.add(index);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Assert
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, executed.get(i));
+        }
+        assertEquals(1, threads.size());
+        assertTrue(threads.iterator().next().startsWith("test-worker-"));
+    }
+
+    @Test
+    void submit_ShouldNotBlockOtherKeysBehindASlowTask() throws InterruptedException {
+        // Arrange : une tâche bloquée sur la partition 0
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slow = pool.submit(0, () -> awaitQuietly(release));
+
+        // Act
+        CompletableFuture<Void> other = pool.submit(1, () -> { });
+
+        // Assert
+        other.orTimeout(5, TimeUnit.SECONDS).join();
+        assertFalse(slow.isDone());
+        release.countDown();
+        slow.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void submit_ShouldReportTaskFailuresThroughTheFuture() {
+        // Act
+        CompletableFuture<Void> failed = pool.submit("key", () -> {
+            throw new IllegalStateException("échec");
+        });
+        CompletableFuture<Void> next = pool.submit("key", () -> { });
+
+        // Assert : l'échec n'arrête pas le worker
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        next.join();
+    }
+
+    @Test
+    void partitionOf_ShouldSpreadKeysAndSendNullToTheFirstPartition() {
+        // Arrange
+        Set<Integer> partitions = new HashSet<>();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            partitions.add(pool.partitionOf(UUID.randomUUID()));
+        }
+
+        // Assert
+        assertEquals(Set.of(0, 1, 2, 3), partitions);
+        assertEquals(0, pool.partitionOf(null));
+        assertEquals(pool.partitionOf("livraison"), pool.partitionOf("livraison"));
+    }
+
+    @Test
+    void close_ShouldFinishQueuedTasks() {
+        // Arrange
+        PartitionedWorkerPool closing = new PartitionedWorkerPool("closing-worker", 2);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            int index = i;
+            closing.submit(index, () -> executed.add(index));
+        }
+
+        // Act
+        closing.close();
+
+        // Assert
+        assertEquals(10, executed.size());
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedWorkerPool("invalid", 0));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.smartdelivery.dispatcher.offer;
+
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryOfferTest {
+
+    private final List<UUID> couriers = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+    @Test
+    void tryBeginAccept_ShouldLetOnlyOneConcurrentAcceptWin() throws InterruptedException {
+        // Arrange
+        DeliveryOffer offer = newOffer();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (offer.tryBeginAccept()) {
+                    winners.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(1, winners.get());
+        assertEquals(DeliveryOffer.State.ACCEPTING, offer.getState());
+        assertFalse(offer.tryExpire());
+    }
+
+    @Test
+    void abortAccept_ShouldReopenOfferForOtherCouriers() {
+        // Arrange
+        DeliveryOffer offer = newOffer();
+        assertTrue(offer.tryBeginAccept());
+
+        // Act
+        offer.abortAccept(couriers.get(0));
+
+        // Assert
+        assertEquals(DeliveryOffer.State.OPEN, offer.getState());
+        assertTrue(offer.tryBeginAccept());
+        offer.completeAccept(couriers.get(1));
+        assertEquals(DeliveryOffer.State.ACCEPTED, offer.getState());
+        assertEquals(couriers.get(1), offer.getWinnerCourierId());
+    }
+
+    @Test
+    void decline_ShouldReportWhenAllCouriersDeclined() {
+        // Arrange
+        DeliveryOffer offer = newOffer();
+
+        // Act & Assert
+        assertFalse(offer.decline(couriers.get(0)));
+        assertFalse(offer.decline(couriers.get(1)));
+        assertTrue(offer.decline(couriers.get(2)));
+        assertTrue(offer.tryExpire());
+        assertFalse(offer.tryBeginAccept());
+    }
+
+    private DeliveryOffer newOffer() {
+        DispatchRequest request = DispatchRequest.builder()
+                .deliveryId(UUID.randomUUID())
+                .pickupLatitude(48.8566)
+                .pickupLongitude(2.3522)
+                .build();
+        return new DeliveryOffer(UUID.randomUUID(), request, couriers, 1, System.nanoTime(), 15_000);
+    }
+}
@@ -0,0 +1,313 @@
+package com.smartdelivery.dispatcher.offer;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.model.Location;
+import com.smartdelivery.dispatcher.repository.PendingOfferRepository;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cycle de vie des offres : diffusion, tours successifs, attribution directe et remise en file
+ */
+class OfferBrokerTest {
+
+    private static final long SHORT_TTL_MS = 100;
+    private static final long LONG_TTL_MS = 60_000;
+
+    private final DispatcherService dispatcherService = mock(DispatcherService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final PendingOfferRepository pendingOffers = mock(PendingOfferRepository.class);
+    private final FleetState fleetState = new FleetState(null, null, 0.05);
+    private final DispatchRequest request = DispatchRequest.builder()
+            .deliveryId(UUID.randomUUID())
+            .pickupLatitude(48.8566)
+            .pickupLongitude(2.3522)
+            .build();
+    private OfferBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (broker != null) {
+            broker.shutdown();
+        }
+    }
+
+    @Test
+    void offer_ShouldPersistTheOfferThenBroadcastItToTheBestCandidates() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        List<CourierState> candidates = List.of(addCourier(), addCourier(), addCourier(), addCourier());
+        when(dispatcherService.rankCandidates(request)).thenReturn(candidates);
+
+        // Act
+        broker.offer(request);
+
+        // Assert : trois meilleurs candidats, offre enregistrée avec son échéance
+        ArgumentCaptor<UUID> offerId = ArgumentCaptor.forClass(UUID.class);
+        verify(pendingOffers).save(offerId.capture(),
+                argThat(event -> request.getDeliveryId().equals(event.getId())), eq(LONG_TTL_MS));
+        DeliveryOffer offer = broker.getOffer(offerId.getValue());
+        assertEquals(ids(candidates.subList(0, 3)), offer.getCourierIds());
+        assertEquals(DeliveryOffer.State.OPEN, offer.getState());
+        verify(rabbitTemplate, times(3)).convertAndSend(eq("delivery.exchange"), eq("courier.offer.created"), any(Object.class));
+    }
+
+    @Test
+    void offer_ShouldAssignDirectlyWhenNoCourierCanBeOffered() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of());
+
+        // Act
+        broker.offer(request);
+
+        // Assert : aucune offre sans destinataire, pas d'attente de l'échéance
+        verify(dispatcherService).assignDelivery(request);
+        verify(pendingOffers, never()).save(any(), any(), anyLong());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("courier.offer.created"), any(Object.class));
+    }
+
+    @Test
+    void offer_ShouldFailWithoutBroadcastWhenTheOfferCannotBePersisted() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(addCourier()));
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doNothing()
+                .when(pendingOffers).save(any(), any(), anyLong());
+
+        // Act & Assert : l'exception remonte au listener, qui ne perd pas le message
+        assertThrows(DataAccessResourceFailureException.class, () -> broker.offer(request));
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("courier.offer.created"), any(Object.class));
+
+        // Act : le message rejoué n'est pas pris pour un doublon
+        broker.offer(request);
+
+        // Assert
+        verify(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("courier.offer.created"), any(Object.class));
+    }
+
+    @Test
+    void expire_ShouldStartANewRoundWithoutTheCouriersAlreadySolicited() {
+        // Arrange
+        broker = broker(SHORT_TTL_MS, 2);
+        CourierState first = addCourier();
+        CourierState second = addCourier();
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(first), List.of(second));
+
+        // Act
+        broker.offer(request);
+
+        // Assert : l'offre expirée est retirée au premier livreur, le second tour l'écarte
+        verify(rabbitTemplate, timeout(2000)).convertAndSend(eq("delivery.exchange"), eq("courier.offer.retracted"),
+                argThat((Object message) -> first.getCourierId().equals(((Map<?, ?>) message).get("courierId"))));
+        verify(pendingOffers, timeout(2000).times(2)).save(any(), any(), eq(SHORT_TTL_MS));
+        verify(rabbitTemplate, timeout(2000)).convertAndSend(eq("delivery.exchange"), eq("courier.offer.created"),
+                argThat((Object message) -> second.getCourierId().equals(((Map<?, ?>) message).get("courierId"))));
+        assertTrue(request.getExcludedCourierIds().contains(first.getCourierId()));
+    }
+
+    @Test
+    void expire_ShouldAssignDirectlyAfterTheLastRound() {
+        // Arrange
+        broker = broker(SHORT_TTL_MS, 2);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(addCourier()), List.of(addCourier()));
+
+        // Act
+        broker.offer(request);
+
+        // Assert : deux tours sans réponse, puis attribution directe et oubli de l'offre en base
+        verify(dispatcherService, timeout(2000)).assignDelivery(request);
+        verify(pendingOffers, timeout(2000)).delete(request.getDeliveryId());
+        verify(pendingOffers, times(2)).save(any(), any(), anyLong());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("delivery.redispatch"), any(Object.class));
+    }
+
+    @Test
+    void expire_ShouldRequeueTheDeliveryWhenTheDirectAssignmentFails() {
+        // Arrange
+        broker = broker(SHORT_TTL_MS, 1);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(addCourier()));
+        doThrow(new RuntimeException("Aucun livreur disponible")).when(dispatcherService).assignDelivery(request);
+
+        // Act
+        broker.offer(request);
+
+        // Assert
+        verify(rabbitTemplate, timeout(2000)).convertAndSend(eq("delivery.exchange"), eq("delivery.redispatch"),
+                argThat((Object event) -> request.getDeliveryId().equals(((DeliveryCreatedEvent) event).getId())));
+        verify(pendingOffers, timeout(2000)).delete(request.getDeliveryId());
+    }
+
+    @Test
+    void expire_ShouldKeepThePendingOfferWhenTheDeliveryCannotBeRequeued() {
+        // Arrange
+        broker = broker(SHORT_TTL_MS, 1);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(addCourier()));
+        doThrow(new RuntimeException("Aucun livreur disponible")).when(dispatcherService).assignDelivery(request);
+        doThrow(new AmqpException("broker unavailable"))
+                .when(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("delivery.redispatch"), any(Object.class));
+
+        // Act
+        broker.offer(request);
+
+        // Assert : la ligne reste en base pour être reprise après l'échéance
+        verify(rabbitTemplate, timeout(2000)).convertAndSend(eq("delivery.exchange"), eq("delivery.redispatch"), any(Object.class));
+        verify(pendingOffers, after(200).never()).delete(any());
+    }
+
+    @Test
+    void respond_ShouldAssignTheFirstCourierToAcceptAndRetractTheOthers() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        CourierState winner = addCourier();
+        CourierState other = addCourier();
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(winner, other));
+        broker.offer(request);
+        UUID offerId = savedOfferId();
+
+        // Act
+        OfferResponse response = broker.respond(offerId, winner.getCourierId(), true);
+
+        // Assert
+        assertEquals(OfferResponse.ACCEPTED, response);
+        verify(dispatcherService).assignDeliveryTo(request, winner.getCourierId());
+        verify(pendingOffers).delete(request.getDeliveryId());
+        verify(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("courier.offer.retracted"),
+                argThat((Object message) -> other.getCourierId().equals(((Map<?, ?>) message).get("courierId"))));
+        assertNull(broker.respond(offerId, other.getCourierId(), true));
+    }
+
+    @Test
+    void respond_ShouldStartTheNextRoundOnceEveryCourierDeclined() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        CourierState first = addCourier();
+        CourierState second = addCourier();
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(first, second), List.of());
+        broker.offer(request);
+        UUID offerId = savedOfferId();
+
+        // Act
+        assertEquals(OfferResponse.DECLINED, broker.respond(offerId, first.getCourierId(), false));
+        assertEquals(OfferResponse.DECLINED, broker.respond(offerId, second.getCourierId(), false));
+
+        // Assert : sans attendre l'échéance, le second tour ne trouve personne et attribue directement
+        verify(dispatcherService).assignDelivery(request);
+        assertNull(broker.getOffer(offerId));
+    }
+
+    @Test
+    void respondOrForward_ShouldOnlyForwardOffersStillOpenOnAnotherNode() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        UUID remoteOfferId = UUID.randomUUID();
+        UUID closedOfferId = UUID.randomUUID();
+        when(pendingOffers.exists(remoteOfferId)).thenReturn(true);
+        when(pendingOffers.exists(closedOfferId)).thenReturn(false);
+
+        // Act & Assert
+        assertEquals(OfferResponse.FORWARDED, broker.respondOrForward(remoteOfferId, UUID.randomUUID(), true));
+        assertEquals(OfferResponse.CLOSED, broker.respondOrForward(closedOfferId, UUID.randomUUID(), true));
+        verify(rabbitTemplate, times(1)).convertAndSend(eq("delivery.exchange"), eq("courier.offer.response"), any(Object.class));
+    }
+
+    @Test
+    void recoverOrphanedOffers_ShouldRequeueDeliveriesLeftByAStoppedNode() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        DeliveryCreatedEvent orphan = DeliveryCreatedEvent.fromDispatchRequest(request);
+        when(pendingOffers.claimExpired(anyLong(), anyLong(), anyInt())).thenReturn(List.of(orphan));
+
+        // Act
+        broker.recoverOrphanedOffers();
+
+        // Assert
+        verify(rabbitTemplate).convertAndSend("delivery.exchange", "delivery.redispatch", orphan);
+        verify(pendingOffers).delete(request.getDeliveryId());
+    }
+
+    @Test
+    void recoverOrphanedOffers_ShouldLeaveOffersStillOpenOnThisNode() {
+        // Arrange
+        broker = broker(LONG_TTL_MS, 2);
+        when(dispatcherService.rankCandidates(request)).thenReturn(List.of(addCourier()));
+        broker.offer(request);
+        when(pendingOffers.claimExpired(anyLong(), anyLong(), anyInt()))
+                .thenReturn(List.of(DeliveryCreatedEvent.fromDispatchRequest(request)));
+
+        // Act
+        broker.recoverOrphanedOffers();
+
+        // Assert
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("delivery.redispatch"), any(Object.class));
+        verify(pendingOffers, never()).delete(any());
+    }
+
+    private OfferBroker broker(long ttlMs, int maxRounds) {
+        OfferBroker offerBroker = new OfferBroker(dispatcherService, rabbitTemplate, pendingOffers, new SimpleMeterRegistry(),
+                3, ttlMs, maxRounds, 10, 64, 1, 15000);
+        ReflectionTestUtils.setField(offerBroker, "exchangeName", "delivery.exchange");
+        ReflectionTestUtils.setField(offerBroker, "redispatchRoutingKey", "delivery.redispatch");
+        ReflectionTestUtils.setField(offerBroker, "offerCreatedRoutingKey", "courier.offer.created");
+        ReflectionTestUtils.setField(offerBroker, "offerRetractedRoutingKey", "courier.offer.retracted");
+        ReflectionTestUtils.setField(offerBroker, "offerResponseRoutingKey", "courier.offer.response");
+        return offerBroker;
+    }
+
+    private UUID savedOfferId() {
+        ArgumentCaptor<UUID> offerId = ArgumentCaptor.forClass(UUID.class);
+        verify(pendingOffers).save(offerId.capture(), any(), anyLong());
+        return offerId.getValue();
+    }
+
+    private CourierState addCourier() {
+        return fleetState.upsertCourier(Courier.builder()
+                .id(UUID.randomUUID())
+                .status(Courier.CourierStatus.AVAILABLE)
+                .vehicleType(Courier.VehicleType.CAR)
+                .currentLocation(Location.builder().latitude(48.85).longitude(2.35).build())
+                .build());
+    }
+
+    private static List<UUID> ids(List<CourierState> candidates) {
+        return candidates.stream().map(CourierState::getCourierId).toList();
+    }
+}
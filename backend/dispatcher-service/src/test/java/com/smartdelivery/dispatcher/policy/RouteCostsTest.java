@@ -0,0 +1,102 @@
+package com.smartdelivery.dispatcher.policy;
+
+import com.smartdelivery.dispatcher.fleet.CourierState;
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.model.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCostsTest {
+
+    private FleetState fleetState;
+
+    @BeforeEach
+    void setUp() {
+        fleetState = new FleetState(null, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 5);
+    }
+
+    @Test
+    void detourKm_ShouldCountPickupThenDropoffForAnIdleCourier() {
+        // Arrange
+        CourierState courier = addCourier(48.85, 2.35);
+        DispatchRequest request = request(48.86, 2.35, 48.87, 2.35);
+
+        // Act
+        double detour = RouteCosts.detourKm(courier, request);
+
+        // Assert
+        assertEquals(GeoGrid.distanceKm(48.85, 2.35, 48.86, 2.35) + GeoGrid.distanceKm(48.86, 2.35, 48.87, 2.35),
+                detour, 1e-9);
+    }
+
+    @Test
+    void detourKm_ShouldOnlyCountPickupWithoutDropoff() {
+        // Arrange
+        CourierState courier = addCourier(48.85, 2.35);
+        DispatchRequest request = request(48.86, 2.35, null, null);
+
+        // Act & Assert
+        assertEquals(GeoGrid.distanceKm(48.85, 2.35, 48.86, 2.35), RouteCosts.detourKm(courier, request), 1e-9);
+    }
+
+    @Test
+    void detourKm_ShouldPreferALoadedCourierAlreadyHeadingThatWay() {
+        // Arrange : le livreur chargé passe par le ramassage et le dépôt pour rejoindre son dernier dépôt,
+        // le livreur libre est plus proche du ramassage mais doit faire tout le trajet
+        CourierState loaded = addCourier(48.80, 2.35);
+        fleetState.reserve(loaded.getCourierId(), UUID.randomUUID(), 1.0, 0.01, 48.95, 2.35);
+        CourierState idle = addCourier(48.83, 2.35);
+        DispatchRequest request = request(48.85, 2.35, 48.90, 2.35);
+
+        // Act
+        double loadedDetour = RouteCosts.detourKm(loaded, request);
+        double idleDetour = RouteCosts.detourKm(idle, request);
+
+        // Assert : la livraison est sur la route du livreur chargé, sans détour
+        assertEquals(0.0, loadedDetour, 1e-6);
+        assertTrue(loadedDetour < idleDetour);
+        assertTrue(RouteCosts.toPickupKm(loaded, request) > RouteCosts.toPickupKm(idle, request));
+    }
+
+    @Test
+    void detourKm_ShouldPenalizeDropoffsAwayFromTheCurrentRoute() {
+        // Arrange : même position, mais la tournée du second livreur part dans la direction opposée
+        CourierState northbound = addCourier(48.85, 2.35);
+        fleetState.reserve(northbound.getCourierId(), UUID.randomUUID(), 1.0, 0.01, 48.95, 2.35);
+        CourierState southbound = addCourier(48.85, 2.35);
+        fleetState.reserve(southbound.getCourierId(), UUID.randomUUID(), 1.0, 0.01, 48.75, 2.35);
+        DispatchRequest request = request(48.87, 2.35, 48.90, 2.35);
+
+        // Act & Assert
+        assertTrue(RouteCosts.detourKm(northbound, request) < RouteCosts.detourKm(southbound, request));
+    }
+
+    private CourierState addCourier(double latitude, double longitude) {
+        return fleetState.upsertCourier(Courier.builder()
+                .id(UUID.randomUUID())
+                .status(Courier.CourierStatus.AVAILABLE)
+                .vehicleType(Courier.VehicleType.CAR)
+                .currentLocation(Location.builder().latitude(latitude).longitude(longitude).build())
+                .build());
+    }
+
+    private static DispatchRequest request(double pickupLatitude, double pickupLongitude,
+                                           Double dropoffLatitude, Double dropoffLongitude) {
+        return DispatchRequest.builder()
+                .deliveryId(UUID.randomUUID())
+                .pickupLatitude(pickupLatitude)
+                .pickupLongitude(pickupLongitude)
+                .dropoffLatitude(dropoffLatitude)
+                .dropoffLongitude(dropoffLongitude)
+                .build();
+    }
+}
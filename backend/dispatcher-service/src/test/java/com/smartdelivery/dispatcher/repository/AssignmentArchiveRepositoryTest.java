@@ -0,0 +1,91 @@
+package com.smartdelivery.dispatcher.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Suppression des partitions vidées sans verrou ACCESS EXCLUSIVE sur delivery_assignments
+ */
+class AssignmentArchiveRepositoryTest {
+
+    private static final String PARTITION = "delivery_assignments_2026_01";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AssignmentArchiveRepository repository = new AssignmentArchiveRepository(jdbcTemplate);
+
+    @Test
+    void dropPartitionIfEmpty_ShouldDetachConcurrentlyBeforeDropping() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(startsWith("SELECT NOT EXISTS"), eq(Boolean.class))).thenReturn(true);
+        when(jdbcTemplate.queryForList(anyString(), eq(Boolean.class), eq(PARTITION))).thenReturn(List.of(false));
+
+        // Act
+        boolean dropped = repository.dropPartitionIfEmpty(PARTITION);
+
+        // Assert
+        assertTrue(dropped);
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("ALTER TABLE delivery_assignments DETACH PARTITION " + PARTITION + " CONCURRENTLY");
+        order.verify(jdbcTemplate).execute("DROP TABLE IF EXISTS " + PARTITION);
+    }
+
+    @Test
+    void dropPartitionIfEmpty_ShouldFinalizeAnInterruptedDetach() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(startsWith("SELECT NOT EXISTS"), eq(Boolean.class))).thenReturn(true);
+        when(jdbcTemplate.queryForList(anyString(), eq(Boolean.class), eq(PARTITION))).thenReturn(List.of(true));
+
+        // Act
+        assertTrue(repository.dropPartitionIfEmpty(PARTITION));
+
+        // Assert
+        verify(jdbcTemplate).execute("ALTER TABLE delivery_assignments DETACH PARTITION " + PARTITION + " FINALIZE");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS " + PARTITION);
+    }
+
+    @Test
+    void dropPartitionIfEmpty_ShouldReattachAPartitionThatReceivedRowsWhileDetaching() {
+        // Arrange : vide à la vérification, une ligne arrivée avant le détachement
+        when(jdbcTemplate.queryForObject(startsWith("SELECT NOT EXISTS"), eq(Boolean.class))).thenReturn(true, false);
+        when(jdbcTemplate.queryForList(anyString(), eq(Boolean.class), eq(PARTITION))).thenReturn(List.of(false));
+
+        // Act
+        boolean dropped = repository.dropPartitionIfEmpty(PARTITION);
+
+        // Assert
+        assertFalse(dropped);
+        verify(jdbcTemplate).execute("ALTER TABLE delivery_assignments ATTACH PARTITION " + PARTITION
+                + " FOR VALUES FROM ('2026-01-01') TO ('2026-02-01')");
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    void dropPartitionIfEmpty_ShouldKeepAPartitionWithRows() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(startsWith("SELECT NOT EXISTS"), eq(Boolean.class))).thenReturn(false);
+
+        // Act & Assert
+        assertFalse(repository.dropPartitionIfEmpty(PARTITION));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void dropPartitionIfEmpty_ShouldRejectAnythingButAMonthlyPartition() {
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.dropPartitionIfEmpty("delivery_assignments; DROP TABLE couriers"));
+        assertThrows(IllegalArgumentException.class, () -> repository.dropPartitionIfEmpty("delivery_assignments_default"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.smartdelivery.dispatcher.repository;
+
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AssignmentBulkRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final AssignmentBulkRepository repository = new AssignmentBulkRepository(jdbcTemplate);
+
+    // Requête construite par le dépôt, capturée à l'exécution
+    private String executedSql;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            executedSql = invocation.getArgument(0);
+            return statement;
+        });
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        // Une ligne retournée par RETURNING, lue par le RowMapper du dépôt
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            PreparedStatementCreator creator = invocation.getArgument(0);
+            RowMapper<?> mapper = invocation.getArgument(1);
+            creator.createPreparedStatement(connection);
+            return List.of(mapper.mapRow(resultSet, 0));
+        });
+    }
+
+    @Test
+    void updateStatusByCourier_ShouldRunOneUpdateReturningTheTouchedRows() throws SQLException {
+        // Arrange
+        UUID courierId = UUID.randomUUID();
+        UUID assignmentId = UUID.randomUUID();
+        UUID deliveryId = UUID.randomUUID();
+        when(resultSet.getObject("id", UUID.class)).thenReturn(assignmentId);
+        when(resultSet.getObject("delivery_id", UUID.class)).thenReturn(deliveryId);
+        when(resultSet.getObject("courier_id", UUID.class)).thenReturn(courierId);
+
+        // Act
+        List<AssignmentBulkRepository.UpdatedAssignment> updated = repository.updateStatusByCourier(courierId,
+                EnumSet.of(DeliveryAssignment.AssignmentStatus.IN_PROGRESS), DeliveryAssignment.AssignmentStatus.COMPLETED);
+
+        // Assert
+        assertEquals(List.of(new AssignmentBulkRepository.UpdatedAssignment(assignmentId, deliveryId, courierId)), updated);
+        assertTrue(executedSql.startsWith("UPDATE delivery_assignments SET status = ?"));
+        assertTrue(executedSql.contains("WHERE status = ANY (?) AND courier_id = ? RETURNING id, delivery_id, courier_id"));
+        verify(statement).setString(1, "COMPLETED");
+        verify(statement).setBoolean(2, true);
+        verify(connection).createArrayOf("varchar", new Object[]{"IN_PROGRESS"});
+        verify(statement).setObject(4, courierId);
+    }
+
+    @Test
+    void updateStatusByDeliveries_ShouldBindDeliveryIdsAsOneArray() throws SQLException {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+
+        // Act
+        repository.updateStatusByDeliveries(List.of(deliveryId),
+                EnumSet.of(DeliveryAssignment.AssignmentStatus.ASSIGNED), DeliveryAssignment.AssignmentStatus.CANCELLED);
+
+        // Assert
+        assertTrue(executedSql.contains("AND delivery_id = ANY (?) RETURNING"));
+        verify(statement).setBoolean(2, false);
+        verify(connection).createArrayOf(eq("uuid"), argThat(ids -> Arrays.equals(ids, new Object[]{deliveryId})));
+        verify(statement).setArray(eq(4), any(Array.class));
+    }
+
+    @Test
+    void updateStatusByPickupZone_ShouldBindTheFourBounds() throws SQLException {
+        // Act
+        repository.updateStatusByPickupZone(48.0, 49.0, 2.0, 3.0,
+                EnumSet.of(DeliveryAssignment.AssignmentStatus.ASSIGNED), DeliveryAssignment.AssignmentStatus.CANCELLED);
+
+        // Assert
+        assertTrue(executedSql.contains("pickup_latitude BETWEEN ? AND ? AND pickup_longitude BETWEEN ? AND ?"));
+        verify(statement).setObject(4, 48.0);
+        verify(statement).setObject(5, 49.0);
+        verify(statement).setObject(6, 2.0);
+        verify(statement).setObject(7, 3.0);
+    }
+
+    @Test
+    void releaseBusyCouriers_ShouldReturnReleasedCouriersWithTheirPosition() throws SQLException {
+        // Arrange
+        UUID courierId = UUID.randomUUID();
+        when(resultSet.getObject("id", UUID.class)).thenReturn(courierId);
+        when(resultSet.getObject("latitude", Double.class)).thenReturn(48.85);
+        when(resultSet.getObject("longitude", Double.class)).thenReturn(2.35);
+
+        // Act
+        List<AssignmentBulkRepository.ReleasedCourierRow> released = repository.releaseBusyCouriers(Set.of(courierId));
+
+        // Assert
+        assertEquals(List.of(new AssignmentBulkRepository.ReleasedCourierRow(courierId, 48.85, 2.35)), released);
+        assertTrue(executedSql.contains("WHERE status = 'BUSY' AND id = ANY (?)"));
+    }
+
+    @Test
+    void releaseBusyCouriers_ShouldSkipTheQueryWithoutCouriers() {
+        // Act & Assert
+        assertTrue(repository.releaseBusyCouriers(Set.of()).isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
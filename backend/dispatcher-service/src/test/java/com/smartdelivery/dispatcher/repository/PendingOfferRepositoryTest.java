@@ -0,0 +1,80 @@
+package com.smartdelivery.dispatcher.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PendingOfferRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PendingOfferRepository repository = new PendingOfferRepository(jdbcTemplate, objectMapper);
+    private final DeliveryCreatedEvent event = DeliveryCreatedEvent.fromDispatchRequest(DispatchRequest.builder()
+            .deliveryId(UUID.randomUUID())
+            .pickupLatitude(48.8566)
+            .pickupLongitude(2.3522)
+            .packageWeight(2.0)
+            .build());
+
+    @Test
+    void save_ShouldUpsertTheSerializedDeliveryWithItsDeadline() throws Exception {
+        // Arrange
+        UUID offerId = UUID.randomUUID();
+
+        // Act
+        repository.save(offerId, event, 15000);
+
+        // Assert : une seule ligne par livraison, remplacée à chaque tour
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(sql.capture(), eq(event.getId()), eq(offerId), payload.capture(), eq(15000L));
+        assertTrue(sql.getValue().contains("ON CONFLICT (delivery_id) DO UPDATE"));
+        assertEquals(event, objectMapper.readValue((String) payload.getValue(), DeliveryCreatedEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimExpired_ShouldReturnTheStoredDeliveries() throws Exception {
+        // Arrange
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString("payload")).thenReturn(objectMapper.writeValueAsString(event));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any())).thenAnswer(invocation -> {
+            RowMapper<DeliveryCreatedEvent> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(resultSet, 0));
+        });
+
+        // Act
+        List<DeliveryCreatedEvent> claimed = repository.claimExpired(15000, 15000, 100);
+
+        // Assert
+        assertEquals(List.of(event), claimed);
+        verify(jdbcTemplate).query(argThat((String sql) -> sql.contains("FOR UPDATE SKIP LOCKED")), any(RowMapper.class), eq(15000L), eq(15000L), eq(100));
+    }
+
+    @Test
+    void exists_ShouldTreatAMissingResultAsClosed() {
+        // Arrange
+        UUID offerId = UUID.randomUUID();
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(offerId))).thenReturn(null);
+
+        // Act & Assert
+        assertFalse(repository.exists(offerId));
+    }
+}
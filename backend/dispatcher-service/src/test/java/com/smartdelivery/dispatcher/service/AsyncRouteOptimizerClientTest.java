@@ -0,0 +1,135 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncRouteOptimizerClientTest {
+
+    private final HttpClient httpClient = mock(HttpClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AsyncRouteOptimizerClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = client(10);
+    }
+
+    @Test
+    void createOptimizedRoute_ShouldNotRetryAfterATimeout() {
+        // Arrange : la requête a pu être reçue, la route a peut-être été créée
+        when(httpClient.<byte[]>sendAsync(any(), any())).thenReturn(CompletableFuture.failedFuture(new HttpTimeoutException("timeout")));
+
+        // Act
+        CompletableFuture<UUID> result = createRoute();
+
+        // Assert
+        assertThrows(CompletionException.class, result::join);
+        verify(httpClient, after(100).times(1)).sendAsync(any(), any());
+    }
+
+    @Test
+    void createOptimizedRoute_ShouldRetryWhenTheConnectionFailed() {
+        // Arrange : la première tentative n'a pas atteint le service
+        UUID routeId = UUID.randomUUID();
+        when(httpClient.<byte[]>sendAsync(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("refused")))
+                .thenReturn(CompletableFuture.completedFuture(response(201, "{\"routeId\":\"" + routeId + "\"}")));
+
+        // Act & Assert
+        assertEquals(routeId, createRoute().join());
+        verify(httpClient, times(2)).sendAsync(any(), any());
+    }
+
+    @Test
+    void getRouteDetails_ShouldRetryReadsUpToMaxAttempts() {
+        // Arrange
+        when(httpClient.<byte[]>sendAsync(any(), any())).thenReturn(CompletableFuture.failedFuture(new HttpTimeoutException("timeout")));
+
+        // Act
+        CompletableFuture<?> result = client.getRouteDetails(UUID.randomUUID());
+
+        // Assert
+        assertThrows(CompletionException.class, result::join);
+        verify(httpClient, times(3)).sendAsync(any(), any());
+    }
+
+    @Test
+    void getRouteDetails_ShouldHedgeWithASecondBulkheadPermit() {
+        // Arrange : la première requête ne répond jamais, la seconde réussit
+        ReflectionTestUtils.setField(client, "hedgeDelayMs", 20L);
+        when(httpClient.<byte[]>sendAsync(any(), any()))
+                .thenReturn(new CompletableFuture<>())
+                .thenReturn(CompletableFuture.completedFuture(response(200, "{\"id\":\"route\"}")));
+
+        // Act
+        Object details = client.getRouteDetails(UUID.randomUUID()).orTimeout(5, TimeUnit.SECONDS).join();
+
+        // Assert
+        assertNotNull(details);
+        verify(httpClient, times(2)).sendAsync(any(), any());
+        assertEquals(1.0, meterRegistry.counter("route_optimizer.client.hedged", "operation", "getRouteDetails").count());
+    }
+
+    @Test
+    void getRouteDetails_ShouldNotHedgeWithoutAFreeBulkheadPermit() {
+        // Arrange : une seule place, occupée par la requête principale
+        client = client(1);
+        ReflectionTestUtils.setField(client, "hedgeDelayMs", 20L);
+        CompletableFuture<HttpResponse<byte[]>> primary = new CompletableFuture<>();
+        when(httpClient.<byte[]>sendAsync(any(), any())).thenReturn(primary);
+
+        // Act
+        CompletableFuture<?> result = client.getRouteDetails(UUID.randomUUID());
+
+        // Assert
+        verify(httpClient, after(200).times(1)).sendAsync(any(), any());
+        primary.complete(response(200, "{\"id\":\"route\"}"));
+        assertNotNull(result.orTimeout(5, TimeUnit.SECONDS).join());
+        verify(httpClient, timeout(1_000).times(1)).sendAsync(any(), any());
+    }
+
+    private CompletableFuture<UUID> createRoute() {
+        return client.createOptimizedRoute(UUID.randomUUID(), UUID.randomUUID(), 48.85, 2.35, 48.86, 2.36);
+    }
+
+    private AsyncRouteOptimizerClient client(int maxConcurrentCalls) {
+        AsyncRouteOptimizerClient created = new AsyncRouteOptimizerClient(httpClient, new ObjectMapper(), meterRegistry,
+                "http://route-optimizer", maxConcurrentCalls, 20, 50, 10_000);
+        ReflectionTestUtils.setField(created, "requestTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(created, "maxAttempts", 3);
+        ReflectionTestUtils.setField(created, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(created, "hedgeDelayMs", 0L);
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<byte[]> response(int status, String body) {
+        HttpResponse<byte[]> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+}
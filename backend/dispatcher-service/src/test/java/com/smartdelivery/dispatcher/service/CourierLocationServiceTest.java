@@ -0,0 +1,162 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Regroupement des écritures de positions : une seule écriture par livreur et par flush
+ */
+class CourierLocationServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private FleetState fleetState;
+    private CourierLocationService locationService;
+
+    @BeforeEach
+    void setUp() {
+        fleetState = new FleetState(null, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 5);
+        locationService = new CourierLocationService(fleetState, jdbcTemplate);
+    }
+
+    @Test
+    void flush_ShouldWriteOnlyTheLatestPositionOfEachCourier() throws Exception {
+        // Arrange : trois positions du même livreur dans la même fenêtre, une pour un second livreur
+        UUID courierId = addCourier();
+        UUID otherCourierId = addCourier();
+        locationService.updateLocation(courierId, 48.8566, 2.3522);
+        locationService.updateLocation(courierId, 48.8600, 2.3500);
+        locationService.updateLocation(otherCourierId, 45.7640, 4.8357);
+        locationService.updateLocation(courierId, 48.8700, 2.3400);
+
+        // Act
+        locationService.flush();
+
+        // Assert : un seul batch, une ligne par livreur, avec la dernière position reçue
+        List<PreparedStatement> rows = captureWrittenRows();
+        assertEquals(2, rows.size());
+        PreparedStatement courierRow = rowOf(rows, courierId);
+        verify(courierRow).setDouble(1, 48.8700);
+        verify(courierRow).setDouble(2, 2.3400);
+        verify(courierRow, times(2)).setDouble(anyInt(), any(Double.class));
+        verify(rowOf(rows, otherCourierId)).setDouble(1, 45.7640);
+        assertEquals(0, locationService.getPendingCount());
+    }
+
+    @Test
+    void flush_ShouldNotWriteAgainWithoutNewPositions() {
+        // Arrange
+        UUID courierId = addCourier();
+        locationService.updateLocation(courierId, 48.8566, 2.3522);
+        locationService.flush();
+
+        // Act
+        locationService.flush();
+
+        // Assert
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void updateLocation_ShouldIgnoreUnknownCouriers() {
+        // Act
+        locationService.updateLocation(UUID.randomUUID(), 48.8566, 2.3522);
+        locationService.flush();
+
+        // Assert
+        assertEquals(0, locationService.getPendingCount());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void flush_ShouldKeepPositionsPendingWhenTheBatchFails() throws Exception {
+        // Arrange
+        UUID courierId = addCourier();
+        locationService.updateLocation(courierId, 48.8566, 2.3522);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(new int[][]{{1}});
+
+        // Act : échec, puis une position plus récente arrive avant le flush suivant
+        locationService.flush();
+        assertEquals(1, locationService.getPendingCount());
+        locationService.updateLocation(courierId, 48.8700, 2.3400);
+        locationService.flush();
+
+        // Assert : la position remise en attente n'écrase pas la plus récente
+        List<PreparedStatement> rows = captureWrittenRows();
+        assertEquals(1, rows.size());
+        verify(rows.get(0)).setDouble(1, 48.8700);
+        assertEquals(0, locationService.getPendingCount());
+    }
+
+    /**
+     * Rejoue le setter du dernier batch sur un PreparedStatement simulé par ligne
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<PreparedStatement> captureWrittenRows() throws Exception {
+        ArgumentCaptor<Collection> batch = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce())
+                .batchUpdate(anyString(), batch.capture(), anyInt(), setter.capture());
+        List<PreparedStatement> rows = new ArrayList<>();
+        for (Object row : batch.getValue()) {
+            PreparedStatement ps = mock(PreparedStatement.class);
+            setter.getValue().setValues(ps, row);
+            rows.add(ps);
+        }
+        return rows;
+    }
+
+    private static PreparedStatement rowOf(List<PreparedStatement> rows, UUID courierId) throws Exception {
+        for (PreparedStatement row : rows) {
+            ArgumentCaptor<Object> id = ArgumentCaptor.forClass(Object.class);
+            verify(row).setObject(eq(4), id.capture());
+            if (courierId.equals(id.getValue())) {
+                return row;
+            }
+        }
+        throw new AssertionError("Aucune ligne écrite pour le livreur " + courierId);
+    }
+
+    private UUID addCourier() {
+        UUID courierId = UUID.randomUUID();
+        fleetState.upsertCourier(Courier.builder()
+                .id(courierId)
+                .status(Courier.CourierStatus.AVAILABLE)
+                .vehicleType(Courier.VehicleType.CAR)
+                .currentLocation(Location.builder().latitude(48.85).longitude(2.35).build())
+                .build());
+        return courierId;
+    }
+}
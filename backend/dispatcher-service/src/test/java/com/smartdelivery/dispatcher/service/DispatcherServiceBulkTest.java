@@ -0,0 +1,184 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.PostgisCourierLocator;
+import com.smartdelivery.dispatcher.model.BulkAssignmentResult;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.model.Location;
+import com.smartdelivery.dispatcher.policy.DispatchPolicyEngine;
+import com.smartdelivery.dispatcher.repository.AssignmentBulkRepository;
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.shard.ShardCoordinator;
+import com.smartdelivery.dispatcher.timer.AssignmentTimeoutScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Opérations groupées : la flotte en mémoire ne suit la base qu'une fois la transaction validée
+ */
+class DispatcherServiceBulkTest {
+
+    private final AssignmentBulkRepository bulkRepository = mock(AssignmentBulkRepository.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final AssignmentTimeoutScheduler timeoutScheduler = mock(AssignmentTimeoutScheduler.class);
+    private FleetState fleetState;
+    private DispatcherService dispatcherService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        fleetState = new FleetState(null, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 2);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageWeight", 1.0);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageVolume", 0.01);
+        dispatcherService = new DispatcherService(
+                mock(CourierRepository.class),
+                mock(DeliveryAssignmentRepository.class),
+                mock(RouteOptimizerClient.class),
+                mock(ObjectProvider.class),
+                rabbitTemplate,
+                fleetState,
+                timeoutScheduler,
+                (ObjectProvider<ShardCoordinator>) mock(ObjectProvider.class),
+                (ObjectProvider<PostgisCourierLocator>) mock(ObjectProvider.class),
+                bulkRepository,
+                mock(DispatchPolicyEngine.class));
+        ReflectionTestUtils.setField(dispatcherService, "exchangeName", "delivery.exchange");
+        ReflectionTestUtils.setField(dispatcherService, "assignmentsCancelledRoutingKey", "assignments.cancelled");
+        ReflectionTestUtils.setField(dispatcherService, "assignmentsCompletedRoutingKey", "assignments.completed");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void cancelAssignmentsByDeliveries_ShouldUpdateFleetOnlyAfterCommit() {
+        // Arrange : livreur plein (2 colis sur 2), l'un des deux est annulé
+        UUID courierId = addBusyCourier(10.0);
+        UUID cancelled = reserve(courierId, 1.0);
+        UUID kept = reserve(courierId, 1.0);
+        UUID assignmentId = UUID.randomUUID();
+        when(bulkRepository.updateStatusByDeliveries(eq(List.of(cancelled)), any(), eq(DeliveryAssignment.AssignmentStatus.CANCELLED)))
+                .thenReturn(List.of(new AssignmentBulkRepository.UpdatedAssignment(assignmentId, cancelled, courierId)));
+        when(bulkRepository.releaseBusyCouriers(Set.of(courierId)))
+                .thenReturn(List.of(new AssignmentBulkRepository.ReleasedCourierRow(courierId, 48.85, 2.35)));
+
+        // Act
+        BulkAssignmentResult result = dispatcherService.cancelAssignmentsByDeliveries(List.of(cancelled));
+
+        // Assert : rien n'a changé en mémoire avant le commit
+        assertEquals(List.of(assignmentId), result.getAssignmentIds());
+        assertEquals(1, result.getReleasedCouriers().size());
+        assertEquals(2, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.AVAILABLE, fleetState.get(courierId).getStatus());
+        assertFalse(fleetState.reserve(courierId, kept, 1.0, 0.01, null, null));
+        verify(timeoutScheduler).cancel(assignmentId);
+        verify(rabbitTemplate).convertAndSend("delivery.exchange", "assignments.cancelled", result);
+    }
+
+    @Test
+    void completeAssignmentsByCourier_ShouldLeaveFleetUntouchedOnRollback() {
+        // Arrange
+        UUID courierId = addBusyCourier(10.0);
+        UUID first = reserve(courierId, 1.0);
+        UUID second = reserve(courierId, 1.0);
+        when(bulkRepository.updateStatusByCourier(eq(courierId), any(), eq(DeliveryAssignment.AssignmentStatus.COMPLETED)))
+                .thenReturn(List.of(
+                        new AssignmentBulkRepository.UpdatedAssignment(UUID.randomUUID(), first, courierId),
+                        new AssignmentBulkRepository.UpdatedAssignment(UUID.randomUUID(), second, courierId)));
+        when(bulkRepository.releaseBusyCouriers(Set.of(courierId)))
+                .thenReturn(List.of(new AssignmentBulkRepository.ReleasedCourierRow(courierId, 48.85, 2.35)));
+
+        // Act
+        dispatcherService.completeAssignmentsByCourier(courierId);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        assertEquals(2, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+        verify(timeoutScheduler, never()).cancel(any());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void cancelAssignmentsByZone_ShouldOnlyReleaseCouriersThatRegainCapacity() {
+        // Arrange : le second livreur garde un colis trop lourd pour en prendre un autre
+        UUID freed = addBusyCourier(10.0);
+        UUID freedDelivery = reserve(freed, 1.0);
+        reserve(freed, 1.0);
+        UUID stillFull = addBusyCourier(1.0);
+        UUID lightDelivery = reserve(stillFull, 0.05);
+        reserve(stillFull, 0.9);
+        when(bulkRepository.updateStatusByPickupZone(48.0, 49.0, 2.0, 3.0,
+                Set.of(DeliveryAssignment.AssignmentStatus.ASSIGNED, DeliveryAssignment.AssignmentStatus.IN_PROGRESS),
+                DeliveryAssignment.AssignmentStatus.CANCELLED))
+                .thenReturn(List.of(
+                        new AssignmentBulkRepository.UpdatedAssignment(UUID.randomUUID(), freedDelivery, freed),
+                        new AssignmentBulkRepository.UpdatedAssignment(UUID.randomUUID(), lightDelivery, stillFull)));
+
+        // Act
+        BulkAssignmentResult result = dispatcherService.cancelAssignmentsByZone(48.0, 49.0, 2.0, 3.0);
+
+        // Assert
+        verify(bulkRepository).releaseBusyCouriers(Set.of(freed));
+        assertEquals(2, result.getCount());
+    }
+
+    private UUID addBusyCourier(double maxWeight) {
+        UUID courierId = UUID.randomUUID();
+        fleetState.upsertCourier(Courier.builder()
+                .id(courierId)
+                .status(Courier.CourierStatus.BUSY)
+                .vehicleType(Courier.VehicleType.CAR)
+                .maxCapacity(maxWeight)
+                .maxVolume(1.0)
+                .currentLocation(Location.builder().latitude(48.85).longitude(2.35).build())
+                .build());
+        return courierId;
+    }
+
+    private UUID reserve(UUID courierId, double weight) {
+        UUID deliveryId = UUID.randomUUID();
+        assertTrue(fleetState.reserve(courierId, deliveryId, weight, 0.01, null, null));
+        return deliveryId;
+    }
+
+    // Termine la transaction simulée comme le ferait le gestionnaire de transactions
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
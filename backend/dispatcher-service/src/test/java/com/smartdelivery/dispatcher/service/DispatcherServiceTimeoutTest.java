@@ -0,0 +1,275 @@
+package com.smartdelivery.dispatcher.service;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.PostgisCourierLocator;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.model.Location;
+import com.smartdelivery.dispatcher.policy.DispatchPolicyEngine;
+import com.smartdelivery.dispatcher.repository.AssignmentBulkRepository;
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.shard.ShardCoordinator;
+import com.smartdelivery.dispatcher.timer.AssignmentTimeoutScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Échéances dépassées : seul un assignment non démarré est annulé et réattribué,
+ * la flotte en mémoire et les événements ne suivent la base qu'une fois la transaction validée
+ */
+class DispatcherServiceTimeoutTest {
+
+    private final CourierRepository courierRepository = mock(CourierRepository.class);
+    private final DeliveryAssignmentRepository assignmentRepository = mock(DeliveryAssignmentRepository.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private FleetState fleetState;
+    private DispatcherService dispatcherService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        fleetState = new FleetState(null, null, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 1);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageWeight", 1.0);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageVolume", 0.01);
+        dispatcherService = new DispatcherService(
+                courierRepository,
+                assignmentRepository,
+                mock(RouteOptimizerClient.class),
+                mock(ObjectProvider.class),
+                rabbitTemplate,
+                fleetState,
+                mock(AssignmentTimeoutScheduler.class),
+                (ObjectProvider<ShardCoordinator>) mock(ObjectProvider.class),
+                (ObjectProvider<PostgisCourierLocator>) mock(ObjectProvider.class),
+                mock(AssignmentBulkRepository.class),
+                mock(DispatchPolicyEngine.class));
+        ReflectionTestUtils.setField(dispatcherService, "exchangeName", "delivery.exchange");
+        ReflectionTestUtils.setField(dispatcherService, "redispatchRoutingKey", "delivery.redispatch");
+        ReflectionTestUtils.setField(dispatcherService, "courierStatusRoutingKey", "courier.status.updated");
+        ReflectionTestUtils.setField(dispatcherService, "assignmentOverdueRoutingKey", "assignment.overdue");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void redispatchExpiredAssignment_ShouldNeverCancelAnAssignmentInProgress() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+
+        // Act
+        boolean redispatched = dispatcherService.redispatchExpiredAssignment(
+                assignment.getId(), DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        assertFalse(redispatched);
+        assertEquals(DeliveryAssignment.AssignmentStatus.IN_PROGRESS, assignment.getStatus());
+        verify(assignmentRepository, never()).save(any());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("delivery.redispatch"), any(Object.class));
+    }
+
+    @Test
+    void redispatchExpiredAssignment_ShouldReleaseTheCourierOnlyAfterCommit() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+        UUID courierId = assignment.getCourier().getId();
+
+        // Act
+        assertTrue(dispatcherService.redispatchExpiredAssignment(
+                assignment.getId(), DeliveryAssignment.AssignmentStatus.ASSIGNED));
+
+        // Assert : avant le commit, la flotte en mémoire n'a pas bougé
+        assertEquals(1, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        // Act
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        assertEquals(0, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.AVAILABLE, fleetState.get(courierId).getStatus());
+        verify(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("courier.status.updated"), any(Object.class));
+        verify(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("delivery.redispatch"), any(Object.class));
+    }
+
+    @Test
+    void redispatchExpiredAssignment_ShouldLeaveTheFleetUntouchedOnRollback() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+        UUID courierId = assignment.getCourier().getId();
+
+        // Act
+        dispatcherService.redispatchExpiredAssignment(assignment.getId(), DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert : la base garde l'assignment, le livreur reste occupé en mémoire
+        assertEquals(1, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void updateAssignmentStatus_ShouldReleaseTheCourierOnlyAfterCommit() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        when(assignmentRepository.findById(assignment.getId())).thenReturn(Optional.of(assignment));
+        when(assignmentRepository.save(assignment)).thenReturn(assignment);
+        UUID courierId = assignment.getCourier().getId();
+
+        // Act
+        dispatcherService.updateAssignmentStatus(assignment.getId(), DeliveryAssignment.AssignmentStatus.COMPLETED);
+
+        // Assert : le statut du livreur est écrit en base dans la transaction, la mémoire attend le commit
+        assertEquals(Courier.CourierStatus.AVAILABLE, assignment.getCourier().getStatus());
+        verify(courierRepository).save(assignment.getCourier());
+        assertEquals(1, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+
+        // Act
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        assertEquals(0, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.AVAILABLE, fleetState.get(courierId).getStatus());
+    }
+
+    @Test
+    void updateAssignmentStatus_ShouldLeaveTheFleetUntouchedOnRollback() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        when(assignmentRepository.findById(assignment.getId())).thenReturn(Optional.of(assignment));
+        when(assignmentRepository.save(assignment)).thenReturn(assignment);
+        UUID courierId = assignment.getCourier().getId();
+
+        // Act
+        dispatcherService.updateAssignmentStatus(assignment.getId(), DeliveryAssignment.AssignmentStatus.CANCELLED);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        assertEquals(1, fleetState.get(courierId).getActiveLoadCount());
+        assertEquals(Courier.CourierStatus.BUSY, fleetState.get(courierId).getStatus());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void escalateOverdueAssignment_ShouldClaimUnderLockAndPublishAfterCommit() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+
+        // Act
+        boolean escalated = dispatcherService.escalateOverdueAssignment(assignment.getId());
+
+        // Assert : le signalement est revendiqué en base, sans toucher à l'assignment ni publier avant le commit
+        assertTrue(escalated);
+        assertEquals(DeliveryAssignment.AssignmentStatus.IN_PROGRESS, assignment.getStatus());
+        verify(assignmentRepository).markEscalated(eq(assignment.getId()), any(LocalDateTime.class));
+        verify(assignmentRepository, never()).save(any());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        // Act
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        verify(rabbitTemplate).convertAndSend(eq("delivery.exchange"), eq("assignment.overdue"),
+                argThat((Object event) -> event instanceof Map<?, ?> map
+                        && assignment.getDeliveryId().equals(map.get("deliveryId"))));
+    }
+
+    @Test
+    void escalateOverdueAssignment_ShouldNotPublishTwiceForTheSameAssignment() {
+        // Arrange : un autre nœud (ou un retry) a déjà signalé l'assignment
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        assignment.setEscalatedAt(LocalDateTime.now().minusMinutes(1));
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+
+        // Act
+        boolean escalated = dispatcherService.escalateOverdueAssignment(assignment.getId());
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        assertFalse(escalated);
+        verify(assignmentRepository, never()).markEscalated(any(), any());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void escalateOverdueAssignment_ShouldIgnoreAnAssignmentThatMovedOn() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.COMPLETED);
+        when(assignmentRepository.findByIdForUpdate(assignment.getId())).thenReturn(Optional.of(assignment));
+
+        // Act & Assert
+        assertFalse(dispatcherService.escalateOverdueAssignment(assignment.getId()));
+        assertFalse(dispatcherService.escalateOverdueAssignment(UUID.randomUUID()));
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    /**
+     * Assignment d'un livreur plein (un colis sur un), enregistré dans la flotte en mémoire
+     */
+    private DeliveryAssignment assignment(DeliveryAssignment.AssignmentStatus status) {
+        Courier courier = Courier.builder()
+                .id(UUID.randomUUID())
+                .status(Courier.CourierStatus.BUSY)
+                .vehicleType(Courier.VehicleType.CAR)
+                .maxCapacity(10.0)
+                .maxVolume(1.0)
+                .currentLocation(Location.builder().latitude(48.85).longitude(2.35).build())
+                .build();
+        fleetState.upsertCourier(courier);
+        UUID deliveryId = UUID.randomUUID();
+        assertTrue(fleetState.reserve(courier.getId(), deliveryId, 1.0, 0.01, null, null));
+        return DeliveryAssignment.builder()
+                .id(UUID.randomUUID())
+                .deliveryId(deliveryId)
+                .courier(courier)
+                .status(status)
+                .pickupLatitude(48.85)
+                .pickupLongitude(2.35)
+                .assignedAt(LocalDateTime.now().minusHours(3))
+                .updatedAt(LocalDateTime.now().minusHours(2))
+                .build();
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
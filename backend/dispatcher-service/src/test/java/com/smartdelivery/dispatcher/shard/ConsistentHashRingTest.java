@@ -0,0 +1,100 @@
+package com.smartdelivery.dispatcher.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 4096;
+    private static final int VIRTUAL_NODES = 64;
+
+    @Test
+    void ownerOf_ShouldSpreadKeysEvenlyAcrossNodes() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+
+        // Act
+        Map<String, Integer> keysPerNode = new HashMap<>();
+        for (long key = 0; key < KEYS; key++) {
+            keysPerNode.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+
+        // Assert : chaque nœud reçoit sa part à ±30 % près
+        assertEquals(3, keysPerNode.size());
+        for (int count : keysPerNode.values()) {
+            assertTrue(count > KEYS / 3 * 0.7 && count < KEYS / 3 * 1.3, "Répartition déséquilibrée : " + keysPerNode);
+        }
+    }
+
+    @Test
+    void ownerOf_ShouldOnlyMoveKeysToTheAddedNode() {
+        // Arrange
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-a", "node-b", "node-c", "node-d"), VIRTUAL_NODES);
+
+        // Act
+        int moved = 0;
+        for (long key = 0; key < KEYS; key++) {
+            String previousOwner = before.ownerOf(key);
+            String newOwner = after.ownerOf(key);
+            if (!previousOwner.equals(newOwner)) {
+                // Assert : une clé qui change de nœud part toujours vers le nouveau
+                assertEquals("node-d", newOwner);
+                moved++;
+            }
+        }
+
+        // Assert : environ un quart des clés rejoint le nouveau nœud
+        assertTrue(moved > KEYS / 4 * 0.7 && moved < KEYS / 4 * 1.3, "Clés déplacées : " + moved);
+    }
+
+    @Test
+    void ownerOf_ShouldOnlyMoveKeysOfTheRemovedNode() {
+        // Arrange
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-a", "node-c"), VIRTUAL_NODES);
+
+        // Act & Assert : seules les clés de node-b changent de propriétaire
+        for (long key = 0; key < KEYS; key++) {
+            String previousOwner = before.ownerOf(key);
+            if (!previousOwner.equals("node-b")) {
+                assertEquals(previousOwner, after.ownerOf(key));
+            } else {
+                assertNotEquals("node-b", after.ownerOf(key));
+            }
+        }
+    }
+
+    @Test
+    void ownerOf_ShouldNotDependOnNodeOrder() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        ConsistentHashRing shuffled = new ConsistentHashRing(List.of("node-c", "node-a", "node-b"), VIRTUAL_NODES);
+
+        // Act & Assert : tous les nœuds calculent le même anneau
+        for (long key = 0; key < 256; key++) {
+            assertEquals(ring.ownerOf(key), shuffled.ownerOf(key));
+        }
+    }
+
+    @Test
+    void ownerOf_ShouldReturnNullOnAnEmptyRing() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), VIRTUAL_NODES);
+
+        // Act & Assert
+        assertTrue(ring.isEmpty());
+        assertNull(ring.ownerOf(42));
+    }
+
+    @Test
+    void constructor_ShouldRejectNonPositiveVirtualNodes() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of("node-a"), 0));
+    }
+}
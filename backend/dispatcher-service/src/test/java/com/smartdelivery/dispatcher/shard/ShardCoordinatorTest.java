@@ -0,0 +1,164 @@
+package com.smartdelivery.dispatcher.shard;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardCoordinatorTest {
+
+    private static final String NODE_ID = "node-a";
+    private static final int SLOTS = 32;
+    private static final int VIRTUAL_NODES = 64;
+    private static final long LEASE_TTL_MS = 15000;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    // Nœuds vivants en base et shards dont le bail est encore détenu par un autre nœud
+    private final List<String> liveNodes = new ArrayList<>();
+    private final Set<Integer> leasedElsewhere = new HashSet<>();
+    private ShardCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        coordinator = new ShardCoordinator(jdbcTemplate, eventPublisher, new SimpleMeterRegistry(),
+                NODE_ID, SLOTS, VIRTUAL_NODES, 0.5, LEASE_TTL_MS);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenAnswer(invocation -> List.copyOf(liveNodes));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO dispatcher_shard_lease"), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<Integer> slots = invocation.getArgument(1);
+                    int[] counts = slots.stream().mapToInt(slot -> leasedElsewhere.contains(slot) ? 0 : 1).toArray();
+                    return new int[][]{counts};
+                });
+    }
+
+    @Test
+    void heartbeat_ShouldAcquireEverySlotWhenAlone() {
+        // Arrange
+        liveNodes.add(NODE_ID);
+
+        // Act
+        coordinator.heartbeat();
+
+        // Assert
+        assertEquals(SLOTS, coordinator.getOwnedSlots().size());
+        ArgumentCaptor<ShardOwnershipChangedEvent> event = ArgumentCaptor.forClass(ShardOwnershipChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(coordinator.getOwnedSlots(), event.getValue().acquired());
+        assertTrue(event.getValue().released().isEmpty());
+    }
+
+    @Test
+    void heartbeat_ShouldReleaseTheSlotsTheRingMovesToANewNode() {
+        // Arrange
+        liveNodes.add(NODE_ID);
+        coordinator.heartbeat();
+        clearInvocations(eventPublisher);
+        liveNodes.add("node-b");
+        ConsistentHashRing ring = new ConsistentHashRing(liveNodes, VIRTUAL_NODES);
+        Set<Integer> expectedReleased = new HashSet<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (!NODE_ID.equals(ring.ownerOf(slot))) {
+                expectedReleased.add(slot);
+            }
+        }
+
+        // Act
+        coordinator.heartbeat();
+
+        // Assert : les shards de node-b sont libérés en base et signalés, les autres restent détenus
+        assertFalse(expectedReleased.isEmpty());
+        ArgumentCaptor<Collection<Integer>> released = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE FROM dispatcher_shard_lease"), released.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(expectedReleased, new HashSet<>(released.getValue()));
+        assertEquals(SLOTS - expectedReleased.size(), coordinator.getOwnedSlots().size());
+        ArgumentCaptor<ShardOwnershipChangedEvent> event = ArgumentCaptor.forClass(ShardOwnershipChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(expectedReleased, event.getValue().released());
+        assertTrue(event.getValue().acquired().isEmpty());
+        for (int slot = 0; slot < SLOTS; slot++) {
+            assertEquals(!expectedReleased.contains(slot), coordinator.ownsSlot(slot));
+        }
+    }
+
+    @Test
+    void heartbeat_ShouldWaitForTheLeaseOfASlotStillHeldByTheFormerOwner() {
+        // Arrange
+        liveNodes.add(NODE_ID);
+        leasedElsewhere.add(3);
+
+        // Act
+        coordinator.heartbeat();
+
+        // Assert : l'anneau désigne ce nœud mais le bail n'est pas encore obtenu
+        assertTrue(coordinator.isRingOwner(3));
+        assertFalse(coordinator.ownsSlot(3));
+        assertEquals(SLOTS - 1, coordinator.getOwnedSlots().size());
+
+        // Act : l'ancien bail a expiré
+        leasedElsewhere.clear();
+        coordinator.heartbeat();
+
+        // Assert
+        assertTrue(coordinator.ownsSlot(3));
+    }
+
+    @Test
+    void heartbeat_ShouldStopOwningSlotsWhenTheLeaseCannotBeRenewed() {
+        // Arrange
+        liveNodes.add(NODE_ID);
+        coordinator.heartbeat();
+        when(jdbcTemplate.update(startsWith("INSERT INTO dispatcher_node"), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // Act : échec juste après un renouvellement, les baux sont encore valides
+        coordinator.heartbeat();
+
+        // Assert
+        assertEquals(SLOTS, coordinator.getOwnedSlots().size());
+
+        // Act : le dernier renouvellement date de plus de la moitié du bail
+        ReflectionTestUtils.setField(coordinator, "lastRenewedAt", System.currentTimeMillis() - LEASE_TTL_MS / 2);
+        coordinator.heartbeat();
+
+        // Assert
+        assertTrue(coordinator.getOwnedSlots().isEmpty());
+    }
+
+    @Test
+    void slotOf_ShouldMapNearbyPointsOfACellToTheSameSlot() {
+        // Act
+        int slot = coordinator.slotOf(48.8566, 2.3522);
+
+        // Assert : cellules de 0,5° : deux points du même quartier partagent le shard
+        assertEquals(slot, coordinator.slotOf(48.8600, 2.3400));
+        assertTrue(slot >= 0 && slot < SLOTS);
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+}
@@ -0,0 +1,217 @@
+package com.smartdelivery.dispatcher.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import com.smartdelivery.dispatcher.listener.DeliveryCreatedBatchListener;
+import com.smartdelivery.dispatcher.listener.DeliveryRetryRouter;
+import com.smartdelivery.dispatcher.model.DeliveryCreatedEvent;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardRouterTest {
+
+    private static final String CREATED_QUEUE = "delivery.created.queue";
+    private static final String SHARD_QUEUE = "dispatcher.shard.node-a";
+    private static final int SLOT = 7;
+
+    private final ShardCoordinator coordinator = mock(ShardCoordinator.class);
+    private final DispatcherService dispatcherService = mock(DispatcherService.class);
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private final RabbitTemplate shardTemplate = mock(RabbitTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DispatchRequest request = DispatchRequest.builder()
+            .deliveryId(UUID.randomUUID())
+            .pickupLatitude(48.8566)
+            .pickupLongitude(2.3522)
+            .build();
+    private ShardRouter router;
+    private DeliveryCreatedBatchListener batchListener;
+
+    @BeforeEach
+    void setUp() {
+        // Le listener par lots existe quel que soit dispatcher.listener.batch.enabled : seule la queue d'entrée en dépend
+        ObjectProvider<ShardRouter> routerProvider = provider(null);
+        batchListener = new DeliveryCreatedBatchListener(dispatcherService, routerProvider, provider(null),
+                objectMapper, new DeliveryRetryRouter(mock(RabbitTemplate.class), CREATED_QUEUE, "delivery.created.dlq",
+                        List.of(5000L)), 2);
+        router = new ShardRouter(coordinator, dispatcherService, provider(null), provider(batchListener), amqpAdmin,
+                mock(ConnectionFactory.class), new Queue(SHARD_QUEUE), new TopicExchange("delivery.exchange"),
+                CREATED_QUEUE, List.of(5000L), 3);
+        when(routerProvider.getIfAvailable()).thenReturn(router);
+        ReflectionTestUtils.setField(router, "shardTemplate", shardTemplate);
+        when(coordinator.slotOf(anyDouble(), anyDouble())).thenReturn(SLOT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchListener.shutdown();
+    }
+
+    @Test
+    void dispatch_ShouldAssignLocallyWhenTheNodeOwnsTheSlot() {
+        // Arrange
+        when(coordinator.ownsSlot(SLOT)).thenReturn(true);
+
+        // Act
+        router.dispatch(ingressMessage(), request);
+
+        // Assert
+        verify(dispatcherService).assignDelivery(request);
+        verify(shardTemplate, never()).send(anyString(), anyString(), any(Message.class));
+    }
+
+    @Test
+    void dispatch_ShouldForwardToTheNodeOwningTheSlot() {
+        // Arrange
+        when(coordinator.ownsSlot(SLOT)).thenReturn(false);
+        when(coordinator.isRingOwner(SLOT)).thenReturn(false);
+
+        // Act
+        router.dispatch(ingressMessage(), request);
+
+        // Assert
+        Message forwarded = captureForwarded("dispatch.shard." + SLOT);
+        assertEquals(1, (Integer) forwarded.getMessageProperties().getHeader(ShardRouter.HOPS_HEADER));
+        assertEquals(SLOT, (Integer) forwarded.getMessageProperties().getHeader(ShardRouter.SLOT_HEADER));
+        verify(dispatcherService, never()).assignDelivery(any());
+    }
+
+    @Test
+    void dispatch_ShouldFailWhileTheSlotLeaseIsStillHeldByTheFormerOwner() {
+        // Arrange : l'anneau désigne ce nœud mais le bail n'est pas encore obtenu
+        when(coordinator.ownsSlot(SLOT)).thenReturn(false);
+        when(coordinator.isRingOwner(SLOT)).thenReturn(true);
+
+        // Act & Assert : l'échec envoie le message en retry au lieu de le faire tourner entre nœuds
+        assertThrows(RuntimeException.class, () -> router.dispatch(ingressMessage(), request));
+        verify(shardTemplate, never()).send(anyString(), anyString(), any(Message.class));
+        verify(dispatcherService, never()).assignDelivery(any());
+    }
+
+    @Test
+    void dispatch_ShouldHandOverToTheNeighbourShardWithoutLocalCourier() {
+        // Arrange
+        when(coordinator.ownsSlot(SLOT)).thenReturn(true);
+        doThrow(new ShardHandoverException(9)).when(dispatcherService).assignDelivery(request);
+
+        // Act
+        router.dispatch(ingressMessage(), request);
+
+        // Assert
+        Message forwarded = captureForwarded("dispatch.shard.9");
+        assertEquals(9, (Integer) forwarded.getMessageProperties().getHeader(ShardRouter.SLOT_HEADER));
+    }
+
+    @Test
+    void dispatch_ShouldKeepTheSlotOfAForwardedMessage() {
+        // Arrange : message transmis par un autre nœud vers le shard voisin 9
+        when(coordinator.ownsSlot(9)).thenReturn(true);
+
+        // Act
+        router.dispatch(shardMessage(new byte[0], 1, 9), request);
+
+        // Assert
+        verify(dispatcherService).assignDelivery(request);
+        verify(coordinator, never()).slotOf(anyDouble(), anyDouble());
+    }
+
+    @Test
+    void dispatch_ShouldStopForwardingAfterMaxHops() {
+        // Arrange
+        when(coordinator.ownsSlot(9)).thenReturn(false);
+        when(coordinator.isRingOwner(9)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> router.dispatch(shardMessage(new byte[0], 3, 9), request));
+        verify(shardTemplate, never()).send(anyString(), anyString(), any(Message.class));
+    }
+
+    @Test
+    void handleShardBatch_ShouldDispatchAndAckWhenTheIngressIsConsumedOneByOne() throws Exception {
+        // Arrange : dispatcher.listener.batch.enabled=false, seule la queue du nœud passe par le listener par lots
+        when(coordinator.ownsSlot(SLOT)).thenReturn(true);
+        byte[] body = objectMapper.writeValueAsBytes(DeliveryCreatedEvent.fromDispatchRequest(request));
+        Message message = shardMessage(body, 1, SLOT);
+        message.getMessageProperties().setDeliveryTag(42L);
+        Channel channel = mock(Channel.class);
+
+        // Act
+        router.handleShardBatch(List.of(message), channel);
+
+        // Assert
+        verify(dispatcherService).assignDelivery(
+                argThat(dispatched -> request.getDeliveryId().equals(dispatched.getDeliveryId())));
+        verify(channel).basicAck(42L, false);
+    }
+
+    @Test
+    void onOwnershipChanged_ShouldBindAcquiredSlotsAndUnbindReleasedOnes() {
+        // Act
+        router.onOwnershipChanged(new ShardOwnershipChangedEvent(Set.of(1), Set.of(2)));
+
+        // Assert
+        verify(amqpAdmin).declareQueue(argThat(queue -> SHARD_QUEUE.equals(queue.getName())));
+        verify(amqpAdmin).declareBinding(argThat((Binding binding) -> "dispatch.shard.1".equals(binding.getRoutingKey())));
+        verify(amqpAdmin).removeBinding(argThat((Binding binding) -> "dispatch.shard.2".equals(binding.getRoutingKey())));
+    }
+
+    private Message captureForwarded(String routingKey) {
+        ArgumentCaptor<Message> forwarded = ArgumentCaptor.forClass(Message.class);
+        verify(shardTemplate).send(eq("delivery.exchange"), eq(routingKey), forwarded.capture());
+        return forwarded.getValue();
+    }
+
+    private static Message ingressMessage() {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(CREATED_QUEUE);
+        return new Message(new byte[0], properties);
+    }
+
+    private static Message shardMessage(byte[] body, int hops, int slot) {
+        Message message = MessageBuilder.withBody(body)
+                .setHeader(ShardRouter.HOPS_HEADER, hops)
+                .setHeader(ShardRouter.SLOT_HEADER, slot)
+                .build();
+        message.getMessageProperties().setConsumerQueue(SHARD_QUEUE);
+        return message;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T bean) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(bean);
+        when(provider.getObject()).thenReturn(bean);
+        return provider;
+    }
+}
@@ -0,0 +1,114 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Générateur reproductible (graine fixe) de positions et de flux de livraisons synthétiques.
+ * Les arrivées suivent un processus de Poisson modulé : le débit est multiplié pendant des rafales
+ * de durée exponentielle. Une part des ramassages est concentrée autour de points chauds.
+ */
+public class DeliveryGenerator {
+
+    private static final double KM_PER_DEGREE_LAT = Math.PI * GeoGrid.EARTH_RADIUS_KM / 180.0;
+
+    private final SimulationConfig config;
+    private final Random random;
+    private final double[][] hotspots;
+
+    public DeliveryGenerator(SimulationConfig config) {
+        this.config = config;
+        this.random = new Random(config.getSeed());
+        this.hotspots = new double[config.getHotspots()][];
+        for (int i = 0; i < hotspots.length; i++) {
+            hotspots[i] = uniformPoint(config.getCenterLatitude(), config.getCenterLongitude(), config.getRadiusKm() * 0.7);
+        }
+    }
+
+    /**
+     * Positions initiales des livreurs, réparties uniformément dans la zone
+     */
+    public List<double[]> courierPositions() {
+        List<double[]> positions = new ArrayList<>(config.getCouriers());
+        for (int i = 0; i < config.getCouriers(); i++) {
+            positions.add(uniformPoint(config.getCenterLatitude(), config.getCenterLongitude(), config.getRadiusKm()));
+        }
+        return positions;
+    }
+
+    /**
+     * Flux de livraisons trié par date de création
+     */
+    public List<SimulatedDelivery> deliveries() {
+        double durationSeconds = config.getDurationMinutes() * 60.0;
+        double baseRate = config.getDeliveriesPerMinute() / 60.0;
+        // Débit hors rafale ajusté pour conserver le débit moyen demandé
+        double calmRate = baseRate / (1 - config.getBurstFraction() + config.getBurstFraction() * config.getBurstFactor());
+        double burstRate = calmRate * config.getBurstFactor();
+        double meanBurstSeconds = config.getMeanBurstMinutes() * 60.0;
+        double meanCalmSeconds = config.getBurstFraction() > 0
+                ? meanBurstSeconds * (1 - config.getBurstFraction()) / config.getBurstFraction()
+                : Double.MAX_VALUE;
+
+        List<SimulatedDelivery> deliveries = new ArrayList<>();
+        boolean bursting = false;
+        double phaseEnd = exponential(meanCalmSeconds);
+        double time = 0;
+        while (time < durationSeconds) {
+            double rate = bursting ? burstRate : calmRate;
+            double next = time + exponential(1.0 / rate);
+            if (next > phaseEnd) {
+                // Changement de phase : le processus de Poisson étant sans mémoire, on repart de la frontière
+                time = phaseEnd;
+                bursting = !bursting;
+                phaseEnd = time + exponential(bursting ? meanBurstSeconds : meanCalmSeconds);
+                continue;
+            }
+            time = next;
+            if (time < durationSeconds) {
+                deliveries.add(delivery(time));
+            }
+        }
+        return deliveries;
+    }
+
+    private SimulatedDelivery delivery(double time) {
+        double[] pickup;
+        if (hotspots.length > 0 && random.nextDouble() < config.getHotspotShare()) {
+            double[] hotspot = hotspots[random.nextInt(hotspots.length)];
+            pickup = gaussianPoint(hotspot[0], hotspot[1], config.getHotspotRadiusKm());
+        } else {
+            pickup = uniformPoint(config.getCenterLatitude(), config.getCenterLongitude(), config.getRadiusKm());
+        }
+        // Dépôt à quelques kilomètres du ramassage
+        double[] dropoff = uniformPoint(pickup[0], pickup[1], Math.min(6.0, config.getRadiusKm()));
+        double weight = 0.5 + random.nextDouble() * 9.5;
+        double volume = 0.002 + random.nextDouble() * 0.05;
+        return new SimulatedDelivery(time, new UUID(random.nextLong(), random.nextLong()),
+                pickup[0], pickup[1], dropoff[0], dropoff[1], weight, volume);
+    }
+
+    private double[] uniformPoint(double latitude, double longitude, double radiusKm) {
+        double distance = radiusKm * Math.sqrt(random.nextDouble());
+        double angle = random.nextDouble() * 2 * Math.PI;
+        return offset(latitude, longitude, distance * Math.cos(angle), distance * Math.sin(angle));
+    }
+
+    private double[] gaussianPoint(double latitude, double longitude, double sigmaKm) {
+        return offset(latitude, longitude, random.nextGaussian() * sigmaKm, random.nextGaussian() * sigmaKm);
+    }
+
+    private static double[] offset(double latitude, double longitude, double northKm, double eastKm) {
+        double lat = latitude + northKm / KM_PER_DEGREE_LAT;
+        double lng = longitude + eastKm / (KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(latitude)));
+        return new double[]{lat, lng};
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+}
@@ -0,0 +1,70 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lecture d'une journée d'événements delivery.created enregistrée au format CSV :
+ * created_at,delivery_id,pickup_lat,pickup_lng,dropoff_lat,dropoff_lng,weight_kg,volume_m3
+ * created_at est un instant ISO-8601 ou un timestamp en millisecondes ; la première ligne
+ * peut être un en-tête. Les instants sont ramenés au premier événement du fichier.
+ */
+public final class DeliveryReplay {
+
+    private DeliveryReplay() {
+    }
+
+    public static List<SimulatedDelivery> load(Path file) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("created_at")) {
+                    continue;
+                }
+                rows.add(line.split(","));
+            }
+        }
+
+        List<SimulatedDelivery> deliveries = new ArrayList<>(rows.size());
+        long origin = Long.MAX_VALUE;
+        long[] timestamps = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            timestamps[i] = parseTimestamp(rows.get(i)[0].trim());
+            origin = Math.min(origin, timestamps[i]);
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            if (row.length < 6) {
+                throw new IllegalArgumentException("Ligne de rejeu invalide: " + String.join(",", row));
+            }
+            deliveries.add(new SimulatedDelivery(
+                    (timestamps[i] - origin) / 1000.0,
+                    UUID.fromString(row[1].trim()),
+                    Double.parseDouble(row[2].trim()),
+                    Double.parseDouble(row[3].trim()),
+                    Double.parseDouble(row[4].trim()),
+                    Double.parseDouble(row[5].trim()),
+                    row.length > 6 && !row[6].isBlank() ? Double.parseDouble(row[6].trim()) : 1.0,
+                    row.length > 7 && !row[7].isBlank() ? Double.parseDouble(row[7].trim()) : 0.01));
+        }
+        deliveries.sort(Comparator.comparingDouble(SimulatedDelivery::createdAtSeconds));
+        return deliveries;
+    }
+
+    private static long parseTimestamp(String value) {
+        if (value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        return Instant.parse(value).toEpochMilli();
+    }
+}
@@ -0,0 +1,304 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import com.smartdelivery.dispatcher.fleet.FleetState;
+import com.smartdelivery.dispatcher.fleet.GeoGrid;
+import com.smartdelivery.dispatcher.fleet.PostgisCourierLocator;
+import com.smartdelivery.dispatcher.heatmap.DemandHeatmap;
+import com.smartdelivery.dispatcher.model.Courier;
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.model.DispatchRequest;
+import com.smartdelivery.dispatcher.model.Location;
+import com.smartdelivery.dispatcher.policy.DispatchPolicyEngine;
+import com.smartdelivery.dispatcher.policy.EtaPolicy;
+import com.smartdelivery.dispatcher.policy.LoadBalancedPolicy;
+import com.smartdelivery.dispatcher.policy.NearestPolicy;
+import com.smartdelivery.dispatcher.repository.AssignmentBulkRepository;
+import com.smartdelivery.dispatcher.repository.CourierRepository;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.service.AsyncRouteOptimizerClient;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import com.smartdelivery.dispatcher.service.RouteOptimizerClient;
+import com.smartdelivery.dispatcher.shard.ShardCoordinator;
+import com.smartdelivery.dispatcher.timer.AssignmentTimeoutScheduler;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Simulation à événements discrets du dispatcher, exécutée en mémoire.
+ * Le vrai DispatcherService et le vrai FleetState sont utilisés ; les dépôts JPA sont remplacés
+ * par des maps, RabbitMQ, le route-optimizer et le planificateur d'échéances par des bouchons.
+ * Le temps des livreurs est simulé, seule la durée des appels à assignDelivery est mesurée.
+ *
+ * Lancement : mvn -Psimulation test-compile exec:java -Dsimulation.couriers=1000 -Dsimulation.policy=eta
+ */
+public class DispatchSimulation {
+
+    private final SimulationConfig config;
+    private final Map<UUID, Courier> courierStore = new HashMap<>();
+    private final Map<UUID, DeliveryAssignment> assignmentStore = new HashMap<>();
+    private final Map<UUID, DeliveryAssignment> activeByDelivery = new HashMap<>();
+    private final Map<UUID, SimulatedCourier> simulatedCouriers = new HashMap<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FleetState fleetState;
+    private DispatcherService dispatcherService;
+
+    public DispatchSimulation(SimulationConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws IOException {
+        SimulationConfig config = SimulationConfig.fromSystemProperties();
+        SimulationReport report = new DispatchSimulation(config).run();
+        System.out.println(report.format());
+    }
+
+    /**
+     * Exécute la simulation et retourne ses mesures
+     */
+    public SimulationReport run() throws IOException {
+        DeliveryGenerator generator = new DeliveryGenerator(config);
+        List<SimulatedDelivery> deliveries = config.getReplayFile() != null
+                ? DeliveryReplay.load(Path.of(config.getReplayFile()))
+                : generator.deliveries();
+
+        setUp(generator.courierPositions());
+        System.out.printf("Simulating %d deliveries with %d couriers, policy %s%s%n", deliveries.size(),
+                config.getCouriers(), config.getPolicy(),
+                config.getReplayFile() != null ? " (replay of " + config.getReplayFile() + ")" : "");
+
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        for (SimulatedDelivery delivery : deliveries) {
+            events.add(Event.arrival(delivery.createdAtSeconds(), delivery, 1));
+        }
+
+        SimulationReport report = new SimulationReport(config.getPolicy());
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            switch (event.type) {
+                case ARRIVAL -> onArrival(event, events, report);
+                case START -> dispatcherService.updateAssignmentStatus(
+                        event.assignmentId, DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+                case COMPLETE -> {
+                    dispatcherService.updateAssignmentStatus(
+                            event.assignmentId, DeliveryAssignment.AssignmentStatus.COMPLETED);
+                    fleetState.updatePosition(event.courierId, event.latitude, event.longitude);
+                }
+            }
+        }
+
+        for (Timer timer : meterRegistry.find("dispatcher.policy.stage").tag("policy", config.getPolicy()).timers()) {
+            report.recordStageLatency(timer.getId().getTag("stage"), timer.mean(TimeUnit.MICROSECONDS));
+        }
+        return report;
+    }
+
+    private void onArrival(Event event, PriorityQueue<Event> events, SimulationReport report) {
+        SimulatedDelivery delivery = event.delivery;
+        DispatchRequest request = DispatchRequest.builder()
+                .deliveryId(delivery.deliveryId())
+                .pickupLatitude(delivery.pickupLatitude())
+                .pickupLongitude(delivery.pickupLongitude())
+                .dropoffLatitude(delivery.dropoffLatitude())
+                .dropoffLongitude(delivery.dropoffLongitude())
+                .packageWeight(delivery.weight())
+                .packageVolume(delivery.volume())
+                .build();
+
+        long start = System.nanoTime();
+        DeliveryAssignment assignment;
+        try {
+            assignment = dispatcherService.assignDelivery(request);
+        } catch (RuntimeException e) {
+            report.recordFailedAttempt(System.nanoTime() - start);
+            if (event.attempt < config.getMaxAttempts()) {
+                events.add(Event.arrival(event.time + config.getRetryDelayMinutes() * 60, delivery, event.attempt + 1));
+            } else {
+                report.recordUnassigned();
+            }
+            return;
+        }
+        long latency = System.nanoTime() - start;
+
+        // Le livreur enchaîne ses livraisons : il part de son dernier dépôt prévu dès qu'il est libre
+        SimulatedCourier courier = simulatedCouriers.get(assignment.getCourier().getId());
+        double startAt = Math.max(event.time, courier.freeAt);
+        double emptyKm = GeoGrid.distanceKm(courier.latitude, courier.longitude,
+                delivery.pickupLatitude(), delivery.pickupLongitude());
+        double loadedKm = GeoGrid.distanceKm(delivery.pickupLatitude(), delivery.pickupLongitude(),
+                delivery.dropoffLatitude(), delivery.dropoffLongitude());
+        double serviceSeconds = config.getServiceMinutes() * 60;
+        double pickupAt = startAt + travelSeconds(emptyKm) + serviceSeconds;
+        double completedAt = pickupAt + travelSeconds(loadedKm) + serviceSeconds;
+
+        courier.freeAt = completedAt;
+        courier.latitude = delivery.dropoffLatitude();
+        courier.longitude = delivery.dropoffLongitude();
+
+        events.add(Event.status(startAt, Event.Type.START, assignment.getId(), courier.id, 0, 0));
+        events.add(Event.status(completedAt, Event.Type.COMPLETE, assignment.getId(), courier.id,
+                delivery.dropoffLatitude(), delivery.dropoffLongitude()));
+        report.recordAssignment(latency, pickupAt - delivery.createdAtSeconds(), emptyKm, loadedKm);
+    }
+
+    private double travelSeconds(double km) {
+        return km / config.getCourierSpeedKmh() * 3600;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setUp(List<double[]> courierPositions) {
+        Courier.VehicleType[] vehicleTypes = {
+                Courier.VehicleType.BICYCLE, Courier.VehicleType.BICYCLE,
+                Courier.VehicleType.MOTORCYCLE, Courier.VehicleType.CAR};
+        for (int i = 0; i < courierPositions.size(); i++) {
+            double[] position = courierPositions.get(i);
+            Courier courier = Courier.builder()
+                    .id(new UUID(0, i + 1))
+                    .firstName("Courier")
+                    .lastName(String.valueOf(i + 1))
+                    .status(Courier.CourierStatus.AVAILABLE)
+                    .vehicleType(vehicleTypes[i % vehicleTypes.length])
+                    .currentLocation(Location.builder().latitude(position[0]).longitude(position[1]).build())
+                    .build();
+            courierStore.put(courier.getId(), courier);
+            simulatedCouriers.put(courier.getId(), new SimulatedCourier(courier.getId(), position[0], position[1]));
+        }
+
+        // Bouchons sans enregistrement des invocations, pour ne pas fausser les mesures
+        CourierRepository courierRepository = mock(CourierRepository.class, withSettings().stubOnly());
+        when(courierRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(courierStore.get(invocation.<UUID>getArgument(0))));
+        when(courierRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(courierStore.values()));
+        when(courierRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DeliveryAssignmentRepository assignmentRepository = mock(DeliveryAssignmentRepository.class, withSettings().stubOnly());
+        when(assignmentRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(assignmentStore.get(invocation.<UUID>getArgument(0))));
+        when(assignmentRepository.findFirstByDeliveryIdAndStatusIn(any(), any())).thenAnswer(invocation ->
+                Optional.ofNullable(activeByDelivery.get(invocation.<UUID>getArgument(0))));
+        when(assignmentRepository.findByStatusIn(any())).thenReturn(Collections.emptyList());
+        when(assignmentRepository.save(any())).thenAnswer(invocation -> saveAssignment(invocation.getArgument(0)));
+
+        ObjectProvider<AsyncRouteOptimizerClient> asyncClient = mock(ObjectProvider.class, withSettings().stubOnly());
+        ObjectProvider<ShardCoordinator> shardCoordinator = mock(ObjectProvider.class, withSettings().stubOnly());
+        ObjectProvider<PostgisCourierLocator> postgisCourierLocator = mock(ObjectProvider.class, withSettings().stubOnly());
+        ObjectProvider<DemandHeatmap> heatmap = mock(ObjectProvider.class, withSettings().stubOnly());
+
+        fleetState = new FleetState(courierRepository, assignmentRepository, 0.05);
+        ReflectionTestUtils.setField(fleetState, "maxConcurrentAssignments", 5);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageWeight", 1.0);
+        ReflectionTestUtils.setField(fleetState, "defaultPackageVolume", 0.01);
+        fleetState.loadFromDatabase();
+
+        DispatchPolicyEngine policyEngine = new DispatchPolicyEngine(
+                List.of(new NearestPolicy(), new EtaPolicy(4.0), new LoadBalancedPolicy(2.0)),
+                meterRegistry, heatmap, config.getPolicy(), "", "", "");
+
+        dispatcherService = new DispatcherService(
+                courierRepository,
+                assignmentRepository,
+                mock(RouteOptimizerClient.class, withSettings().stubOnly()),
+                asyncClient,
+                mock(RabbitTemplate.class, withSettings().stubOnly()),
+                fleetState,
+                mock(AssignmentTimeoutScheduler.class, withSettings().stubOnly()),
+                shardCoordinator,
+                postgisCourierLocator,
+                mock(AssignmentBulkRepository.class, withSettings().stubOnly()),
+                policyEngine);
+        ReflectionTestUtils.setField(dispatcherService, "exchangeName", "delivery.exchange");
+        ReflectionTestUtils.setField(dispatcherService, "redispatchRoutingKey", "delivery.redispatch");
+        ReflectionTestUtils.setField(dispatcherService, "courierStatusRoutingKey", "courier.status.updated");
+    }
+
+    private DeliveryAssignment saveAssignment(DeliveryAssignment assignment) {
+        if (assignment.getId() == null) {
+            assignment.setId(UUID.randomUUID());
+        }
+        assignmentStore.put(assignment.getId(), assignment);
+        if (assignment.getStatus() == DeliveryAssignment.AssignmentStatus.ASSIGNED
+                || assignment.getStatus() == DeliveryAssignment.AssignmentStatus.IN_PROGRESS) {
+            activeByDelivery.put(assignment.getDeliveryId(), assignment);
+        } else {
+            activeByDelivery.remove(assignment.getDeliveryId(), assignment);
+        }
+        return assignment;
+    }
+
+    private static final class SimulatedCourier {
+        private final UUID id;
+        private double latitude;
+        private double longitude;
+        private double freeAt; // instant simulé où le livreur termine sa dernière livraison
+
+        private SimulatedCourier(UUID id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+
+        enum Type { ARRIVAL, START, COMPLETE }
+
+        private final double time;
+        private final Type type;
+        private SimulatedDelivery delivery;
+        private int attempt;
+        private UUID assignmentId;
+        private UUID courierId;
+        private double latitude;
+        private double longitude;
+
+        private Event(double time, Type type) {
+            this.time = time;
+            this.type = type;
+        }
+
+        static Event arrival(double time, SimulatedDelivery delivery, int attempt) {
+            Event event = new Event(time, Type.ARRIVAL);
+            event.delivery = delivery;
+            event.attempt = attempt;
+            return event;
+        }
+
+        static Event status(double time, Type type, UUID assignmentId, UUID courierId,
+                            double latitude, double longitude) {
+            Event event = new Event(time, type);
+            event.assignmentId = assignmentId;
+            event.courierId = courierId;
+            event.latitude = latitude;
+            event.longitude = longitude;
+            return event;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(time, other.time);
+            // À instant égal, libérer les livreurs avant d'attribuer de nouvelles livraisons
+            return byTime != 0 ? byTime : Integer.compare(other.type.ordinal(), type.ordinal());
+        }
+    }
+}
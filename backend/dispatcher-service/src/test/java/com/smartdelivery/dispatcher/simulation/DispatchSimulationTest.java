@@ -0,0 +1,99 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchSimulationTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void run_ShouldAssignGeneratedDeliveries() throws IOException {
+        // Arrange
+        SimulationConfig config = SimulationConfig.builder()
+                .couriers(300)
+                .durationMinutes(30)
+                .deliveriesPerMinute(20)
+                .build();
+        int generated = new DeliveryGenerator(config).deliveries().size();
+
+        // Act
+        SimulationReport report = new DispatchSimulation(config).run();
+
+        // Assert
+        assertTrue(generated > 0);
+        assertEquals(generated, report.getAssigned() + report.getUnassigned());
+        assertTrue(report.getAssigned() > generated * 0.9);
+        assertTrue(report.getAssignmentsPerSecond() > 0);
+        assertTrue(report.getEmptyKm() > 0);
+        assertTrue(report.getEmptyRatio() > 0 && report.getEmptyRatio() < 1);
+        assertTrue(report.getLatencyPercentileMicros(99) >= report.getLatencyPercentileMicros(50));
+        assertTrue(report.getWaitPercentileMinutes(50) > 0);
+    }
+
+    @Test
+    void run_ShouldCompareDispatchPolicies() throws IOException {
+        for (String policy : List.of("nearest", "eta", "load-balanced")) {
+            // Arrange
+            SimulationConfig config = SimulationConfig.builder()
+                    .couriers(100)
+                    .durationMinutes(20)
+                    .deliveriesPerMinute(20)
+                    .policy(policy)
+                    .build();
+
+            // Act
+            SimulationReport report = new DispatchSimulation(config).run();
+
+            // Assert
+            assertEquals(policy, report.getPolicy());
+            assertTrue(report.getAssigned() > 0);
+            assertTrue(report.getStageMeanMicros().containsKey("candidates"));
+            assertTrue(report.getStageMeanMicros().containsKey("reservation"));
+        }
+    }
+
+    @Test
+    void deliveries_ShouldBeReproducibleForSameSeed() {
+        // Arrange
+        SimulationConfig config = SimulationConfig.builder().durationMinutes(10).build();
+
+        // Act
+        List<SimulatedDelivery> first = new DeliveryGenerator(config).deliveries();
+        List<SimulatedDelivery> second = new DeliveryGenerator(config).deliveries();
+
+        // Assert
+        assertEquals(first, second);
+    }
+
+    @Test
+    void run_ShouldReplayRecordedDeliveries() throws IOException {
+        // Arrange
+        Path replay = tempDir.resolve("deliveries.csv");
+        Files.writeString(replay, String.join("\n",
+                "created_at,delivery_id,pickup_lat,pickup_lng,dropoff_lat,dropoff_lng,weight_kg,volume_m3",
+                "2024-03-01T09:00:00Z,7f1c6a3e-0000-4000-8000-000000000001,48.8566,2.3522,48.8600,2.3400,2.0,0.01",
+                "2024-03-01T09:00:30Z,7f1c6a3e-0000-4000-8000-000000000002,48.8500,2.3600,48.8450,2.3700,1.0,",
+                "2024-03-01T09:01:00Z,7f1c6a3e-0000-4000-8000-000000000003,48.8700,2.3300,48.8750,2.3350,,"));
+        SimulationConfig config = SimulationConfig.builder()
+                .couriers(20)
+                .radiusKm(5)
+                .replayFile(replay.toString())
+                .build();
+
+        // Act
+        SimulationReport report = new DispatchSimulation(config).run();
+
+        // Assert
+        assertEquals(3, report.getAssigned());
+        assertEquals(0, report.getUnassigned());
+    }
+}
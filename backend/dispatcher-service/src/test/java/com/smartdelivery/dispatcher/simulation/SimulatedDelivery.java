@@ -0,0 +1,12 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import java.util.UUID;
+
+/**
+ * Livraison injectée dans la simulation à l'instant donné (en secondes simulées)
+ */
+public record SimulatedDelivery(double createdAtSeconds, UUID deliveryId,
+                                double pickupLatitude, double pickupLongitude,
+                                double dropoffLatitude, double dropoffLongitude,
+                                double weight, double volume) {
+}
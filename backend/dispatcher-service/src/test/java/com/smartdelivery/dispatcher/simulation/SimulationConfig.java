@@ -0,0 +1,97 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Paramètres d'une simulation d'attribution. Toutes les valeurs peuvent être surchargées
+ * par des propriétés système "simulation.*" (ex: -Dsimulation.couriers=2000).
+ */
+@Data
+@Builder
+public class SimulationConfig {
+
+    @Builder.Default
+    private long seed = 42L;
+
+    // Zone simulée : disque centré sur Paris par défaut
+    @Builder.Default
+    private double centerLatitude = 48.8566;
+    @Builder.Default
+    private double centerLongitude = 2.3522;
+    @Builder.Default
+    private double radiusKm = 15.0;
+
+    @Builder.Default
+    private int couriers = 500;
+
+    // Durée simulée et débit moyen de livraisons
+    @Builder.Default
+    private int durationMinutes = 120;
+    @Builder.Default
+    private double deliveriesPerMinute = 60.0;
+
+    // Rafales : le débit est multiplié par burstFactor pendant les rafales
+    @Builder.Default
+    private double burstFactor = 4.0;
+    @Builder.Default
+    private double burstFraction = 0.1; // part du temps passée en rafale
+    @Builder.Default
+    private double meanBurstMinutes = 5.0;
+
+    // Densité : part des livraisons issues de points chauds (restaurants, entrepôts)
+    @Builder.Default
+    private int hotspots = 8;
+    @Builder.Default
+    private double hotspotShare = 0.6;
+    @Builder.Default
+    private double hotspotRadiusKm = 1.0;
+
+    @Builder.Default
+    private double courierSpeedKmh = 18.0;
+    @Builder.Default
+    private double serviceMinutes = 3.0; // temps passé au ramassage et au dépôt
+
+    // Nouvelle tentative d'une livraison non attribuée (équivalent des queues de retry)
+    @Builder.Default
+    private int maxAttempts = 4;
+    @Builder.Default
+    private double retryDelayMinutes = 1.0;
+
+    // Politique d'attribution appliquée à toutes les livraisons (nearest, eta, load-balanced)
+    @Builder.Default
+    private String policy = "nearest";
+
+    // Fichier CSV d'événements enregistrés à rejouer à la place du générateur
+    private String replayFile;
+
+    public static SimulationConfig fromSystemProperties() {
+        SimulationConfig defaults = SimulationConfig.builder().build();
+        return SimulationConfig.builder()
+                .seed(Long.getLong("simulation.seed", defaults.seed))
+                .centerLatitude(doubleProperty("simulation.center-latitude", defaults.centerLatitude))
+                .centerLongitude(doubleProperty("simulation.center-longitude", defaults.centerLongitude))
+                .radiusKm(doubleProperty("simulation.radius-km", defaults.radiusKm))
+                .couriers(Integer.getInteger("simulation.couriers", defaults.couriers))
+                .durationMinutes(Integer.getInteger("simulation.duration-minutes", defaults.durationMinutes))
+                .deliveriesPerMinute(doubleProperty("simulation.deliveries-per-minute", defaults.deliveriesPerMinute))
+                .burstFactor(doubleProperty("simulation.burst-factor", defaults.burstFactor))
+                .burstFraction(doubleProperty("simulation.burst-fraction", defaults.burstFraction))
+                .meanBurstMinutes(doubleProperty("simulation.mean-burst-minutes", defaults.meanBurstMinutes))
+                .hotspots(Integer.getInteger("simulation.hotspots", defaults.hotspots))
+                .hotspotShare(doubleProperty("simulation.hotspot-share", defaults.hotspotShare))
+                .hotspotRadiusKm(doubleProperty("simulation.hotspot-radius-km", defaults.hotspotRadiusKm))
+                .courierSpeedKmh(doubleProperty("simulation.courier-speed-kmh", defaults.courierSpeedKmh))
+                .serviceMinutes(doubleProperty("simulation.service-minutes", defaults.serviceMinutes))
+                .maxAttempts(Integer.getInteger("simulation.max-attempts", defaults.maxAttempts))
+                .retryDelayMinutes(doubleProperty("simulation.retry-delay-minutes", defaults.retryDelayMinutes))
+                .policy(System.getProperty("simulation.policy", defaults.policy))
+                .replayFile(System.getProperty("simulation.replay-file"))
+                .build();
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null && !value.isBlank() ? Double.parseDouble(value) : defaultValue;
+    }
+}
@@ -0,0 +1,144 @@
+package com.smartdelivery.dispatcher.simulation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Mesures d'une simulation : débit et latence d'attribution (temps réel),
+ * kilomètres à vide et temps d'attente des colis (temps simulé)
+ */
+public class SimulationReport {
+
+    private final String policy;
+    private final Map<String, Double> stageMeanMicros = new LinkedHashMap<>();
+    private long[] latenciesNanos = new long[1024];
+    private double[] waitSeconds = new double[1024];
+    private int assigned;
+    private int unassigned;
+    private int failedAttempts;
+    private long dispatchNanos;
+    private double emptyKm;
+    private double loadedKm;
+
+    public SimulationReport(String policy) {
+        this.policy = policy;
+    }
+
+    void recordStageLatency(String stage, double meanMicros) {
+        stageMeanMicros.put(stage, meanMicros);
+    }
+
+    void recordAssignment(long latencyNanos, double waitTimeSeconds, double emptyKm, double loadedKm) {
+        if (assigned == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, assigned * 2);
+            waitSeconds = Arrays.copyOf(waitSeconds, assigned * 2);
+        }
+        latenciesNanos[assigned] = latencyNanos;
+        waitSeconds[assigned] = waitTimeSeconds;
+        assigned++;
+        dispatchNanos += latencyNanos;
+        this.emptyKm += emptyKm;
+        this.loadedKm += loadedKm;
+    }
+
+    void recordFailedAttempt(long latencyNanos) {
+        failedAttempts++;
+        dispatchNanos += latencyNanos;
+    }
+
+    void recordUnassigned() {
+        unassigned++;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Durée moyenne de chaque étape de la politique d'attribution, en microsecondes
+     */
+    public Map<String, Double> getStageMeanMicros() {
+        return stageMeanMicros;
+    }
+
+    public int getAssigned() {
+        return assigned;
+    }
+
+    public int getUnassigned() {
+        return unassigned;
+    }
+
+    public int getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    /**
+     * Débit du dispatcher : attributions par seconde de temps passé dans assignDelivery
+     */
+    public double getAssignmentsPerSecond() {
+        return dispatchNanos == 0 ? 0 : assigned / (dispatchNanos / 1e9);
+    }
+
+    public double getLatencyPercentileMicros(double percentile) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, assigned);
+        Arrays.sort(sorted);
+        return percentile(sorted, percentile) / 1000.0;
+    }
+
+    public double getWaitPercentileMinutes(double percentile) {
+        double[] sorted = Arrays.copyOf(waitSeconds, assigned);
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[index(sorted.length, percentile)] / 60.0;
+    }
+
+    public double getEmptyKm() {
+        return emptyKm;
+    }
+
+    public double getLoadedKm() {
+        return loadedKm;
+    }
+
+    /**
+     * Part des kilomètres parcourus sans colis (trajets jusqu'aux ramassages)
+     */
+    public double getEmptyRatio() {
+        double total = emptyKm + loadedKm;
+        return total == 0 ? 0 : emptyKm / total;
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append("=== Dispatch simulation report ===\n");
+        report.append(String.format(Locale.ROOT, "Dispatch policy       : %s%n", policy));
+        report.append(String.format(Locale.ROOT, "Deliveries assigned   : %d (unassigned: %d, failed attempts: %d)%n",
+                assigned, unassigned, failedAttempts));
+        report.append(String.format(Locale.ROOT, "Throughput            : %.0f assignments/sec%n", getAssignmentsPerSecond()));
+        report.append(String.format(Locale.ROOT, "Latency (us)          : p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                getLatencyPercentileMicros(50), getLatencyPercentileMicros(95),
+                getLatencyPercentileMicros(99), getLatencyPercentileMicros(100)));
+        StringBuilder stages = new StringBuilder();
+        stageMeanMicros.forEach((stage, micros) ->
+                stages.append(String.format(Locale.ROOT, " %s=%.1f", stage, micros)));
+        report.append(String.format(Locale.ROOT, "Policy stages (us)    :%s (mean)%n", stages));
+        report.append(String.format(Locale.ROOT, "Empty km              : %.1f total, %.2f per delivery, %.1f%% of distance%n",
+                emptyKm, assigned == 0 ? 0 : emptyKm / assigned, getEmptyRatio() * 100));
+        report.append(String.format(Locale.ROOT, "Wait until pickup (min): p50=%.1f p95=%.1f max=%.1f%n",
+                getWaitPercentileMinutes(50), getWaitPercentileMinutes(95), getWaitPercentileMinutes(100)));
+        return report.toString();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[index(sorted.length, percentile)];
+    }
+
+    private static int index(int length, double percentile) {
+        return Math.min(length - 1, Math.max(0, (int) Math.ceil(percentile / 100.0 * length) - 1));
+    }
+}
@@ -0,0 +1,152 @@
+package com.smartdelivery.dispatcher.timer;
+
+import com.smartdelivery.dispatcher.model.DeliveryAssignment;
+import com.smartdelivery.dispatcher.repository.DeliveryAssignmentRepository;
+import com.smartdelivery.dispatcher.service.DispatcherService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssignmentTimeoutSchedulerTest {
+
+    private static final long ACCEPT_TIMEOUT_MS = 50;
+    private static final long IN_PROGRESS_TIMEOUT_MS = 80;
+
+    private final DeliveryAssignmentRepository assignmentRepository = mock(DeliveryAssignmentRepository.class);
+    private final DispatcherService dispatcherService = mock(DispatcherService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AssignmentTimeoutScheduler scheduler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<DispatcherService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(dispatcherService);
+        scheduler = new AssignmentTimeoutScheduler(assignmentRepository, provider, meterRegistry,
+                ACCEPT_TIMEOUT_MS, IN_PROGRESS_TIMEOUT_MS, 10, 64, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void schedule_ShouldRedispatchAnAssignmentNotStartedInTime() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        when(dispatcherService.redispatchExpiredAssignment(assignment.getId(), DeliveryAssignment.AssignmentStatus.ASSIGNED))
+                .thenReturn(true);
+
+        // Act
+        scheduler.schedule(assignment);
+
+        // Assert
+        verify(dispatcherService, timeout(2_000))
+                .redispatchExpiredAssignment(assignment.getId(), DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        verify(dispatcherService, never()).escalateOverdueAssignment(any());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    void schedule_ShouldOnlyEscalateAnOverdueInProgressAssignment() {
+        // Arrange : le colis a été ramassé
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.IN_PROGRESS);
+        when(dispatcherService.escalateOverdueAssignment(assignment.getId())).thenReturn(true);
+
+        // Act
+        scheduler.schedule(assignment);
+
+        // Assert
+        verify(dispatcherService, timeout(2_000)).escalateOverdueAssignment(assignment.getId());
+        verify(dispatcherService, never()).redispatchExpiredAssignment(any(), any());
+        assertEquals(1.0, meterRegistry.counter("dispatcher.assignment.timeouts.escalated").count());
+        assertEquals(0.0, meterRegistry.counter("dispatcher.assignment.timeouts.expired").count());
+    }
+
+    @Test
+    void schedule_ShouldCancelTheDeadlineOfAFinishedAssignment() {
+        // Arrange
+        DeliveryAssignment assignment = assignment(DeliveryAssignment.AssignmentStatus.ASSIGNED);
+        scheduler.schedule(assignment);
+        assertEquals(1, scheduler.getPendingCount());
+
+        // Act
+        assignment.setStatus(DeliveryAssignment.AssignmentStatus.COMPLETED);
+        scheduler.schedule(assignment);
+
+        // Assert
+        assertEquals(0, scheduler.getPendingCount());
+        verify(dispatcherService, after(200).never()).redispatchExpiredAssignment(any(), any());
+    }
+
+    @Test
+    void rebuildFromDatabase_ShouldStartDeadlinesFromTheLastKnownChange() {
+        // Arrange : un assignment en cours modifié il y a longtemps, un autre accepté à l'instant
+        UUID overdue = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        when(assignmentRepository.findDeadlineViewsByStatusIn(anyCollection())).thenReturn(List.of(
+                view(overdue, DeliveryAssignment.AssignmentStatus.IN_PROGRESS, now.minusHours(3), now.minusHours(2)),
+                view(recent, DeliveryAssignment.AssignmentStatus.ASSIGNED, now.plusMinutes(10), null)));
+
+        // Act
+        scheduler.rebuildFromDatabase();
+
+        // Assert : seule l'échéance dépassée expire
+        verify(dispatcherService, timeout(2_000)).escalateOverdueAssignment(overdue);
+        verify(dispatcherService, after(200).never()).redispatchExpiredAssignment(any(), any());
+        assertEquals(1, scheduler.getPendingCount());
+    }
+
+    private static DeliveryAssignment assignment(DeliveryAssignment.AssignmentStatus status) {
+        return DeliveryAssignment.builder()
+                .id(UUID.randomUUID())
+                .deliveryId(UUID.randomUUID())
+                .status(status)
+                .assignedAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static DeliveryAssignmentRepository.AssignmentDeadlineView view(
+            UUID id, DeliveryAssignment.AssignmentStatus status, LocalDateTime assignedAt, LocalDateTime updatedAt) {
+        return new DeliveryAssignmentRepository.AssignmentDeadlineView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public DeliveryAssignment.AssignmentStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public LocalDateTime getAssignedAt() {
+                return assignedAt;
+            }
+
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.smartdelivery.dispatcher.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // Petite roue pour exercer les tours multiples
+        wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, Runnable::run, Thread::new);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void schedule_ShouldRunTaskAfterDelay() throws InterruptedException {
+        // Arrange
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.nanoTime();
+
+        // Act
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            latch.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firedAt.get() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void schedule_ShouldRunTaskBeyondOneWheelRotation() throws InterruptedException {
+        // Arrange : 8 cases de 10 ms, soit 80 ms par tour
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        wheel.schedule(latch::countDown, 250, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    void cancel_ShouldPreventTaskExecution() throws InterruptedException {
+        // Arrange
+        AtomicBoolean fired = new AtomicBoolean();
+        CountDownLatch control = new CountDownLatch(1);
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> fired.set(true), 50, TimeUnit.MILLISECONDS);
+        wheel.schedule(control::countDown, 100, TimeUnit.MILLISECONDS);
+
+        // Act
+        boolean cancelled = timeout.cancel();
+
+        // Assert
+        assertTrue(cancelled);
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertTrue(control.await(2, TimeUnit.SECONDS));
+        assertFalse(fired.get());
+    }
+
+    @Test
+    void schedule_ShouldHandleManyTimeoutsWithCancellations() throws InterruptedException {
+        // Arrange
+        int count = 100_000;
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        AtomicBoolean cancelledFired = new AtomicBoolean();
+        HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[count];
+
+        // Act : une échéance sur deux est annulée
+        for (int i = 0; i < count; i++) {
+            Runnable task = i % 2 == 0 ? latch::countDown : () -> cancelledFired.set(true);
+            timeouts[i] = wheel.schedule(task, 500 + (i % 200), TimeUnit.MILLISECONDS);
+        }
+        for (int i = 1; i < count; i += 2) {
+            timeouts[i].cancel();
+        }
+
+        // Assert
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelledFired.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void schedule_ShouldRejectTimeoutsAfterClose() {
+        // Arrange
+        wheel.start();
+        wheel.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> wheel.schedule(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,27 @@
+package com.smartdelivery.routeoptimizer.config;
+
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitMQConfig {
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    // Création de l'exchange
+    @Bean
+    public TopicExchange deliveryExchange() {
+        return new TopicExchange(exchangeName);
+    }
+
+    // Événements publiés en JSON, lus par le tracking-service
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+}
@@ -1,13 +1,17 @@
 package com.smartdelivery.routeoptimizer.controller;
 
 import com.smartdelivery.routeoptimizer.model.OptimizedRoute;
+import com.smartdelivery.routeoptimizer.model.Route;
 import com.smartdelivery.routeoptimizer.model.RouteRequest;
+import com.smartdelivery.routeoptimizer.service.RouteOptimizationService;
 import com.smartdelivery.routeoptimizer.service.RouteOptimizerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/routes")
 @RequiredArgsConstructor
@@ -15,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 public class RouteOptimizerController {
 
     private final RouteOptimizerService routeOptimizerService;
+    private final RouteOptimizationService routeOptimizationService;
 
     @PostMapping("/optimize")
     public ResponseEntity<OptimizedRoute> optimizeRoute(@RequestBody RouteRequest request) {
@@ -29,6 +34,12 @@ public class RouteOptimizerController {
         }
     }
 
+    @GetMapping("/{routeId}")
+    public ResponseEntity<Route> getRoute(@PathVariable UUID routeId) {
+        log.info("Getting route {}", routeId);
+        return ResponseEntity.ok(routeOptimizationService.getRoute(routeId));
+    }
+
     @GetMapping("/matrix")
     public ResponseEntity<Object> getDistanceMatrix(@RequestParam List<String> points) {
         log.info("Calculating distance matrix for {} points", points.size());
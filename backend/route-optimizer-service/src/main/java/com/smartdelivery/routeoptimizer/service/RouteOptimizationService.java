@@ -7,13 +7,16 @@ import com.smartdelivery.routeoptimizer.model.RoutePoint;
 import com.smartdelivery.routeoptimizer.repository.RouteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -24,10 +27,17 @@ public class RouteOptimizationService {
     private final RouteRepository routeRepository;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
 
     @Value("${graphhopper.base.url}")
     private String graphhopperBaseUrl;
 
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routingkey.route_updated}")
+    private String routeUpdatedRoutingKey;
+
     /**
      * Crée une route optimisée entre deux points
      * @param deliveryId ID de la livraison
@@ -134,7 +144,9 @@ public class RouteOptimizationService {
             route.setEstimatedArrivalTime(LocalDateTime.now().plusSeconds(duration));
             route.setUpdatedAt(LocalDateTime.now());
 
-            return routeRepository.save(route);
+            Route savedRoute = routeRepository.save(route);
+            publishRouteUpdatedEvent(savedRoute);
+            return savedRoute;
         } catch (Exception e) {
             log.error("Erreur lors de l'optimisation de la route {}", routeId, e);
             return route;
@@ -199,7 +211,19 @@ public class RouteOptimizationService {
         route.setStatus(status);
         route.setUpdatedAt(LocalDateTime.now());
 
-        return routeRepository.save(route);
+        Route savedRoute = routeRepository.save(route);
+        publishRouteUpdatedEvent(savedRoute);
+        return savedRoute;
+    }
+
+    /**
+     * Récupère une route avec ses points
+     * @param routeId ID de la route
+     * @return La route
+     */
+    public Route getRoute(UUID routeId) {
+        return routeRepository.findById(routeId)
+                .orElseThrow(() -> new RuntimeException("Route non trouvée avec l'ID: " + routeId));
     }
 
     /**
@@ -223,9 +247,21 @@ public class RouteOptimizationService {
         for (Route route : activeRoutes) {
             route.setStatus(Route.RouteStatus.CANCELLED);
             route.setUpdatedAt(LocalDateTime.now());
-            cancelledRoutes.add(routeRepository.save(route));
+            Route savedRoute = routeRepository.save(route);
+            publishRouteUpdatedEvent(savedRoute);
+            cancelledRoutes.add(savedRoute);
         }
 
         return cancelledRoutes;
     }
+
+    // Les services qui gardent la géométrie d'une route en cache l'invalident à réception
+    private void publishRouteUpdatedEvent(Route route) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("routeId", route.getId().toString());
+        event.put("deliveryId", route.getDeliveryId().toString());
+        event.put("status", route.getStatus().name());
+        rabbitTemplate.convertAndSend(exchangeName, routeUpdatedRoutingKey, event);
+        log.info("Published route.updated event for route ID: {}", route.getId());
+    }
 }
@@ -0,0 +1,63 @@
+package com.smartdelivery.tracking.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Santé et métriques du relais STOMP vers RabbitMQ : disponibilité du broker,
+ * connexions TCP ouvertes (une par session cliente, plus la connexion système) et pertes de connexion
+ */
+@Component("brokerRelay")
+@ConditionalOnProperty(name = "tracking.websocket.broker", havingValue = WebSocketDestinations.RELAY)
+@Slf4j
+public class BrokerRelayMonitor implements HealthIndicator {
+
+    private final AbstractBrokerMessageHandler relayHandler;
+    private final Counter unavailableEvents;
+
+    public BrokerRelayMonitor(
+            @Qualifier("stompBrokerRelayMessageHandler") AbstractBrokerMessageHandler relayHandler,
+            MeterRegistry meterRegistry) {
+        this.relayHandler = relayHandler;
+        this.unavailableEvents = Counter.builder("tracking.websocket.relay.unavailable")
+                .description("Pertes de la connexion système au broker STOMP")
+                .register(meterRegistry);
+        Gauge.builder("tracking.websocket.relay.available", relayHandler, handler -> handler.isBrokerAvailable() ? 1 : 0)
+                .description("Disponibilité du broker STOMP (1 disponible, 0 indisponible)")
+                .register(meterRegistry);
+        Gauge.builder("tracking.websocket.relay.connections", this, BrokerRelayMonitor::connectionCount)
+                .description("Connexions TCP ouvertes vers le broker STOMP")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onBrokerAvailability(BrokerAvailabilityEvent event) {
+        if (event.isBrokerAvailable()) {
+            log.info("STOMP broker relay connected");
+        } else {
+            unavailableEvents.increment();
+            log.warn("STOMP broker relay unavailable, tracking updates are not delivered to subscribers");
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = relayHandler.isBrokerAvailable() ? Health.up() : Health.down();
+        return health.withDetail("connections", connectionCount()).build();
+    }
+
+    private int connectionCount() {
+        return relayHandler instanceof StompBrokerRelayMessageHandler relay ? relay.getConnectionCount() : 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.smartdelivery.tracking.config;
+
+import com.smartdelivery.tracking.service.LocationFrameCodec;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import java.util.Map;
+
+/**
+ * Négociation du format des positions à la connexion STOMP : une application qui envoie
+ * l'en-tête location-format: binary-v1 dans sa trame CONNECT peut ensuite envoyer ses positions
+ * au format binaire (voir {@link LocationFrameCodec}). L'en-tête courier-id, facultatif,
+ * désigne le topic sur lequel les erreurs de la session sont signalées.
+ */
+public class LocationFormatInterceptor implements ChannelInterceptor {
+
+    public static final String FORMAT_HEADER = "location-format";
+    public static final String COURIER_ID_HEADER = "courier-id";
+    public static final String FORMAT_ATTRIBUTE = "tracking.locationFormat";
+    public static final String COURIER_ID_ATTRIBUTE = "tracking.courierId";
+
+    private final boolean binaryEnabled;
+
+    public LocationFormatInterceptor(boolean binaryEnabled) {
+        this.binaryEnabled = binaryEnabled;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (sessionAttributes == null) {
+            return message;
+        }
+
+        if (binaryEnabled && LocationFrameCodec.FORMAT.equals(accessor.getFirstNativeHeader(FORMAT_HEADER))) {
+            sessionAttributes.put(FORMAT_ATTRIBUTE, LocationFrameCodec.FORMAT);
+        }
+        String courierId = accessor.getFirstNativeHeader(COURIER_ID_HEADER);
+        if (courierId != null) {
+            sessionAttributes.put(COURIER_ID_ATTRIBUTE, courierId);
+        }
+        return message;
+    }
+}
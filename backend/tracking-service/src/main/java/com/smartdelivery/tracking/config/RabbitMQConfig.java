@@ -38,6 +38,12 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(inTransitQueueName).build();
     }
 
+    // Queue exclusive à l'instance, supprimée à son arrêt
+    @Bean
+    public Queue routeUpdatedQueue() {
+        return new AnonymousQueue();
+    }
+
     // Binding entre l'exchange et les queues
     @Bean
     public Binding dispatchedBinding() {
@@ -55,6 +61,14 @@ public class RabbitMQConfig {
                 .with("delivery.in_transit");
     }
 
+    @Bean
+    public Binding routeUpdatedBinding() {
+        return BindingBuilder
+                .bind(routeUpdatedQueue())
+                .to(deliveryExchange())
+                .with("route.updated");
+    }
+
     // Configuration du convertisseur de messages JSON
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -0,0 +1,51 @@
+package com.smartdelivery.tracking.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Conversion des destinations /topic à la frontière du relais STOMP (mode relay uniquement) :
+ * les clients s'abonnent à /topic/tracking/{deliveryId} comme avec le broker en mémoire,
+ * RabbitMQ reçoit /topic/tracking.{deliveryId}. Posé sur les canaux entrant et broker dans un sens
+ * ({@link #toBroker()}), sur le canal sortant dans l'autre ({@link #toClient()}).
+ */
+public class RelayDestinationInterceptor implements ChannelInterceptor {
+
+    private final UnaryOperator<String> mapping;
+
+    private RelayDestinationInterceptor(UnaryOperator<String> mapping) {
+        this.mapping = mapping;
+    }
+
+    public static RelayDestinationInterceptor toBroker() {
+        return new RelayDestinationInterceptor(WebSocketDestinations::toBroker);
+    }
+
+    public static RelayDestinationInterceptor toClient() {
+        return new RelayDestinationInterceptor(WebSocketDestinations::toClient);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        // Accesseur du même type que celui du message : le relais traite différemment
+        // les messages STOMP des clients et ceux publiés par l'application
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        if (!(accessor instanceof SimpMessageHeaderAccessor simpAccessor)) {
+            return message;
+        }
+        String destination = simpAccessor.getDestination();
+        String mapped = mapping.apply(destination);
+        if (Objects.equals(destination, mapped)) {
+            return message;
+        }
+        simpAccessor.setDestination(mapped);
+        return MessageBuilder.createMessage(message.getPayload(), simpAccessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,156 @@
+package com.smartdelivery.tracking.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tampons d'envoi bornés par session WebSocket.
+ * Les trames sortantes sont mises en file et écrites par un thread virtuel propre à la session :
+ * un client lent ne bloque ni le broker ni les threads du canal sortant. Lorsque la file est pleine,
+ * les messages STOMP les plus anciens sont abandonnés (les trames de contrôle sont toujours conservées).
+ */
+@Slf4j
+public class SessionSendBuffers {
+
+    private static final String STOMP_MESSAGE_FRAME = "MESSAGE";
+
+    private final int maxMessages;
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, BufferedSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger bufferedMessages = new AtomicInteger();
+    private final Counter droppedMessages;
+
+    public SessionSendBuffers(int maxMessages, MeterRegistry meterRegistry) {
+        this.maxMessages = maxMessages;
+        this.droppedMessages = Counter.builder("tracking.websocket.dropped_messages")
+                .description("Messages abandonnés faute de place dans le tampon d'une session")
+                .register(meterRegistry);
+        Gauge.builder("tracking.websocket.buffered_messages", bufferedMessages, AtomicInteger::get)
+                .description("Messages en attente d'envoi, toutes sessions confondues")
+                .register(meterRegistry);
+        Gauge.builder("tracking.websocket.sessions", sessions, Map::size)
+                .description("Sessions WebSocket ouvertes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Décore le handler WebSocket pour que chaque session passe par un tampon borné
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BufferedSession buffered = new BufferedSession(session);
+                sessions.put(session.getId(), buffered);
+                super.afterConnectionEstablished(buffered);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                BufferedSession buffered = sessions.remove(session.getId());
+                if (buffered != null) {
+                    buffered.clear();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private static boolean isDroppable(WebSocketMessage<?> message) {
+        return message instanceof TextMessage text && text.getPayload().startsWith(STOMP_MESSAGE_FRAME);
+    }
+
+    private class BufferedSession extends WebSocketSessionDecorator {
+
+        private final Deque<WebSocketMessage<?>> buffer = new ArrayDeque<>();
+        private boolean sending; // protégé par buffer
+
+        BufferedSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            synchronized (buffer) {
+                if (buffer.size() >= maxMessages && isDroppable(message)) {
+                    dropOldest();
+                }
+                buffer.addLast(message);
+                bufferedMessages.incrementAndGet();
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sender.execute(this::drain);
+        }
+
+        // Un seul thread d'envoi par session : l'ordre des trames est conservé
+        private void drain() {
+            while (true) {
+                WebSocketMessage<?> next;
+                synchronized (buffer) {
+                    next = buffer.pollFirst();
+                    if (next == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                bufferedMessages.decrementAndGet();
+                try {
+                    getDelegate().sendMessage(next);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to send WebSocket message to session {}: {}", getId(), e.getMessage());
+                    synchronized (buffer) {
+                        clear();
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void dropOldest() {
+            Iterator<WebSocketMessage<?>> messages = buffer.iterator();
+            while (messages.hasNext()) {
+                if (isDroppable(messages.next())) {
+                    messages.remove();
+                    bufferedMessages.decrementAndGet();
+                    droppedMessages.increment();
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            synchronized (buffer) {
+                bufferedMessages.addAndGet(-buffer.size());
+                buffer.clear();
+            }
+        }
+    }
+}
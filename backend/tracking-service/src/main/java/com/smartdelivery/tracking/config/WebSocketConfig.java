@@ -1,11 +1,15 @@
 package com.smartdelivery.tracking.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -14,16 +18,97 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${websocket.allowed.origins}")
     private String allowedOrigins;
 
+    @Value("${tracking.websocket.broker:simple}")
+    private String broker;
+
+    @Value("${tracking.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${tracking.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${tracking.websocket.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${tracking.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${tracking.websocket.relay.virtual-host:/}")
+    private String relayVirtualHost;
+
+    @Value("${tracking.websocket.relay.heartbeat-ms:10000}")
+    private long relayHeartbeatMs;
+
+    @Value("${tracking.websocket.binary-locations.enabled:true}")
+    private boolean binaryLocationsEnabled;
+
+    private final SessionSendBuffers sessionSendBuffers;
+
+    public WebSocketConfig(MeterRegistry meterRegistry,
+                           @Value("${tracking.websocket.session-buffer-messages:256}") int sessionBufferMessages) {
+        this.sessionSendBuffers = new SessionSendBuffers(sessionBufferMessages, meterRegistry);
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (WebSocketDestinations.RELAY.equals(broker)) {
+            // Les abonnements sont portés par RabbitMQ (plugin STOMP) : une mise à jour traitée par
+            // n'importe quelle instance atteint les abonnés de toutes les instances
+            config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setVirtualHost(relayVirtualHost)
+                    .setSystemHeartbeatSendInterval(relayHeartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(relayHeartbeatMs);
+            // Messages publiés par l'application (SimpMessagingTemplate) : même conversion que les abonnements
+            config.configureBrokerChannel().interceptors(RelayDestinationInterceptor.toBroker());
+        } else {
+            // Broker en mémoire : une seule instance, et doublure du relais pour les tests
+            config.enableSimpleBroker("/topic");
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // Une connexion WebSocket (/ws-tracking/websocket) reste sur l'instance qui l'a acceptée ;
+        // les transports HTTP de repli de SockJS enchaînent des requêtes qui doivent atteindre la même
+        // instance : le cookie de session permet au répartiteur de charge de les y router
         registry.addEndpoint("/ws-tracking")
                 .setAllowedOrigins(allowedOrigins)
-                .withSockJS();
+                .withSockJS()
+                .setSessionCookieNeeded(true);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Format des positions négocié par session à la connexion (voir LocationFormatInterceptor)
+        registration.interceptors(new LocationFormatInterceptor(binaryLocationsEnabled));
+        if (WebSocketDestinations.RELAY.equals(broker)) {
+            registration.interceptors(RelayDestinationInterceptor.toBroker());
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (WebSocketDestinations.RELAY.equals(broker)) {
+            // Les clients reçoivent les messages du relais sous la destination à laquelle ils se sont abonnés
+            registration.interceptors(RelayDestinationInterceptor.toClient());
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Tampon borné par session, les messages les plus anciens cèdent la place (voir SessionSendBuffers)
+        registration.addDecoratorFactory(sessionSendBuffers::decorate);
+    }
+
+    @PreDestroy
+    public void shutdownSessionSendBuffers() {
+        sessionSendBuffers.shutdown();
     }
 }
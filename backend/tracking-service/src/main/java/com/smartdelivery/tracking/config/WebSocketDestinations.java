@@ -0,0 +1,52 @@
+package com.smartdelivery.tracking.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Destinations STOMP des topics diffusés aux clients, identiques quel que soit le broker :
+ * les segments sont séparés par "/" (/topic/tracking/{deliveryId}).
+ * En mode relais, RabbitMQ utilise la suite de la destination comme clé de routage et n'y accepte
+ * pas de "/" : {@link RelayDestinationInterceptor} convertit les destinations à la frontière du relais
+ * (voir {@link #toBroker} et {@link #toClient}).
+ */
+@Component
+public class WebSocketDestinations {
+
+    public static final String RELAY = "relay";
+
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    public String tracking(UUID deliveryId) {
+        return topic("tracking", deliveryId.toString());
+    }
+
+    public String topic(String... segments) {
+        return TOPIC_PREFIX + String.join("/", segments);
+    }
+
+    /**
+     * Destination côté broker relais : /topic/tracking/{deliveryId} devient /topic/tracking.{deliveryId}
+     * @param destination Destination publique, éventuellement null
+     * @return La destination avec des segments séparés par ".", inchangée hors de /topic
+     */
+    public static String toBroker(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return destination;
+        }
+        return TOPIC_PREFIX + destination.substring(TOPIC_PREFIX.length()).replace('/', '.');
+    }
+
+    /**
+     * Destination publique d'un message reçu du broker relais, inverse de {@link #toBroker}
+     * @param destination Destination côté broker, éventuellement null
+     * @return La destination avec des segments séparés par "/", inchangée hors de /topic
+     */
+    public static String toClient(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return destination;
+        }
+        return TOPIC_PREFIX + destination.substring(TOPIC_PREFIX.length()).replace('.', '/');
+    }
+}
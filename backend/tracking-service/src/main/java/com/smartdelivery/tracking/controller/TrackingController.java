@@ -1,17 +1,24 @@
 package com.smartdelivery.tracking.controller;
 
 import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Geofence;
 import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.model.LocationBatch;
+import com.smartdelivery.tracking.model.LocationUpdate;
+import com.smartdelivery.tracking.service.GeofenceService;
+import com.smartdelivery.tracking.service.LocationHistoryService;
 import com.smartdelivery.tracking.service.TrackingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,6 +29,8 @@ import java.util.UUID;
 public class TrackingController {
 
     private final TrackingService trackingService;
+    private final LocationHistoryService locationHistoryService;
+    private final GeofenceService geofenceService;
     private final SimpMessagingTemplate messagingTemplate;
 
     @PostMapping("/{deliveryId}")
@@ -48,6 +57,24 @@ public class TrackingController {
         return ResponseEntity.ok(trackingList);
     }
 
+    @GetMapping("/{deliveryId}/history")
+    public ResponseEntity<List<LocationUpdate>> getDeliveryLocationHistory(
+            @PathVariable UUID deliveryId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        log.info("Getting location history for delivery ID: {} between {} and {}", deliveryId, start, end);
+        return ResponseEntity.ok(locationHistoryService.findByDeliveryIdAndTimestampBetween(deliveryId, start, end));
+    }
+
+    @GetMapping("/courier/{courierId}/history")
+    public ResponseEntity<List<LocationUpdate>> getCourierLocationHistory(
+            @PathVariable UUID courierId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        log.info("Getting location history for courier ID: {} between {} and {}", courierId, start, end);
+        return ResponseEntity.ok(locationHistoryService.findByCourierIdAndTimestampBetween(courierId, start, end));
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<List<DeliveryTracking>> getTrackingByStatus(@PathVariable DeliveryTracking.TrackingStatus status) {
         log.info("Getting tracking with status: {}", status);
@@ -64,6 +91,16 @@ public class TrackingController {
         return ResponseEntity.ok(tracking);
     }
 
+    @PutMapping("/{deliveryId}/locations")
+    public ResponseEntity<DeliveryTracking> updateLocations(
+            @PathVariable UUID deliveryId,
+            @Valid @RequestBody LocationBatch batch) {
+        log.info("Updating {} locations for delivery ID: {}",
+                batch.getLocations() != null ? batch.getLocations().size() : 0, deliveryId);
+        DeliveryTracking tracking = trackingService.updateLocations(deliveryId, batch.getLocations());
+        return ResponseEntity.ok(tracking);
+    }
+
     @PutMapping("/{deliveryId}/status")
     public ResponseEntity<DeliveryTracking> updateStatus(
             @PathVariable UUID deliveryId,
@@ -73,6 +110,34 @@ public class TrackingController {
         return ResponseEntity.ok(tracking);
     }
 
+    @PutMapping("/{deliveryId}/eta")
+    public ResponseEntity<DeliveryTracking> updateEstimatedDeliveryTime(
+            @PathVariable UUID deliveryId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime estimatedDeliveryTime) {
+        log.info("Updating estimated delivery time to {} for delivery ID: {}", estimatedDeliveryTime, deliveryId);
+        DeliveryTracking tracking = trackingService.updateEstimatedDeliveryTime(deliveryId, estimatedDeliveryTime);
+        return ResponseEntity.ok(tracking);
+    }
+
+    @GetMapping("/{deliveryId}/geofences")
+    public ResponseEntity<List<Geofence>> getGeofences(@PathVariable UUID deliveryId) {
+        log.info("Getting geofences for delivery ID: {}", deliveryId);
+        return ResponseEntity.ok(geofenceService.getGeofences(deliveryId));
+    }
+
+    @PutMapping("/{deliveryId}/geofences")
+    public ResponseEntity<Geofence> registerGeofence(
+            @PathVariable UUID deliveryId,
+            @RequestBody Geofence geofence) {
+        log.info("Registering {} geofence for delivery ID: {}", geofence.getType(), deliveryId);
+        geofence.setDeliveryId(deliveryId);
+        if (geofence.getCourierId() == null) {
+            // Par défaut, la zone est suivie pour le livreur de la livraison
+            geofence.setCourierId(trackingService.getTrackingSnapshot(deliveryId).getCourierId());
+        }
+        return ResponseEntity.ok(geofenceService.register(geofence));
+    }
+
     // WebSocket endpoint pour les mises à jour en temps réel
     @MessageMapping("/location/update")
     public void handleLocationUpdate(@Payload LocationUpdateMessage message) {
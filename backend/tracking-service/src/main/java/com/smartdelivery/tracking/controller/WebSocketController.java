@@ -1,24 +1,54 @@
 package com.smartdelivery.tracking.controller;
 
+import com.smartdelivery.tracking.config.LocationFormatInterceptor;
+import com.smartdelivery.tracking.config.WebSocketDestinations;
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.model.LocationBatch;
 import com.smartdelivery.tracking.model.LocationUpdate;
+import com.smartdelivery.tracking.service.LocationFrameCodec;
 import com.smartdelivery.tracking.service.TrackingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketController {
 
+    private static final String DELIVERY_ALIASES_ATTRIBUTE = "tracking.deliveryAliases";
+
     private final TrackingService trackingService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDestinations destinations;
+
+    @Value("${tracking.websocket.binary-locations.max-aliases:64}")
+    private int maxAliases;
+
+    /**
+     * État complet du suivi, envoyé une seule fois au client qui s'abonne à /app/tracking/{deliveryId} ;
+     * les mises à jour suivantes arrivent, compactes, sur /topic/tracking/{deliveryId}
+     * @param deliveryId ID de la livraison
+     * @return Le suivi sans son historique de positions
+     */
+    @SubscribeMapping("/tracking/{deliveryId}")
+    public DeliveryTracking subscribeTracking(@DestinationVariable UUID deliveryId) {
+        log.debug("Sending tracking snapshot for delivery {}", deliveryId);
+        return trackingService.getTrackingSnapshot(deliveryId);
+    }
 
     /**
      * Endpoint pour les mises à jour de position depuis l'application mobile du livreur
@@ -31,18 +61,105 @@ public class WebSocketController {
 
         try {
             // Mettre à jour la position dans la base de données
-            trackingService.updateLocation(deliveryId, locationUpdate.getLocation());
+            trackingService.updateLocation(deliveryId, toLocation(locationUpdate));
 
             // Envoyer une confirmation au livreur
-            messagingTemplate.convertAndSend("/topic/courier/" + locationUpdate.getCourierId() + "/ack", 
+            messagingTemplate.convertAndSend(destinations.topic("courier", locationUpdate.getCourierId(), "ack"), 
                 "Location updated successfully");
 
         } catch (Exception e) {
             log.error("Error processing location update for delivery {}", deliveryId, e);
 
             // Envoyer un message d'erreur au livreur
-            messagingTemplate.convertAndSend("/topic/courier/" + locationUpdate.getCourierId() + "/error", 
+            messagingTemplate.convertAndSend(destinations.topic("courier", locationUpdate.getCourierId(), "error"), 
                 "Failed to update location: " + e.getMessage());
         }
     }
+
+    /**
+     * Endpoint pour les positions mises en tampon par l'application du livreur pendant une perte
+     * de connexion, envoyées en un seul message à la reconnexion
+     * @param deliveryId ID de la livraison
+     * @param batch Positions dans l'ordre chronologique
+     */
+    @MessageMapping("/tracking/{deliveryId}/locations")
+    public void updateLocations(@DestinationVariable UUID deliveryId, @Payload LocationBatch batch) {
+        int size = batch.getLocations() != null ? batch.getLocations().size() : 0;
+        log.info("Received {} buffered locations for delivery {}", size, deliveryId);
+
+        try {
+            // Un seul enregistrement et une seule diffusion pour tout le lot
+            trackingService.updateLocations(deliveryId, batch.getLocations());
+
+            messagingTemplate.convertAndSend(destinations.topic("courier", batch.getCourierId(), "ack"),
+                "Locations updated successfully (" + size + ")");
+
+        } catch (Exception e) {
+            log.error("Error processing buffered locations for delivery {}", deliveryId, e);
+
+            messagingTemplate.convertAndSend(destinations.topic("courier", batch.getCourierId(), "error"),
+                "Failed to update locations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint binaire compact (voir {@link LocationFrameCodec}), réservé aux sessions qui l'ont négocié
+     * à la connexion. Les trames sont des messages WebSocket binaires (content-type application/octet-stream)
+     * sur l'URL WebSocket brute /ws-tracking/websocket, les transports de repli de SockJS ne portant que du texte.
+     * Une trame d'association lie un alias de la session à une livraison ; une trame de positions est
+     * enregistrée comme un lot. Aucun accusé de réception n'est envoyé, seules les erreurs sont signalées.
+     * @param frame Trame binaire
+     * @param headerAccessor En-têtes du message, pour les attributs de la session
+     */
+    @MessageMapping("/tracking/binary")
+    public void updateLocationsBinary(@Payload byte[] frame, SimpMessageHeaderAccessor headerAccessor) {
+        Map<String, Object> session = headerAccessor.getSessionAttributes();
+        try {
+            if (session == null || !LocationFrameCodec.FORMAT.equals(session.get(LocationFormatInterceptor.FORMAT_ATTRIBUTE))) {
+                throw new IllegalStateException("Binary location format was not negotiated for this session");
+            }
+            @SuppressWarnings("unchecked")
+            Map<Integer, UUID> aliases = (Map<Integer, UUID>) session.computeIfAbsent(
+                    DELIVERY_ALIASES_ATTRIBUTE, key -> new ConcurrentHashMap<Integer, UUID>());
+            int alias = LocationFrameCodec.alias(frame);
+
+            if (LocationFrameCodec.frameType(frame) == LocationFrameCodec.BIND) {
+                if (aliases.size() >= maxAliases && !aliases.containsKey(alias)) {
+                    throw new IllegalStateException("Too many delivery aliases for this session");
+                }
+                UUID deliveryId = LocationFrameCodec.decodeBinding(frame);
+                aliases.put(alias, deliveryId);
+                log.debug("Bound alias {} to delivery {} for session {}", alias, deliveryId, headerAccessor.getSessionId());
+                return;
+            }
+
+            UUID deliveryId = aliases.get(alias);
+            if (deliveryId == null) {
+                throw new IllegalStateException("Unknown delivery alias: " + alias);
+            }
+            trackingService.updateLocations(deliveryId, LocationFrameCodec.decodeLocations(frame));
+
+        } catch (Exception e) {
+            log.error("Error processing binary location frame for session {}", headerAccessor.getSessionId(), e);
+
+            // Envoyer un message d'erreur au livreur, s'il s'est identifié à la connexion
+            Object courierId = session != null ? session.get(LocationFormatInterceptor.COURIER_ID_ATTRIBUTE) : null;
+            if (courierId != null) {
+                messagingTemplate.convertAndSend(destinations.topic("courier", courierId.toString(), "error"),
+                    "Failed to update location: " + e.getMessage());
+            }
+        }
+    }
+
+    // Position enregistrée à partir des champs de la mise à jour envoyée par l'application
+    private static Location toLocation(LocationUpdate locationUpdate) {
+        return Location.builder()
+                .latitude(locationUpdate.getLatitude())
+                .longitude(locationUpdate.getLongitude())
+                .address(locationUpdate.getAddress())
+                .timestamp(locationUpdate.getTimestamp() != null ? locationUpdate.getTimestamp() : LocalDateTime.now())
+                .speed(locationUpdate.getSpeed())
+                .heading(locationUpdate.getHeading())
+                .build();
+    }
 }
@@ -3,6 +3,7 @@ package com.smartdelivery.tracking.listener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.smartdelivery.tracking.model.DeliveryTracking;
 import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.service.GeofenceService;
 import com.smartdelivery.tracking.service.TrackingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +19,7 @@ import java.util.UUID;
 public class DeliveryEventListener {
 
     private final TrackingService trackingService;
+    private final GeofenceService geofenceService;
     private final ObjectMapper objectMapper;
 
     @RabbitListener(queues = "${rabbitmq.queue.dispatched.name}")
@@ -30,19 +32,18 @@ public class DeliveryEventListener {
             UUID courierId = UUID.fromString(message.get("courierId").toString());
 
             // Obtenir la position de départ (adresse de ramassage)
-            Map<String, Object> pickupAddress = (Map<String, Object>) message.get("pickupAddress");
-            Map<String, Object> coordinates = (Map<String, Object>) pickupAddress.get("coordinates");
-
-            Location pickupLocation = Location.builder()
-                    .latitude(Double.parseDouble(coordinates.get("latitude").toString()))
-                    .longitude(Double.parseDouble(coordinates.get("longitude").toString()))
-                    .address(pickupAddress.get("street").toString() + ", " + 
-                            pickupAddress.get("city").toString())
-                    .build();
+            Location pickupLocation = toLocation((Map<String, Object>) message.get("pickupAddress"));
 
             // Créer le suivi pour cette livraison
             trackingService.createTracking(deliveryId, courierId, pickupLocation);
 
+            // Zones de ramassage et de dépôt, pour détecter la récupération et la livraison du colis
+            Map<String, Object> deliveryAddress = (Map<String, Object>) message.get("deliveryAddress");
+            Location dropoffLocation = deliveryAddress != null && deliveryAddress.get("coordinates") != null
+                    ? toLocation(deliveryAddress)
+                    : null;
+            geofenceService.registerDeliveryGeofences(deliveryId, courierId, pickupLocation, dropoffLocation);
+
         } catch (Exception e) {
             log.error("Error processing delivery.dispatched event", e);
         }
@@ -75,4 +76,15 @@ public class DeliveryEventListener {
             log.error("Error processing delivery.in_transit event", e);
         }
     }
+
+    private static Location toLocation(Map<String, Object> address) {
+        Map<String, Object> coordinates = (Map<String, Object>) address.get("coordinates");
+
+        return Location.builder()
+                .latitude(Double.parseDouble(coordinates.get("latitude").toString()))
+                .longitude(Double.parseDouble(coordinates.get("longitude").toString()))
+                .address(address.get("street").toString() + ", " +
+                        address.get("city").toString())
+                .build();
+    }
 }
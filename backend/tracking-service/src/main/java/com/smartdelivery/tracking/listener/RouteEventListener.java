@@ -0,0 +1,31 @@
+package com.smartdelivery.tracking.listener;
+
+import com.smartdelivery.tracking.service.RouteOptimizerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteEventListener {
+
+    private final RouteOptimizerService routeOptimizerService;
+
+    // Chaque instance a sa propre queue : toutes invalident leur cache de géométries
+    @RabbitListener(queues = "#{routeUpdatedQueue.name}")
+    public void handleRouteUpdated(Map<String, Object> message) {
+        try {
+            Object routeId = message.get("routeId");
+            if (routeId != null) {
+                log.debug("Received route.updated event for route {}", routeId);
+                routeOptimizerService.invalidate(routeId.toString());
+            }
+        } catch (Exception e) {
+            log.error("Error processing route.updated event", e);
+        }
+    }
+}
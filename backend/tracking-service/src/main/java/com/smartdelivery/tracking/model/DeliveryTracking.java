@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -22,18 +23,21 @@ public class DeliveryTracking {
     @Id
     private String id;
 
+    @Indexed
     private UUID deliveryId;
 
     private UUID courierId;
 
     private Location currentLocation;
 
-    private List<Location> locationHistory;
+    private List<Location> locationHistory; // positions récentes uniquement (tracking.location.history-size)
 
     private LocalDateTime lastUpdated;
 
     private LocalDateTime estimatedDeliveryTime;
 
+    private Integer delayNotifiedMinutes; // dernier seuil de retard notifié pour cette heure estimée
+
     private TrackingStatus status;
 
     private String routeId;
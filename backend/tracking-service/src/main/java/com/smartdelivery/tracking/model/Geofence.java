@@ -0,0 +1,57 @@
+package com.smartdelivery.tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Zone de ramassage ou de dépôt d'une livraison, cercle ou polygone.
+ * L'identifiant est dérivé de la livraison et du type : une livraison a au plus une zone de chaque type.
+ */
+@Document(collection = "geofences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Geofence {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private UUID deliveryId;
+
+    private UUID courierId;
+
+    private GeofenceType type;
+
+    private GeofenceShape shape;
+
+    private Location center; // cercle uniquement
+
+    private Double radiusMeters; // cercle uniquement
+
+    private List<Location> vertices; // polygone uniquement, sommets dans l'ordre
+
+    private LocalDateTime createdAt;
+
+    public static String idOf(UUID deliveryId, GeofenceType type) {
+        return deliveryId + ":" + type.name().toLowerCase();
+    }
+
+    public enum GeofenceType {
+        PICKUP, DROPOFF
+    }
+
+    public enum GeofenceShape {
+        CIRCLE, POLYGON
+    }
+}
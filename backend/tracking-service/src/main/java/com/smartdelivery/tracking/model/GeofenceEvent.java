@@ -0,0 +1,40 @@
+package com.smartdelivery.tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entrée, sortie ou stationnement confirmé d'un livreur dans une zone de livraison,
+ * publié sur geofence.entered, geofence.exited ou geofence.dwell
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeofenceEvent {
+
+    private String geofenceId;
+
+    private UUID deliveryId;
+
+    private UUID courierId;
+
+    private Geofence.GeofenceType geofenceType;
+
+    private GeofenceEventType eventType;
+
+    private Location location; // position qui a confirmé l'événement
+
+    private LocalDateTime since; // première position de la transition (entrée dans la zone pour un stationnement)
+
+    private LocalDateTime timestamp;
+
+    public enum GeofenceEventType {
+        ENTERED, EXITED, DWELL
+    }
+}
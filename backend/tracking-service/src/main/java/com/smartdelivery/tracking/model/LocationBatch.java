@@ -0,0 +1,23 @@
+package com.smartdelivery.tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Lot ordonné de positions d'une livraison, rejouées par l'application du livreur
+ * après une perte de connexion (tunnel, sous-sol)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationBatch {
+
+    private String courierId; // destinataire de l'accusé de réception STOMP
+
+    private List<Location> locations; // dans l'ordre chronologique
+}
@@ -0,0 +1,58 @@
+package com.smartdelivery.tracking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bucket de positions d'une livraison : jusqu'à quelques centaines de points consécutifs
+ * sur une fenêtre de temps courte, stockés en tableaux delta-encodés.
+ * Le premier élément de chaque tableau est absolu, les suivants sont des écarts au point précédent.
+ */
+@Document(collection = "location_buckets")
+@CompoundIndexes({
+        @CompoundIndex(name = "delivery_end_time", def = "{ 'deliveryId': 1, 'endTime': 1 }"),
+        @CompoundIndex(name = "courier_end_time", def = "{ 'courierId': 1, 'endTime': 1 }"),
+        @CompoundIndex(name = "tier_delivery_start_time", def = "{ 'tier': 1, 'deliveryId': 1, 'startTime': 1 }")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationBucket {
+
+    public static final int TIER_RAW = 0;
+    public static final int TIER_DOWNSAMPLED = 1;
+
+    @Id
+    private String id;
+
+    private String deliveryId;
+
+    private String courierId;
+
+    private int tier; // 0: positions brutes, 1: positions sous-échantillonnées
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private int count;
+
+    private int[] timeOffsets; // millisecondes depuis startTime, delta-encodées
+
+    private int[] latitudes; // microdegrés, delta-encodés
+
+    private int[] longitudes; // microdegrés, delta-encodés
+
+    private int[] speeds; // dixièmes de km/h, -1 si inconnue
+
+    private int[] headings; // degrés, -1 si inconnu
+}
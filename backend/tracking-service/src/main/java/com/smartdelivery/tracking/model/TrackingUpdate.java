@@ -0,0 +1,57 @@
+package com.smartdelivery.tracking.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Message diffusé sur /topic/tracking/{deliveryId} : dernière position, progression et statut
+ * d'une livraison, sans l'historique des positions. L'état complet est envoyé à l'abonnement.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrackingUpdate {
+
+    private UUID deliveryId;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private Double speed; // en km/h
+
+    private Double heading; // direction en degrés (0-360)
+
+    private Double progressPercentage;
+
+    private DeliveryTracking.TrackingStatus status;
+
+    private LocalDateTime estimatedDeliveryTime;
+
+    private LocalDateTime lastUpdated;
+
+    public static TrackingUpdate from(DeliveryTracking tracking) {
+        TrackingUpdateBuilder update = TrackingUpdate.builder()
+                .deliveryId(tracking.getDeliveryId())
+                .progressPercentage(tracking.getProgressPercentage())
+                .status(tracking.getStatus())
+                .estimatedDeliveryTime(tracking.getEstimatedDeliveryTime())
+                .lastUpdated(tracking.getLastUpdated());
+        Location location = tracking.getCurrentLocation();
+        if (location != null) {
+            update.latitude(location.getLatitude())
+                    .longitude(location.getLongitude())
+                    .speed(location.getSpeed())
+                    .heading(location.getHeading());
+        }
+        return update.build();
+    }
+}
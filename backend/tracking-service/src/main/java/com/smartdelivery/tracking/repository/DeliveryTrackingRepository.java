@@ -10,14 +10,32 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface DeliveryTrackingRepository extends MongoRepository<DeliveryTracking, String> {
+public interface DeliveryTrackingRepository extends MongoRepository<DeliveryTracking, String>,
+        DeliveryTrackingRepositoryCustom {
 
     DeliveryTracking findByDeliveryId(UUID deliveryId);
 
+    /**
+     * Lecture du seul itinéraire d'un suivi et de sa progression (projection), sans charger l'historique des positions
+     */
+    TrackingRouteView findRouteViewByDeliveryId(UUID deliveryId);
+
+    /**
+     * Suivi sans son historique de positions, envoyé aux clients à l'abonnement
+     */
+    @Query(value = "{ 'deliveryId': ?0 }", fields = "{ 'locationHistory': 0 }")
+    DeliveryTracking findSnapshotByDeliveryId(UUID deliveryId);
+
     List<DeliveryTracking> findByCourierId(UUID courierId);
 
     List<DeliveryTracking> findByStatus(DeliveryTracking.TrackingStatus status);
 
+    /**
+     * Identifiants et heures estimées des suivis d'un statut (projection), pour les échéances de retard
+     */
+    List<DeadlineView> findDeadlineViewsByStatusAndEstimatedDeliveryTimeIsNotNull(
+            DeliveryTracking.TrackingStatus status);
+
     @Query("{ 'deliveryId': ?0, 'locationHistory.timestamp': { $gte: ?1, $lte: ?2 } }")
     List<DeliveryTracking> findByDeliveryIdAndLocationHistoryTimestampBetween(
             UUID deliveryId, LocalDateTime startDate, LocalDateTime endDate);
@@ -28,4 +46,16 @@ public interface DeliveryTrackingRepository extends MongoRepository<DeliveryTrac
     @Query(value = "{ 'currentLocation': { $near: { $geometry: { type: 'Point', coordinates: [ ?0, ?1 ] }, $maxDistance: ?2 } } }", 
            count = true)
     long countDeliveriesNearLocation(Double longitude, Double latitude, Double maxDistanceInMeters);
+
+    interface TrackingRouteView {
+        String getRouteId();
+
+        Double getProgressPercentage();
+    }
+
+    interface DeadlineView {
+        UUID getDeliveryId();
+
+        LocalDateTime getEstimatedDeliveryTime();
+    }
 }
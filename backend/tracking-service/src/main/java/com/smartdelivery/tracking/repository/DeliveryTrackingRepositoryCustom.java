@@ -0,0 +1,67 @@
+package com.smartdelivery.tracking.repository;
+
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Location;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mises à jour partielles et atomiques d'un suivi ($set / $push) : le document n'est jamais relu
+ * ni réécrit en entier, le coût d'une mise à jour ne dépend donc pas de la durée de la livraison
+ */
+public interface DeliveryTrackingRepositoryCustom {
+
+    /**
+     * Enregistre une nouvelle position : position courante et progression ($set),
+     * ajout à l'historique récent borné ($push avec $slice). Le statut n'est pas modifié :
+     * il n'avance que par {@link #advanceStatusAndGet}, une position ne fait donc jamais reculer une livraison
+     * @param deliveryId ID de la livraison
+     * @param location Nouvelle position
+     * @param progressPercentage Progression, ou null pour la laisser inchangée
+     * @return true si un suivi existe pour cette livraison
+     */
+    boolean recordLocation(UUID deliveryId, Location location, Double progressPercentage);
+
+    /**
+     * Comme {@link #recordLocation}, en une seule opération findAndModify
+     * @return Le suivi mis à jour, sans son historique de positions, ou null si aucun suivi n'existe
+     */
+    DeliveryTracking recordLocationAndGet(UUID deliveryId, Location location, Double progressPercentage);
+
+    /**
+     * Enregistre un lot ordonné de positions en une seule opération findAndModify : la dernière devient
+     * la position courante et toutes sont ajoutées à l'historique récent borné
+     * @param locations Positions dans l'ordre chronologique, au moins une
+     * @return Le suivi mis à jour, sans son historique de positions, ou null si aucun suivi n'existe
+     */
+    DeliveryTracking recordLocationsAndGet(UUID deliveryId, List<Location> locations, Double progressPercentage);
+
+    /**
+     * Met à jour le statut d'un suivi en une seule opération findAndModify
+     * @return Le suivi mis à jour, sans son historique de positions, ou null si aucun suivi n'existe
+     */
+    DeliveryTracking updateStatusAndGet(UUID deliveryId, DeliveryTracking.TrackingStatus status);
+
+    /**
+     * Fait avancer le statut d'un suivi, uniquement s'il est antérieur au statut donné
+     * (dans l'ordre de l'énumération) : un événement tardif ne fait pas reculer une livraison
+     * @return Le suivi mis à jour, sans son historique de positions, ou null s'il n'a pas changé
+     */
+    DeliveryTracking advanceStatusAndGet(UUID deliveryId, DeliveryTracking.TrackingStatus status);
+
+    /**
+     * Met à jour l'heure de livraison estimée ; les notifications de retard repartent de zéro
+     * @return Le suivi mis à jour, sans son historique de positions, ou null si aucun suivi n'existe
+     */
+    DeliveryTracking updateEstimatedDeliveryTimeAndGet(UUID deliveryId, LocalDateTime estimatedDeliveryTime);
+
+    /**
+     * Réserve la notification d'un seuil de retard : le suivi doit être en transit, avec l'heure estimée
+     * donnée, et aucun seuil supérieur ou égal ne doit déjà avoir été notifié. Une seule instance
+     * obtient la réservation, même si plusieurs détectent le même retard.
+     * @return Le suivi, sans son historique de positions, ou null si la notification n'est pas due
+     */
+    DeliveryTracking claimDelayNotification(UUID deliveryId, LocalDateTime estimatedDeliveryTime, int delayMinutes);
+}
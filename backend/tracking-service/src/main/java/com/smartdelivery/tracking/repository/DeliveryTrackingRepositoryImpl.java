@@ -0,0 +1,111 @@
+package com.smartdelivery.tracking.repository;
+
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Location;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class DeliveryTrackingRepositoryImpl implements DeliveryTrackingRepositoryCustom {
+
+    private static final String LOCATION_HISTORY = "locationHistory";
+    private static final String DELAY_NOTIFIED_MINUTES = "delayNotifiedMinutes";
+
+    private final MongoTemplate mongoTemplate;
+    private final int historySize;
+
+    public DeliveryTrackingRepositoryImpl(MongoTemplate mongoTemplate,
+                                          @Value("${tracking.location.history-size:100}") int historySize) {
+        this.mongoTemplate = mongoTemplate;
+        this.historySize = historySize;
+    }
+
+    @Override
+    public boolean recordLocation(UUID deliveryId, Location location, Double progressPercentage) {
+        return mongoTemplate.updateFirst(byDeliveryId(deliveryId),
+                locationUpdate(List.of(location), progressPercentage), DeliveryTracking.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public DeliveryTracking recordLocationAndGet(UUID deliveryId, Location location, Double progressPercentage) {
+        return findAndModify(deliveryId, locationUpdate(List.of(location), progressPercentage));
+    }
+
+    @Override
+    public DeliveryTracking recordLocationsAndGet(UUID deliveryId, List<Location> locations, Double progressPercentage) {
+        return findAndModify(deliveryId, locationUpdate(locations, progressPercentage));
+    }
+
+    @Override
+    public DeliveryTracking updateStatusAndGet(UUID deliveryId, DeliveryTracking.TrackingStatus status) {
+        return findAndModify(deliveryId, new Update()
+                .set("status", status)
+                .set("lastUpdated", LocalDateTime.now()));
+    }
+
+    @Override
+    public DeliveryTracking advanceStatusAndGet(UUID deliveryId, DeliveryTracking.TrackingStatus status) {
+        List<DeliveryTracking.TrackingStatus> earlier = Arrays.asList(DeliveryTracking.TrackingStatus.values())
+                .subList(0, status.ordinal());
+        Query query = Query.query(Criteria.where("deliveryId").is(deliveryId).and("status").in(earlier));
+        query.fields().exclude(LOCATION_HISTORY);
+        return mongoTemplate.findAndModify(query, new Update()
+                        .set("status", status)
+                        .set("lastUpdated", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), DeliveryTracking.class);
+    }
+
+    @Override
+    public DeliveryTracking updateEstimatedDeliveryTimeAndGet(UUID deliveryId, LocalDateTime estimatedDeliveryTime) {
+        return findAndModify(deliveryId, new Update()
+                .set("estimatedDeliveryTime", estimatedDeliveryTime)
+                .unset(DELAY_NOTIFIED_MINUTES)
+                .set("lastUpdated", LocalDateTime.now()));
+    }
+
+    @Override
+    public DeliveryTracking claimDelayNotification(UUID deliveryId, LocalDateTime estimatedDeliveryTime,
+                                                   int delayMinutes) {
+        Query query = Query.query(Criteria.where("deliveryId").is(deliveryId)
+                .and("status").is(DeliveryTracking.TrackingStatus.IN_TRANSIT)
+                .and("estimatedDeliveryTime").is(estimatedDeliveryTime)
+                .orOperator(Criteria.where(DELAY_NOTIFIED_MINUTES).is(null),
+                        Criteria.where(DELAY_NOTIFIED_MINUTES).lt(delayMinutes)));
+        query.fields().exclude(LOCATION_HISTORY);
+        return mongoTemplate.findAndModify(query, new Update().set(DELAY_NOTIFIED_MINUTES, delayMinutes),
+                FindAndModifyOptions.options().returnNew(true), DeliveryTracking.class);
+    }
+
+    private Update locationUpdate(List<Location> locations, Double progressPercentage) {
+        Update update = new Update()
+                .set("currentLocation", locations.get(locations.size() - 1))
+                .set("lastUpdated", LocalDateTime.now());
+        if (progressPercentage != null) {
+            update.set("progressPercentage", progressPercentage);
+        }
+        // Seules les dernières positions sont conservées dans le document
+        update.push(LOCATION_HISTORY).slice(-historySize).each(locations.toArray());
+        return update;
+    }
+
+    // Le document retourné exclut l'historique pour garder une taille constante
+    private DeliveryTracking findAndModify(UUID deliveryId, Update update) {
+        Query query = byDeliveryId(deliveryId);
+        query.fields().exclude(LOCATION_HISTORY);
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), DeliveryTracking.class);
+    }
+
+    private static Query byDeliveryId(UUID deliveryId) {
+        return Query.query(Criteria.where("deliveryId").is(deliveryId));
+    }
+}
@@ -0,0 +1,32 @@
+package com.smartdelivery.tracking.repository;
+
+import com.smartdelivery.tracking.model.Geofence;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface GeofenceRepository extends MongoRepository<Geofence, String> {
+
+    /**
+     * Trouve les zones d'une livraison
+     * @param deliveryId ID de la livraison
+     * @return Liste des zones
+     */
+    List<Geofence> findByDeliveryId(UUID deliveryId);
+
+    /**
+     * Parcourt toutes les zones actives, sans les charger en une seule liste
+     * @return Flux des zones, à fermer après usage
+     */
+    Stream<Geofence> streamAllBy();
+
+    /**
+     * Supprime les zones d'une livraison
+     * @param deliveryId ID de la livraison
+     */
+    void deleteByDeliveryId(UUID deliveryId);
+}
@@ -0,0 +1,33 @@
+package com.smartdelivery.tracking.repository;
+
+import com.smartdelivery.tracking.model.LocationBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface LocationBucketRepository extends MongoRepository<LocationBucket, String> {
+
+    /**
+     * Buckets d'une livraison dont la fenêtre chevauche l'intervalle donné
+     */
+    @Query(value = "{ 'deliveryId': ?0, 'endTime': { $gte: ?1 }, 'startTime': { $lte: ?2 } }", sort = "{ 'startTime': 1 }")
+    List<LocationBucket> findOverlappingByDeliveryId(String deliveryId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Buckets d'un livreur dont la fenêtre chevauche l'intervalle donné
+     */
+    @Query(value = "{ 'courierId': ?0, 'endTime': { $gte: ?1 }, 'startTime': { $lte: ?2 } }", sort = "{ 'startTime': 1 }")
+    List<LocationBucket> findOverlappingByCourierId(String courierId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Buckets d'un niveau terminés avant la date donnée, regroupés par livraison (à fermer après usage)
+     */
+    Stream<LocationBucket> findByTierAndEndTimeBeforeOrderByDeliveryIdAscStartTimeAsc(int tier, LocalDateTime endTime);
+
+    long deleteByTierAndEndTimeBefore(int tier, LocalDateTime endTime);
+}
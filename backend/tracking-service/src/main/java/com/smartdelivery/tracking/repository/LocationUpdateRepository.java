@@ -8,6 +8,11 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Un document par position : remplacé par les buckets de temps de {@link LocationBucketRepository},
+ * à lire via LocationHistoryService. Conservé pour les données déjà présentes dans location_updates.
+ */
+@Deprecated
 @Repository
 public interface LocationUpdateRepository extends MongoRepository<LocationUpdate, String> {
 
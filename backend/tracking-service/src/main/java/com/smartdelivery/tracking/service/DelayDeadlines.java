@@ -0,0 +1,95 @@
+package com.smartdelivery.tracking.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Échéances de retard des livraisons en transit, dans une file de priorité ordonnée par date.
+ * Une livraison a au plus une échéance active : celle du prochain seuil de retard à franchir
+ * (heure estimée + seuil). Les échéances remplacées restent dans la file et sont ignorées à leur sortie.
+ */
+final class DelayDeadlines {
+
+    private final int[] thresholdsMinutes;
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparing(Deadline::fireAt));
+    private final Map<UUID, Deadline> active = new HashMap<>();
+
+    /**
+     * @param thresholdsMinutes Seuils de retard notifiés, en minutes après l'heure estimée
+     */
+    DelayDeadlines(int[] thresholdsMinutes) {
+        if (thresholdsMinutes.length == 0) {
+            throw new IllegalArgumentException("Au moins un seuil de retard est requis");
+        }
+        this.thresholdsMinutes = thresholdsMinutes.clone();
+        Arrays.sort(this.thresholdsMinutes);
+    }
+
+    /**
+     * Planifie les échéances d'une livraison pour son heure estimée. Si des seuils sont déjà franchis,
+     * seul le plus élevé est dû immédiatement. Sans effet si l'heure estimée n'a pas changé.
+     */
+    synchronized void schedule(UUID deliveryId, LocalDateTime estimatedDeliveryTime, LocalDateTime now) {
+        Deadline current = active.get(deliveryId);
+        if (current != null && current.estimatedDeliveryTime().equals(estimatedDeliveryTime)) {
+            return;
+        }
+        int index = 0;
+        while (index + 1 < thresholdsMinutes.length
+                && !now.isBefore(estimatedDeliveryTime.plusMinutes(thresholdsMinutes[index + 1]))) {
+            index++;
+        }
+        add(deliveryId, estimatedDeliveryTime, index);
+    }
+
+    synchronized void cancel(UUID deliveryId) {
+        active.remove(deliveryId);
+    }
+
+    /**
+     * Retire les échéances atteintes et planifie pour chacune le seuil suivant
+     */
+    synchronized List<Deadline> pollDue(LocalDateTime now) {
+        List<Deadline> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().fireAt().isAfter(now)) {
+            Deadline deadline = queue.poll();
+            if (active.get(deadline.deliveryId()) != deadline) {
+                continue; // remplacée ou annulée
+            }
+            due.add(deadline);
+            if (deadline.thresholdIndex() + 1 < thresholdsMinutes.length) {
+                add(deadline.deliveryId(), deadline.estimatedDeliveryTime(), deadline.thresholdIndex() + 1);
+            } else {
+                active.remove(deadline.deliveryId());
+            }
+        }
+        return due;
+    }
+
+    synchronized int size() {
+        return active.size();
+    }
+
+    private void add(UUID deliveryId, LocalDateTime estimatedDeliveryTime, int index) {
+        Deadline deadline = new Deadline(deliveryId, estimatedDeliveryTime, index, thresholdsMinutes[index],
+                estimatedDeliveryTime.plusMinutes(thresholdsMinutes[index]));
+        active.put(deliveryId, deadline);
+        queue.add(deadline);
+        // Reconstruire la file lorsque les échéances remplacées y sont devenues majoritaires
+        if (queue.size() > 2 * active.size() + 1024) {
+            queue.clear();
+            queue.addAll(active.values());
+        }
+    }
+
+    record Deadline(UUID deliveryId, LocalDateTime estimatedDeliveryTime, int thresholdIndex,
+                    int delayMinutes, LocalDateTime fireAt) {
+    }
+}
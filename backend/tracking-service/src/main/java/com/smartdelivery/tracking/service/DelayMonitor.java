@@ -0,0 +1,93 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.repository.DeliveryTrackingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Détection des livraisons en retard par échéances : chaque suivi en transit avec une heure estimée
+ * a une échéance par seuil de retard, et delivery.delayed est publié une seule fois par seuil franchi.
+ * Les échéances suivent les mises à jour des suivis et sont reconstruites au démarrage
+ * à partir des seuls identifiants et heures estimées.
+ */
+@Service
+@Slf4j
+public class DelayMonitor {
+
+    private final DeliveryTrackingRepository trackingRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final DelayDeadlines deadlines;
+    private final Counter delayNotifications;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    public DelayMonitor(DeliveryTrackingRepository trackingRepository,
+                        RabbitTemplate rabbitTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${tracking.delay.thresholds-minutes:0,15,30,60}") int[] thresholdsMinutes) {
+        this.trackingRepository = trackingRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.deadlines = new DelayDeadlines(thresholdsMinutes);
+        this.delayNotifications = Counter.builder("tracking.delay.notifications")
+                .description("Événements delivery.delayed publiés")
+                .register(meterRegistry);
+        Gauge.builder("tracking.delay.deadlines", deadlines, DelayDeadlines::size)
+                .description("Livraisons en transit surveillées pour un retard")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Met à jour l'échéance d'une livraison après une modification de son suivi
+     * @param tracking Suivi mis à jour (statut et heure estimée)
+     */
+    public void track(DeliveryTracking tracking) {
+        if (tracking.getStatus() == DeliveryTracking.TrackingStatus.IN_TRANSIT
+                && tracking.getEstimatedDeliveryTime() != null) {
+            deadlines.schedule(tracking.getDeliveryId(), tracking.getEstimatedDeliveryTime(), LocalDateTime.now());
+        } else {
+            deadlines.cancel(tracking.getDeliveryId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeliveryTrackingRepository.DeadlineView> views = trackingRepository
+                .findDeadlineViewsByStatusAndEstimatedDeliveryTimeIsNotNull(DeliveryTracking.TrackingStatus.IN_TRANSIT);
+        views.forEach(view -> deadlines.schedule(view.getDeliveryId(), view.getEstimatedDeliveryTime(), now));
+        log.info("Rebuilt delay deadlines for {} in-transit deliveries", views.size());
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.delay.check-interval-ms:1000}")
+    public void fireDueDeadlines() {
+        for (DelayDeadlines.Deadline deadline : deadlines.pollDue(LocalDateTime.now())) {
+            try {
+                // La réservation écarte les livraisons livrées entre-temps et les seuils déjà notifiés
+                DeliveryTracking tracking = trackingRepository.claimDelayNotification(
+                        deadline.deliveryId(), deadline.estimatedDeliveryTime(), deadline.delayMinutes());
+                if (tracking == null) {
+                    continue;
+                }
+                log.warn("Delivery {} is delayed by more than {} min. Estimated time: {}",
+                        deadline.deliveryId(), deadline.delayMinutes(), deadline.estimatedDeliveryTime());
+                rabbitTemplate.convertAndSend(exchangeName, "delivery.delayed", tracking);
+                delayNotifications.increment();
+            } catch (RuntimeException e) {
+                log.error("Failed to notify delay of delivery {}", deadline.deliveryId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.smartdelivery.tracking.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index spatial des géofences actives et détection des entrées, sorties et stationnements.
+ * Les géofences (cercles ou polygones) sont rangées dans une grille de cellules en degrés : chacune
+ * est inscrite dans les cellules couvertes par son rectangle englobant, et une position n'est testée
+ * que contre les géofences de sa cellule et celles où le livreur se trouve déjà, quel que soit
+ * le nombre total de géofences.
+ * Les transitions sont anti-rebond : une entrée ou une sortie n'est confirmée qu'après plusieurs
+ * positions consécutives du même côté de la limite, sur une durée minimale ; la sortie d'un cercle
+ * n'est comptée qu'au-delà d'une marge d'hystérésis. Les méthodes sont synchronisées.
+ */
+final class GeofenceIndex {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6_371_000.0;
+
+    private static final int OUTSIDE = 0;
+    private static final int ENTERING = 1;
+    private static final int INSIDE = 2;
+    private static final int EXITING = 3;
+
+    private final double cellSizeDegrees;
+    private final int maxCellsPerFence;
+    private final int confirmations;
+    private final long debounceMillis;
+    private final long dwellMillis;
+    private final double hysteresisMeters;
+
+    private final Map<String, Fence> fences = new HashMap<>();
+    private final Map<Long, List<Fence>> cells = new HashMap<>();
+    // Géofences où le livreur est entré ou en cours de transition, testées même hors de leur cellule
+    private final Map<UUID, List<Fence>> engaged = new HashMap<>();
+
+    /**
+     * @param cellSizeDegrees Côté d'une cellule de la grille
+     * @param maxCellsPerFence Nombre maximal de cellules couvertes par une géofence
+     * @param confirmations Positions consécutives nécessaires pour confirmer une entrée ou une sortie
+     * @param debounceMillis Durée minimale entre la première et la dernière de ces positions
+     * @param dwellMillis Durée de présence avant un événement de stationnement
+     * @param hysteresisMeters Marge au-delà du rayon d'un cercle avant qu'une sortie ne soit comptée
+     */
+    GeofenceIndex(double cellSizeDegrees, int maxCellsPerFence, int confirmations,
+                  long debounceMillis, long dwellMillis, double hysteresisMeters) {
+        if (cellSizeDegrees <= 0 || maxCellsPerFence <= 0 || confirmations <= 0) {
+            throw new IllegalArgumentException("Paramètres d'index de géofences invalides");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.maxCellsPerFence = maxCellsPerFence;
+        this.confirmations = confirmations;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.dwellMillis = Math.max(0, dwellMillis);
+        this.hysteresisMeters = Math.max(0, hysteresisMeters);
+    }
+
+    synchronized int size() {
+        return fences.size();
+    }
+
+    /**
+     * Ajoute (ou remplace) une géofence circulaire ; l'état de présence d'une géofence remplacée est perdu
+     */
+    synchronized void addCircle(String id, UUID courierId, double latitude, double longitude, double radiusMeters) {
+        if (radiusMeters <= 0) {
+            throw new IllegalArgumentException("Rayon de géofence invalide");
+        }
+        double latSpan = radiusMeters / METERS_PER_DEGREE;
+        double lngSpan = latSpan / Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        Fence fence = new Fence(id, courierId, latitude - latSpan, longitude - lngSpan,
+                latitude + latSpan, longitude + lngSpan);
+        fence.latitude = latitude;
+        fence.longitude = longitude;
+        fence.radiusMeters = radiusMeters;
+        add(fence);
+    }
+
+    /**
+     * Ajoute (ou remplace) une géofence polygonale, donnée par ses sommets dans l'ordre
+     */
+    synchronized void addPolygon(String id, UUID courierId, double[] latitudes, double[] longitudes) {
+        if (latitudes.length < 3 || latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Polygone de géofence invalide");
+        }
+        double minLat = Double.MAX_VALUE, minLng = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < latitudes.length; i++) {
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLng = Math.min(minLng, longitudes[i]);
+            maxLng = Math.max(maxLng, longitudes[i]);
+        }
+        Fence fence = new Fence(id, courierId, minLat, minLng, maxLat, maxLng);
+        fence.latitudes = latitudes.clone();
+        fence.longitudes = longitudes.clone();
+        add(fence);
+    }
+
+    /**
+     * Retire une géofence de l'index
+     * @return false si elle n'était pas indexée
+     */
+    synchronized boolean remove(String id) {
+        Fence fence = fences.remove(id);
+        if (fence == null) {
+            return false;
+        }
+        for (int row = fence.minRow; row <= fence.maxRow; row++) {
+            for (int col = fence.minCol; col <= fence.maxCol; col++) {
+                long cell = cell(row, col);
+                List<Fence> fencesInCell = cells.get(cell);
+                fencesInCell.remove(fence);
+                if (fencesInCell.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        }
+        if (fence.state != OUTSIDE) {
+            disengage(fence);
+        }
+        return true;
+    }
+
+    /**
+     * Teste une position d'un livreur contre les géofences proches qui lui sont attribuées
+     * @param courierId ID du livreur
+     * @param timeMillis Horodatage de la position ; les positions d'un livreur doivent arriver dans l'ordre
+     * @return Les transitions confirmées par cette position, dans l'ordre
+     */
+    synchronized List<Transition> evaluate(UUID courierId, double latitude, double longitude, long timeMillis) {
+        List<Transition> transitions = new ArrayList<>(0);
+
+        // Géofences déjà engagées en premier : une sortie est détectée même loin de la cellule
+        List<Fence> current = engaged.get(courierId);
+        if (current != null) {
+            for (int i = current.size() - 1; i >= 0 && i < current.size(); i--) {
+                step(current.get(i), latitude, longitude, timeMillis, transitions);
+            }
+        }
+
+        List<Fence> nearby = cells.get(cellOf(latitude, longitude));
+        if (nearby != null) {
+            for (int i = 0; i < nearby.size(); i++) {
+                Fence fence = nearby.get(i);
+                if (fence.state == OUTSIDE && courierId.equals(fence.courierId)) {
+                    step(fence, latitude, longitude, timeMillis, transitions);
+                }
+            }
+        }
+        return transitions;
+    }
+
+    private void add(Fence fence) {
+        fence.minRow = index(fence.minLat);
+        fence.maxRow = index(fence.maxLat);
+        fence.minCol = index(fence.minLng);
+        fence.maxCol = index(fence.maxLng);
+        long covered = (long) (fence.maxRow - fence.minRow + 1) * (fence.maxCol - fence.minCol + 1);
+        if (covered > maxCellsPerFence) {
+            throw new IllegalArgumentException("Géofence trop étendue : " + fence.id);
+        }
+
+        remove(fence.id);
+        fences.put(fence.id, fence);
+        for (int row = fence.minRow; row <= fence.maxRow; row++) {
+            for (int col = fence.minCol; col <= fence.maxCol; col++) {
+                cells.computeIfAbsent(cell(row, col), key -> new ArrayList<>(2)).add(fence);
+            }
+        }
+    }
+
+    private void step(Fence fence, double latitude, double longitude, long timeMillis, List<Transition> transitions) {
+        boolean wasInside = fence.state == INSIDE || fence.state == EXITING;
+        boolean inside = contains(fence, latitude, longitude, wasInside ? hysteresisMeters : 0);
+
+        switch (fence.state) {
+            case OUTSIDE -> {
+                if (inside) {
+                    startPending(fence, ENTERING, timeMillis);
+                    engage(fence);
+                    confirmEntry(fence, timeMillis, transitions);
+                }
+            }
+            case ENTERING -> {
+                if (inside) {
+                    fence.pendingCount++;
+                    confirmEntry(fence, timeMillis, transitions);
+                } else {
+                    fence.state = OUTSIDE;
+                    disengage(fence);
+                }
+            }
+            case INSIDE -> {
+                if (inside) {
+                    checkDwell(fence, timeMillis, transitions);
+                } else {
+                    startPending(fence, EXITING, timeMillis);
+                    confirmExit(fence, timeMillis, transitions);
+                }
+            }
+            case EXITING -> {
+                if (inside) {
+                    fence.state = INSIDE;
+                    checkDwell(fence, timeMillis, transitions);
+                } else {
+                    fence.pendingCount++;
+                    confirmExit(fence, timeMillis, transitions);
+                }
+            }
+            default -> throw new IllegalStateException("État de géofence inconnu : " + fence.state);
+        }
+    }
+
+    private void startPending(Fence fence, int state, long timeMillis) {
+        fence.state = state;
+        fence.pendingSince = timeMillis;
+        fence.pendingCount = 1;
+    }
+
+    private boolean isConfirmed(Fence fence, long timeMillis) {
+        return fence.pendingCount >= confirmations && timeMillis - fence.pendingSince >= debounceMillis;
+    }
+
+    private void confirmEntry(Fence fence, long timeMillis, List<Transition> transitions) {
+        if (!isConfirmed(fence, timeMillis)) {
+            return;
+        }
+        fence.state = INSIDE;
+        fence.enteredAt = fence.pendingSince;
+        fence.dwellNotified = false;
+        transitions.add(new Transition(fence.id, Transition.Kind.ENTER, fence.enteredAt));
+        checkDwell(fence, timeMillis, transitions);
+    }
+
+    private void confirmExit(Fence fence, long timeMillis, List<Transition> transitions) {
+        if (!isConfirmed(fence, timeMillis)) {
+            return;
+        }
+        fence.state = OUTSIDE;
+        disengage(fence);
+        transitions.add(new Transition(fence.id, Transition.Kind.EXIT, fence.pendingSince));
+    }
+
+    private void checkDwell(Fence fence, long timeMillis, List<Transition> transitions) {
+        if (!fence.dwellNotified && timeMillis - fence.enteredAt >= dwellMillis) {
+            fence.dwellNotified = true;
+            transitions.add(new Transition(fence.id, Transition.Kind.DWELL, fence.enteredAt));
+        }
+    }
+
+    private void engage(Fence fence) {
+        engaged.computeIfAbsent(fence.courierId, key -> new ArrayList<>(2)).add(fence);
+    }
+
+    private void disengage(Fence fence) {
+        List<Fence> current = engaged.get(fence.courierId);
+        if (current != null && current.remove(fence) && current.isEmpty()) {
+            engaged.remove(fence.courierId);
+        }
+    }
+
+    private static boolean contains(Fence fence, double latitude, double longitude, double marginMeters) {
+        if (fence.latitudes == null) {
+            double north = (latitude - fence.latitude) * METERS_PER_DEGREE;
+            double east = (longitude - fence.longitude) * METERS_PER_DEGREE * Math.cos(Math.toRadians(fence.latitude));
+            double radius = fence.radiusMeters + marginMeters;
+            return north * north + east * east <= radius * radius;
+        }
+        if (latitude < fence.minLat || latitude > fence.maxLat || longitude < fence.minLng || longitude > fence.maxLng) {
+            return false;
+        }
+        // Lancer de rayon vers l'est
+        boolean inside = false;
+        double[] lats = fence.latitudes;
+        double[] lngs = fence.longitudes;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if ((lats[i] > latitude) != (lats[j] > latitude)
+                    && longitude < (lngs[j] - lngs[i]) * (latitude - lats[i]) / (lats[j] - lats[i]) + lngs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return cell(index(latitude), index(longitude));
+    }
+
+    private int index(double degrees) {
+        return (int) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long cell(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    /**
+     * Transition confirmée d'un livreur pour une géofence
+     * @param sinceMillis Horodatage de la première position de la transition (entrée dans la géofence
+     *                    pour un stationnement)
+     */
+    record Transition(String fenceId, Kind kind, long sinceMillis) {
+
+        enum Kind {
+            ENTER, EXIT, DWELL
+        }
+    }
+
+    private static final class Fence {
+
+        final String id;
+        final UUID courierId;
+        final double minLat;
+        final double minLng;
+        final double maxLat;
+        final double maxLng;
+        int minRow;
+        int maxRow;
+        int minCol;
+        int maxCol;
+
+        // Cercle
+        double latitude;
+        double longitude;
+        double radiusMeters;
+
+        // Polygone
+        double[] latitudes;
+        double[] longitudes;
+
+        int state = OUTSIDE;
+        long pendingSince;
+        int pendingCount;
+        long enteredAt;
+        boolean dwellNotified;
+
+        Fence(String id, UUID courierId, double minLat, double minLng, double maxLat, double maxLng) {
+            this.id = id;
+            this.courierId = courierId;
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.maxLat = maxLat;
+            this.maxLng = maxLng;
+        }
+    }
+}
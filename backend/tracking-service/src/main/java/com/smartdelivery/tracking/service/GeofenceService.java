@@ -0,0 +1,260 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.Geofence;
+import com.smartdelivery.tracking.model.GeofenceEvent;
+import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.repository.GeofenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Zones de ramassage et de dépôt des livraisons en cours : enregistrement, détection des entrées,
+ * sorties et stationnements des livreurs (voir {@link GeofenceIndex}) et publication des événements.
+ * Les zones sont persistées et rechargées au démarrage ; l'état de présence des livreurs ne l'est pas
+ * et repart de « hors zone ».
+ */
+@Service
+@Slf4j
+public class GeofenceService {
+
+    private final GeofenceRepository geofenceRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final GeofenceIndex index;
+    private final Map<String, Geofence> geofences = new ConcurrentHashMap<>();
+    private final Map<GeofenceEvent.GeofenceEventType, Counter> events =
+            new EnumMap<>(GeofenceEvent.GeofenceEventType.class);
+    private final Timer evaluationTimer;
+    private final double pickupRadiusMeters;
+    private final double dropoffRadiusMeters;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    public GeofenceService(
+            GeofenceRepository geofenceRepository,
+            RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${tracking.geofence.cell-size-degrees:0.005}") double cellSizeDegrees,
+            @Value("${tracking.geofence.max-cells-per-fence:64}") int maxCellsPerFence,
+            @Value("${tracking.geofence.confirmations:2}") int confirmations,
+            @Value("${tracking.geofence.debounce-seconds:5}") long debounceSeconds,
+            @Value("${tracking.geofence.dwell-seconds:120}") long dwellSeconds,
+            @Value("${tracking.geofence.hysteresis-meters:15}") double hysteresisMeters,
+            @Value("${tracking.geofence.pickup-radius-meters:75}") double pickupRadiusMeters,
+            @Value("${tracking.geofence.dropoff-radius-meters:50}") double dropoffRadiusMeters) {
+        this.geofenceRepository = geofenceRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.index = new GeofenceIndex(cellSizeDegrees, maxCellsPerFence, confirmations,
+                debounceSeconds * 1000, dwellSeconds * 1000, hysteresisMeters);
+        this.pickupRadiusMeters = pickupRadiusMeters;
+        this.dropoffRadiusMeters = dropoffRadiusMeters;
+
+        for (GeofenceEvent.GeofenceEventType type : GeofenceEvent.GeofenceEventType.values()) {
+            events.put(type, Counter.builder("tracking.geofence.events")
+                    .description("Événements de zone publiés, par type")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.evaluationTimer = Timer.builder("tracking.geofence.evaluation")
+                .description("Durée du test d'une position contre les zones proches")
+                .register(meterRegistry);
+        Gauge.builder("tracking.geofence.active", index, GeofenceIndex::size)
+                .description("Zones de livraison actives")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre (ou remplace) une zone de livraison
+     * @param geofence Zone, cercle ou polygone ; son identifiant est dérivé de la livraison et du type
+     * @return La zone enregistrée
+     */
+    public Geofence register(Geofence geofence) {
+        geofence.setId(Geofence.idOf(geofence.getDeliveryId(), geofence.getType()));
+        if (geofence.getCreatedAt() == null) {
+            geofence.setCreatedAt(LocalDateTime.now());
+        }
+        // L'indexation valide la forme avant toute écriture
+        index(geofence);
+        Geofence savedGeofence = geofenceRepository.save(geofence);
+        log.info("Registered {} geofence for delivery ID: {}", geofence.getType(), geofence.getDeliveryId());
+        return savedGeofence;
+    }
+
+    /**
+     * Enregistre les zones circulaires de ramassage et de dépôt d'une livraison attribuée
+     * @param pickup Adresse de ramassage, ou null
+     * @param dropoff Adresse de livraison, ou null
+     */
+    public void registerDeliveryGeofences(UUID deliveryId, UUID courierId, Location pickup, Location dropoff) {
+        if (pickup != null) {
+            register(circle(deliveryId, courierId, Geofence.GeofenceType.PICKUP, pickup, pickupRadiusMeters));
+        }
+        if (dropoff != null) {
+            register(circle(deliveryId, courierId, Geofence.GeofenceType.DROPOFF, dropoff, dropoffRadiusMeters));
+        }
+    }
+
+    public List<Geofence> getGeofences(UUID deliveryId) {
+        return geofenceRepository.findByDeliveryId(deliveryId);
+    }
+
+    public boolean hasGeofence(UUID deliveryId, Geofence.GeofenceType type) {
+        return geofences.containsKey(Geofence.idOf(deliveryId, type));
+    }
+
+    /**
+     * Retire les zones d'une livraison terminée
+     */
+    public void removeDeliveryGeofences(UUID deliveryId) {
+        boolean removed = false;
+        for (Geofence.GeofenceType type : Geofence.GeofenceType.values()) {
+            String id = Geofence.idOf(deliveryId, type);
+            removed |= geofences.remove(id) != null;
+            index.remove(id);
+        }
+        if (removed) {
+            geofenceRepository.deleteByDeliveryId(deliveryId);
+            log.info("Removed geofences for delivery ID: {}", deliveryId);
+        }
+    }
+
+    /**
+     * Teste une position lissée d'un livreur contre les zones proches qui lui sont attribuées
+     * et publie les événements confirmés
+     * @param courierId ID du livreur
+     * @param location Position lissée et horodatée
+     * @return Les événements confirmés par cette position, éventuellement pour plusieurs livraisons du livreur
+     */
+    public List<GeofenceEvent> evaluate(UUID courierId, Location location) {
+        if (courierId == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return List.of();
+        }
+        LocalDateTime timestamp = location.getTimestamp() != null ? location.getTimestamp() : LocalDateTime.now();
+        long timeMillis = toMillis(timestamp);
+
+        long start = System.nanoTime();
+        List<GeofenceIndex.Transition> transitions = index.evaluate(
+                courierId, location.getLatitude(), location.getLongitude(), timeMillis);
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (transitions.isEmpty()) {
+            return List.of();
+        }
+
+        List<GeofenceEvent> confirmed = new ArrayList<>(transitions.size());
+        for (GeofenceIndex.Transition transition : transitions) {
+            Geofence geofence = geofences.get(transition.fenceId());
+            if (geofence == null) {
+                continue;
+            }
+            GeofenceEvent event = GeofenceEvent.builder()
+                    .geofenceId(geofence.getId())
+                    .deliveryId(geofence.getDeliveryId())
+                    .courierId(courierId)
+                    .geofenceType(geofence.getType())
+                    .eventType(eventType(transition.kind()))
+                    .location(location)
+                    .since(LocalDateTime.ofInstant(Instant.ofEpochMilli(transition.sinceMillis()), ZoneId.systemDefault()))
+                    .timestamp(timestamp)
+                    .build();
+            publishGeofenceEvent(event);
+            confirmed.add(event);
+        }
+        return confirmed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        AtomicInteger loaded = new AtomicInteger();
+        try (Stream<Geofence> stored = geofenceRepository.streamAllBy()) {
+            stored.forEach(geofence -> {
+                try {
+                    index(geofence);
+                    loaded.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping invalid geofence {}: {}", geofence.getId(), e.getMessage());
+                }
+            });
+        }
+        log.info("Loaded {} active geofences", loaded.get());
+    }
+
+    private void index(Geofence geofence) {
+        if (geofence.getDeliveryId() == null || geofence.getType() == null || geofence.getShape() == null) {
+            throw new IllegalArgumentException("Livraison, type et forme de la zone sont requis");
+        }
+        if (geofence.getShape() == Geofence.GeofenceShape.CIRCLE) {
+            Location center = geofence.getCenter();
+            if (center == null || center.getLatitude() == null || center.getLongitude() == null
+                    || geofence.getRadiusMeters() == null) {
+                throw new IllegalArgumentException("Centre et rayon requis pour une zone circulaire");
+            }
+            index.addCircle(geofence.getId(), geofence.getCourierId(),
+                    center.getLatitude(), center.getLongitude(), geofence.getRadiusMeters());
+        } else {
+            List<Location> vertices = geofence.getVertices() != null ? geofence.getVertices() : List.of();
+            double[] latitudes = new double[vertices.size()];
+            double[] longitudes = new double[vertices.size()];
+            for (int i = 0; i < vertices.size(); i++) {
+                if (vertices.get(i).getLatitude() == null || vertices.get(i).getLongitude() == null) {
+                    throw new IllegalArgumentException("Sommet de zone sans coordonnées");
+                }
+                latitudes[i] = vertices.get(i).getLatitude();
+                longitudes[i] = vertices.get(i).getLongitude();
+            }
+            index.addPolygon(geofence.getId(), geofence.getCourierId(), latitudes, longitudes);
+        }
+        geofences.put(geofence.getId(), geofence);
+    }
+
+    private static Geofence circle(UUID deliveryId, UUID courierId, Geofence.GeofenceType type,
+                                   Location center, double radiusMeters) {
+        return Geofence.builder()
+                .deliveryId(deliveryId)
+                .courierId(courierId)
+                .type(type)
+                .shape(Geofence.GeofenceShape.CIRCLE)
+                .center(center)
+                .radiusMeters(radiusMeters)
+                .build();
+    }
+
+    private static GeofenceEvent.GeofenceEventType eventType(GeofenceIndex.Transition.Kind kind) {
+        return switch (kind) {
+            case ENTER -> GeofenceEvent.GeofenceEventType.ENTERED;
+            case EXIT -> GeofenceEvent.GeofenceEventType.EXITED;
+            case DWELL -> GeofenceEvent.GeofenceEventType.DWELL;
+        };
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void publishGeofenceEvent(GeofenceEvent event) {
+        String routingKey = "geofence." + event.getEventType().name().toLowerCase();
+        rabbitTemplate.convertAndSend(exchangeName, routingKey, event);
+        events.get(event.getEventType()).increment();
+        log.info("Published {} event for delivery ID: {} ({})", routingKey, event.getDeliveryId(), event.getGeofenceType());
+    }
+}
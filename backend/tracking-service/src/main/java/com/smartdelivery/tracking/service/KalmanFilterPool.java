@@ -0,0 +1,352 @@
+package com.smartdelivery.tracking.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtres de Kalman à vitesse constante, un par livraison, dont l'état est rangé dans des tableaux
+ * de primitives indexés par emplacement (aucune allocation par position hors du résultat).
+ * Le modèle est séparable : est et nord sont filtrés indépendamment avec le même bruit de mesure,
+ * leurs covariances évoluent donc à l'identique et une seule matrice 2x2 symétrique est conservée.
+ * Les positions sont exprimées en mètres autour de la première position reçue.
+ * Chaque emplacement est protégé par un verrou d'une table de verrous par bandes : les positions de
+ * livraisons différentes sont filtrées en parallèle. L'attribution et la libération des emplacements
+ * passent par un verrou distinct, qui prend tous les verrous de bande lorsque les tableaux s'agrandissent.
+ */
+final class KalmanFilterPool {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6_371_000.0;
+    private static final double INITIAL_VELOCITY_VARIANCE = 100.0; // (10 m/s)²
+    // Seuil du chi² à 2 degrés de liberté (99,9 %) sur l'innovation normalisée
+    private static final double OUTLIER_GATE = 13.8;
+    private static final int MAX_CONSECUTIVE_OUTLIERS = 3;
+    // Nombre de verrous de bande (puissance de 2), l'emplacement n'utilise que le verrou slot & (LOCK_STRIPES - 1)
+    private static final int LOCK_STRIPES = 64;
+
+    // Disposition d'un emplacement dans state : origine, cosinus, position, vitesse, covariance
+    private static final int ORIGIN_LAT = 0;
+    private static final int ORIGIN_LNG = 1;
+    private static final int COS_LAT = 2;
+    private static final int EAST = 3;
+    private static final int NORTH = 4;
+    private static final int V_EAST = 5;
+    private static final int V_NORTH = 6;
+    private static final int P_POS = 7;
+    private static final int P_CROSS = 8;
+    private static final int P_VEL = 9;
+    private static final int EMITTED_EAST = 10;
+    private static final int EMITTED_NORTH = 11;
+    private static final int HEADING = 12;
+    private static final int STRIDE = 13;
+
+    // Disposition d'un emplacement dans times : dernière mesure, dernière position transmise
+    private static final int LAST_FIX = 0;
+    private static final int LAST_EMIT = 1;
+    private static final int TIME_STRIDE = 2;
+
+    private final double accelerationVariance;
+    private final double defaultAccuracyMeters;
+    private final double minAccuracyMeters;
+    private final double maxAccuracyMeters;
+    private final double minHeadingSpeed;
+    private final double stationaryRadiusMeters;
+    private final long stationaryMaxMillis;
+
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    // Protège la liste des emplacements libres et l'agrandissement des tableaux
+    private final Object allocationLock = new Object();
+    // Tableaux lus et écrits sous le verrou de bande de l'emplacement, remplacés sous tous les verrous de bande
+    private double[] state;
+    private long[] times;
+    private int[] outliers;
+    private int[] freeSlots;
+    private int freeCount;
+    private int capacity;
+
+    /**
+     * @param accelerationStdDev Écart type de l'accélération non modélisée (m/s²)
+     * @param defaultAccuracyMeters Précision supposée d'une position qui n'en indique pas
+     * @param minAccuracyMeters Précision plancher (les précisions annoncées trop optimistes sont relevées)
+     * @param maxAccuracyMeters Au-delà, la position est rejetée
+     * @param minHeadingSpeedKmh Vitesse estimée sous laquelle le cap n'est plus mis à jour
+     * @param stationaryRadiusMeters Déplacement depuis la dernière position transmise sous lequel une position n'est pas transmise
+     * @param stationaryMaxMillis Délai après lequel une position est tout de même transmise
+     */
+    KalmanFilterPool(int initialCapacity, double accelerationStdDev, double defaultAccuracyMeters,
+                     double minAccuracyMeters, double maxAccuracyMeters, double minHeadingSpeedKmh,
+                     double stationaryRadiusMeters, long stationaryMaxMillis) {
+        this.accelerationVariance = accelerationStdDev * accelerationStdDev;
+        this.defaultAccuracyMeters = defaultAccuracyMeters;
+        this.minAccuracyMeters = minAccuracyMeters;
+        this.maxAccuracyMeters = maxAccuracyMeters;
+        this.minHeadingSpeed = minHeadingSpeedKmh / 3.6;
+        this.stationaryRadiusMeters = stationaryRadiusMeters;
+        this.stationaryMaxMillis = stationaryMaxMillis;
+        this.capacity = Math.max(1, initialCapacity);
+        this.state = new double[capacity * STRIDE];
+        this.times = new long[capacity * TIME_STRIDE];
+        this.outliers = new int[capacity];
+        this.freeSlots = new int[capacity];
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Filtre une position
+     * @param accuracyMeters Précision annoncée (rayon en mètres), ou null si inconnue
+     * @param timeMillis Date de la mesure
+     */
+    Fix filter(UUID deliveryId, double latitude, double longitude, Double accuracyMeters, long timeMillis) {
+        if (accuracyMeters != null && accuracyMeters > maxAccuracyMeters) {
+            return Fix.rejected(Decision.INACCURATE);
+        }
+        double accuracy = Math.max(minAccuracyMeters, accuracyMeters != null ? accuracyMeters : defaultAccuracyMeters);
+        double r = accuracy * accuracy;
+
+        while (true) {
+            Integer existing = slots.get(deliveryId);
+            if (existing == null) {
+                Fix fix = start(deliveryId, latitude, longitude, r, timeMillis);
+                if (fix != null) {
+                    return fix;
+                }
+                continue;
+            }
+            ReentrantLock lock = stripe(existing);
+            lock.lock();
+            try {
+                // L'emplacement a pu être libéré (voire réattribué) entre la lecture et la prise du verrou
+                if (existing.equals(slots.get(deliveryId))) {
+                    return update(existing, latitude, longitude, r, timeMillis);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Libère le filtre d'une livraison
+     */
+    void release(UUID deliveryId) {
+        Integer slot = slots.get(deliveryId);
+        if (slot == null) {
+            return;
+        }
+        ReentrantLock lock = stripe(slot);
+        lock.lock();
+        boolean removed;
+        try {
+            removed = slots.remove(deliveryId, slot);
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            free(slot);
+        }
+    }
+
+    /**
+     * Libère les filtres sans mesure depuis la date donnée
+     * @return Le nombre de filtres libérés
+     */
+    int evictIdle(long idleSinceMillis) {
+        int evicted = 0;
+        for (Map.Entry<UUID, Integer> entry : slots.entrySet()) {
+            int slot = entry.getValue();
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            boolean removed;
+            try {
+                removed = times[slot * TIME_STRIDE + LAST_FIX] < idleSinceMillis
+                        && slots.remove(entry.getKey(), slot);
+            } finally {
+                lock.unlock();
+            }
+            if (removed) {
+                free(slot);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    // Premier filtrage d'une livraison, null si un autre fil lui a attribué un emplacement entre-temps
+    private Fix start(UUID deliveryId, double latitude, double longitude, double r, long timeMillis) {
+        synchronized (allocationLock) {
+            if (slots.containsKey(deliveryId)) {
+                return null;
+            }
+            int slot = allocate();
+            ReentrantLock lock = stripe(slot);
+            lock.lock();
+            try {
+                // L'emplacement n'est visible qu'une fois initialisé
+                reset(slot, latitude, longitude, r, timeMillis);
+                slots.put(deliveryId, slot);
+                return emit(slot, timeMillis);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Appelé sous le verrou de bande de l'emplacement
+    private Fix update(int slot, double latitude, double longitude, double r, long timeMillis) {
+        int base = slot * STRIDE;
+        int timeBase = slot * TIME_STRIDE;
+        double dt = (timeMillis - times[timeBase + LAST_FIX]) / 1000.0;
+        if (dt <= 0) {
+            return Fix.rejected(Decision.OUT_OF_ORDER);
+        }
+
+        // Prédiction : x += v dt, P = F P Fᵀ + Q (accélération blanche)
+        double dt2 = dt * dt;
+        double east = state[base + EAST] + state[base + V_EAST] * dt;
+        double north = state[base + NORTH] + state[base + V_NORTH] * dt;
+        double pPos = state[base + P_POS];
+        double pCross = state[base + P_CROSS];
+        double pVel = state[base + P_VEL];
+        pPos += dt * (2 * pCross + dt * pVel) + accelerationVariance * dt2 * dt2 / 4;
+        pCross += dt * pVel + accelerationVariance * dt2 * dt / 2;
+        pVel += accelerationVariance * dt2;
+
+        // Innovation et rejet des valeurs aberrantes
+        double cosLat = state[base + COS_LAT];
+        double measuredEast = (longitude - state[base + ORIGIN_LNG]) * cosLat * METERS_PER_DEGREE;
+        double measuredNorth = (latitude - state[base + ORIGIN_LAT]) * METERS_PER_DEGREE;
+        double innovationEast = measuredEast - east;
+        double innovationNorth = measuredNorth - north;
+        double s = pPos + r;
+        if ((innovationEast * innovationEast + innovationNorth * innovationNorth) / s > OUTLIER_GATE) {
+            if (++outliers[slot] < MAX_CONSECUTIVE_OUTLIERS) {
+                // L'état prédit n'est pas conservé : la prochaine prédiction repart de la dernière mesure acceptée
+                return Fix.rejected(Decision.OUTLIER);
+            }
+            // Plusieurs rejets consécutifs : le filtre a décroché (tunnel, saut réel), il repart de la mesure
+            reset(slot, latitude, longitude, r, timeMillis);
+            return emit(slot, timeMillis);
+        }
+        outliers[slot] = 0;
+
+        // Mise à jour : K = P Hᵀ / S
+        double gainPos = pPos / s;
+        double gainVel = pCross / s;
+        state[base + EAST] = east + gainPos * innovationEast;
+        state[base + NORTH] = north + gainPos * innovationNorth;
+        state[base + V_EAST] += gainVel * innovationEast;
+        state[base + V_NORTH] += gainVel * innovationNorth;
+        state[base + P_POS] = (1 - gainPos) * pPos;
+        state[base + P_CROSS] = (1 - gainPos) * pCross;
+        state[base + P_VEL] = pVel - gainVel * pCross;
+        times[timeBase + LAST_FIX] = timeMillis;
+
+        // Cap figé à basse vitesse : la direction d'une vitesse proche de zéro n'est que du bruit
+        if (Math.hypot(state[base + V_EAST], state[base + V_NORTH]) >= minHeadingSpeed) {
+            state[base + HEADING] = (Math.toDegrees(Math.atan2(state[base + V_EAST], state[base + V_NORTH])) + 360) % 360;
+        }
+
+        // Livreur à l'arrêt : tant que la position lissée reste dans le rayon de la dernière position
+        // transmise, rien n'est transmis (sauf une position par intervalle maximal)
+        double movedEast = state[base + EAST] - state[base + EMITTED_EAST];
+        double movedNorth = state[base + NORTH] - state[base + EMITTED_NORTH];
+        if (Math.hypot(movedEast, movedNorth) < stationaryRadiusMeters
+                && timeMillis - times[timeBase + LAST_EMIT] < stationaryMaxMillis) {
+            return Fix.rejected(Decision.STATIONARY);
+        }
+        return emit(slot, timeMillis);
+    }
+
+    private ReentrantLock stripe(int slot) {
+        return stripes[slot & (LOCK_STRIPES - 1)];
+    }
+
+    // Appelé sous allocationLock ; les tableaux ne sont remplacés que sous tous les verrous de bande
+    private int allocate() {
+        if (freeCount == 0) {
+            int grown = capacity * 2;
+            for (ReentrantLock lock : stripes) {
+                lock.lock();
+            }
+            try {
+                state = Arrays.copyOf(state, grown * STRIDE);
+                times = Arrays.copyOf(times, grown * TIME_STRIDE);
+                outliers = Arrays.copyOf(outliers, grown);
+            } finally {
+                for (ReentrantLock lock : stripes) {
+                    lock.unlock();
+                }
+            }
+            freeSlots = Arrays.copyOf(freeSlots, grown);
+            for (int slot = grown - 1; slot >= capacity; slot--) {
+                freeSlots[freeCount++] = slot;
+            }
+            capacity = grown;
+        }
+        return freeSlots[--freeCount];
+    }
+
+    private void free(int slot) {
+        synchronized (allocationLock) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    private void reset(int slot, double latitude, double longitude, double r, long timeMillis) {
+        int base = slot * STRIDE;
+        Arrays.fill(state, base, base + STRIDE, 0.0);
+        state[base + ORIGIN_LAT] = latitude;
+        state[base + ORIGIN_LNG] = longitude;
+        state[base + COS_LAT] = Math.cos(Math.toRadians(latitude));
+        state[base + P_POS] = r;
+        state[base + P_VEL] = INITIAL_VELOCITY_VARIANCE;
+        state[base + HEADING] = Double.NaN;
+        times[slot * TIME_STRIDE + LAST_FIX] = timeMillis;
+        outliers[slot] = 0;
+    }
+
+    private Fix emit(int slot, long timeMillis) {
+        int base = slot * STRIDE;
+        state[base + EMITTED_EAST] = state[base + EAST];
+        state[base + EMITTED_NORTH] = state[base + NORTH];
+        times[slot * TIME_STRIDE + LAST_EMIT] = timeMillis;
+
+        double cosLat = state[base + COS_LAT];
+        double latitude = state[base + ORIGIN_LAT] + state[base + NORTH] / METERS_PER_DEGREE;
+        double longitude = state[base + ORIGIN_LNG] + state[base + EAST] / (cosLat * METERS_PER_DEGREE);
+        double speedKmh = Math.hypot(state[base + V_EAST], state[base + V_NORTH]) * 3.6;
+        double heading = state[base + HEADING];
+        return new Fix(Decision.ACCEPTED, latitude, longitude, speedKmh, Double.isNaN(heading) ? null : heading);
+    }
+
+    enum Decision {
+        ACCEPTED, STATIONARY, OUTLIER, INACCURATE, OUT_OF_ORDER
+    }
+
+    /**
+     * Résultat du filtrage : position lissée, vitesse (km/h) et cap (degrés, null tant qu'inconnu)
+     * lorsque la position est acceptée
+     */
+    record Fix(Decision decision, double latitude, double longitude, double speedKmh, Double heading) {
+
+        static Fix rejected(Decision decision) {
+            return new Fix(decision, Double.NaN, Double.NaN, Double.NaN, null);
+        }
+
+        boolean isAccepted() {
+            return decision == Decision.ACCEPTED;
+        }
+    }
+}
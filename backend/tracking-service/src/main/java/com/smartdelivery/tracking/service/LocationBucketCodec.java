@@ -0,0 +1,187 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.LocationBucket;
+import com.smartdelivery.tracking.model.LocationUpdate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodage des positions en buckets : coordonnées en microdegrés (environ 11 cm) et temps en
+ * millisecondes, delta-encodés pour que les points consécutifs d'un trajet restent de petits entiers
+ */
+public final class LocationBucketCodec {
+
+    private static final double MICRODEGREES = 1_000_000.0;
+    private static final int UNKNOWN = -1;
+
+    private LocationBucketCodec() {
+    }
+
+    /**
+     * Décode les points d'un bucket compris dans l'intervalle donné (bornes incluses, null pour ignorer)
+     */
+    public static List<LocationUpdate> decode(LocationBucket bucket, LocalDateTime start, LocalDateTime end) {
+        List<LocationUpdate> points = new ArrayList<>(bucket.getCount());
+        long offset = 0;
+        int latitude = 0;
+        int longitude = 0;
+        for (int i = 0; i < bucket.getCount(); i++) {
+            offset += bucket.getTimeOffsets()[i];
+            latitude += bucket.getLatitudes()[i];
+            longitude += bucket.getLongitudes()[i];
+            LocalDateTime timestamp = bucket.getStartTime().plus(Duration.ofMillis(offset));
+            if ((start != null && timestamp.isBefore(start)) || (end != null && timestamp.isAfter(end))) {
+                continue;
+            }
+            int speed = bucket.getSpeeds()[i];
+            int heading = bucket.getHeadings()[i];
+            points.add(LocationUpdate.builder()
+                    .deliveryId(bucket.getDeliveryId())
+                    .courierId(bucket.getCourierId())
+                    .latitude(latitude / MICRODEGREES)
+                    .longitude(longitude / MICRODEGREES)
+                    .timestamp(timestamp)
+                    .speed(speed == UNKNOWN ? null : speed / 10.0)
+                    .heading(heading == UNKNOWN ? null : (double) heading)
+                    .build());
+        }
+        return points;
+    }
+
+    /**
+     * Bucket en cours de remplissage, fermé lorsqu'il atteint son nombre de points ou la fin de sa fenêtre.
+     * Les méthodes sont synchronisées : les positions d'une livraison peuvent arriver de plusieurs threads.
+     */
+    public static final class Builder {
+
+        private final String id = UUID.randomUUID().toString();
+        private final String deliveryId;
+        private final String courierId;
+        private final int tier;
+        private final int maxPoints;
+        private final long windowMillis;
+
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private int count;
+        private final int[] timeOffsets;
+        private final int[] latitudes;
+        private final int[] longitudes;
+        private final int[] speeds;
+        private final int[] headings;
+        private long lastOffset;
+        private int lastLatitude;
+        private int lastLongitude;
+        private boolean dirty;
+
+        public Builder(String deliveryId, String courierId, int tier, int maxPoints, long windowMillis) {
+            this.deliveryId = deliveryId;
+            this.courierId = courierId;
+            this.tier = tier;
+            this.maxPoints = maxPoints;
+            this.windowMillis = windowMillis;
+            this.timeOffsets = new int[maxPoints];
+            this.latitudes = new int[maxPoints];
+            this.longitudes = new int[maxPoints];
+            this.speeds = new int[maxPoints];
+            this.headings = new int[maxPoints];
+        }
+
+        /**
+         * Ajoute un point au bucket
+         * @return false si le bucket est plein ou si le point sort de sa fenêtre de temps
+         */
+        public synchronized boolean tryAppend(LocalDateTime timestamp, double latitude, double longitude,
+                                              Double speed, Double heading) {
+            if (count == maxPoints) {
+                return false;
+            }
+            if (count == 0) {
+                startTime = timestamp;
+                endTime = timestamp;
+            }
+            long offset = Duration.between(startTime, timestamp).toMillis();
+            if (offset < 0 || offset >= windowMillis) {
+                return false;
+            }
+
+            int latitudeE6 = (int) Math.round(latitude * MICRODEGREES);
+            int longitudeE6 = (int) Math.round(longitude * MICRODEGREES);
+            timeOffsets[count] = (int) (offset - lastOffset);
+            latitudes[count] = latitudeE6 - lastLatitude;
+            longitudes[count] = longitudeE6 - lastLongitude;
+            speeds[count] = speed != null ? (int) Math.round(speed * 10) : UNKNOWN;
+            headings[count] = heading != null ? (int) Math.round(heading) : UNKNOWN;
+            lastOffset = offset;
+            lastLatitude = latitudeE6;
+            lastLongitude = longitudeE6;
+            if (timestamp.isAfter(endTime)) {
+                endTime = timestamp;
+            }
+            count++;
+            dirty = true;
+            return true;
+        }
+
+        public synchronized boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * Indique si plus aucun point ne peut entrer dans la fenêtre du bucket
+         */
+        public synchronized boolean isClosed(LocalDateTime now) {
+            return count == maxPoints
+                    || (count > 0 && Duration.between(startTime, now).toMillis() >= windowMillis);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getDeliveryId() {
+            return deliveryId;
+        }
+
+        public String getCourierId() {
+            return courierId;
+        }
+
+        /**
+         * Document correspondant à l'état courant du bucket, s'il a reçu des points depuis le dernier appel
+         * @return null si le bucket n'a pas été modifié
+         */
+        public synchronized LocationBucket drain() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            return build();
+        }
+
+        /**
+         * Document correspondant à l'état courant du bucket
+         */
+        public synchronized LocationBucket build() {
+            return LocationBucket.builder()
+                    .id(id)
+                    .deliveryId(deliveryId)
+                    .courierId(courierId)
+                    .tier(tier)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .count(count)
+                    .timeOffsets(Arrays.copyOf(timeOffsets, count))
+                    .latitudes(Arrays.copyOf(latitudes, count))
+                    .longitudes(Arrays.copyOf(longitudes, count))
+                    .speeds(Arrays.copyOf(speeds, count))
+                    .headings(Arrays.copyOf(headings, count))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.Location;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Étape de filtrage des positions GPS reçues, avant toute écriture : lissage par un filtre de Kalman
+ * par livraison, estimation de la vitesse et du cap, rejet des positions imprécises ou aberrantes
+ * et suppression des positions d'un livreur à l'arrêt (voir {@link KalmanFilterPool})
+ */
+@Service
+@Slf4j
+public class LocationFilterService {
+
+    private final KalmanFilterPool filters;
+    private final Map<KalmanFilterPool.Decision, Counter> decisions = new EnumMap<>(KalmanFilterPool.Decision.class);
+    private final Duration idleTimeout;
+
+    public LocationFilterService(
+            MeterRegistry meterRegistry,
+            @Value("${tracking.filter.initial-capacity:1024}") int initialCapacity,
+            @Value("${tracking.filter.acceleration-std-dev:0.5}") double accelerationStdDev,
+            @Value("${tracking.filter.default-accuracy-meters:15}") double defaultAccuracyMeters,
+            @Value("${tracking.filter.min-accuracy-meters:3}") double minAccuracyMeters,
+            @Value("${tracking.filter.max-accuracy-meters:100}") double maxAccuracyMeters,
+            @Value("${tracking.filter.heading-min-speed-kmh:2.0}") double headingMinSpeedKmh,
+            @Value("${tracking.filter.stationary-radius-meters:15}") double stationaryRadiusMeters,
+            @Value("${tracking.filter.stationary-max-seconds:60}") long stationaryMaxSeconds,
+            @Value("${tracking.filter.idle-timeout-minutes:30}") long idleTimeoutMinutes) {
+        this.filters = new KalmanFilterPool(initialCapacity, accelerationStdDev, defaultAccuracyMeters,
+                minAccuracyMeters, maxAccuracyMeters, headingMinSpeedKmh, stationaryRadiusMeters,
+                stationaryMaxSeconds * 1000);
+        this.idleTimeout = Duration.ofMinutes(idleTimeoutMinutes);
+
+        for (KalmanFilterPool.Decision decision : KalmanFilterPool.Decision.values()) {
+            decisions.put(decision, Counter.builder("tracking.filter.fixes")
+                    .description("Positions GPS filtrées, par décision")
+                    .tag("decision", decision.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("tracking.filter.active", filters, KalmanFilterPool::size)
+                .description("Livraisons ayant un filtre de position actif")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Filtre une position reçue pour une livraison
+     * @param deliveryId ID de la livraison
+     * @param location Position brute
+     * @return La position lissée, avec vitesse et cap estimés s'ils manquent, ou null si elle ne doit
+     * pas être enregistrée (imprécise, aberrante, hors d'ordre ou livreur à l'arrêt)
+     */
+    public Location filter(UUID deliveryId, Location location) {
+        if (location.getLatitude() == null || location.getLongitude() == null) {
+            return location;
+        }
+        LocalDateTime timestamp = location.getTimestamp() != null ? location.getTimestamp() : LocalDateTime.now();
+        KalmanFilterPool.Fix fix = filters.filter(deliveryId, location.getLatitude(), location.getLongitude(),
+                location.getAccuracy(), timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        decisions.get(fix.decision()).increment();
+
+        if (!fix.isAccepted()) {
+            log.debug("Location for delivery {} not recorded: {}", deliveryId, fix.decision());
+            return null;
+        }
+        return Location.builder()
+                .latitude(fix.latitude())
+                .longitude(fix.longitude())
+                .address(location.getAddress())
+                .timestamp(timestamp)
+                .speed(location.getSpeed() != null ? location.getSpeed() : fix.speedKmh())
+                .heading(location.getHeading() != null ? location.getHeading() : fix.heading())
+                .accuracy(location.getAccuracy())
+                .build();
+    }
+
+    /**
+     * Libère le filtre d'une livraison terminée
+     */
+    public void release(UUID deliveryId) {
+        filters.release(deliveryId);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.filter.eviction-interval-ms:300000}")
+    public void evictIdleFilters() {
+        int evicted = filters.evictIdle(System.currentTimeMillis() - idleTimeout.toMillis());
+        if (evicted > 0) {
+            log.debug("Evicted {} idle location filters", evicted);
+        }
+    }
+}
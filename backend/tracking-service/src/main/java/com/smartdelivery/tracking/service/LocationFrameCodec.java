@@ -0,0 +1,229 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.Location;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Format binaire compact des positions envoyées en STOMP par l'application du livreur, négocié par session
+ * à la connexion. Les trames sont lues directement en positions, sans représentation intermédiaire.
+ * Entiers en big-endian ; chaque trame commence par la version (1 octet), le type (1 octet) et un alias
+ * de livraison (2 octets) propre à la session.
+ * <ul>
+ *     <li>Association (type 0) : ID de la livraison (16 octets). L'alias remplace l'UUID dans les trames
+ *     suivantes de la session.</li>
+ *     <li>Positions (type 1) : nombre de positions (1 octet), puis pour chacune l'horodatage en millisecondes
+ *     epoch (8 octets) et la latitude et la longitude en microdegrés (4 octets chacune) pour la première,
+ *     ou leurs écarts à la précédente en varint (zigzag pour les coordonnées) ensuite ; un octet de présence,
+ *     suivi des champs présents sur 2 octets : vitesse (0,1 km/h), cap (0,1°), précision (0,1 m).</li>
+ * </ul>
+ * Une position isolée tient en 22 à 28 octets, contre environ 250 en JSON.
+ */
+public final class LocationFrameCodec {
+
+    public static final String FORMAT = "binary-v1";
+    public static final int VERSION = 1;
+    public static final int BIND = 0;
+    public static final int LOCATIONS = 1;
+    public static final int MAX_ALIAS = 0xFFFF;
+    public static final int MAX_LOCATIONS = 0xFF;
+
+    private static final int HEADER_SIZE = 4;
+    private static final int HAS_SPEED = 1;
+    private static final int HAS_HEADING = 2;
+    private static final int HAS_ACCURACY = 4;
+    private static final double E6 = 1_000_000.0;
+    private static final double TENTHS = 10.0;
+
+    private LocationFrameCodec() {
+    }
+
+    /**
+     * @return BIND ou LOCATIONS
+     */
+    public static int frameType(byte[] frame) {
+        if (frame.length < HEADER_SIZE || frame[0] != VERSION) {
+            throw new IllegalArgumentException("Trame de position binaire invalide");
+        }
+        int type = frame[1];
+        if (type != BIND && type != LOCATIONS) {
+            throw new IllegalArgumentException("Type de trame de position inconnu : " + type);
+        }
+        return type;
+    }
+
+    public static int alias(byte[] frame) {
+        frameType(frame);
+        return ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+    }
+
+    /**
+     * Lit l'ID de livraison d'une trame d'association
+     */
+    public static UUID decodeBinding(byte[] frame) {
+        if (frameType(frame) != BIND || frame.length != HEADER_SIZE + 16) {
+            throw new IllegalArgumentException("Trame d'association invalide");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame, HEADER_SIZE, 16);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Lit les positions d'une trame de positions, dans l'ordre
+     */
+    public static List<Location> decodeLocations(byte[] frame) {
+        if (frameType(frame) != LOCATIONS) {
+            throw new IllegalArgumentException("Trame de positions attendue");
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(frame, HEADER_SIZE, frame.length - HEADER_SIZE);
+            int count = buffer.get() & 0xFF;
+            List<Location> locations = new ArrayList<>(count);
+            long time = 0;
+            int latitude = 0;
+            int longitude = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0) {
+                    time = buffer.getLong();
+                    latitude = buffer.getInt();
+                    longitude = buffer.getInt();
+                } else {
+                    time += readVarint(buffer);
+                    latitude += zigzagDecode(readVarint(buffer));
+                    longitude += zigzagDecode(readVarint(buffer));
+                }
+                if (Math.abs(latitude) > 90_000_000 || Math.abs(longitude) > 180_000_000) {
+                    throw new IllegalArgumentException("Coordonnées hors limites");
+                }
+                int flags = buffer.get();
+                locations.add(Location.builder()
+                        .latitude(latitude / E6)
+                        .longitude(longitude / E6)
+                        .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()))
+                        .speed((flags & HAS_SPEED) != 0 ? readTenths(buffer) : null)
+                        .heading((flags & HAS_HEADING) != 0 ? readTenths(buffer) : null)
+                        .accuracy((flags & HAS_ACCURACY) != 0 ? readTenths(buffer) : null)
+                        .build());
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Octets en trop dans la trame de positions");
+            }
+            return locations;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Trame de positions tronquée", e);
+        }
+    }
+
+    public static byte[] encodeBinding(int alias, UUID deliveryId) {
+        ByteBuffer buffer = header(HEADER_SIZE + 16, BIND, alias);
+        buffer.putLong(deliveryId.getMostSignificantBits());
+        buffer.putLong(deliveryId.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    /**
+     * Encode des positions horodatées, dans l'ordre chronologique (côté application, et pour les tests)
+     */
+    public static byte[] encodeLocations(int alias, List<Location> locations) {
+        if (locations.isEmpty() || locations.size() > MAX_LOCATIONS) {
+            throw new IllegalArgumentException("Une trame contient de 1 à " + MAX_LOCATIONS + " positions");
+        }
+        // Taille maximale : 23 octets pour la première position, 37 pour les suivantes (3 varints de 10 octets)
+        ByteBuffer buffer = header(HEADER_SIZE + 1 + 23 + (locations.size() - 1) * 37, LOCATIONS, alias);
+        buffer.put((byte) locations.size());
+        long previousTime = 0;
+        int previousLatitude = 0;
+        int previousLongitude = 0;
+        for (int i = 0; i < locations.size(); i++) {
+            Location location = locations.get(i);
+            if (location.getTimestamp() == null) {
+                throw new IllegalArgumentException("Position sans horodatage");
+            }
+            long time = location.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            int latitude = (int) Math.round(location.getLatitude() * E6);
+            int longitude = (int) Math.round(location.getLongitude() * E6);
+            if (i == 0) {
+                buffer.putLong(time);
+                buffer.putInt(latitude);
+                buffer.putInt(longitude);
+            } else {
+                if (time < previousTime) {
+                    throw new IllegalArgumentException("Positions hors d'ordre");
+                }
+                writeVarint(buffer, time - previousTime);
+                writeVarint(buffer, zigzagEncode(latitude - previousLatitude));
+                writeVarint(buffer, zigzagEncode(longitude - previousLongitude));
+            }
+            previousTime = time;
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+
+            int flags = (location.getSpeed() != null ? HAS_SPEED : 0)
+                    | (location.getHeading() != null ? HAS_HEADING : 0)
+                    | (location.getAccuracy() != null ? HAS_ACCURACY : 0);
+            buffer.put((byte) flags);
+            writeTenths(buffer, location.getSpeed());
+            writeTenths(buffer, location.getHeading());
+            writeTenths(buffer, location.getAccuracy());
+        }
+        byte[] frame = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, frame, 0, frame.length);
+        return frame;
+    }
+
+    private static ByteBuffer header(int capacity, int type, int alias) {
+        if (alias < 0 || alias > MAX_ALIAS) {
+            throw new IllegalArgumentException("Alias de livraison invalide : " + alias);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type);
+        buffer.putShort((short) alias);
+        return buffer;
+    }
+
+    private static Double readTenths(ByteBuffer buffer) {
+        return (buffer.getShort() & 0xFFFF) / TENTHS;
+    }
+
+    private static void writeTenths(ByteBuffer buffer, Double value) {
+        if (value != null) {
+            buffer.putShort((short) Math.min(0xFFFF, Math.max(0, Math.round(value * TENTHS))));
+        }
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint trop long");
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int zigzagDecode(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+}
@@ -0,0 +1,233 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.model.LocationBucket;
+import com.smartdelivery.tracking.model.LocationUpdate;
+import com.smartdelivery.tracking.repository.LocationBucketRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Historique des positions des livreurs, stocké par buckets de temps (collection location_buckets).
+ * Chaque livraison a un bucket ouvert en mémoire qui reçoit ses positions ; il est écrit régulièrement
+ * (un upsert pour de nombreux points) puis fermé lorsqu'il atteint sa durée ou son nombre de points.
+ * Une lecture sur un intervalle ne charge que les quelques buckets qui le chevauchent.
+ * Les positions anciennes sont sous-échantillonnées, puis supprimées au-delà de la rétention.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocationHistoryService {
+
+    private final LocationBucketRepository bucketRepository;
+
+    private final Map<String, LocationBucketCodec.Builder> openBuckets = new ConcurrentHashMap<>();
+    private final Queue<LocationBucketCodec.Builder> closedBuckets = new ConcurrentLinkedQueue<>();
+
+    @Value("${tracking.history.bucket-seconds:60}")
+    private int bucketSeconds;
+
+    @Value("${tracking.history.bucket-max-points:200}")
+    private int bucketMaxPoints;
+
+    @Value("${tracking.history.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${tracking.history.downsample-interval-seconds:30}")
+    private int downsampleIntervalSeconds;
+
+    @Value("${tracking.history.downsampled-bucket-minutes:60}")
+    private int downsampledBucketMinutes;
+
+    @Value("${tracking.history.retention-days:90}")
+    private int retentionDays;
+
+    /**
+     * Ajoute une position au bucket ouvert de la livraison, sans accès à la base
+     */
+    public void append(UUID deliveryId, UUID courierId, Location location) {
+        if (location == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return;
+        }
+        LocalDateTime timestamp = location.getTimestamp() != null ? location.getTimestamp() : LocalDateTime.now();
+        String courier = courierId != null ? courierId.toString() : null;
+
+        openBuckets.compute(deliveryId.toString(), (id, bucket) -> {
+            if (bucket != null && bucket.tryAppend(timestamp, location.getLatitude(), location.getLongitude(),
+                    location.getSpeed(), location.getHeading())) {
+                return bucket;
+            }
+            if (bucket != null) {
+                closedBuckets.add(bucket);
+            }
+            LocationBucketCodec.Builder next = new LocationBucketCodec.Builder(
+                    id, courier, LocationBucket.TIER_RAW, bucketMaxPoints, bucketSeconds * 1000L);
+            next.tryAppend(timestamp, location.getLatitude(), location.getLongitude(),
+                    location.getSpeed(), location.getHeading());
+            return next;
+        });
+    }
+
+    /**
+     * Positions d'une livraison sur un intervalle, triées par date
+     */
+    public List<LocationUpdate> findByDeliveryIdAndTimestampBetween(UUID deliveryId, LocalDateTime start, LocalDateTime end) {
+        String id = deliveryId.toString();
+        return collect(bucketRepository.findOverlappingByDeliveryId(id, start, end),
+                bucket -> id.equals(bucket.getDeliveryId()), start, end);
+    }
+
+    /**
+     * Positions d'un livreur sur un intervalle, toutes livraisons confondues, triées par date
+     */
+    public List<LocationUpdate> findByCourierIdAndTimestampBetween(UUID courierId, LocalDateTime start, LocalDateTime end) {
+        String id = courierId.toString();
+        return collect(bucketRepository.findOverlappingByCourierId(id, start, end),
+                bucket -> id.equals(bucket.getCourierId()), start, end);
+    }
+
+    /**
+     * Écrit les buckets modifiés depuis la dernière écriture et libère les buckets fermés
+     */
+    @Scheduled(fixedDelayString = "${tracking.history.flush-interval-ms:5000}")
+    public void flush() {
+        LocalDateTime now = LocalDateTime.now();
+        List<LocationBucketCodec.Builder> closed = new ArrayList<>();
+        LocationBucketCodec.Builder bucket;
+        while ((bucket = closedBuckets.poll()) != null) {
+            closed.add(bucket);
+        }
+        // Un bucket retiré de la table ne reçoit plus de points : son écriture est définitive
+        openBuckets.forEach((deliveryId, open) -> {
+            if (open.isClosed(now) && openBuckets.remove(deliveryId, open)) {
+                closed.add(open);
+            }
+        });
+
+        List<LocationBucket> documents = new ArrayList<>();
+        closed.forEach(builder -> documents.add(builder.build()));
+        openBuckets.values().stream()
+                .map(LocationBucketCodec.Builder::drain)
+                .filter(Objects::nonNull)
+                .forEach(documents::add);
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        try {
+            bucketRepository.saveAll(documents);
+            log.debug("Flushed {} location buckets ({} closed)", documents.size(), closed.size());
+        } catch (RuntimeException e) {
+            // Les buckets fermés sont réessayés ; un bucket ouvert sera réécrit en entier à sa prochaine écriture
+            closedBuckets.addAll(closed);
+            log.error("Failed to flush {} location buckets", documents.size(), e);
+        }
+    }
+
+    /**
+     * Sous-échantillonne les positions brutes au-delà de leur rétention (un point par intervalle,
+     * regroupés en buckets plus longs) et supprime l'historique au-delà de la rétention totale
+     */
+    @Scheduled(cron = "${tracking.history.compaction-cron:0 30 3 * * *}")
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int downsampled = 0;
+        List<LocationBucket> group = new ArrayList<>();
+
+        try (Stream<LocationBucket> raw = bucketRepository.findByTierAndEndTimeBeforeOrderByDeliveryIdAscStartTimeAsc(
+                LocationBucket.TIER_RAW, now.minusDays(rawRetentionDays))) {
+            Iterator<LocationBucket> buckets = raw.iterator();
+            while (buckets.hasNext()) {
+                LocationBucket next = buckets.next();
+                if (!group.isEmpty() && !Objects.equals(group.get(0).getDeliveryId(), next.getDeliveryId())) {
+                    downsampled += downsample(group);
+                    group.clear();
+                }
+                group.add(next);
+            }
+            downsampled += downsample(group);
+        }
+
+        long deleted = bucketRepository.deleteByTierAndEndTimeBefore(
+                LocationBucket.TIER_DOWNSAMPLED, now.minusDays(retentionDays));
+        log.info("Compacted location history: {} raw buckets downsampled, {} expired buckets deleted",
+                downsampled, deleted);
+    }
+
+    // Remplace les buckets bruts d'une livraison par des buckets d'un point par intervalle
+    private int downsample(List<LocationBucket> rawBuckets) {
+        if (rawBuckets.isEmpty()) {
+            return 0;
+        }
+        LocationBucket first = rawBuckets.get(0);
+        long windowMillis = Duration.ofMinutes(downsampledBucketMinutes).toMillis();
+        List<LocationBucket> documents = new ArrayList<>();
+        LocationBucketCodec.Builder builder = null;
+        LocalDateTime lastKept = null;
+
+        for (LocationBucket rawBucket : rawBuckets) {
+            for (LocationUpdate point : LocationBucketCodec.decode(rawBucket, null, null)) {
+                if (lastKept != null && point.getTimestamp().isBefore(lastKept.plusSeconds(downsampleIntervalSeconds))) {
+                    continue;
+                }
+                if (builder == null || !builder.tryAppend(point.getTimestamp(), point.getLatitude(),
+                        point.getLongitude(), point.getSpeed(), point.getHeading())) {
+                    if (builder != null) {
+                        documents.add(builder.build());
+                    }
+                    builder = new LocationBucketCodec.Builder(first.getDeliveryId(), first.getCourierId(),
+                            LocationBucket.TIER_DOWNSAMPLED, bucketMaxPoints, windowMillis);
+                    builder.tryAppend(point.getTimestamp(), point.getLatitude(), point.getLongitude(),
+                            point.getSpeed(), point.getHeading());
+                }
+                lastKept = point.getTimestamp();
+            }
+        }
+        if (builder != null && !builder.isEmpty()) {
+            documents.add(builder.build());
+        }
+
+        // Écrire avant de supprimer : une interruption laisse au pire des points en double
+        bucketRepository.saveAll(documents);
+        bucketRepository.deleteAll(rawBuckets);
+        return rawBuckets.size();
+    }
+
+    // Fusionne les buckets écrits et ceux encore en mémoire (plus récents), puis décode l'intervalle
+    private List<LocationUpdate> collect(List<LocationBucket> stored, Predicate<LocationBucketCodec.Builder> inMemory,
+                                         LocalDateTime start, LocalDateTime end) {
+        Map<String, LocationBucket> buckets = new LinkedHashMap<>();
+        stored.forEach(bucket -> buckets.put(bucket.getId(), bucket));
+        Stream.concat(closedBuckets.stream(), openBuckets.values().stream())
+                .filter(inMemory)
+                .forEach(builder -> buckets.put(builder.getId(), builder.build()));
+
+        List<LocationUpdate> points = new ArrayList<>();
+        for (LocationBucket bucket : buckets.values()) {
+            if (bucket.getCount() > 0) {
+                points.addAll(LocationBucketCodec.decode(bucket, start, end));
+            }
+        }
+        points.sort(Comparator.comparing(LocationUpdate::getTimestamp));
+        return points;
+    }
+}
@@ -0,0 +1,135 @@
+package com.smartdelivery.tracking.service;
+
+/**
+ * Géométrie d'une route : polyligne et distances cumulées depuis le départ.
+ * La progression d'une position est la distance parcourue jusqu'à sa projection
+ * sur le segment le plus proche, rapportée à la longueur totale ; la recherche peut être
+ * restreinte à une portion de la route autour de la dernière progression connue.
+ */
+public final class RouteGeometry {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cumulativeMeters;
+
+    private RouteGeometry(double[] latitudes, double[] longitudes) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cumulativeMeters = new double[latitudes.length];
+        for (int i = 1; i < latitudes.length; i++) {
+            cumulativeMeters[i] = cumulativeMeters[i - 1]
+                    + haversineMeters(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+    }
+
+    /**
+     * @param latitudes Latitudes des points de la route, dans l'ordre de parcours
+     * @param longitudes Longitudes correspondantes
+     */
+    public static RouteGeometry of(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length || latitudes.length == 0) {
+            throw new IllegalArgumentException("Géométrie de route invalide");
+        }
+        return new RouteGeometry(latitudes.clone(), longitudes.clone());
+    }
+
+    public double getLengthMeters() {
+        return cumulativeMeters[cumulativeMeters.length - 1];
+    }
+
+    /**
+     * Distance parcourue le long de la route jusqu'à la projection de la position
+     */
+    public double distanceAlongMeters(double latitude, double longitude) {
+        return distanceAlongMeters(latitude, longitude, 0.0, getLengthMeters());
+    }
+
+    /**
+     * Distance parcourue le long de la route jusqu'à la projection de la position, la recherche étant
+     * limitée à la portion [fromMeters, toMeters] : sur une route qui boucle ou longe son propre tracé,
+     * la position n'est pas projetée sur un passage ultérieur de la route
+     * @param fromMeters Début de la portion, en mètres depuis le départ
+     * @param toMeters Fin de la portion, en mètres depuis le départ
+     */
+    public double distanceAlongMeters(double latitude, double longitude, double fromMeters, double toMeters) {
+        double from = Math.max(0.0, Math.min(fromMeters, toMeters));
+        double to = Math.min(getLengthMeters(), Math.max(fromMeters, toMeters));
+        if (latitudes.length == 1 || from >= getLengthMeters()) {
+            return Math.min(from, getLengthMeters());
+        }
+
+        double bestDistance = Double.MAX_VALUE;
+        double bestAlong = from;
+        for (int i = firstSegmentEndingAfter(from); i + 1 < latitudes.length && cumulativeMeters[i] <= to; i++) {
+            // Projection équirectangulaire locale au segment, suffisante à l'échelle d'un segment de route
+            double metersPerDegree = Math.toRadians(1) * EARTH_RADIUS_METERS;
+            double cosLatitude = Math.cos(Math.toRadians(latitudes[i]));
+            double segmentX = (longitudes[i + 1] - longitudes[i]) * cosLatitude * metersPerDegree;
+            double segmentY = (latitudes[i + 1] - latitudes[i]) * metersPerDegree;
+            double pointX = (longitude - longitudes[i]) * cosLatitude * metersPerDegree;
+            double pointY = (latitude - latitudes[i]) * metersPerDegree;
+
+            // Un segment à cheval sur une borne n'est parcouru que sur sa partie incluse dans la portion
+            double segmentMeters = cumulativeMeters[i + 1] - cumulativeMeters[i];
+            double minT = segmentMeters == 0 ? 0 : Math.max(0, (from - cumulativeMeters[i]) / segmentMeters);
+            double maxT = segmentMeters == 0 ? 0 : Math.min(1, (to - cumulativeMeters[i]) / segmentMeters);
+
+            double segmentLengthSquared = segmentX * segmentX + segmentY * segmentY;
+            double t = segmentLengthSquared == 0 ? minT
+                    : Math.max(minT, Math.min(maxT, (pointX * segmentX + pointY * segmentY) / segmentLengthSquared));
+            double dx = pointX - t * segmentX;
+            double dy = pointY - t * segmentY;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < bestDistance) {
+                bestDistance = distanceSquared;
+                bestAlong = cumulativeMeters[i] + t * segmentMeters;
+            }
+        }
+        return bestAlong;
+    }
+
+    /**
+     * Pourcentage de progression de la position sur la route (0.0 - 100.0)
+     */
+    public double progressPercentage(double latitude, double longitude) {
+        return progressPercentage(latitude, longitude, 0.0, getLengthMeters());
+    }
+
+    /**
+     * Pourcentage de progression de la position sur la route (0.0 - 100.0), projetée sur la seule
+     * portion [fromMeters, toMeters]
+     */
+    public double progressPercentage(double latitude, double longitude, double fromMeters, double toMeters) {
+        double length = getLengthMeters();
+        if (length == 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, Math.min(100.0, distanceAlongMeters(latitude, longitude, fromMeters, toMeters) / length * 100.0));
+    }
+
+    // Premier segment [i, i + 1] qui se termine au-delà de la distance donnée (recherche dichotomique)
+    private int firstSegmentEndingAfter(double meters) {
+        int low = 0;
+        int high = latitudes.length - 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeMeters[middle + 1] < meters) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -6,64 +6,125 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Progression des livraisons sur leur route, calculée localement.
+ * La géométrie d'une route est lue une fois auprès du route-optimizer puis gardée dans un cache LRU
+ * borné, invalidé par les événements route.updated ; chaque position est projetée sur la polyligne
+ * sans appel distant.
+ */
 @Service
 @Slf4j
 public class RouteOptimizerService {
 
     private final RestTemplate restTemplate;
+    private final Map<String, CachedRoute> routes;
 
     @Value("${route-optimizer.service.url}")
     private String routeOptimizerServiceUrl;
 
-    public RouteOptimizerService(RestTemplate restTemplate) {
+    @Value("${tracking.route.retry-after-ms:30000}")
+    private long retryAfterMillis;
+
+    @Value("${tracking.route.search-behind-meters:200}")
+    private double searchBehindMeters;
+
+    @Value("${tracking.route.search-ahead-meters:2000}")
+    private double searchAheadMeters;
+
+    public RouteOptimizerService(RestTemplate restTemplate,
+                                 @Value("${tracking.route.cache-size:10000}") int cacheSize) {
         this.restTemplate = restTemplate;
+        this.routes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRoute> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     /**
-     * Calcule le pourcentage de progression sur une route
+     * Calcule le pourcentage de progression sur une route.
+     * Lorsque la progression précédente est connue, la position n'est projetée que sur les segments
+     * autour d'elle : sur une route qui boucle ou longe son propre tracé, la progression ne saute pas
+     * sur un passage ultérieur de la route
      * @param routeId ID de la route
+     * @param lastProgress Dernière progression connue (0.0 - 100.0), null pour chercher sur toute la route
      * @param currentLocation Position actuelle
-     * @return Pourcentage de progression (0.0 - 100.0)
+     * @return Pourcentage de progression (0.0 - 100.0), null si la géométrie de la route est indisponible
      */
-    public Double calculateProgress(String routeId, Location currentLocation) {
-        try {
-            // Appeler le service d'optimisation de route
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("routeId", routeId);
-            requestBody.put("latitude", currentLocation.getLatitude());
-            requestBody.put("longitude", currentLocation.getLongitude());
-
-            Map<String, Object> response = restTemplate.postForObject(
-                    routeOptimizerServiceUrl + "/api/routes/progress",
-                    requestBody,
-                    Map.class
-            );
-
-            if (response != null && response.containsKey("progressPercentage")) {
-                return (Double) response.get("progressPercentage");
-            }
-        } catch (Exception e) {
-            log.error("Error calculating route progress", e);
+    public Double calculateProgress(String routeId, Double lastProgress, Location currentLocation) {
+        if (currentLocation.getLatitude() == null || currentLocation.getLongitude() == null) {
+            return null;
         }
-
-        // En cas d'erreur, retourner une estimation basique basée sur la distance
-        return calculateBasicProgress(currentLocation);
+        RouteGeometry geometry = getGeometry(routeId);
+        if (geometry == null) {
+            return null;
+        }
+        if (lastProgress == null) {
+            return geometry.progressPercentage(currentLocation.getLatitude(), currentLocation.getLongitude());
+        }
+        double lastMeters = lastProgress / 100.0 * geometry.getLengthMeters();
+        return geometry.progressPercentage(currentLocation.getLatitude(), currentLocation.getLongitude(),
+                lastMeters - searchBehindMeters, lastMeters + searchAheadMeters);
     }
 
     /**
-     * Calcule une progression basique basée sur la distance par rapport à un point de destination
-     * @param currentLocation Position actuelle
-     * @return Pourcentage de progression estimé
+     * Oublie la géométrie d'une route modifiée ; elle sera relue à la prochaine position
+     * @param routeId ID de la route
      */
-    private Double calculateBasicProgress(Location currentLocation) {
-        // Implémentation simple - dans un vrai système, nous utiliserions l'API de cartographie
-        // pour calculer la distance restante par rapport à la destination
+    public void invalidate(String routeId) {
+        synchronized (routes) {
+            routes.remove(routeId);
+        }
+    }
+
+    private RouteGeometry getGeometry(String routeId) {
+        long now = System.currentTimeMillis();
+        CachedRoute cached;
+        synchronized (routes) {
+            cached = routes.get(routeId);
+        }
+        if (cached != null && (cached.geometry() != null || now - cached.fetchedAtMillis() < retryAfterMillis)) {
+            return cached.geometry();
+        }
+
+        // Une route introuvable est mémorisée quelque temps pour ne pas réessayer à chaque position
+        RouteGeometry geometry = fetchGeometry(routeId);
+        synchronized (routes) {
+            routes.put(routeId, new CachedRoute(geometry, now));
+        }
+        return geometry;
+    }
+
+    private RouteGeometry fetchGeometry(String routeId) {
+        try {
+            Map<String, Object> route = restTemplate.getForObject(
+                    routeOptimizerServiceUrl + "/api/routes/" + routeId, Map.class);
+            List<Map<String, Object>> points = route != null ? (List<Map<String, Object>>) route.get("points") : null;
+
+            if (points == null || points.isEmpty()) {
+                log.warn("Route {} has no points, progress will not be computed", routeId);
+                return null;
+            }
+
+            double[] latitudes = new double[points.size()];
+            double[] longitudes = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                latitudes[i] = ((Number) points.get(i).get("latitude")).doubleValue();
+                longitudes[i] = ((Number) points.get(i).get("longitude")).doubleValue();
+            }
+            log.debug("Cached geometry of route {} ({} points)", routeId, points.size());
+            return RouteGeometry.of(latitudes, longitudes);
+        } catch (Exception e) {
+            log.error("Error fetching geometry of route {}", routeId, e);
+            return null;
+        }
+    }
 
-        // Pour cet exemple, nous retournons une valeur aléatoire entre 0 et 95
-        // pour simuler une progression
-        return Math.random() * 95.0;
+    private record CachedRoute(RouteGeometry geometry, long fetchedAtMillis) {
     }
 }
@@ -0,0 +1,87 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.config.WebSocketDestinations;
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.TrackingUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diffusion des suivis aux clients WebSocket par trames : les mises à jour d'une livraison
+ * reçues pendant un intervalle sont fusionnées (la plus récente l'emporte) et une seule
+ * {@link TrackingUpdate} est envoyée par livraison et par trame.
+ */
+@Service
+@Slf4j
+public class TrackingFanoutService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDestinations destinations;
+    private final Map<UUID, TrackingUpdate> pending = new ConcurrentHashMap<>();
+    private final Counter publishedUpdates;
+    private final Counter conflatedUpdates;
+    private final Counter sentUpdates;
+
+    public TrackingFanoutService(SimpMessagingTemplate messagingTemplate, WebSocketDestinations destinations,
+                                 MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.destinations = destinations;
+        this.publishedUpdates = Counter.builder("tracking.fanout.updates")
+                .description("Mises à jour de suivi soumises à la diffusion")
+                .register(meterRegistry);
+        this.conflatedUpdates = Counter.builder("tracking.fanout.conflated")
+                .description("Mises à jour remplacées par une plus récente avant leur envoi")
+                .register(meterRegistry);
+        this.sentUpdates = Counter.builder("tracking.fanout.sent")
+                .description("Messages de suivi envoyés au broker")
+                .register(meterRegistry);
+        Gauge.builder("tracking.fanout.pending", pending, Map::size)
+                .description("Livraisons ayant une mise à jour en attente de la prochaine trame")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Planifie l'envoi de l'état courant d'un suivi à la prochaine trame
+     */
+    public void publish(DeliveryTracking tracking) {
+        publishedUpdates.increment();
+        pending.merge(tracking.getDeliveryId(), TrackingUpdate.from(tracking), (queued, update) -> {
+            conflatedUpdates.increment();
+            // Des écritures concurrentes peuvent arriver dans le désordre : garder la plus récente
+            return isOlder(update, queued) ? queued : update;
+        });
+    }
+
+    /**
+     * Envoie la dernière mise à jour de chaque livraison modifiée depuis la trame précédente
+     */
+    @Scheduled(fixedDelayString = "${tracking.websocket.frame-interval-ms:250}")
+    public void flushFrame() {
+        for (UUID deliveryId : pending.keySet()) {
+            TrackingUpdate update = pending.remove(deliveryId);
+            if (update == null) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSend(destinations.tracking(deliveryId), update);
+                sentUpdates.increment();
+            } catch (RuntimeException e) {
+                log.error("Failed to send tracking update for delivery ID: {}", deliveryId, e);
+            }
+        }
+    }
+
+    private static boolean isOlder(TrackingUpdate update, TrackingUpdate other) {
+        return update.getLastUpdated() != null && other.getLastUpdated() != null
+                && update.getLastUpdated().isBefore(other.getLastUpdated());
+    }
+}
@@ -1,17 +1,18 @@
 package com.smartdelivery.tracking.service;
 
 import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Geofence;
+import com.smartdelivery.tracking.model.GeofenceEvent;
 import com.smartdelivery.tracking.model.Location;
 import com.smartdelivery.tracking.repository.DeliveryTrackingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,12 +23,19 @@ public class TrackingService {
 
     private final DeliveryTrackingRepository trackingRepository;
     private final RabbitTemplate rabbitTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
     private final RouteOptimizerService routeOptimizerService;
+    private final LocationHistoryService locationHistoryService;
+    private final TrackingFanoutService trackingFanoutService;
+    private final DelayMonitor delayMonitor;
+    private final LocationFilterService locationFilterService;
+    private final GeofenceService geofenceService;
 
     @Value("${rabbitmq.exchange.name}")
     private String exchangeName;
 
+    @Value("${tracking.location.max-batch-size:500}")
+    private int maxBatchSize;
+
     public DeliveryTracking createTracking(UUID deliveryId, UUID courierId, Location initialLocation) {
         DeliveryTracking tracking = DeliveryTracking.builder()
                 .deliveryId(deliveryId)
@@ -42,39 +50,105 @@ public class TrackingService {
 
         DeliveryTracking savedTracking = trackingRepository.save(tracking);
 
-        // Notifier les clients via WebSocket
-        messagingTemplate.convertAndSend("/topic/tracking/" + deliveryId, savedTracking);
+        // Notifier les clients via WebSocket (mise à jour compacte, fusionnée par trame)
+        trackingFanoutService.publish(savedTracking);
 
         log.info("Created tracking for delivery ID: {}", deliveryId);
         return savedTracking;
     }
 
+    /**
+     * Enregistre une nouvelle position par une mise à jour atomique du suivi ($set et $push),
+     * sans relire ni réécrire le document : des positions concurrentes ne s'écrasent pas
+     * @param deliveryId ID de la livraison
+     * @param newLocation Nouvelle position, brute
+     * @return Le suivi mis à jour, sans son historique de positions
+     */
     public DeliveryTracking updateLocation(UUID deliveryId, Location newLocation) {
-        DeliveryTracking tracking = trackingRepository.findByDeliveryId(deliveryId);
+        return updateLocations(deliveryId, List.of(newLocation));
+    }
 
-        if (tracking == null) {
+    /**
+     * Enregistre un lot ordonné de positions, typiquement rejouées par l'application du livreur après
+     * une perte de connexion. Chaque position est filtrée, ajoutée à l'historique et testée contre les zones
+     * de livraison, mais le suivi n'est écrit qu'une fois, la progression n'est calculée que pour
+     * la dernière position retenue et seul l'état final est diffusé et publié.
+     * @param deliveryId ID de la livraison
+     * @param newLocations Positions brutes, dans l'ordre chronologique
+     * @return Le suivi mis à jour, sans son historique de positions
+     */
+    public DeliveryTracking updateLocations(UUID deliveryId, List<Location> newLocations) {
+        if (newLocations == null || newLocations.isEmpty()) {
+            throw new RuntimeException("No location provided for delivery ID: " + deliveryId);
+        }
+        if (newLocations.size() > maxBatchSize) {
+            throw new RuntimeException("Location batch exceeds " + maxBatchSize + " points for delivery ID: " + deliveryId);
+        }
+
+        // Lisser les positions ; une position rejetée ou à l'arrêt n'est ni écrite ni diffusée
+        List<Location> locations = new ArrayList<>(newLocations.size());
+        for (Location newLocation : newLocations) {
+            Location location = locationFilterService.filter(deliveryId, newLocation);
+            if (location != null) {
+                locations.add(location);
+            }
+        }
+        if (locations.isEmpty()) {
+            return getTrackingSnapshot(deliveryId);
+        }
+        Location lastLocation = locations.get(locations.size() - 1);
+
+        DeliveryTrackingRepository.TrackingRouteView route = trackingRepository.findRouteViewByDeliveryId(deliveryId);
+
+        if (route == null) {
             throw new RuntimeException("Tracking not found for delivery ID: " + deliveryId);
         }
 
-        // Mettre à jour la position actuelle
-        tracking.setCurrentLocation(newLocation);
-        tracking.addLocationToHistory(newLocation);
+        // Calculer le pourcentage de progression et le statut qui en découle, à la dernière position
+        Double progress = route.getRouteId() != null
+                ? routeOptimizerService.calculateProgress(route.getRouteId(), route.getProgressPercentage(), lastLocation)
+                : null;
 
-        // Calculer le pourcentage de progression
-        updateProgressPercentage(tracking);
+        DeliveryTracking savedTracking = trackingRepository.recordLocationsAndGet(deliveryId, locations, progress);
 
-        // Mettre à jour le statut si nécessaire
-        updateTrackingStatus(tracking);
+        if (savedTracking == null) {
+            throw new RuntimeException("Tracking not found for delivery ID: " + deliveryId);
+        }
 
-        DeliveryTracking savedTracking = trackingRepository.save(tracking);
+        // Le statut n'avance qu'avec la progression : une position reçue après la livraison ne la fait pas reculer
+        DeliveryTracking.TrackingStatus progressStatus = statusForProgress(deliveryId, progress);
+        if (progressStatus != null && isBefore(savedTracking.getStatus(), progressStatus)) {
+            DeliveryTracking advancedTracking = trackingRepository.advanceStatusAndGet(deliveryId, progressStatus);
+            if (advancedTracking != null) {
+                savedTracking = advancedTracking;
+            }
+        }
+
+        // Le statut peut avoir changé avec la progression
+        delayMonitor.track(savedTracking);
+        releaseIfDelivered(savedTracking);
+
+        for (Location location : locations) {
+            // Historique complet des positions, par buckets de temps
+            locationHistoryService.append(deliveryId, savedTracking.getCourierId(), location);
+
+            // Zones de ramassage et de dépôt du livreur : le statut peut avancer
+            for (GeofenceEvent event : geofenceService.evaluate(savedTracking.getCourierId(), location)) {
+                DeliveryTracking advancedTracking = applyGeofenceEvent(event);
+                if (advancedTracking != null && deliveryId.equals(advancedTracking.getDeliveryId())) {
+                    savedTracking = advancedTracking;
+                }
+            }
+        }
 
-        // Notifier les clients via WebSocket
-        messagingTemplate.convertAndSend("/topic/tracking/" + deliveryId, savedTracking);
+        // Notifier les clients via WebSocket (mise à jour compacte, fusionnée par trame)
+        trackingFanoutService.publish(savedTracking);
 
         // Publier l'événement de mise à jour
         publishLocationUpdateEvent(savedTracking);
 
-        log.info("Updated location for delivery ID: {}", deliveryId);
+        log.info("Updated location for delivery ID: {} ({} of {} points recorded)",
+                deliveryId, locations.size(), newLocations.size());
         return savedTracking;
     }
 
@@ -82,6 +156,18 @@ public class TrackingService {
         return trackingRepository.findByDeliveryId(deliveryId);
     }
 
+    /**
+     * État complet d'un suivi, sans l'historique des positions
+     */
+    public DeliveryTracking getTrackingSnapshot(UUID deliveryId) {
+        DeliveryTracking tracking = trackingRepository.findSnapshotByDeliveryId(deliveryId);
+
+        if (tracking == null) {
+            throw new RuntimeException("Tracking not found for delivery ID: " + deliveryId);
+        }
+        return tracking;
+    }
+
     public List<DeliveryTracking> getTrackingByCourierId(UUID courierId) {
         return trackingRepository.findByCourierId(courierId);
     }
@@ -91,60 +177,101 @@ public class TrackingService {
     }
 
     public DeliveryTracking updateTrackingStatus(UUID deliveryId, DeliveryTracking.TrackingStatus status) {
-        DeliveryTracking tracking = trackingRepository.findByDeliveryId(deliveryId);
+        // Mise à jour ciblée du statut : une position enregistrée en parallèle n'est pas écrasée
+        DeliveryTracking savedTracking = trackingRepository.updateStatusAndGet(deliveryId, status);
 
-        if (tracking == null) {
+        if (savedTracking == null) {
             throw new RuntimeException("Tracking not found for delivery ID: " + deliveryId);
         }
 
-        tracking.setStatus(status);
-        tracking.setLastUpdated(LocalDateTime.now());
+        onStatusUpdated(savedTracking);
 
-        DeliveryTracking savedTracking = trackingRepository.save(tracking);
+        log.info("Updated tracking status to {} for delivery ID: {}", status, deliveryId);
+        return savedTracking;
+    }
 
-        // Notifier les clients via WebSocket
-        messagingTemplate.convertAndSend("/topic/tracking/" + deliveryId, savedTracking);
+    /**
+     * Met à jour l'heure de livraison estimée et replanifie la détection de retard
+     * @param deliveryId ID de la livraison
+     * @param estimatedDeliveryTime Nouvelle heure estimée
+     * @return Le suivi mis à jour, sans son historique de positions
+     */
+    public DeliveryTracking updateEstimatedDeliveryTime(UUID deliveryId, LocalDateTime estimatedDeliveryTime) {
+        DeliveryTracking savedTracking = trackingRepository.updateEstimatedDeliveryTimeAndGet(deliveryId, estimatedDeliveryTime);
 
-        // Publier l'événement de changement de statut
-        publishStatusUpdateEvent(savedTracking);
+        if (savedTracking == null) {
+            throw new RuntimeException("Tracking not found for delivery ID: " + deliveryId);
+        }
 
-        log.info("Updated tracking status to {} for delivery ID: {}", status, deliveryId);
+        delayMonitor.track(savedTracking);
+        trackingFanoutService.publish(savedTracking);
+
+        log.info("Updated estimated delivery time to {} for delivery ID: {}", estimatedDeliveryTime, deliveryId);
+        return savedTracking;
+    }
+
+    /**
+     * Fait avancer le statut d'un suivi à partir d'un événement de zone : sortie de la zone de ramassage
+     * (colis récupéré) ou stationnement dans la zone de dépôt (colis livré)
+     * @return Le suivi mis à jour, ou null si l'événement ne change pas le statut
+     */
+    private DeliveryTracking applyGeofenceEvent(GeofenceEvent event) {
+        DeliveryTracking.TrackingStatus status = null;
+        if (event.getGeofenceType() == Geofence.GeofenceType.PICKUP
+                && event.getEventType() == GeofenceEvent.GeofenceEventType.EXITED) {
+            status = DeliveryTracking.TrackingStatus.PICKED_UP;
+        } else if (event.getGeofenceType() == Geofence.GeofenceType.DROPOFF
+                && event.getEventType() == GeofenceEvent.GeofenceEventType.DWELL) {
+            status = DeliveryTracking.TrackingStatus.DELIVERED;
+        }
+        if (status == null) {
+            return null;
+        }
+
+        // Un statut déjà plus avancé (mis à jour par la progression ou par un autre service) est conservé
+        DeliveryTracking savedTracking = trackingRepository.advanceStatusAndGet(event.getDeliveryId(), status);
+        if (savedTracking == null) {
+            return null;
+        }
+        onStatusUpdated(savedTracking);
+
+        log.info("Updated tracking status to {} for delivery ID: {} from {} geofence",
+                status, event.getDeliveryId(), event.getGeofenceType());
         return savedTracking;
     }
 
-    // Planifié toutes les minutes pour vérifier les livraisons en retard
-    @Scheduled(fixedRate = 60000)
-    public void checkDelayedDeliveries() {
-        List<DeliveryTracking> inTransitDeliveries = trackingRepository.findByStatus(DeliveryTracking.TrackingStatus.IN_TRANSIT);
+    private void onStatusUpdated(DeliveryTracking savedTracking) {
+        delayMonitor.track(savedTracking);
+        releaseIfDelivered(savedTracking);
 
-        LocalDateTime now = LocalDateTime.now();
+        // Notifier les clients via WebSocket (mise à jour compacte, fusionnée par trame)
+        trackingFanoutService.publish(savedTracking);
 
-        for (DeliveryTracking tracking : inTransitDeliveries) {
-            if (tracking.getEstimatedDeliveryTime() != null && now.isAfter(tracking.getEstimatedDeliveryTime())) {
-                // Notification de livraison en retard
-                log.warn("Delivery {} is delayed. Estimated time: {}", tracking.getDeliveryId(), tracking.getEstimatedDeliveryTime());
+        // Publier l'événement de changement de statut
+        publishStatusUpdateEvent(savedTracking);
+    }
 
-                // Envoyer une notification via RabbitMQ
-                rabbitTemplate.convertAndSend(exchangeName, "delivery.delayed", tracking);
-            }
+    private DeliveryTracking.TrackingStatus statusForProgress(UUID deliveryId, Double progressPercentage) {
+        // Logique pour mettre à jour le statut en fonction de la position
+        // Si le pourcentage de progression est proche de 100%, marquer comme livré, sauf si une zone
+        // de dépôt est définie : la livraison est alors détectée par stationnement dans la zone
+        if (progressPercentage != null && progressPercentage >= 95.0
+                && !geofenceService.hasGeofence(deliveryId, Geofence.GeofenceType.DROPOFF)) {
+            return DeliveryTracking.TrackingStatus.DELIVERED;
+        } else if (progressPercentage != null && progressPercentage > 0.0) {
+            return DeliveryTracking.TrackingStatus.IN_TRANSIT;
         }
+        return null;
     }
 
-    private void updateProgressPercentage(DeliveryTracking tracking) {
-        if (tracking.getRouteId() != null) {
-            // Obtenir les informations de la route depuis le service d'optimisation
-            Double progress = routeOptimizerService.calculateProgress(tracking.getRouteId(), tracking.getCurrentLocation());
-            tracking.setProgressPercentage(progress);
-        }
+    private static boolean isBefore(DeliveryTracking.TrackingStatus current, DeliveryTracking.TrackingStatus status) {
+        return current == null || current.compareTo(status) < 0;
     }
 
-    private void updateTrackingStatus(DeliveryTracking tracking) {
-        // Logique pour mettre à jour le statut en fonction de la position
-        // Par exemple, si le pourcentage de progression est proche de 100%, marquer comme livré
-        if (tracking.getProgressPercentage() != null && tracking.getProgressPercentage() >= 95.0) {
-            tracking.setStatus(DeliveryTracking.TrackingStatus.DELIVERED);
-        } else if (tracking.getProgressPercentage() != null && tracking.getProgressPercentage() > 0.0) {
-            tracking.setStatus(DeliveryTracking.TrackingStatus.IN_TRANSIT);
+    private void releaseIfDelivered(DeliveryTracking tracking) {
+        if (tracking.getStatus() == DeliveryTracking.TrackingStatus.DELIVERED) {
+            locationFilterService.release(tracking.getDeliveryId());
+            geofenceService.removeDeliveryGeofences(tracking.getDeliveryId());
         }
     }
 
@@ -1,5 +1,6 @@
 package com.smartdelivery.tracking.service;
 
+import com.smartdelivery.tracking.config.WebSocketDestinations;
 import com.smartdelivery.tracking.model.DeliveryTracking;
 import com.smartdelivery.tracking.model.LocationUpdate;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +16,7 @@ import java.util.UUID;
 public class WebSocketService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDestinations destinations;
 
     /**
      * Notifie les clients d'une mise à jour de position
@@ -22,7 +24,7 @@ public class WebSocketService {
      * @param locationUpdate Mise à jour de position
      */
     public void notifyLocationUpdate(UUID deliveryId, LocationUpdate locationUpdate) {
-        String topic = "/topic/tracking/" + deliveryId + "/location";
+        String topic = destinations.topic("tracking", deliveryId.toString(), "location");
         messagingTemplate.convertAndSend(topic, locationUpdate);
         log.info("Sent location update to topic {} for delivery {}", topic, deliveryId);
     }
@@ -32,7 +34,7 @@ public class WebSocketService {
      * @param tracking Suivi mis à jour
      */
     public void notifyTrackingUpdate(DeliveryTracking tracking) {
-        String topic = "/topic/tracking/" + tracking.getDeliveryId();
+        String topic = destinations.tracking(tracking.getDeliveryId());
         messagingTemplate.convertAndSend(topic, tracking);
         log.info("Sent tracking update to topic {} for delivery {}", topic, tracking.getDeliveryId());
     }
@@ -43,7 +45,7 @@ public class WebSocketService {
      * @param status Nouveau statut
      */
     public void notifyStatusUpdate(UUID deliveryId, String status) {
-        String topic = "/topic/tracking/" + deliveryId + "/status";
+        String topic = destinations.topic("tracking", deliveryId.toString(), "status");
         messagingTemplate.convertAndSend(topic, status);
         log.info("Sent status update to topic {} for delivery {}", topic, deliveryId);
     }
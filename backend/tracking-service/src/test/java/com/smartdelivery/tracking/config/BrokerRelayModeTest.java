@@ -0,0 +1,161 @@
+package com.smartdelivery.tracking.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mode relais de bout en bout contre une doublure du broker STOMP : un client abonné à
+ * /topic/tracking/{deliveryId} reçoit les mises à jour comme avec le broker en mémoire,
+ * le broker ne voit que des destinations à segments séparés par "."
+ */
+@SpringBootTest(
+        classes = BrokerRelayModeTest.RelayTestConfig.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "tracking.websocket.broker=relay",
+                "tracking.websocket.relay.host=127.0.0.1",
+                "tracking.websocket.relay.heartbeat-ms=0",
+                "websocket.allowed.origins=http://localhost:4200"
+        })
+class BrokerRelayModeTest {
+
+    private static final StompBrokerStandIn BROKER = StompBrokerStandIn.start();
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) {
+        registry.add("tracking.websocket.relay.port", BROKER::port);
+    }
+
+    @AfterAll
+    static void stopBroker() throws IOException {
+        BROKER.close();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class
+    })
+    @Import({WebSocketConfig.class, WebSocketDestinations.class})
+    static class RelayTestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private WebSocketDestinations destinations;
+
+    @Autowired
+    @Qualifier("stompBrokerRelayMessageHandler")
+    private AbstractBrokerMessageHandler relayHandler;
+
+    private StompSession session;
+
+    @AfterEach
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    @Test
+    void relayMode_ShouldDeliverTrackingUpdatesOnThePublicDestination() throws Exception {
+        // Arrange : un client abonné comme avec le broker en mémoire
+        UUID deliveryId = UUID.randomUUID();
+        BlockingQueue<StompHeaders> headers = new LinkedBlockingQueue<>();
+        BlockingQueue<String> payloads = new LinkedBlockingQueue<>();
+        await().atMost(Duration.ofSeconds(10)).until(relayHandler::isBrokerAvailable);
+
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new StringMessageConverter());
+        session = client.connectAsync("ws://localhost:" + port + "/ws-tracking/websocket", new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        session.subscribe("/topic/tracking/" + deliveryId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders stompHeaders) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders stompHeaders, Object payload) {
+                headers.add(stompHeaders);
+                payloads.add((String) payload);
+            }
+        });
+        await().atMost(Duration.ofSeconds(10)).until(() -> BROKER.received("SUBSCRIBE", "/topic/tracking." + deliveryId));
+
+        // Act
+        messagingTemplate.convertAndSend(destinations.tracking(deliveryId), "update");
+
+        // Assert : le broker reçoit la clé de routage à points, le client sa destination d'abonnement
+        assertEquals("update", payloads.poll(10, TimeUnit.SECONDS));
+        assertEquals("/topic/tracking/" + deliveryId, headers.poll().getDestination());
+        assertTrue(BROKER.received("SEND", "/topic/tracking." + deliveryId));
+        assertTrue(BROKER.frames().stream()
+                .map(StompBrokerStandIn.Frame::destination)
+                .noneMatch(destination -> destination != null && destination.startsWith("/topic/tracking/")));
+    }
+
+    @Test
+    void destinations_ShouldMapTopicSegmentsAtTheRelayBoundary() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        String publicDestination = destinations.topic("tracking", deliveryId.toString(), "status");
+
+        // Act
+        String brokerDestination = WebSocketDestinations.toBroker(publicDestination);
+
+        // Assert
+        assertEquals("/topic/tracking/" + deliveryId + "/status", publicDestination);
+        assertEquals("/topic/tracking." + deliveryId + ".status", brokerDestination);
+        assertEquals(publicDestination, WebSocketDestinations.toClient(brokerDestination));
+        assertEquals("/app/tracking/" + deliveryId, WebSocketDestinations.toBroker("/app/tracking/" + deliveryId));
+        assertNull(WebSocketDestinations.toBroker(null));
+    }
+}
@@ -0,0 +1,97 @@
+package com.smartdelivery.tracking.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tampon d'envoi borné d'une session : un client lent perd les messages STOMP les plus anciens,
+ * jamais les plus récents ni les trames de contrôle
+ */
+class SessionSendBuffersTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionSendBuffers buffers = new SessionSendBuffers(2, meterRegistry);
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Client lent : le premier envoi reste bloqué jusqu'à ce que le test le libère
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session-1");
+        doAnswer(invocation -> {
+            sending.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            sent.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(delegate).sendMessage(any());
+
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        buffers.decorate(handler).afterConnectionEstablished(delegate);
+        ArgumentCaptor<WebSocketSession> buffered = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(buffered.capture());
+        session = buffered.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        buffers.shutdown();
+    }
+
+    @Test
+    void sendMessage_ShouldDropTheOldestMessageWhenTheBufferIsFull() throws Exception {
+        // Arrange : un message en cours d'écriture, puis le tampon de deux messages rempli
+        session.sendMessage(new TextMessage("MESSAGE\n\nm0"));
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+        session.sendMessage(new TextMessage("MESSAGE\n\nm1"));
+        session.sendMessage(new TextMessage("MESSAGE\n\nm2"));
+
+        // Act
+        session.sendMessage(new TextMessage("MESSAGE\n\nm3"));
+        release.countDown();
+
+        // Assert
+        await().atMost(Duration.ofSeconds(10)).until(() -> sent.size() == 3);
+        assertEquals(List.of("MESSAGE\n\nm0", "MESSAGE\n\nm2", "MESSAGE\n\nm3"), sent);
+        assertEquals(1.0, meterRegistry.counter("tracking.websocket.dropped_messages").count());
+    }
+
+    @Test
+    void sendMessage_ShouldKeepControlFramesWhenTheBufferIsFull() throws Exception {
+        // Arrange : le tampon plein contient une trame de contrôle avant le plus ancien message
+        session.sendMessage(new TextMessage("MESSAGE\n\nm0"));
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+        session.sendMessage(new TextMessage("RECEIPT\nreceipt-id:1\n\n"));
+        session.sendMessage(new TextMessage("MESSAGE\n\nm1"));
+
+        // Act
+        session.sendMessage(new TextMessage("MESSAGE\n\nm2"));
+        release.countDown();
+
+        // Assert
+        await().atMost(Duration.ofSeconds(10)).until(() -> sent.size() == 3);
+        assertEquals(List.of("MESSAGE\n\nm0", "RECEIPT\nreceipt-id:1\n\n", "MESSAGE\n\nm2"), sent);
+        assertEquals(1.0, meterRegistry.counter("tracking.websocket.dropped_messages").count());
+    }
+}
@@ -0,0 +1,198 @@
+package com.smartdelivery.tracking.config;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Doublure minimale d'un broker STOMP (le plugin STOMP de RabbitMQ en production) pour les tests
+ * du mode relais : CONNECT, SUBSCRIBE et SEND, chaque SEND étant remis aux abonnés de la même destination.
+ * Les trames reçues sont conservées pour que les tests vérifient les destinations vues par le broker.
+ */
+class StompBrokerStandIn implements AutoCloseable {
+
+    record Frame(String command, Map<String, String> headers, String body) {
+        String destination() {
+            return headers.get("destination");
+        }
+    }
+
+    private record Subscription(Connection connection, String id, String destination) {
+    }
+
+    private final ServerSocket serverSocket;
+    private final List<Frame> frames = new CopyOnWriteArrayList<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private StompBrokerStandIn() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread(this::acceptConnections, "stomp-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    static StompBrokerStandIn start() {
+        try {
+            return new StompBrokerStandIn();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start the STOMP stand-in", e);
+        }
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    List<Frame> frames() {
+        return frames;
+    }
+
+    boolean received(String command, String destination) {
+        return frames.stream().anyMatch(frame -> frame.command().equals(command) && destination.equals(frame.destination()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Connection connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                Thread reader = new Thread(connection::readFrames, "stomp-stand-in-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Connection connection, Frame frame) throws IOException {
+        frames.add(frame);
+        switch (frame.command()) {
+            case "CONNECT", "STOMP" -> connection.send("CONNECTED", Map.of("version", "1.2", "heart-beat", "0,0"), "");
+            case "SUBSCRIBE" -> subscriptions.add(new Subscription(connection, frame.headers().get("id"), frame.destination()));
+            case "UNSUBSCRIBE" -> subscriptions.removeIf(subscription -> subscription.connection() == connection
+                    && subscription.id().equals(frame.headers().get("id")));
+            case "SEND" -> {
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.destination().equals(frame.destination())) {
+                        Map<String, String> headers = new LinkedHashMap<>();
+                        headers.put("destination", frame.destination());
+                        headers.put("subscription", subscription.id());
+                        headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+                        String contentType = frame.headers().get("content-type");
+                        if (contentType != null) {
+                            headers.put("content-type", contentType);
+                        }
+                        subscription.connection().send("MESSAGE", headers, frame.body());
+                    }
+                }
+            }
+            case "DISCONNECT" -> {
+                String receipt = frame.headers().get("receipt");
+                if (receipt != null) {
+                    connection.send("RECEIPT", Map.of("receipt-id", receipt), "");
+                }
+                connection.close();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private final class Connection {
+
+        private final Socket socket;
+        private final OutputStream output;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.output = socket.getOutputStream();
+        }
+
+        private void readFrames() {
+            try (InputStream input = new BufferedInputStream(socket.getInputStream())) {
+                Frame frame;
+                while ((frame = readFrame(input)) != null) {
+                    handle(this, frame);
+                }
+            } catch (IOException e) {
+                // connexion fermée par le relais ou par close()
+            } finally {
+                subscriptions.removeIf(subscription -> subscription.connection() == this);
+            }
+        }
+
+        private synchronized void send(String command, Map<String, String> headers, String body) throws IOException {
+            StringBuilder frame = new StringBuilder(command).append('\n');
+            byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+            headers.forEach((name, value) -> frame.append(name).append(':').append(value).append('\n'));
+            if (payload.length > 0) {
+                frame.append("content-length:").append(payload.length).append('\n');
+            }
+            frame.append('\n');
+            output.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+            output.write(payload);
+            output.write(0);
+            output.flush();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // déjà fermée
+            }
+        }
+    }
+
+    // Trame STOMP terminée par un octet nul ; les fins de ligne isolées (heartbeats) sont ignorées
+    private static Frame readFrame(InputStream input) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int next;
+        while ((next = input.read()) != -1) {
+            if (next == 0) {
+                break;
+            }
+            if (buffer.size() == 0 && (next == '\n' || next == '\r')) {
+                continue;
+            }
+            buffer.write(next);
+        }
+        if (next == -1) {
+            return null;
+        }
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        int bodyStart = text.indexOf("\n\n");
+        String head = bodyStart >= 0 ? text.substring(0, bodyStart) : text;
+        String body = bodyStart >= 0 ? text.substring(bodyStart + 2) : "";
+        String[] lines = head.replace("\r", "").split("\n");
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.putIfAbsent(lines[i].substring(0, colon), lines[i].substring(colon + 1));
+            }
+        }
+        return new Frame(lines[0], headers, body);
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartdelivery.tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelayDeadlinesTest {
+
+    private static final LocalDateTime ETA = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final DelayDeadlines deadlines = new DelayDeadlines(new int[]{0, 15, 30});
+
+    @Test
+    void pollDue_ShouldFireOncePerThreshold() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        deadlines.schedule(deliveryId, ETA, ETA.minusMinutes(30));
+
+        // Act
+        List<DelayDeadlines.Deadline> beforeEta = deadlines.pollDue(ETA.minusSeconds(1));
+        List<DelayDeadlines.Deadline> atEta = deadlines.pollDue(ETA);
+        List<DelayDeadlines.Deadline> againAtEta = deadlines.pollDue(ETA.plusMinutes(1));
+        List<DelayDeadlines.Deadline> late = deadlines.pollDue(ETA.plusMinutes(16));
+        List<DelayDeadlines.Deadline> veryLate = deadlines.pollDue(ETA.plusMinutes(45));
+        List<DelayDeadlines.Deadline> afterLastThreshold = deadlines.pollDue(ETA.plusHours(5));
+
+        // Assert
+        assertTrue(beforeEta.isEmpty());
+        assertEquals(0, atEta.get(0).delayMinutes());
+        assertTrue(againAtEta.isEmpty());
+        assertEquals(15, late.get(0).delayMinutes());
+        assertEquals(30, veryLate.get(0).delayMinutes());
+        assertTrue(afterLastThreshold.isEmpty());
+        assertEquals(0, deadlines.size());
+    }
+
+    @Test
+    void schedule_ShouldReplaceDeadlineWhenEtaChanges() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        deadlines.schedule(deliveryId, ETA, ETA.minusMinutes(30));
+
+        // Act
+        deadlines.schedule(deliveryId, ETA.plusHours(1), ETA.minusMinutes(10));
+        List<DelayDeadlines.Deadline> atFormerEta = deadlines.pollDue(ETA.plusMinutes(5));
+        List<DelayDeadlines.Deadline> atNewEta = deadlines.pollDue(ETA.plusHours(1));
+
+        // Assert
+        assertTrue(atFormerEta.isEmpty());
+        assertEquals(1, atNewEta.size());
+        assertEquals(ETA.plusHours(1), atNewEta.get(0).estimatedDeliveryTime());
+    }
+
+    @Test
+    void schedule_ShouldFireOnlyHighestCrossedThreshold() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+
+        // Act
+        deadlines.schedule(deliveryId, ETA, ETA.plusMinutes(20));
+        List<DelayDeadlines.Deadline> due = deadlines.pollDue(ETA.plusMinutes(20));
+
+        // Assert
+        assertEquals(1, due.size());
+        assertEquals(15, due.get(0).delayMinutes());
+    }
+
+    @Test
+    void cancel_ShouldDropPendingDeadline() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        deadlines.schedule(deliveryId, ETA, ETA.minusMinutes(30));
+
+        // Act
+        deadlines.cancel(deliveryId);
+
+        // Assert
+        assertTrue(deadlines.pollDue(ETA.plusHours(5)).isEmpty());
+        assertEquals(0, deadlines.size());
+    }
+}
@@ -0,0 +1,161 @@
+package com.smartdelivery.tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceIndexTest {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6_371_000.0;
+    private static final double LATITUDE = 48.85;
+    private static final double LONGITUDE = 2.35;
+
+    // Cellules de ~550 m, 2 positions sur 5 s pour confirmer, stationnement après 60 s, hystérésis de 10 m
+    private final GeofenceIndex index = new GeofenceIndex(0.005, 64, 2, 5_000, 60_000, 10);
+    private final UUID courierId = UUID.randomUUID();
+
+    @Test
+    void evaluate_ShouldEmitEnterDwellAndExitAfterDebouncing() {
+        // Arrange
+        index.addCircle("dropoff", courierId, LATITUDE, LONGITUDE, 50);
+
+        // Act & Assert
+        assertTrue(index.evaluate(courierId, north(200), LONGITUDE, 0).isEmpty());
+        assertTrue(index.evaluate(courierId, north(20), LONGITUDE, 10_000).isEmpty());
+        List<GeofenceIndex.Transition> entered = index.evaluate(courierId, north(10), LONGITUDE, 20_000);
+        assertEquals(List.of(new GeofenceIndex.Transition("dropoff", GeofenceIndex.Transition.Kind.ENTER, 10_000)), entered);
+
+        assertTrue(index.evaluate(courierId, north(5), LONGITUDE, 50_000).isEmpty());
+        List<GeofenceIndex.Transition> dwell = index.evaluate(courierId, north(5), LONGITUDE, 75_000);
+        assertEquals(GeofenceIndex.Transition.Kind.DWELL, dwell.get(0).kind());
+        assertTrue(index.evaluate(courierId, north(5), LONGITUDE, 140_000).isEmpty());
+
+        assertTrue(index.evaluate(courierId, north(100), LONGITUDE, 150_000).isEmpty());
+        List<GeofenceIndex.Transition> exited = index.evaluate(courierId, north(150), LONGITUDE, 160_000);
+        assertEquals(List.of(new GeofenceIndex.Transition("dropoff", GeofenceIndex.Transition.Kind.EXIT, 150_000)), exited);
+    }
+
+    @Test
+    void evaluate_ShouldIgnoreJitterAcrossTheBoundary() {
+        // Arrange
+        index.addCircle("pickup", courierId, LATITUDE, LONGITUDE, 50);
+
+        // Act : positions alternant de part et d'autre de la limite
+        int transitions = 0;
+        for (int second = 0; second < 60; second += 5) {
+            double distance = second % 10 == 0 ? 45 : 55;
+            transitions += index.evaluate(courierId, north(distance), LONGITUDE, second * 1000L).size();
+        }
+
+        // Assert : aucune entrée confirmée, puis aucune sortie tant que le livreur reste dans la marge d'hystérésis
+        assertEquals(0, transitions);
+        index.evaluate(courierId, north(45), LONGITUDE, 60_000);
+        assertEquals(GeofenceIndex.Transition.Kind.ENTER,
+                index.evaluate(courierId, north(45), LONGITUDE, 65_000).get(0).kind());
+        for (int second = 70; second < 120; second += 5) {
+            double distance = second % 10 == 0 ? 45 : 55;
+            assertTrue(index.evaluate(courierId, north(distance), LONGITUDE, second * 1000L).stream()
+                    .noneMatch(transition -> transition.kind() == GeofenceIndex.Transition.Kind.EXIT));
+        }
+    }
+
+    @Test
+    void evaluate_ShouldDetectExitFarFromTheFenceCell() {
+        // Arrange
+        index.addCircle("pickup", courierId, LATITUDE, LONGITUDE, 50);
+        index.evaluate(courierId, LATITUDE, LONGITUDE, 0);
+        index.evaluate(courierId, LATITUDE, LONGITUDE, 10_000);
+
+        // Act : la position suivante est à 5 km, dans une autre cellule
+        index.evaluate(courierId, north(5_000), LONGITUDE, 300_000);
+        List<GeofenceIndex.Transition> exited = index.evaluate(courierId, north(5_100), LONGITUDE, 310_000);
+
+        // Assert
+        assertEquals(1, exited.size());
+        assertEquals(GeofenceIndex.Transition.Kind.EXIT, exited.get(0).kind());
+    }
+
+    @Test
+    void evaluate_ShouldOnlyMatchFencesOfTheCourier() {
+        // Arrange
+        index.addCircle("other", UUID.randomUUID(), LATITUDE, LONGITUDE, 50);
+
+        // Act
+        index.evaluate(courierId, LATITUDE, LONGITUDE, 0);
+        List<GeofenceIndex.Transition> transitions = index.evaluate(courierId, LATITUDE, LONGITUDE, 10_000);
+
+        // Assert
+        assertTrue(transitions.isEmpty());
+    }
+
+    @Test
+    void evaluate_ShouldTestPointsAgainstPolygons() {
+        // Arrange : triangle d'environ 200 m de côté au nord-est du point de référence
+        double[] latitudes = {LATITUDE, north(200), LATITUDE};
+        double[] longitudes = {LONGITUDE, LONGITUDE, east(200)};
+        index.addPolygon("depot", courierId, latitudes, longitudes);
+
+        // Act
+        index.evaluate(courierId, north(150), east(150), 0);
+        List<GeofenceIndex.Transition> outside = index.evaluate(courierId, north(150), east(150), 10_000);
+        index.evaluate(courierId, north(50), east(50), 20_000);
+        List<GeofenceIndex.Transition> inside = index.evaluate(courierId, north(50), east(50), 30_000);
+
+        // Assert
+        assertTrue(outside.isEmpty());
+        assertEquals(GeofenceIndex.Transition.Kind.ENTER, inside.get(0).kind());
+    }
+
+    @Test
+    void remove_ShouldForgetFenceAndItsState() {
+        // Arrange
+        index.addCircle("pickup", courierId, LATITUDE, LONGITUDE, 50);
+        index.evaluate(courierId, LATITUDE, LONGITUDE, 0);
+
+        // Act
+        boolean removed = index.remove("pickup");
+
+        // Assert
+        assertTrue(removed);
+        assertFalse(index.remove("pickup"));
+        assertEquals(0, index.size());
+        assertTrue(index.evaluate(courierId, LATITUDE, LONGITUDE, 10_000).isEmpty());
+    }
+
+    @Test
+    void addCircle_ShouldRejectFencesCoveringTooManyCells() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.addCircle("city", courierId, LATITUDE, LONGITUDE, 10_000));
+    }
+
+    @Test
+    void evaluate_ShouldScaleToManyActiveFences() {
+        // Arrange : 100 000 géofences réparties sur ~50 km autour du point de référence
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            index.addCircle("fence-" + i, UUID.randomUUID(),
+                    north(random.nextDouble() * 50_000 - 25_000), east(random.nextDouble() * 50_000 - 25_000), 75);
+        }
+        index.addCircle("mine", courierId, LATITUDE, LONGITUDE, 75);
+
+        // Act
+        index.evaluate(courierId, LATITUDE, LONGITUDE, 0);
+        List<GeofenceIndex.Transition> transitions = index.evaluate(courierId, LATITUDE, LONGITUDE, 10_000);
+
+        // Assert
+        assertEquals(100_001, index.size());
+        assertEquals(List.of(new GeofenceIndex.Transition("mine", GeofenceIndex.Transition.Kind.ENTER, 0)), transitions);
+    }
+
+    private static double north(double meters) {
+        return LATITUDE + meters / METERS_PER_DEGREE;
+    }
+
+    private static double east(double meters) {
+        return LONGITUDE + meters / (Math.cos(Math.toRadians(LATITUDE)) * METERS_PER_DEGREE);
+    }
+}
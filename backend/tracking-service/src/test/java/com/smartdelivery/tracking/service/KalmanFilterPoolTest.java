@@ -0,0 +1,183 @@
+package com.smartdelivery.tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KalmanFilterPoolTest {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6_371_000.0;
+    private static final double LATITUDE = 48.85;
+    private static final double LONGITUDE = 2.35;
+
+    private final KalmanFilterPool filters = new KalmanFilterPool(2, 0.5, 15, 3, 100, 2.0, 15, 60_000);
+
+    @Test
+    void filter_ShouldSmoothNoisyFixesAndEstimateVelocity() {
+        // Arrange : trajet vers le nord à 10 m/s, une position par seconde avec 10 m de bruit
+        UUID deliveryId = UUID.randomUUID();
+        Random random = new Random(42);
+        double rawError = 0;
+        double smoothedError = 0;
+        KalmanFilterPool.Fix last = null;
+
+        // Act
+        for (int second = 0; second <= 120; second++) {
+            double trueNorth = 10.0 * second;
+            double noisyNorth = trueNorth + random.nextGaussian() * 10;
+            double noisyEast = random.nextGaussian() * 10;
+            KalmanFilterPool.Fix fix = filters.filter(deliveryId, LATITUDE + noisyNorth / METERS_PER_DEGREE,
+                    LONGITUDE + noisyEast / (Math.cos(Math.toRadians(LATITUDE)) * METERS_PER_DEGREE),
+                    10.0, second * 1000L);
+            if (!fix.isAccepted()) {
+                continue;
+            }
+            last = fix;
+            if (second >= 30) {
+                rawError += Math.hypot(noisyNorth - trueNorth, noisyEast);
+                smoothedError += Math.hypot((last.latitude() - LATITUDE) * METERS_PER_DEGREE - trueNorth,
+                        (last.longitude() - LONGITUDE) * Math.cos(Math.toRadians(LATITUDE)) * METERS_PER_DEGREE);
+            }
+        }
+
+        // Assert
+        assertTrue(smoothedError < rawError * 0.7, "smoothed " + smoothedError + " raw " + rawError);
+        assertEquals(36.0, last.speedKmh(), 4.0);
+        assertNotNull(last.heading());
+        assertTrue(last.heading() < 10 || last.heading() > 350);
+    }
+
+    @Test
+    void filter_ShouldRejectInaccurateAndOutlierFixes() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        filters.filter(deliveryId, LATITUDE, LONGITUDE, 5.0, 0);
+        filters.filter(deliveryId, LATITUDE + 10 / METERS_PER_DEGREE, LONGITUDE, 5.0, 1000);
+
+        // Act
+        KalmanFilterPool.Fix inaccurate = filters.filter(deliveryId, LATITUDE, LONGITUDE, 500.0, 2000);
+        KalmanFilterPool.Fix jump = filters.filter(deliveryId, LATITUDE + 0.05, LONGITUDE, 5.0, 2000);
+        KalmanFilterPool.Fix outOfOrder = filters.filter(deliveryId, LATITUDE, LONGITUDE, 5.0, 500);
+
+        // Assert
+        assertEquals(KalmanFilterPool.Decision.INACCURATE, inaccurate.decision());
+        assertEquals(KalmanFilterPool.Decision.OUTLIER, jump.decision());
+        assertEquals(KalmanFilterPool.Decision.OUT_OF_ORDER, outOfOrder.decision());
+    }
+
+    @Test
+    void filter_ShouldReacquireAfterRepeatedOutliers() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        filters.filter(deliveryId, LATITUDE, LONGITUDE, 5.0, 0);
+
+        // Act : le livreur réapparaît à 5 km (sortie de tunnel)
+        KalmanFilterPool.Fix first = filters.filter(deliveryId, LATITUDE + 0.05, LONGITUDE, 5.0, 1000);
+        KalmanFilterPool.Fix second = filters.filter(deliveryId, LATITUDE + 0.05, LONGITUDE, 5.0, 2000);
+        KalmanFilterPool.Fix third = filters.filter(deliveryId, LATITUDE + 0.05, LONGITUDE, 5.0, 3000);
+
+        // Assert
+        assertFalse(first.isAccepted());
+        assertFalse(second.isAccepted());
+        assertTrue(third.isAccepted());
+        assertEquals(LATITUDE + 0.05, third.latitude(), 1e-9);
+    }
+
+    @Test
+    void filter_ShouldSuppressFixesWhileParked() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+        Random random = new Random(7);
+        int accepted = 0;
+
+        // Act : livreur immobile, une position toutes les 5 secondes pendant 5 minutes
+        for (int second = 0; second <= 300; second += 5) {
+            KalmanFilterPool.Fix fix = filters.filter(deliveryId,
+                    LATITUDE + random.nextGaussian() * 4 / METERS_PER_DEGREE, LONGITUDE, 5.0, second * 1000L);
+            if (fix.isAccepted()) {
+                accepted++;
+            }
+        }
+
+        // Assert : la première position puis environ une par minute
+        assertTrue(accepted <= 10, "accepted " + accepted);
+        assertTrue(accepted >= 2);
+    }
+
+    @Test
+    void release_ShouldReuseSlotsAndGrowPool() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            filters.filter(UUID.randomUUID(), LATITUDE, LONGITUDE, 5.0, 0);
+        }
+        filters.filter(first, LATITUDE, LONGITUDE, 5.0, 0);
+        filters.release(first);
+        int evicted = filters.evictIdle(1);
+
+        // Assert
+        assertEquals(5, evicted);
+        assertEquals(0, filters.size());
+        assertTrue(filters.filter(first, LATITUDE, LONGITUDE, 5.0, 10).isAccepted());
+    }
+
+    @Test
+    void filter_ShouldGiveSameResultsWhenDeliveriesAreFilteredConcurrently() throws Exception {
+        // Arrange : 8 fils, 40 livraisons chacun, le pool s'agrandit pendant le filtrage
+        KalmanFilterPool sequential = new KalmanFilterPool(2, 0.5, 15, 3, 100, 2.0, 15, 60_000);
+        List<UUID> deliveries = new ArrayList<>();
+        for (int i = 0; i < 320; i++) {
+            deliveries.add(UUID.randomUUID());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<List<KalmanFilterPool.Fix>>> futures = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                List<UUID> own = deliveries.subList(thread * 40, (thread + 1) * 40);
+                futures.add(executor.submit(() -> drive(filters, own)));
+            }
+            List<KalmanFilterPool.Fix> concurrent = new ArrayList<>();
+            for (Future<List<KalmanFilterPool.Fix>> future : futures) {
+                concurrent.addAll(future.get());
+            }
+
+            // Assert : chaque livraison a son propre filtre, comme en filtrage séquentiel
+            assertEquals(drive(sequential, deliveries), concurrent);
+            assertEquals(320, filters.size());
+            assertEquals(320, filters.evictIdle(Long.MAX_VALUE));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Trajet vers le nord à 10 m/s, propre à chaque livraison ; retourne la dernière position acceptée
+    private static List<KalmanFilterPool.Fix> drive(KalmanFilterPool pool, List<UUID> deliveries) {
+        List<KalmanFilterPool.Fix> lastFixes = new ArrayList<>();
+        for (UUID deliveryId : deliveries) {
+            Random random = new Random(deliveryId.getLeastSignificantBits());
+            KalmanFilterPool.Fix last = null;
+            for (int second = 0; second <= 30; second++) {
+                double north = 10.0 * second + random.nextGaussian() * 5;
+                KalmanFilterPool.Fix fix = pool.filter(deliveryId, LATITUDE + north / METERS_PER_DEGREE,
+                        LONGITUDE, 5.0, second * 1000L);
+                if (fix.isAccepted()) {
+                    last = fix;
+                }
+            }
+            lastFixes.add(last);
+        }
+        return lastFixes;
+    }
+}
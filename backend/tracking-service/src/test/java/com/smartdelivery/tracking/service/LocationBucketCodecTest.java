@@ -0,0 +1,75 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.LocationBucket;
+import com.smartdelivery.tracking.model.LocationUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationBucketCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @Test
+    void decode_ShouldRestoreAppendedPoints() {
+        // Arrange
+        LocationBucketCodec.Builder builder = new LocationBucketCodec.Builder(
+                "delivery-1", "courier-1", LocationBucket.TIER_RAW, 200, 60_000);
+        builder.tryAppend(START, 48.856613, 2.352222, 25.4, 90.0);
+        builder.tryAppend(START.plusSeconds(5), 48.857001, 2.351800, null, null);
+        builder.tryAppend(START.plusSeconds(10), 48.855900, 2.353100, 0.0, 270.0);
+
+        // Act
+        LocationBucket bucket = builder.build();
+        List<LocationUpdate> points = LocationBucketCodec.decode(bucket, null, null);
+
+        // Assert
+        assertEquals(3, bucket.getCount());
+        assertEquals(START, bucket.getStartTime());
+        assertEquals(START.plusSeconds(10), bucket.getEndTime());
+        assertEquals(3, points.size());
+        assertEquals(48.857001, points.get(1).getLatitude(), 1e-6);
+        assertEquals(2.353100, points.get(2).getLongitude(), 1e-6);
+        assertEquals(START.plusSeconds(5), points.get(1).getTimestamp());
+        assertEquals(25.4, points.get(0).getSpeed(), 1e-9);
+        assertNull(points.get(1).getSpeed());
+        assertNull(points.get(1).getHeading());
+        assertEquals("courier-1", points.get(2).getCourierId());
+    }
+
+    @Test
+    void tryAppend_ShouldRejectPointsOutsideWindowOrCapacity() {
+        // Arrange
+        LocationBucketCodec.Builder builder = new LocationBucketCodec.Builder(
+                "delivery-1", "courier-1", LocationBucket.TIER_RAW, 2, 60_000);
+
+        // Act & Assert
+        assertTrue(builder.tryAppend(START, 48.85, 2.35, null, null));
+        assertFalse(builder.tryAppend(START.plusSeconds(60), 48.85, 2.35, null, null));
+        assertTrue(builder.tryAppend(START.plusSeconds(30), 48.85, 2.35, null, null));
+        assertFalse(builder.tryAppend(START.plusSeconds(31), 48.85, 2.35, null, null));
+        assertTrue(builder.isClosed(START.plusSeconds(31)));
+    }
+
+    @Test
+    void decode_ShouldKeepOnlyPointsInRange() {
+        // Arrange
+        LocationBucketCodec.Builder builder = new LocationBucketCodec.Builder(
+                "delivery-1", "courier-1", LocationBucket.TIER_RAW, 200, 60_000);
+        for (int i = 0; i < 10; i++) {
+            builder.tryAppend(START.plusSeconds(i * 5L), 48.85 + i * 0.0001, 2.35, null, null);
+        }
+
+        // Act
+        List<LocationUpdate> points = LocationBucketCodec.decode(builder.build(),
+                START.plusSeconds(10), START.plusSeconds(20));
+
+        // Assert
+        assertEquals(3, points.size());
+        assertEquals(START.plusSeconds(10), points.get(0).getTimestamp());
+        assertEquals(START.plusSeconds(20), points.get(2).getTimestamp());
+    }
+}
@@ -0,0 +1,107 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationFrameCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0, 0);
+
+    @Test
+    void decodeBinding_ShouldReturnDeliveryIdAndAlias() {
+        // Arrange
+        UUID deliveryId = UUID.randomUUID();
+
+        // Act
+        byte[] frame = LocationFrameCodec.encodeBinding(513, deliveryId);
+
+        // Assert
+        assertEquals(20, frame.length);
+        assertEquals(LocationFrameCodec.BIND, LocationFrameCodec.frameType(frame));
+        assertEquals(513, LocationFrameCodec.alias(frame));
+        assertEquals(deliveryId, LocationFrameCodec.decodeBinding(frame));
+    }
+
+    @Test
+    void decodeLocations_ShouldRoundTripWithFixedPointPrecision() {
+        // Arrange
+        List<Location> locations = List.of(
+                location(48.856613, 2.352222, START, 32.5, 271.3, 8.0),
+                location(48.856702, 2.352011, START.plusSeconds(1), null, null, 12.5),
+                location(48.856655, 2.351870, START.plusSeconds(3).plusNanos(250_000_000), 0.0, null, null));
+
+        // Act
+        byte[] frame = LocationFrameCodec.encodeLocations(7, locations);
+        List<Location> decoded = LocationFrameCodec.decodeLocations(frame);
+
+        // Assert
+        assertEquals(LocationFrameCodec.LOCATIONS, LocationFrameCodec.frameType(frame));
+        assertEquals(7, LocationFrameCodec.alias(frame));
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < locations.size(); i++) {
+            Location expected = locations.get(i);
+            Location actual = decoded.get(i);
+            assertEquals(expected.getLatitude(), actual.getLatitude(), 1e-6);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), 1e-6);
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getSpeed(), actual.getSpeed());
+            assertEquals(expected.getHeading(), actual.getHeading());
+            assertEquals(expected.getAccuracy(), actual.getAccuracy());
+        }
+    }
+
+    @Test
+    void encodeLocations_ShouldBeCompact() {
+        // Arrange : une position par seconde sur une minute, à environ 10 m/s
+        List<Location> locations = new ArrayList<>();
+        for (int second = 0; second < 60; second++) {
+            locations.add(location(48.85 + second * 0.00009, 2.35, START.plusSeconds(second), 36.0, 0.0, 10.0));
+        }
+
+        // Act
+        byte[] single = LocationFrameCodec.encodeLocations(1, locations.subList(0, 1));
+        byte[] batch = LocationFrameCodec.encodeLocations(1, locations);
+
+        // Assert
+        // Première position complète, puis écarts : 2 octets de temps, 3 de coordonnées, 7 d'attributs
+        assertEquals(28, single.length);
+        assertEquals(28 + 59 * 12, batch.length);
+    }
+
+    @Test
+    void decodeLocations_ShouldRejectMalformedFrames() {
+        // Arrange
+        byte[] frame = LocationFrameCodec.encodeLocations(1, List.of(location(48.85, 2.35, START, null, null, null)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> LocationFrameCodec.decodeLocations(Arrays.copyOf(frame, frame.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> LocationFrameCodec.decodeLocations(Arrays.copyOf(frame, frame.length + 1)));
+        byte[] wrongVersion = frame.clone();
+        wrongVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decodeLocations(wrongVersion));
+        assertThrows(IllegalArgumentException.class,
+                () -> LocationFrameCodec.decodeBinding(frame));
+    }
+
+    private static Location location(double latitude, double longitude, LocalDateTime timestamp,
+                                     Double speed, Double heading, Double accuracy) {
+        return Location.builder()
+                .latitude(latitude)
+                .longitude(longitude)
+                .timestamp(timestamp)
+                .speed(speed)
+                .heading(heading)
+                .accuracy(accuracy)
+                .build();
+    }
+}
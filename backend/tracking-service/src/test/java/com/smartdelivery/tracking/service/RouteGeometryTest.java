@@ -0,0 +1,80 @@
+package com.smartdelivery.tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteGeometryTest {
+
+    // Route en L : 0,01° vers le nord puis 0,01° vers l'est (environ 1,1 km et 0,73 km à Paris)
+    private final RouteGeometry route = RouteGeometry.of(
+            new double[]{48.85, 48.86, 48.86},
+            new double[]{2.35, 2.35, 2.36});
+
+    @Test
+    void progressPercentage_ShouldProjectOntoNearestSegment() {
+        // Arrange
+        double firstLegMeters = route.distanceAlongMeters(48.86, 2.35);
+
+        // Act
+        double start = route.progressPercentage(48.85, 2.35);
+        double halfFirstLeg = route.progressPercentage(48.855, 2.3502);
+        double end = route.progressPercentage(48.86, 2.36);
+
+        // Assert
+        assertEquals(0.0, start, 1e-9);
+        assertEquals(firstLegMeters / 2 / route.getLengthMeters() * 100, halfFirstLeg, 0.1);
+        assertEquals(100.0, end, 1e-9);
+        assertEquals(1112, firstLegMeters, 5);
+    }
+
+    @Test
+    void progressPercentage_ShouldBeDeterministicAndClamped() {
+        // Act
+        double beforeStart = route.progressPercentage(48.84, 2.35);
+        double beyondEnd = route.progressPercentage(48.86, 2.38);
+
+        // Assert
+        assertEquals(0.0, beforeStart, 1e-9);
+        assertEquals(100.0, beyondEnd, 1e-9);
+        assertEquals(route.progressPercentage(48.8601, 2.355), route.progressPercentage(48.8601, 2.355));
+    }
+
+    @Test
+    void progressPercentage_ShouldStayNearLastProgressOnRouteRunningAlongsideItself() {
+        // Arrange : aller-retour de 0,01° vers le nord, le retour longeant l'aller à environ 7 m
+        RouteGeometry outAndBack = RouteGeometry.of(
+                new double[]{48.85, 48.86, 48.86, 48.85},
+                new double[]{2.35, 2.35, 2.3501, 2.3501});
+        double latitude = 48.851;
+        double longitude = 2.35006;
+
+        // Act : position au début de l'aller, plus proche du retour
+        double global = outAndBack.progressPercentage(latitude, longitude);
+        double windowed = outAndBack.progressPercentage(latitude, longitude, -200, 2000);
+
+        // Assert : sans fenêtre la progression saute en fin de route, avec elle elle reste sur l'aller
+        assertTrue(global > 95.0);
+        assertEquals(111, outAndBack.distanceAlongMeters(latitude, longitude, -200, 2000), 5);
+        assertTrue(windowed < 10.0);
+    }
+
+    @Test
+    void distanceAlongMeters_ShouldClampToTheSearchedPortion() {
+        // Act : la position est au-delà de la portion cherchée, sur le second segment
+        double along = route.distanceAlongMeters(48.86, 2.36, 0, 1000);
+
+        // Assert
+        assertEquals(1000, along, 1e-6);
+        assertEquals(route.distanceAlongMeters(48.86, 2.36), route.distanceAlongMeters(48.86, 2.36, 0, 1e9), 1e-9);
+    }
+
+    @Test
+    void progressPercentage_ShouldReturnZeroForSinglePointRoute() {
+        // Arrange
+        RouteGeometry point = RouteGeometry.of(new double[]{48.85}, new double[]{2.35});
+
+        // Act & Assert
+        assertEquals(0.0, point.progressPercentage(48.86, 2.36), 1e-9);
+    }
+}
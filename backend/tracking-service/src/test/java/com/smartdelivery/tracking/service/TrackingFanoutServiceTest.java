@@ -0,0 +1,94 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.config.WebSocketDestinations;
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.model.TrackingUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fusion des mises à jour de suivi par trame : une seule diffusion par livraison, la plus récente
+ */
+class TrackingFanoutServiceTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TrackingFanoutService fanoutService =
+            new TrackingFanoutService(messagingTemplate, new WebSocketDestinations(), meterRegistry);
+
+    @Test
+    void flushFrame_ShouldSendOneUpdatePerDeliveryWithTheLatestState() {
+        // Arrange : trois positions de la même livraison reçues dans la même trame
+        UUID deliveryId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        fanoutService.publish(tracking(deliveryId, 48.850, now));
+        fanoutService.publish(tracking(deliveryId, 48.851, now.plusSeconds(1)));
+        fanoutService.publish(tracking(deliveryId, 48.852, now.plusSeconds(2)));
+
+        // Act
+        fanoutService.flushFrame();
+
+        // Assert
+        ArgumentCaptor<Object> update = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/tracking/" + deliveryId), update.capture());
+        assertEquals(48.852, ((TrackingUpdate) update.getValue()).getLatitude());
+        assertEquals(3.0, meterRegistry.counter("tracking.fanout.updates").count());
+        assertEquals(2.0, meterRegistry.counter("tracking.fanout.conflated").count());
+        assertEquals(1.0, meterRegistry.counter("tracking.fanout.sent").count());
+    }
+
+    @Test
+    void publish_ShouldKeepTheMostRecentUpdateWhenWritesArriveOutOfOrder() {
+        // Arrange : l'écriture la plus récente est soumise avant une plus ancienne
+        UUID deliveryId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        fanoutService.publish(tracking(deliveryId, 48.852, now.plusSeconds(2)));
+        fanoutService.publish(tracking(deliveryId, 48.850, now));
+
+        // Act
+        fanoutService.flushFrame();
+
+        // Assert
+        ArgumentCaptor<Object> update = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/tracking/" + deliveryId), update.capture());
+        assertEquals(48.852, ((TrackingUpdate) update.getValue()).getLatitude());
+    }
+
+    @Test
+    void flushFrame_ShouldSendEachDeliveryOnceAndNothingOnAnEmptyFrame() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        fanoutService.publish(tracking(first, 48.85, LocalDateTime.now()));
+        fanoutService.publish(tracking(second, 48.86, LocalDateTime.now()));
+
+        // Act : deux trames successives
+        fanoutService.flushFrame();
+        fanoutService.flushFrame();
+
+        // Assert
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/tracking/" + first), any(Object.class));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/tracking/" + second), any(Object.class));
+        verify(messagingTemplate, times(2)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    private static DeliveryTracking tracking(UUID deliveryId, double latitude, LocalDateTime lastUpdated) {
+        return DeliveryTracking.builder()
+                .deliveryId(deliveryId)
+                .status(DeliveryTracking.TrackingStatus.IN_TRANSIT)
+                .currentLocation(Location.builder().latitude(latitude).longitude(2.35).build())
+                .lastUpdated(lastUpdated)
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.smartdelivery.tracking.service;
+
+import com.smartdelivery.tracking.model.DeliveryTracking;
+import com.smartdelivery.tracking.model.Location;
+import com.smartdelivery.tracking.repository.DeliveryTrackingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Statut d'un suivi lors de l'enregistrement des positions : il n'avance qu'avec la progression
+ */
+@ExtendWith(MockitoExtension.class)
+class TrackingServiceLocationStatusTest {
+
+    @Mock
+    private DeliveryTrackingRepository trackingRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RouteOptimizerService routeOptimizerService;
+
+    @Mock
+    private LocationHistoryService locationHistoryService;
+
+    @Mock
+    private TrackingFanoutService trackingFanoutService;
+
+    @Mock
+    private DelayMonitor delayMonitor;
+
+    @Mock
+    private LocationFilterService locationFilterService;
+
+    @Mock
+    private GeofenceService geofenceService;
+
+    @InjectMocks
+    private TrackingService trackingService;
+
+    private final UUID deliveryId = UUID.randomUUID();
+    private final Location location = Location.builder()
+            .latitude(48.8566)
+            .longitude(2.3522)
+            .timestamp(LocalDateTime.now())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(trackingService, "exchangeName", "delivery.exchange");
+        ReflectionTestUtils.setField(trackingService, "maxBatchSize", 500);
+        lenient().when(locationFilterService.filter(eq(deliveryId), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        DeliveryTrackingRepository.TrackingRouteView route = routeView("route-1", null);
+        when(trackingRepository.findRouteViewByDeliveryId(deliveryId)).thenReturn(route);
+    }
+
+    @Test
+    void updateLocation_ShouldNotMoveDeliveredTrackingBackToInTransit() {
+        // Arrange : livraison déjà marquée DELIVERED par la zone de dépôt, puis une nouvelle position arrive
+        when(routeOptimizerService.calculateProgress("route-1", null, location)).thenReturn(60.0);
+        when(trackingRepository.recordLocationsAndGet(eq(deliveryId), anyList(), eq(60.0)))
+                .thenReturn(tracking(DeliveryTracking.TrackingStatus.DELIVERED, 60.0));
+
+        // Act
+        DeliveryTracking result = trackingService.updateLocation(deliveryId, location);
+
+        // Assert
+        assertEquals(DeliveryTracking.TrackingStatus.DELIVERED, result.getStatus());
+        verify(trackingRepository, never()).advanceStatusAndGet(any(), any());
+        verify(trackingRepository, never()).updateStatusAndGet(any(), any());
+    }
+
+    @Test
+    void updateLocation_ShouldAdvanceDispatchedTrackingToInTransit() {
+        // Arrange
+        when(routeOptimizerService.calculateProgress("route-1", null, location)).thenReturn(30.0);
+        when(trackingRepository.recordLocationsAndGet(eq(deliveryId), anyList(), eq(30.0)))
+                .thenReturn(tracking(DeliveryTracking.TrackingStatus.DISPATCHED, 30.0));
+        when(trackingRepository.advanceStatusAndGet(deliveryId, DeliveryTracking.TrackingStatus.IN_TRANSIT))
+                .thenReturn(tracking(DeliveryTracking.TrackingStatus.IN_TRANSIT, 30.0));
+
+        // Act
+        DeliveryTracking result = trackingService.updateLocation(deliveryId, location);
+
+        // Assert
+        assertEquals(DeliveryTracking.TrackingStatus.IN_TRANSIT, result.getStatus());
+        verify(trackingFanoutService).publish(result);
+    }
+
+    @Test
+    void updateLocation_ShouldKeepStatusWhenAnotherWriterAdvancedItFirst() {
+        // Arrange : le statut a avancé entre l'écriture de la position et la mise à jour conditionnelle
+        when(routeOptimizerService.calculateProgress("route-1", null, location)).thenReturn(30.0);
+        DeliveryTracking recorded = tracking(DeliveryTracking.TrackingStatus.PICKED_UP, 30.0);
+        when(trackingRepository.recordLocationsAndGet(eq(deliveryId), anyList(), eq(30.0))).thenReturn(recorded);
+        when(trackingRepository.advanceStatusAndGet(deliveryId, DeliveryTracking.TrackingStatus.IN_TRANSIT))
+                .thenReturn(null);
+
+        // Act
+        DeliveryTracking result = trackingService.updateLocation(deliveryId, location);
+
+        // Assert
+        assertSame(recorded, result);
+    }
+
+    private DeliveryTracking tracking(DeliveryTracking.TrackingStatus status, double progress) {
+        return DeliveryTracking.builder()
+                .deliveryId(deliveryId)
+                .courierId(UUID.randomUUID())
+                .status(status)
+                .progressPercentage(progress)
+                .currentLocation(location)
+                .build();
+    }
+
+    private static DeliveryTrackingRepository.TrackingRouteView routeView(String routeId, Double progressPercentage) {
+        return new DeliveryTrackingRepository.TrackingRouteView() {
+            @Override
+            public String getRouteId() {
+                return routeId;
+            }
+
+            @Override
+            public Double getProgressPercentage() {
+                return progressPercentage;
+            }
+        };
+    }
+}
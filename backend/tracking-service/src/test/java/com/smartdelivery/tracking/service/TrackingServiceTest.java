@@ -1,13 +1,8 @@
-
 package com.smartdelivery.tracking.service;
 
 import com.smartdelivery.tracking.model.DeliveryTracking;
 import com.smartdelivery.tracking.model.Location;
-import com.smartdelivery.tracking.model.LocationUpdate;
-import com.smartdelivery.tracking.model.TrackingEvent;
 import com.smartdelivery.tracking.repository.DeliveryTrackingRepository;
-import com.smartdelivery.tracking.repository.LocationUpdateRepository;
-import com.smartdelivery.tracking.repository.TrackingEventRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,103 +13,98 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class TrackingServiceTest {
 
     @Mock
-    private DeliveryTrackingRepository deliveryTrackingRepository;
+    private DeliveryTrackingRepository trackingRepository;
 
     @Mock
-    private LocationUpdateRepository locationUpdateRepository;
+    private RabbitTemplate rabbitTemplate;
 
     @Mock
-    private TrackingEventRepository trackingEventRepository;
+    private RouteOptimizerService routeOptimizerService;
 
     @Mock
-    private WebSocketService webSocketService;
+    private LocationHistoryService locationHistoryService;
 
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private TrackingFanoutService trackingFanoutService;
+
+    @Mock
+    private DelayMonitor delayMonitor;
+
+    @Mock
+    private LocationFilterService locationFilterService;
+
+    @Mock
+    private GeofenceService geofenceService;
 
     @InjectMocks
     private TrackingService trackingService;
 
     private DeliveryTracking testTracking;
-    private LocationUpdate testLocationUpdate;
-    private TrackingEvent testTrackingEvent;
+    private Location testLocation;
 
     @BeforeEach
     void setUp() {
         // Configuration des valeurs pour les champs annotés avec @Value
         ReflectionTestUtils.setField(trackingService, "exchangeName", "delivery.exchange");
-        ReflectionTestUtils.setField(trackingService, "inTransitRoutingKey", "delivery.in_transit");
-        ReflectionTestUtils.setField(trackingService, "deliveredRoutingKey", "delivery.delivered");
+        ReflectionTestUtils.setField(trackingService, "maxBatchSize", 500);
 
         // Création d'objets de test
-        UUID deliveryId = UUID.randomUUID();
-        UUID courierId = UUID.randomUUID();
-
         testTracking = DeliveryTracking.builder()
-                .id(UUID.randomUUID())
-                .deliveryId(deliveryId)
-                .courierId(courierId)
-                .status(DeliveryTracking.TrackingStatus.CREATED)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
-        testLocationUpdate = LocationUpdate.builder()
-                .id(UUID.randomUUID())
-                .deliveryId(deliveryId)
-                .courierId(courierId)
-                .location(new Location(48.8566, 2.3522))
-                .timestamp(LocalDateTime.now())
+                .id(UUID.randomUUID().toString())
+                .deliveryId(UUID.randomUUID())
+                .courierId(UUID.randomUUID())
+                .status(DeliveryTracking.TrackingStatus.DISPATCHED)
+                .routeId("route-1")
+                .lastUpdated(LocalDateTime.now())
                 .build();
 
-        testTrackingEvent = TrackingEvent.builder()
-                .id(UUID.randomUUID())
-                .deliveryId(deliveryId)
-                .eventType(TrackingEvent.EventType.LOCATION_UPDATE)
-                .description("Location updated")
+        testLocation = Location.builder()
+                .latitude(48.8566)
+                .longitude(2.3522)
                 .timestamp(LocalDateTime.now())
                 .build();
     }
 
     @Test
-    void createTrackingForDelivery_ShouldCreateTrackingAndPublishEvent() {
+    void createTracking_ShouldSaveTrackingAndNotify() {
         // Given
-        UUID deliveryId = UUID.randomUUID();
-        UUID courierId = UUID.randomUUID();
-
-        when(deliveryTrackingRepository.save(any(DeliveryTracking.class))).thenReturn(testTracking);
+        UUID deliveryId = testTracking.getDeliveryId();
+        UUID courierId = testTracking.getCourierId();
+        when(trackingRepository.save(any(DeliveryTracking.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        DeliveryTracking result = trackingService.createTrackingForDelivery(deliveryId, courierId);
+        DeliveryTracking result = trackingService.createTracking(deliveryId, courierId, testLocation);
 
         // Then
         assertNotNull(result);
         assertEquals(deliveryId, result.getDeliveryId());
         assertEquals(courierId, result.getCourierId());
-        assertEquals(DeliveryTracking.TrackingStatus.CREATED, result.getStatus());
-        assertNotNull(result.getCreatedAt());
+        assertEquals(DeliveryTracking.TrackingStatus.DISPATCHED, result.getStatus());
+        assertEquals(testLocation, result.getCurrentLocation());
+        assertEquals(List.of(testLocation), result.getLocationHistory());
+        assertNotNull(result.getLastUpdated());
 
-        verify(deliveryTrackingRepository, times(1)).save(any(DeliveryTracking.class));
+        verify(trackingRepository, times(1)).save(any(DeliveryTracking.class));
+        verify(trackingFanoutService, times(1)).publish(result);
     }
 
     @Test
     void getTrackingByDeliveryId_ShouldReturnTracking() {
         // Given
         UUID deliveryId = testTracking.getDeliveryId();
-        when(deliveryTrackingRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(testTracking));
+        when(trackingRepository.findByDeliveryId(deliveryId)).thenReturn(testTracking);
 
         // When
         DeliveryTracking result = trackingService.getTrackingByDeliveryId(deliveryId);
@@ -122,56 +112,57 @@ class TrackingServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(deliveryId, result.getDeliveryId());
-        verify(deliveryTrackingRepository, times(1)).findByDeliveryId(deliveryId);
+        verify(trackingRepository, times(1)).findByDeliveryId(deliveryId);
     }
 
     @Test
-    void getTrackingByDeliveryId_WithNonExistentDelivery_ShouldThrowException() {
+    void getTrackingSnapshot_WithNonExistentDelivery_ShouldThrowException() {
         // Given
         UUID deliveryId = UUID.randomUUID();
-        when(deliveryTrackingRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.empty());
+        when(trackingRepository.findSnapshotByDeliveryId(deliveryId)).thenReturn(null);
 
         // When & Then
-        assertThrows(RuntimeException.class, () -> trackingService.getTrackingByDeliveryId(deliveryId));
-        verify(deliveryTrackingRepository, times(1)).findByDeliveryId(deliveryId);
+        assertThrows(RuntimeException.class, () -> trackingService.getTrackingSnapshot(deliveryId));
+        verify(trackingRepository, times(1)).findSnapshotByDeliveryId(deliveryId);
     }
 
     @Test
-    void updateLocation_ShouldSaveLocationUpdateAndNotify() {
+    void updateLocation_ShouldRecordLocationAndNotify() {
         // Given
-        UUID deliveryId = testLocationUpdate.getDeliveryId();
-        Location newLocation = new Location(48.8570, 2.3400);
+        UUID deliveryId = testTracking.getDeliveryId();
+        DeliveryTrackingRepository.TrackingRouteView route = routeView("route-1", 20.0);
+        DeliveryTracking inTransit = tracking(DeliveryTracking.TrackingStatus.IN_TRANSIT);
 
-        when(locationUpdateRepository.save(any(LocationUpdate.class))).thenReturn(testLocationUpdate);
-        when(deliveryTrackingRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(testTracking));
+        when(locationFilterService.filter(deliveryId, testLocation)).thenReturn(testLocation);
+        when(trackingRepository.findRouteViewByDeliveryId(deliveryId)).thenReturn(route);
+        when(routeOptimizerService.calculateProgress("route-1", 20.0, testLocation)).thenReturn(40.0);
+        when(trackingRepository.recordLocationsAndGet(deliveryId, List.of(testLocation), 40.0)).thenReturn(testTracking);
+        when(trackingRepository.advanceStatusAndGet(deliveryId, DeliveryTracking.TrackingStatus.IN_TRANSIT)).thenReturn(inTransit);
 
         // When
-        LocationUpdate result = trackingService.updateLocation(deliveryId, newLocation);
+        DeliveryTracking result = trackingService.updateLocation(deliveryId, testLocation);
 
         // Then
         assertNotNull(result);
         assertEquals(deliveryId, result.getDeliveryId());
-        assertEquals(newLocation, result.getLocation());
+        assertEquals(DeliveryTracking.TrackingStatus.IN_TRANSIT, result.getStatus());
 
-        verify(locationUpdateRepository, times(1)).save(any(LocationUpdate.class));
-        verify(webSocketService, times(1)).sendLocationUpdate(eq(deliveryId), any(LocationUpdate.class));
+        verify(locationHistoryService, times(1)).append(deliveryId, testTracking.getCourierId(), testLocation);
+        verify(trackingFanoutService, times(1)).publish(inTransit);
+        verify(rabbitTemplate, times(1)).convertAndSend("delivery.exchange", "location.updated", (Object) inTransit);
     }
 
     @Test
-    void getLocationHistory_ShouldReturnLocationUpdates() {
+    void updateLocation_WithNonExistentDelivery_ShouldThrowException() {
         // Given
-        UUID deliveryId = testLocationUpdate.getDeliveryId();
-        List<LocationUpdate> locationUpdates = Arrays.asList(testLocationUpdate);
-        when(locationUpdateRepository.findByDeliveryIdOrderByTimestampDesc(deliveryId)).thenReturn(locationUpdates);
-
-        // When
-        List<LocationUpdate> result = trackingService.getLocationHistory(deliveryId);
+        UUID deliveryId = UUID.randomUUID();
+        when(locationFilterService.filter(deliveryId, testLocation)).thenReturn(testLocation);
+        when(trackingRepository.findRouteViewByDeliveryId(deliveryId)).thenReturn(null);
 
-        // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(deliveryId, result.get(0).getDeliveryId());
-        verify(locationUpdateRepository, times(1)).findByDeliveryIdOrderByTimestampDesc(deliveryId);
+        // When & Then
+        assertThrows(RuntimeException.class, () -> trackingService.updateLocation(deliveryId, testLocation));
+        verify(trackingRepository, never()).recordLocationsAndGet(any(), anyList(), any());
+        verify(trackingFanoutService, never()).publish(any());
     }
 
     @Test
@@ -179,18 +170,8 @@ class TrackingServiceTest {
         // Given
         UUID deliveryId = testTracking.getDeliveryId();
         DeliveryTracking.TrackingStatus newStatus = DeliveryTracking.TrackingStatus.IN_TRANSIT;
-
-        DeliveryTracking updatedTracking = DeliveryTracking.builder()
-                .id(testTracking.getId())
-                .deliveryId(testTracking.getDeliveryId())
-                .courierId(testTracking.getCourierId())
-                .status(newStatus)
-                .createdAt(testTracking.getCreatedAt())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
-        when(deliveryTrackingRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(testTracking));
-        when(deliveryTrackingRepository.save(any(DeliveryTracking.class))).thenReturn(updatedTracking);
+        DeliveryTracking updatedTracking = tracking(newStatus);
+        when(trackingRepository.updateStatusAndGet(deliveryId, newStatus)).thenReturn(updatedTracking);
 
         // When
         DeliveryTracking result = trackingService.updateTrackingStatus(deliveryId, newStatus);
@@ -198,91 +179,79 @@ class TrackingServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(newStatus, result.getStatus());
-        assertNotNull(result.getUpdatedAt());
 
-        verify(deliveryTrackingRepository, times(1)).findByDeliveryId(deliveryId);
-        verify(deliveryTrackingRepository, times(1)).save(any(DeliveryTracking.class));
-        verify(rabbitTemplate, times(1)).convertAndSend(eq("delivery.exchange"), eq("delivery.in_transit"), any());
+        verify(trackingRepository, times(1)).updateStatusAndGet(deliveryId, newStatus);
+        verify(delayMonitor, times(1)).track(updatedTracking);
+        verify(trackingFanoutService, times(1)).publish(updatedTracking);
+        verify(rabbitTemplate, times(1)).convertAndSend("delivery.exchange", "tracking.status.updated", (Object) updatedTracking);
     }
 
     @Test
-    void addTrackingEvent_ShouldSaveEvent() {
+    void updateTrackingStatus_ToDelivered_ShouldReleaseDeliveryState() {
         // Given
-        UUID deliveryId = testTrackingEvent.getDeliveryId();
-        TrackingEvent.EventType eventType = TrackingEvent.EventType.LOCATION_UPDATE;
-        String description = "Test event";
-
-        when(trackingEventRepository.save(any(TrackingEvent.class))).thenReturn(testTrackingEvent);
+        UUID deliveryId = testTracking.getDeliveryId();
+        when(trackingRepository.updateStatusAndGet(deliveryId, DeliveryTracking.TrackingStatus.DELIVERED))
+                .thenReturn(tracking(DeliveryTracking.TrackingStatus.DELIVERED));
 
         // When
-        TrackingEvent result = trackingService.addTrackingEvent(deliveryId, eventType, description);
+        trackingService.updateTrackingStatus(deliveryId, DeliveryTracking.TrackingStatus.DELIVERED);
 
         // Then
-        assertNotNull(result);
-        assertEquals(deliveryId, result.getDeliveryId());
-        assertEquals(eventType, result.getEventType());
-        assertEquals(description, result.getDescription());
-
-        verify(trackingEventRepository, times(1)).save(any(TrackingEvent.class));
+        verify(locationFilterService, times(1)).release(deliveryId);
+        verify(geofenceService, times(1)).removeDeliveryGeofences(deliveryId);
     }
 
     @Test
-    void getTrackingEvents_ShouldReturnEvents() {
+    void updateTrackingStatus_WithNonExistentDelivery_ShouldThrowException() {
         // Given
-        UUID deliveryId = testTrackingEvent.getDeliveryId();
-        List<TrackingEvent> trackingEvents = Arrays.asList(testTrackingEvent);
-        when(trackingEventRepository.findByDeliveryIdOrderByTimestampDesc(deliveryId)).thenReturn(trackingEvents);
-
-        // When
-        List<TrackingEvent> result = trackingService.getTrackingEvents(deliveryId);
+        UUID deliveryId = UUID.randomUUID();
+        when(trackingRepository.updateStatusAndGet(deliveryId, DeliveryTracking.TrackingStatus.IN_TRANSIT)).thenReturn(null);
 
-        // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(deliveryId, result.get(0).getDeliveryId());
-        verify(trackingEventRepository, times(1)).findByDeliveryIdOrderByTimestampDesc(deliveryId);
+        // When & Then
+        assertThrows(RuntimeException.class,
+                () -> trackingService.updateTrackingStatus(deliveryId, DeliveryTracking.TrackingStatus.IN_TRANSIT));
+        verify(rabbitTemplate, never()).convertAndSend(any(String.class), any(String.class), any(Object.class));
     }
 
     @Test
-    void markAsDelivered_ShouldUpdateStatusAndPublishEvent() {
+    void updateEstimatedDeliveryTime_ShouldRescheduleDelayDetection() {
         // Given
         UUID deliveryId = testTracking.getDeliveryId();
-        Location deliveryLocation = new Location(48.8584, 2.2945);
-        String recipientName = "John Doe";
-        String signature = "base64-signature";
-        String photo = "base64-photo";
+        LocalDateTime estimatedDeliveryTime = LocalDateTime.now().plusMinutes(30);
+        testTracking.setEstimatedDeliveryTime(estimatedDeliveryTime);
+        when(trackingRepository.updateEstimatedDeliveryTimeAndGet(deliveryId, estimatedDeliveryTime)).thenReturn(testTracking);
+
+        // When
+        DeliveryTracking result = trackingService.updateEstimatedDeliveryTime(deliveryId, estimatedDeliveryTime);
+
+        // Then
+        assertEquals(estimatedDeliveryTime, result.getEstimatedDeliveryTime());
+        verify(delayMonitor, times(1)).track(testTracking);
+        verify(trackingFanoutService, times(1)).publish(testTracking);
+    }
 
-        DeliveryTracking updatedTracking = DeliveryTracking.builder()
+    private DeliveryTracking tracking(DeliveryTracking.TrackingStatus status) {
+        return DeliveryTracking.builder()
                 .id(testTracking.getId())
                 .deliveryId(testTracking.getDeliveryId())
                 .courierId(testTracking.getCourierId())
-                .status(DeliveryTracking.TrackingStatus.DELIVERED)
-                .createdAt(testTracking.getCreatedAt())
-                .updatedAt(LocalDateTime.now())
-                .deliveryLocation(deliveryLocation)
-                .deliveryTime(LocalDateTime.now())
-                .recipientName(recipientName)
-                .signature(signature)
-                .photo(photo)
+                .status(status)
+                .routeId(testTracking.getRouteId())
+                .lastUpdated(LocalDateTime.now())
                 .build();
+    }
 
-        when(deliveryTrackingRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(testTracking));
-        when(deliveryTrackingRepository.save(any(DeliveryTracking.class))).thenReturn(updatedTracking);
-
-        // When
-        DeliveryTracking result = trackingService.markAsDelivered(deliveryId, deliveryLocation, recipientName, signature, photo);
-
-        // Then
-        assertNotNull(result);
-        assertEquals(DeliveryTracking.TrackingStatus.DELIVERED, result.getStatus());
-        assertEquals(deliveryLocation, result.getDeliveryLocation());
-        assertEquals(recipientName, result.getRecipientName());
-        assertEquals(signature, result.getSignature());
-        assertEquals(photo, result.getPhoto());
-        assertNotNull(result.getDeliveryTime());
-
-        verify(deliveryTrackingRepository, times(1)).findByDeliveryId(deliveryId);
-        verify(deliveryTrackingRepository, times(1)).save(any(DeliveryTracking.class));
-        verify(rabbitTemplate, times(1)).convertAndSend(eq("delivery.exchange"), eq("delivery.delivered"), any());
+    private static DeliveryTrackingRepository.TrackingRouteView routeView(String routeId, Double progressPercentage) {
+        return new DeliveryTrackingRepository.TrackingRouteView() {
+            @Override
+            public String getRouteId() {
+                return routeId;
+            }
+
+            @Override
+            public Double getProgressPercentage() {
+                return progressPercentage;
+            }
+        };
     }
 }